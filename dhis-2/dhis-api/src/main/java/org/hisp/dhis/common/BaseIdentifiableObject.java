@@ -136,6 +136,12 @@ public class BaseIdentifiableObject
      */
     protected Set<UserAccess> userAccesses = new HashSet<>();
 
+    /**
+     * Denormalized grants derived from user group accesses and user accesses,
+     * persisted to allow indexed sharing lookups. Not exposed through the API.
+     */
+    protected Set<String> sharingGrants = new HashSet<>();
+
     /**
      * Access information for this object. Applies to current user.
      */
@@ -473,6 +479,16 @@ public class BaseIdentifiableObject
         this.userAccesses = userAccesses;
     }
 
+    public Set<String> getSharingGrants()
+    {
+        return sharingGrants;
+    }
+
+    public void setSharingGrants( Set<String> sharingGrants )
+    {
+        this.sharingGrants = sharingGrants;
+    }
+
     @Override
     @JsonProperty
     @JacksonXmlProperty( localName = "access", namespace = DxfNamespaces.DXF_2_0 )
@@ -112,6 +112,8 @@ public class EventDataQueryRequest
 
     protected Integer pageSize;
 
+    protected boolean approximate;
+
     public String getProgram()
     {
         return program;
@@ -292,6 +294,11 @@ public class EventDataQueryRequest
         return pageSize;
     }
 
+    public boolean isApproximate()
+    {
+        return approximate;
+    }
+
     /**
      * Copies all properties of this request onto the given request.
      *
@@ -334,6 +341,7 @@ public class EventDataQueryRequest
         request.coordinateField = this.coordinateField;
         request.page = this.page;
         request.pageSize = this.pageSize;
+        request.approximate = this.approximate;
         return request;
     }
 
@@ -563,6 +571,12 @@ public class EventDataQueryRequest
             return this;
         }
 
+        public EventDataQueryRequestBuilder approximate( boolean approximate )
+        {
+            this.request.approximate = approximate;
+            return this;
+        }
+
         public EventDataQueryRequestBuilder coordinateField( String coordinateField )
         {
             this.request.coordinateField = coordinateField;
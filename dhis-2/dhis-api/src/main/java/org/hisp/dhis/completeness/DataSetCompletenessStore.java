@@ -29,6 +29,8 @@ package org.hisp.dhis.completeness;
  */
 
 import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
 
 import java.util.Collection;
 import java.util.List;
@@ -49,4 +51,23 @@ public interface DataSetCompletenessStore
     Integer getCompulsoryDataElementRegistrations( DataSet dataSet, Collection<Long> children, Collection<Long> periods, int completenessOffset );
 
     List<DataSet> getDataSetsWithRegistrations( Collection<DataSet> dataSets );
+
+    /**
+     * Returns completeness results from the completeness and completeness
+     * target analytics tables, with one grouped query against each table.
+     * The results hold the expected reports per period as sources, the
+     * complete data set registrations and the registrations on time for
+     * each data set and organisation unit subtree, with the data set and
+     * organisation unit identifiers set. Combinations without expected
+     * reports or registrations are left out.
+     *
+     * @param dataSets the data sets.
+     * @param period the period, registrations are counted for the data set
+     *        periods within this period.
+     * @param orgUnits the organisation units, which must be at the given level.
+     * @param orgUnitLevel the organisation unit level.
+     * @return a list of completeness results.
+     */
+    List<DataSetCompletenessResult> getAnalyticsCompleteness( Collection<DataSet> dataSets, Period period,
+        Collection<OrganisationUnit> orgUnits, int orgUnitLevel );
 }
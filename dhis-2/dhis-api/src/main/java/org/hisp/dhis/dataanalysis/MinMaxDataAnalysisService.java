@@ -32,6 +32,7 @@ import java.util.Collection;
 
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 public interface MinMaxDataAnalysisService
     extends DataAnalysisService
@@ -45,4 +46,17 @@ public interface MinMaxDataAnalysisService
      */
     void generateMinMaxValues( OrganisationUnit parent,
         Collection<DataElement> dataElements, Double stdDevFactor );
+
+    /**
+     * Generate min-max values, replacing the existing values of the parent
+     * and of each child subtree in parallel, and reporting progress for the
+     * given job.
+     *
+     * @param parent the parent organisation unit.
+     * @param dataElements the data elements.
+     * @param stdDevFactor the std dev factor.
+     * @param jobId the job configuration, or null.
+     */
+    void generateMinMaxValues( OrganisationUnit parent,
+        Collection<DataElement> dataElements, Double stdDevFactor, JobConfiguration jobId );
 }
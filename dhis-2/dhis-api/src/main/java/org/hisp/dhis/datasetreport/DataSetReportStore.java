@@ -43,7 +43,11 @@ public interface DataSetReportStore
     String SEPARATOR = "-";
 
     /**
-     * Get a mapping from dimensional identifiers to aggregated values.
+     * Get a mapping from dimensional identifiers to aggregated values, total
+     * values and indicator values with a single analytics query. Values are
+     * mapped to data element and category option combo identifiers, total
+     * values to data element identifiers and indicator values to indicator
+     * identifiers.
      *
      * @param dataSet the data set.
      * @param period the period.
@@ -52,7 +56,7 @@ public interface DataSetReportStore
      *        <dim-id>:<dim-item>;<dim-item>
      * @return a mapping from dimensional identifiers to aggregated values.
      */
-    Map<String, Object> getAggregatedValues( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters );
+    Map<String, Object> getAggregatedReportValues( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters );
 
     /**
      * Get a mapping from dimensional identifiers to aggregated sub-total values.
@@ -65,28 +69,4 @@ public interface DataSetReportStore
      * @return a mapping from dimensional identifiers to aggregated sub-total values.
      */
     Map<String, Object> getAggregatedSubTotals( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters );
-
-    /**
-     * Get a mapping from dimensional identifiers to aggregated total values.
-     *
-     * @param dataSet the data set.
-     * @param period the period.
-     * @param unit the organisation unit.
-     * @param filters the filters on the analytics dimension format, e.g.
-     *        <dim-id>:<dim-item>;<dim-item>
-     * @return a mapping from dimensional identifiers to aggregated total values.
-     */
-    Map<String, Object> getAggregatedTotals( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters );
-
-    /**
-     * Get a mapping from dimensional identifiers to aggregated indicator values.
-     *
-     * @param dataSet the data set.
-     * @param period the period.
-     * @param unit the organisation unit.
-     * @param filters the filters on the analytics dimension format, e.g.
-     *        <dim-id>:<dim-item>;<dim-item>
-     * @return a mapping from dimensional identifiers to aggregated indicator values.
-     */
-    Map<String, Object> getAggregatedIndicatorValues( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters );
 }
@@ -252,6 +252,27 @@ public interface ExpressionService
         Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
         ListMap<String, Double> aggregateMap );
 
+    /**
+     * Compiles the given expression for repeated evaluation against arrays of
+     * values. The result of evaluating the compiled expression is the same as
+     * {@link #getExpressionValue(Expression, Map, Map, Map, Integer)} for
+     * the corresponding values. Returns null if the expression cannot be
+     * compiled, in which case callers should fall back to
+     * {@link #getExpressionValue(Expression, Map, Map, Map, Integer)}.
+     *
+     * @param expression the expression to compile.
+     * @param itemIndexMap the mapping between dimension item identifiers and
+     *        the index of their values in the value array. Items which are
+     *        not present are treated as missing.
+     * @param constantMap the mapping between the constant uid and value to use
+     *        in the calculation.
+     * @param orgUnitCountMap the mapping between organisation unit group uid
+     *        and count of organisation units to use in the calculation.
+     * @return the compiled expression, or null.
+     */
+    CompiledExpression compileExpression( Expression expression, Map<String, Integer> itemIndexMap,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap );
+
     /**
      * Returns all data elements included in the given expression string.
      * Returns an empty set if the given expression is null.
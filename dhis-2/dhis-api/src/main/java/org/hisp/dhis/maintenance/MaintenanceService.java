@@ -78,6 +78,15 @@ public interface MaintenanceService
      */
     int deleteSoftDeletedTrackedEntityInstances();
 
+    /**
+     * Rebuilds the search projection of tracked entity instances, which is
+     * required after enabling the projection and after changing the attributes
+     * of programs.
+     *
+     * @return the number of projected tracked entity instance enrollments.
+     */
+    int rebuildTrackedEntityInstanceSearchProjection();
+
     /**
      * Deletes periods which do not have data values associated with them.
      */
@@ -65,4 +65,7 @@ public interface MinMaxDataElementService
     void removeMinMaxDataElements( CategoryOptionCombo optionCombo );
     
     void removeMinMaxDataElements( Collection<DataElement> dataElements, OrganisationUnit parent );
+
+    int generateMinMaxDataElements( Collection<DataElement> dataElements, Collection<CategoryOptionCombo> categoryOptionCombos,
+        OrganisationUnit orgUnit, boolean includeDescendants, double stdDevFactor );
 }
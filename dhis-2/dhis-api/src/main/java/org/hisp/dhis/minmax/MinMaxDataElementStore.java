@@ -62,4 +62,20 @@ public interface MinMaxDataElementStore
     void delete( CategoryOptionCombo optionCombo );
     
     void delete( Collection<DataElement> dataElements, OrganisationUnit parent );
+
+    /**
+     * Replaces the min-max values of the given data elements for the given
+     * organisation unit with values generated from the standard deviation of
+     * the stored data values, using one delete and one insert statement.
+     *
+     * @param dataElements the data elements.
+     * @param categoryOptionCombos the category option combos to generate values for.
+     * @param orgUnit the organisation unit.
+     * @param includeDescendants whether to include the descendants of the
+     *        organisation unit.
+     * @param stdDevFactor the std dev factor.
+     * @return the number of generated min-max values.
+     */
+    int generate( Collection<DataElement> dataElements, Collection<CategoryOptionCombo> categoryOptionCombos,
+        OrganisationUnit orgUnit, boolean includeDescendants, double stdDevFactor );
 }
@@ -109,6 +109,12 @@ public class ProgramIndicator
 
     private Boolean displayInForm;
 
+    /**
+     * Indicates whether the program indicator value should be computed into a
+     * dedicated column of the event or enrollment analytics table.
+     */
+    private boolean materialize;
+
     private Set<ProgramIndicatorGroup> groups = new HashSet<>();
 
     private AnalyticsType analyticsType = AnalyticsType.EVENT;
@@ -418,6 +424,18 @@ public class ProgramIndicator
         this.displayInForm = displayInForm;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isMaterialize()
+    {
+        return materialize;
+    }
+
+    public void setMaterialize( boolean materialize )
+    {
+        this.materialize = materialize;
+    }
+
     @JsonProperty( "programIndicatorGroups" )
     @JsonSerialize( contentAs = BaseIdentifiableObject.class )
     @JacksonXmlElementWrapper( localName = "programIndicatorGroups", namespace = DxfNamespaces.DXF_2_0 )
@@ -96,6 +96,16 @@ public interface ProgramRuleService
 
     List<ProgramRule> getImplementableProgramRules( Program program, Set<ProgramRuleActionType> types );
 
+    /**
+     * Returns a version of the program rules, program rule actions and program
+     * rule variables of the given {@link Program}, which changes whenever any
+     * of them is added, updated or removed.
+     *
+     * @param program Program
+     * @return the version.
+     */
+    String getProgramRuleVersion( Program program );
+
     /**
      * Get validation by {@link Program}
      *
@@ -68,6 +68,17 @@ public interface ProgramRuleStore
 
     List<ProgramRule> getImplementableProgramRules( Program program, Set<ProgramRuleActionType> types );
 
+    /**
+     * Returns a version of the program rules, program rule actions and program
+     * rule variables of the given {@link Program}, made of their counts and
+     * last updated timestamps. The version changes whenever any of them is
+     * added, updated or removed.
+     *
+     * @param program Program
+     * @return the version.
+     */
+    String getProgramRuleVersion( Program program );
+
     List<ProgramRule> getProgramRulesWithNoCondition();
 
     List<ProgramRule> getProgramRulesWithNoPriority();
@@ -0,0 +1,210 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.programrule.ProgramRuleActionType;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Program rule effect waiting to be implemented by the rule effect outbox
+ * workers. Entries are written in the transaction which triggered the rule
+ * evaluation and refer to either an enrollment or an event.
+ */
+public class RuleEffectOutboxEntry
+    implements Serializable
+{
+    private static final long serialVersionUID = -3525386245462081425L;
+
+    private long id;
+
+    private ProgramInstance programInstance;
+
+    private ProgramStageInstance programStageInstance;
+
+    private ProgramRuleActionType actionType;
+
+    private String notification;
+
+    private String actionData;
+
+    private String effectData;
+
+    private Date created;
+
+    private Date nextAttempt;
+
+    private int attempts;
+
+    private String lastError;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public RuleEffectOutboxEntry()
+    {
+    }
+
+    public RuleEffectOutboxEntry( ProgramRuleActionType actionType, String notification, String actionData, String effectData )
+    {
+        this.actionType = actionType;
+        this.notification = notification;
+        this.actionData = actionData;
+        this.effectData = effectData;
+        this.created = new Date();
+        this.nextAttempt = this.created;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    public boolean isEvent()
+    {
+        return programStageInstance != null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters and setters
+    // -------------------------------------------------------------------------
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public void setId( long id )
+    {
+        this.id = id;
+    }
+
+    public ProgramInstance getProgramInstance()
+    {
+        return programInstance;
+    }
+
+    public void setProgramInstance( ProgramInstance programInstance )
+    {
+        this.programInstance = programInstance;
+    }
+
+    public ProgramStageInstance getProgramStageInstance()
+    {
+        return programStageInstance;
+    }
+
+    public void setProgramStageInstance( ProgramStageInstance programStageInstance )
+    {
+        this.programStageInstance = programStageInstance;
+    }
+
+    public ProgramRuleActionType getActionType()
+    {
+        return actionType;
+    }
+
+    public void setActionType( ProgramRuleActionType actionType )
+    {
+        this.actionType = actionType;
+    }
+
+    public String getNotification()
+    {
+        return notification;
+    }
+
+    public void setNotification( String notification )
+    {
+        this.notification = notification;
+    }
+
+    public String getActionData()
+    {
+        return actionData;
+    }
+
+    public void setActionData( String actionData )
+    {
+        this.actionData = actionData;
+    }
+
+    public String getEffectData()
+    {
+        return effectData;
+    }
+
+    public void setEffectData( String effectData )
+    {
+        this.effectData = effectData;
+    }
+
+    public Date getCreated()
+    {
+        return created;
+    }
+
+    public void setCreated( Date created )
+    {
+        this.created = created;
+    }
+
+    public Date getNextAttempt()
+    {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt( Date nextAttempt )
+    {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    public void setAttempts( int attempts )
+    {
+        this.attempts = attempts;
+    }
+
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    public void setLastError( String lastError )
+    {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,83 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.rules.models.RuleEffect;
+
+import java.util.Map;
+
+/**
+ * Outbox for program rule effects which are implemented outside of the
+ * transaction which triggered the rule evaluation. Effects are written to the
+ * outbox in the triggering transaction and implemented in batches by a pool
+ * of background workers, with retries for failed effects.
+ */
+public interface RuleEffectOutboxService
+{
+    /**
+     * Indicates whether the outbox is enabled through the
+     * tracker.rule.effect.outbox configuration property.
+     */
+    boolean isEnabled();
+
+    /**
+     * Writes the given effect for the enrollment to the outbox if the outbox
+     * is enabled and the effect can be implemented asynchronously.
+     *
+     * @param ruleEffect the rule effect.
+     * @param programInstance the enrollment.
+     * @return true if the effect was written to the outbox.
+     */
+    boolean enqueue( RuleEffect ruleEffect, ProgramInstance programInstance );
+
+    /**
+     * Writes the given effect for the event to the outbox if the outbox is
+     * enabled and the effect can be implemented asynchronously.
+     *
+     * @param ruleEffect the rule effect.
+     * @param programStageInstance the event.
+     * @return true if the effect was written to the outbox.
+     */
+    boolean enqueue( RuleEffect ruleEffect, ProgramStageInstance programStageInstance );
+
+    /**
+     * Claims and implements one batch of due outbox entries.
+     *
+     * @return the number of entries claimed.
+     */
+    int processOutbox();
+
+    /**
+     * Returns counters for implemented, retried and failed effects since
+     * startup together with the number of pending and failed outbox entries.
+     */
+    Map<String, Object> getMetrics();
+}
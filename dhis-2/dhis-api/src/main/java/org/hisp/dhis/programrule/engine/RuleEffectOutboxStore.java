@@ -0,0 +1,72 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.GenericStore;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Store for {@link RuleEffectOutboxEntry}.
+ */
+public interface RuleEffectOutboxStore
+    extends GenericStore<RuleEffectOutboxEntry>
+{
+    String ID = RuleEffectOutboxStore.class.getName();
+
+    /**
+     * Claims outbox entries which are due and have attempts left. Claimed
+     * entries get their attempt count incremented and are not due again until
+     * the given lease time, so that entries of a worker which died are picked
+     * up again. Entries locked by other workers are skipped.
+     *
+     * @param leaseUntil the time until which the claimed entries are reserved.
+     * @param maxAttempts the maximum number of attempts per entry.
+     * @param max the maximum number of entries to claim.
+     * @return the claimed entries.
+     */
+    List<RuleEffectOutboxEntry> claimPendingEntries( Date leaseUntil, int maxAttempts, int max );
+
+    /**
+     * Returns the number of entries which have attempts left.
+     *
+     * @param maxAttempts the maximum number of attempts per entry.
+     * @return the number of pending entries.
+     */
+    long getPendingCount( int maxAttempts );
+
+    /**
+     * Returns the number of entries which exhausted their attempts.
+     *
+     * @param maxAttempts the maximum number of attempts per entry.
+     * @return the number of failed entries.
+     */
+    long getFailedCount( int maxAttempts );
+}
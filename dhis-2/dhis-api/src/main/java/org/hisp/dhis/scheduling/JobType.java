@@ -87,6 +87,7 @@ public enum JobType
     EVENT_IMPORT( null, false, null, null ),
     ENROLLMENT_IMPORT( null, false, null, null ),
     TEI_IMPORT( null, false, null, null ),
+    MIN_MAX_VALUE_GENERATION( null, false, null, null ),
     LEADER_ELECTION( "leaderElectionJob", false, null, null ),
     LEADER_RENEWAL( "leaderRenewalJob", false, null, null ),
     COMPLETE_DATA_SET_REGISTRATION_IMPORT( null, false, null, null );
@@ -63,6 +63,9 @@ public class MonitoringJobParameters
     @JsonProperty
     private boolean persistResults;
 
+    @JsonProperty
+    private boolean incremental;
+
     public MonitoringJobParameters()
     {
     }
@@ -127,6 +130,16 @@ public class MonitoringJobParameters
         this.persistResults = persistResults;
     }
 
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
     @Override
     public ErrorReport validate()
     {
@@ -76,4 +76,24 @@ public interface TrackedEntityInstanceStore
     void updateTrackedEntityInstancesSyncTimestamp( List<String> trackedEntityInstanceUIDs, Date lastSynchronized );
 
     List<TrackedEntityInstance> getTrackedEntityInstancesByUid( List<String> uids, User user );
+
+    /**
+     * Marks the search projection rows of the given TEI as stale. The rows are
+     * refreshed once before the current transaction commits, so that a TEI
+     * with many attribute values and enrollments written in one transaction
+     * is projected only once.
+     *
+     * @param instance the tracked entity instance.
+     */
+    void updateSearchProjection( TrackedEntityInstance instance );
+
+    /**
+     * Rebuilds the search projection for all TEIs. Required after enabling
+     * the search projection and after changing the attributes of programs.
+     * Queries for programs whose attributes changed since the last rebuild
+     * do not use the projection until the next rebuild.
+     *
+     * @return the number of projected TEI enrollments.
+     */
+    int rebuildSearchProjection();
 }
@@ -32,8 +32,10 @@ import com.google.common.collect.ImmutableSet;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * This class represents the most fundamental parameters to run a validation rule analysis.
@@ -73,6 +75,10 @@ public final class ValidationAnalysisParams
 
     private int dayInPeriod = -1;
 
+    private Date changedSince;
+
+    private JobConfiguration jobConfiguration;
+
     /**
      * Gets the rules selected for analysis
      *
@@ -168,6 +174,28 @@ public final class ValidationAnalysisParams
         return maxResults;
     }
 
+    /**
+     * Gets the time from which changed data values and events should be
+     * validated. If set, only the combinations of organisation unit, period
+     * and rule affected by data changed since this time will be validated.
+     *
+     * @return the time from which changes are validated, or null if disabled.
+     */
+    public Date getChangedSince()
+    {
+        return changedSince;
+    }
+
+    /**
+     * Gets the job for which progress of the analysis should be reported.
+     *
+     * @return the job configuration, or null if progress is not reported.
+     */
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
     public static class Builder
     {
         private ValidationAnalysisParams params;
@@ -255,6 +283,31 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * Limits the analysis to data changed since the given time. Null means
+         * that all data will be validated.
+         *
+         * @param changedSince the time from which changes should be validated
+         * @return the updated builder object
+         */
+        public Builder withChangedSince( Date changedSince )
+        {
+            this.params.changedSince = changedSince;
+            return this;
+        }
+
+        /**
+         * Reports the progress of the analysis to the notifier for the given job.
+         *
+         * @param jobConfiguration the job running the analysis
+         * @return the updated builder object
+         */
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.params.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
         /**
          * Returns the params object
          * @return the final ValidationAnalysisParams object.
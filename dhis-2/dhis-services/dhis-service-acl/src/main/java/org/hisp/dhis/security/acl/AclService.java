@@ -32,6 +32,7 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.feedback.ErrorReport;
 import org.hisp.dhis.user.User;
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -99,6 +100,25 @@ public interface AclService
      */
     boolean canRead( User user, IdentifiableObject object );
 
+    /**
+     * Can user read this object, using a precomputed user access context.
+     *
+     * @param context User access context to check against
+     * @param object  Object to check
+     * @return Result of test
+     */
+    boolean canRead( UserAccessContext context, IdentifiableObject object );
+
+    /**
+     * Can user read the given objects. The user groups and authorities of the
+     * user are resolved once for the whole list.
+     *
+     * @param user    User to check against
+     * @param objects Objects to check
+     * @return a bit set where the bit at the index of each readable object is set
+     */
+    BitSet canRead( User user, List<? extends IdentifiableObject> objects );
+
     /**
      * Can user read data this object.
      *
@@ -135,6 +155,15 @@ public interface AclService
      */
     boolean canWrite( User user, IdentifiableObject object );
 
+    /**
+     * Can user write to this object (create), using a precomputed user access context.
+     *
+     * @param context User access context to check against
+     * @param object  Object to check
+     * @return Result of test
+     */
+    boolean canWrite( UserAccessContext context, IdentifiableObject object );
+
     /**
      * Can user write data to this object (create)
      *
@@ -156,6 +185,15 @@ public interface AclService
      */
     boolean canUpdate( User user, IdentifiableObject object );
 
+    /**
+     * Can user update this object, using a precomputed user access context.
+     *
+     * @param context User access context to check against
+     * @param object  Object to check
+     * @return Result of test
+     */
+    boolean canUpdate( UserAccessContext context, IdentifiableObject object );
+
     /**
      * Can user delete this object
      * <p/>
@@ -168,6 +206,15 @@ public interface AclService
      */
     boolean canDelete( User user, IdentifiableObject object );
 
+    /**
+     * Can user delete this object, using a precomputed user access context.
+     *
+     * @param context User access context to check against
+     * @param object  Object to check
+     * @return Result of test
+     */
+    boolean canDelete( UserAccessContext context, IdentifiableObject object );
+
     /**
      * Can user manage (make public) this object
      * <p/>
@@ -264,6 +311,15 @@ public interface AclService
      */
     <T extends IdentifiableObject> Access getAccess( T object, User user );
 
+    /**
+     * Return the access object for a object, using a precomputed user access context.
+     *
+     * @param object  Object to check for access
+     * @param context User access context to check against
+     * @return Populated access instance
+     */
+    <T extends IdentifiableObject> Access getAccess( T object, UserAccessContext context );
+
     /**
      * Sets default sharing props on object, disregarding what is already there.
      *
@@ -43,11 +43,10 @@ import org.hisp.dhis.user.UserAccess;
 import org.hisp.dhis.user.UserGroupAccess;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
-import static org.springframework.util.CollectionUtils.containsAny;
-
 /**
  * Default ACL implementation that uses SchemaDescriptors to get authorities / sharing flags.
  *
@@ -98,22 +97,28 @@ public class DefaultAclService implements AclService
     @Override
     public boolean canRead( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) )
+        return canRead( new UserAccessContext( user ), object );
+    }
+
+    @Override
+    public boolean canRead( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) )
         {
             return true;
         }
 
         Schema schema = schemaService.getSchema( object.getClass() );
         
-        if ( canAccess( user, schema.getAuthorityByType( AuthorityType.READ ) ) )
+        if ( canAccess( context, schema.getAuthorityByType( AuthorityType.READ ) ) )
         {
             if ( object instanceof CategoryOptionCombo )
             {
-                return checkOptionComboSharingPermission( user, object, Permission.READ );
+                return checkOptionComboSharingPermission( context, object, Permission.READ );
             }
 
-            if ( !schema.isShareable() || object.getPublicAccess() == null || checkUser( user, object )
-                || checkSharingPermission( user, object, Permission.READ ) )
+            if ( !schema.isShareable() || object.getPublicAccess() == null || checkUser( context, object )
+                || checkSharingPermission( context, object, Permission.READ ) )
             {
                 return true;
             }
@@ -126,23 +131,46 @@ public class DefaultAclService implements AclService
         return false;
     }
 
+    @Override
+    public BitSet canRead( User user, List<? extends IdentifiableObject> objects )
+    {
+        UserAccessContext context = new UserAccessContext( user );
+
+        BitSet readable = new BitSet( objects.size() );
+
+        for ( int i = 0; i < objects.size(); i++ )
+        {
+            if ( canRead( context, objects.get( i ) ) )
+            {
+                readable.set( i );
+            }
+        }
+
+        return readable;
+    }
+
     @Override
     public boolean canDataRead( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) ) return true;
+        return canDataRead( new UserAccessContext( user ), object );
+    }
+
+    private boolean canDataRead( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) ) return true;
 
         Schema schema = schemaService.getSchema( object.getClass() );
         
-        if ( canAccess( user, schema.getAuthorityByType( AuthorityType.DATA_READ ) ) )
+        if ( canAccess( context, schema.getAuthorityByType( AuthorityType.DATA_READ ) ) )
         {
             if ( object instanceof CategoryOptionCombo )
             {
-                return checkOptionComboSharingPermission( user, object, Permission.DATA_READ ) || checkOptionComboSharingPermission( user, object, Permission.DATA_WRITE );
+                return checkOptionComboSharingPermission( context, object, Permission.DATA_READ ) || checkOptionComboSharingPermission( context, object, Permission.DATA_WRITE );
             }
 
             if ( schema.isDataShareable() &&
-                ( checkSharingPermission( user, object, Permission.DATA_READ )
-                    || checkSharingPermission( user, object, Permission.DATA_WRITE )) )
+                ( checkSharingPermission( context, object, Permission.DATA_READ )
+                    || checkSharingPermission( context, object, Permission.DATA_WRITE )) )
             {
                 return true;
             }
@@ -162,7 +190,13 @@ public class DefaultAclService implements AclService
     @Override
     public boolean canWrite( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) )
+        return canWrite( new UserAccessContext( user ), object );
+    }
+
+    @Override
+    public boolean canWrite( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) )
         {
             return true;
         }
@@ -177,16 +211,16 @@ public class DefaultAclService implements AclService
             anyAuthorities.addAll( schema.getAuthorityByType( AuthorityType.CREATE_PUBLIC ) );
         }
 
-        if ( canAccess( user, anyAuthorities ) )
+        if ( canAccess( context, anyAuthorities ) )
         {
             if ( object instanceof CategoryOptionCombo )
             {
-                return checkOptionComboSharingPermission( user, object, Permission.WRITE );
+                return checkOptionComboSharingPermission( context, object, Permission.WRITE );
             }
 
-            return writeCommonCheck(schema, user, object);
+            return writeCommonCheck( schema, context, object );
         }
-        else if ( schema.isImplicitPrivateAuthority() && checkSharingAccess( user, object ) )
+        else if ( schema.isImplicitPrivateAuthority() && checkSharingAccess( context, object ) )
         {
             return true;
         }
@@ -197,7 +231,12 @@ public class DefaultAclService implements AclService
     @Override
     public boolean canDataWrite( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) )
+        return canDataWrite( new UserAccessContext( user ), object );
+    }
+
+    private boolean canDataWrite( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) )
         {
             return true;
         }
@@ -206,14 +245,14 @@ public class DefaultAclService implements AclService
 
         List<String> anyAuthorities = schema.getAuthorityByType( AuthorityType.DATA_CREATE );
 
-        if ( canAccess( user, anyAuthorities ) )
+        if ( canAccess( context, anyAuthorities ) )
         {
             if ( object instanceof CategoryOptionCombo )
             {
-                return checkOptionComboSharingPermission( user, object, Permission.DATA_WRITE );
+                return checkOptionComboSharingPermission( context, object, Permission.DATA_WRITE );
             }
 
-            if ( schema.isDataShareable() && checkSharingPermission( user, object, Permission.DATA_WRITE ) )
+            if ( schema.isDataShareable() && checkSharingPermission( context, object, Permission.DATA_WRITE ) )
             {
                 return true;
             }
@@ -225,7 +264,13 @@ public class DefaultAclService implements AclService
     @Override
     public boolean canUpdate( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) )
+        return canUpdate( new UserAccessContext( user ), object );
+    }
+
+    @Override
+    public boolean canUpdate( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) )
         {
             return true;
         }
@@ -241,12 +286,12 @@ public class DefaultAclService implements AclService
             anyAuthorities.addAll( schema.getAuthorityByType( AuthorityType.CREATE_PUBLIC ) );
         }
 
-        if ( canAccess( user, anyAuthorities ) )
+        if ( canAccess( context, anyAuthorities ) )
         {
-            return writeCommonCheck( schema, user, object );
+            return writeCommonCheck( schema, context, object );
         }
-        else if ( schema.isImplicitPrivateAuthority() && checkSharingAccess( user, object )
-            && (checkUser( user, object ) || checkSharingPermission( user, object, Permission.WRITE )) )
+        else if ( schema.isImplicitPrivateAuthority() && checkSharingAccess( context, object )
+            && (checkUser( context, object ) || checkSharingPermission( context, object, Permission.WRITE )) )
         {
             return true;
         }
@@ -257,7 +302,13 @@ public class DefaultAclService implements AclService
     @Override
     public boolean canDelete( User user, IdentifiableObject object )
     {
-        if ( readWriteCommonCheck( user, object ) )
+        return canDelete( new UserAccessContext( user ), object );
+    }
+
+    @Override
+    public boolean canDelete( UserAccessContext context, IdentifiableObject object )
+    {
+        if ( readWriteCommonCheck( context, object ) )
         {
             return true;
         }
@@ -273,20 +324,20 @@ public class DefaultAclService implements AclService
             anyAuthorities.addAll( schema.getAuthorityByType( AuthorityType.CREATE_PUBLIC ) );
         }
 
-        if ( canAccess( user, anyAuthorities ) )
+        if ( canAccess( context, anyAuthorities ) )
         {
             if ( !schema.isShareable() || object.getPublicAccess() == null )
             {
                 return true;
             }
 
-            if ( checkSharingAccess( user, object ) &&
-                (checkUser( user, object ) || checkSharingPermission( user, object, Permission.WRITE )) )
+            if ( checkSharingAccess( context, object ) &&
+                (checkUser( context, object ) || checkSharingPermission( context, object, Permission.WRITE )) )
             {
                 return true;
             }
         }
-        else if ( schema.isImplicitPrivateAuthority() && checkUser( user, object ) )
+        else if ( schema.isImplicitPrivateAuthority() && checkUser( context, object ) )
         {
             return true;
         }
@@ -306,7 +357,7 @@ public class DefaultAclService implements AclService
         Schema schema = schemaService.getSchema( klass );
 
         return schema == null || schema.getAuthorityByType( AuthorityType.READ ) == null
-            || canAccess( user, schema.getAuthorityByType( AuthorityType.READ ) );
+            || canAccess( new UserAccessContext( user ), schema.getAuthorityByType( AuthorityType.READ ) );
     }
 
     @Override
@@ -321,7 +372,7 @@ public class DefaultAclService implements AclService
 
         if ( !schema.isShareable() )
         {
-            return canAccess( user, schema.getAuthorityByType( AuthorityType.CREATE ) );
+            return canAccess( new UserAccessContext( user ), schema.getAuthorityByType( AuthorityType.CREATE ) );
         }
 
         return canMakePublic( user, klass ) || canMakePrivate( user, klass );
@@ -329,27 +380,42 @@ public class DefaultAclService implements AclService
 
     @Override
     public <T extends IdentifiableObject> boolean canMakePublic( User user, Class<T> klass )
+    {
+        return canMakePublic( new UserAccessContext( user ), klass );
+    }
+
+    private <T extends IdentifiableObject> boolean canMakePublic( UserAccessContext context, Class<T> klass )
     {
         Schema schema = schemaService.getSchema( klass );
         return !(schema == null || !schema.isShareable())
-            && canAccess( user, schema.getAuthorityByType( AuthorityType.CREATE_PUBLIC ) );
+            && canAccess( context, schema.getAuthorityByType( AuthorityType.CREATE_PUBLIC ) );
     }
 
     @Override
     public <T extends IdentifiableObject> boolean canMakePrivate( User user, Class<T> klass )
+    {
+        return canMakePrivate( new UserAccessContext( user ), klass );
+    }
+
+    private <T extends IdentifiableObject> boolean canMakePrivate( UserAccessContext context, Class<T> klass )
     {
         Schema schema = schemaService.getSchema( klass );
         return !(schema == null || !schema.isShareable())
-            && canAccess( user, schema.getAuthorityByType( AuthorityType.CREATE_PRIVATE ) );
+            && canAccess( context, schema.getAuthorityByType( AuthorityType.CREATE_PRIVATE ) );
     }
 
     @Override
     public <T extends IdentifiableObject> boolean canMakeExternal( User user, Class<T> klass )
+    {
+        return canMakeExternal( new UserAccessContext( user ), klass );
+    }
+
+    private <T extends IdentifiableObject> boolean canMakeExternal( UserAccessContext context, Class<T> klass )
     {
         Schema schema = schemaService.getSchema( klass );
         return !(schema == null || !schema.isShareable())
-            && ((!schema.getAuthorityByType( AuthorityType.EXTERNALIZE ).isEmpty() && haveOverrideAuthority( user ))
-            || haveAuthority( user, schema.getAuthorityByType( AuthorityType.EXTERNALIZE ) ));
+            && ((!schema.getAuthorityByType( AuthorityType.EXTERNALIZE ).isEmpty() && context.isOverride())
+            || context.hasAnyAuthority( schema.getAuthorityByType( AuthorityType.EXTERNALIZE ) ));
     }
 
     @Override
@@ -382,7 +448,13 @@ public class DefaultAclService implements AclService
     @Override
     public <T extends IdentifiableObject> Access getAccess( T object, User user )
     {
-        if ( user == null || user.isSuper() )
+        return getAccess( object, new UserAccessContext( user ) );
+    }
+
+    @Override
+    public <T extends IdentifiableObject> Access getAccess( T object, UserAccessContext context )
+    {
+        if ( context.isOverride() )
         {
             Access access = new Access( true );
 
@@ -395,16 +467,16 @@ public class DefaultAclService implements AclService
         }
 
         Access access = new Access();
-        access.setManage( canManage( user, object ) );
-        access.setExternalize( canMakeExternal( user, object.getClass() ) );
-        access.setWrite( canWrite( user, object ) );
-        access.setRead( canRead( user, object ) );
-        access.setUpdate( canUpdate( user, object ) );
-        access.setDelete( canDelete( user, object ) );
+        access.setManage( canUpdate( context, object ) );
+        access.setExternalize( canMakeExternal( context, object.getClass() ) );
+        access.setWrite( canWrite( context, object ) );
+        access.setRead( canRead( context, object ) );
+        access.setUpdate( canUpdate( context, object ) );
+        access.setDelete( canDelete( context, object ) );
 
         if ( isDataShareable( object.getClass() ) )
         {
-            AccessData data = new AccessData( canDataRead( user, object ), canDataWrite( user, object ) );
+            AccessData data = new AccessData( canDataRead( context, object ), canDataWrite( context, object ) );
 
             access.setData( data );
         }
@@ -552,7 +624,7 @@ public class DefaultAclService implements AclService
         List<ErrorReport> errorReports = new ArrayList<>();
         Schema schema = schemaService.getSchema( object.getClass() );
 
-        if ( !schema.isImplicitPrivateAuthority() || checkUser( user, object ) )
+        if ( !schema.isImplicitPrivateAuthority() || checkUser( new UserAccessContext( user ), object ) )
         {
             return errorReports;
         }
@@ -570,40 +642,35 @@ public class DefaultAclService implements AclService
         return user == null || user.isSuper();
     }
 
-    private boolean canAccess( User user, Collection<String> anyAuthorities )
-    {
-        return haveOverrideAuthority( user ) || anyAuthorities.isEmpty() || haveAuthority( user, anyAuthorities );
-    }
-
-    private boolean haveAuthority( User user, Collection<String> anyAuthorities )
+    private boolean canAccess( UserAccessContext context, Collection<String> anyAuthorities )
     {
-        return containsAny( user.getUserCredentials().getAllAuthorities(), anyAuthorities );
+        return context.isOverride() || anyAuthorities.isEmpty() || context.hasAnyAuthority( anyAuthorities );
     }
 
     /**
      * Should user be allowed access to this object.
      *
-     * @param user   User to check against
-     * @param object Object to check against
+     * @param context User access context to check against
+     * @param object  Object to check against
      * @return true/false depending on if access should be allowed
      */
-    private boolean checkUser( User user, IdentifiableObject object )
+    private boolean checkUser( UserAccessContext context, IdentifiableObject object )
     {
-        return user == null || object.getUser() == null || user.getUid().equals( object.getUser().getUid() );
+        return context.getUser() == null || object.getUser() == null || context.isUser( object.getUser().getUid() );
     }
 
     /**
      * Is the current user allowed to create/update the object given based on its sharing settings.
      *
-     * @param user   User to check against
-     * @param object Object to check against
+     * @param context User access context to check against
+     * @param object  Object to check against
      * @return true/false depending on if sharing settings are allowed for given user
      */
-    private boolean checkSharingAccess( User user, IdentifiableObject object )
+    private boolean checkSharingAccess( UserAccessContext context, IdentifiableObject object )
     {
-        boolean canMakePublic = canMakePublic( user, object.getClass() );
-        boolean canMakePrivate = canMakePrivate( user, object.getClass() );
-        boolean canMakeExternal = canMakeExternal( user, object.getClass() );
+        boolean canMakePublic = canMakePublic( context, object.getClass() );
+        boolean canMakePrivate = canMakePrivate( context, object.getClass() );
+        boolean canMakeExternal = canMakeExternal( context, object.getClass() );
 
         if ( AccessStringHelper.DEFAULT.equals( object.getPublicAccess() ) )
         {
@@ -631,12 +698,12 @@ public class DefaultAclService implements AclService
     /**
      * If the given user allowed to access the given object using the permissions given.
      *
-     * @param user       User to check against
+     * @param context    User access context to check against
      * @param object     Object to check against
      * @param permission Permission to check against
      * @return true if user can access object, false otherwise
      */
-    private boolean checkSharingPermission( User user, IdentifiableObject object, Permission permission )
+    private boolean checkSharingPermission( UserAccessContext context, IdentifiableObject object, Permission permission )
     {
         if ( AccessStringHelper.isEnabled( object.getPublicAccess(), permission ) )
         {
@@ -650,7 +717,7 @@ public class DefaultAclService implements AclService
              *
              */
             if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
-                && userGroupAccess.getUserGroup().getMembers().contains( user ) )
+                && context.isMemberOf( userGroupAccess.getUserGroup() ) )
             {
                 return true;
             }
@@ -663,7 +730,7 @@ public class DefaultAclService implements AclService
              *
              */
             if ( AccessStringHelper.isEnabled( userAccess.getAccess(), permission )
-                && user.equals( userAccess.getUser() ) )
+                && context.isUser( userAccess.getUserUid() ) )
             {
                 return true;
             }
@@ -672,7 +739,7 @@ public class DefaultAclService implements AclService
         return false;
     }
 
-    private boolean checkOptionComboSharingPermission( User user, IdentifiableObject object, Permission permission )
+    private boolean checkOptionComboSharingPermission( UserAccessContext context, IdentifiableObject object, Permission permission )
     {
         CategoryOptionCombo optionCombo = (CategoryOptionCombo) object;
 
@@ -681,22 +748,20 @@ public class DefaultAclService implements AclService
             return true;
         }
 
-        List<Long> accessibleOptions = new ArrayList<>();
-
         for ( CategoryOption option : optionCombo.getCategoryOptions() )
         {
-            if ( checkSharingPermission( user, option, permission ) )
+            if ( !checkSharingPermission( context, option, permission ) )
             {
-                accessibleOptions.add( option.getId() );
+                return false;
             }
         }
 
-        return accessibleOptions.size() == optionCombo.getCategoryOptions().size();
+        return true;
     }
 
-    private boolean readWriteCommonCheck(User user, IdentifiableObject object )
+    private boolean readWriteCommonCheck( UserAccessContext context, IdentifiableObject object )
     {
-        if ( object == null || haveOverrideAuthority( user ) )
+        if ( object == null || context.isOverride() )
         {
             return true;
         }
@@ -704,14 +769,14 @@ public class DefaultAclService implements AclService
         return schemaService.getSchema( object.getClass() ) == null;
     }
 
-    private boolean writeCommonCheck(Schema schema, User user, IdentifiableObject object ) 
+    private boolean writeCommonCheck( Schema schema, UserAccessContext context, IdentifiableObject object )
     {
         if ( !schema.isShareable() )
         {
             return true;
         }
 
-        return checkSharingAccess(user, object) &&
-            ( checkUser(user, object) || checkSharingPermission( user, object, Permission.WRITE ) );
+        return checkSharingAccess( context, object ) &&
+            ( checkUser( context, object ) || checkSharingPermission( context, object, Permission.WRITE ) );
     }
 }
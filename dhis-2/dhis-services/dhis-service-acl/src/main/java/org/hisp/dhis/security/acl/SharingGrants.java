@@ -0,0 +1,158 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroupAccess;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the denormalized sharing grants of shareable objects. A grant is a
+ * string on the form {@code <uid>:<permission>} where the uid refers to the
+ * user group or user which has been given access and the permission is one of
+ * {@code r}, {@code w}, {@code dr} and {@code dw} for metadata read, metadata
+ * write, data read and data write respectively.
+ * <p>
+ * The grants are persisted in an indexed column and allow sharing filters to be
+ * evaluated as containment lookups instead of subqueries over the access tables.
+ */
+public class SharingGrants
+{
+    private static final String SEPARATOR = ":";
+
+    private static final Map<Permission, String> PERMISSION_CODES = ImmutableMap.of(
+        Permission.READ, "r",
+        Permission.WRITE, "w",
+        Permission.DATA_READ, "dr",
+        Permission.DATA_WRITE, "dw" );
+
+    private static final Map<String, Permission> ACCESS_PATTERN_PERMISSIONS = ImmutableMap.of(
+        AclService.LIKE_READ_METADATA, Permission.READ,
+        AclService.LIKE_WRITE_METADATA, Permission.WRITE,
+        AclService.LIKE_READ_DATA, Permission.DATA_READ,
+        AclService.LIKE_WRITE_DATA, Permission.DATA_WRITE );
+
+    private SharingGrants()
+    {
+    }
+
+    /**
+     * Recomputes and sets the sharing grants of the given object based on its
+     * user group accesses and user accesses.
+     *
+     * @param object the object.
+     */
+    public static void updateSharingGrants( BaseIdentifiableObject object )
+    {
+        if ( object != null )
+        {
+            object.setSharingGrants( getSharingGrants( object ) );
+        }
+    }
+
+    /**
+     * Returns the sharing grants of the given object.
+     *
+     * @param object the object.
+     * @return a set of grants.
+     */
+    public static Set<String> getSharingGrants( BaseIdentifiableObject object )
+    {
+        Set<String> grants = new HashSet<>();
+
+        if ( object.getUserGroupAccesses() != null )
+        {
+            for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
+            {
+                addGrants( grants, userGroupAccess.getUserGroupUid(), userGroupAccess.getAccess() );
+            }
+        }
+
+        if ( object.getUserAccesses() != null )
+        {
+            for ( UserAccess userAccess : object.getUserAccesses() )
+            {
+                addGrants( grants, userAccess.getUserUid(), userAccess.getAccess() );
+            }
+        }
+
+        return grants;
+    }
+
+    /**
+     * Returns the grant of the given permission to the given user or user group.
+     *
+     * @param uid the user or user group identifier.
+     * @param permission the permission.
+     * @return a grant.
+     */
+    public static String getGrant( String uid, Permission permission )
+    {
+        return uid + SEPARATOR + PERMISSION_CODES.get( permission );
+    }
+
+    /**
+     * Returns the permission which corresponds to the given access pattern as
+     * defined in {@link AclService}, or null if the pattern cannot be expressed
+     * as a single grant.
+     *
+     * @param accessPattern the access pattern, e.g. {@link AclService#LIKE_READ_METADATA}.
+     * @return a permission or null.
+     */
+    public static Permission getPermission( String accessPattern )
+    {
+        return accessPattern != null ? ACCESS_PATTERN_PERMISSIONS.get( accessPattern ) : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static void addGrants( Set<String> grants, String uid, String access )
+    {
+        if ( uid == null || access == null )
+        {
+            return;
+        }
+
+        for ( Permission permission : Permission.values() )
+        {
+            if ( access.length() > permission.getPosition() && access.charAt( permission.getPosition() ) == permission.getValue() )
+            {
+                grants.add( getGrant( uid, permission ) );
+            }
+        }
+    }
+}
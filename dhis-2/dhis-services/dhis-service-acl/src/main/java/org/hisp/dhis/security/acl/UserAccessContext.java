@@ -0,0 +1,171 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+
+/**
+ * Holds the information about a user which is needed to evaluate sharing
+ * and authority checks, resolved once so that it can be reused across many
+ * ACL checks within a request. The authorities and user group UIDs of the
+ * user are kept in hash sets, which avoids re-resolving the authorities of
+ * the user and loading the members of user groups for every object.
+ * <p>
+ * Instances are not thread-safe and are meant to be scoped to a single
+ * request or operation.
+ */
+public class UserAccessContext
+{
+    private final User user;
+
+    private final boolean override;
+
+    private final Set<String> authorities;
+
+    private Set<String> userGroupUids;
+
+    private final Map<String, Boolean> membershipCache = new HashMap<>();
+
+    public UserAccessContext( User user )
+    {
+        this.user = user;
+        this.override = user == null || user.isSuper();
+        this.authorities = user != null && user.getUserCredentials() != null ?
+            user.getUserCredentials().getAllAuthorities() : Collections.emptySet();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the user is null or a super user, implying that all
+     * ACL checks are overridden.
+     */
+    public boolean isOverride()
+    {
+        return override;
+    }
+
+    /**
+     * Indicates whether the user has any of the given authorities.
+     *
+     * @param anyAuthorities the authorities.
+     * @return true if the user has at least one of the authorities.
+     */
+    public boolean hasAnyAuthority( Collection<String> anyAuthorities )
+    {
+        for ( String authority : anyAuthorities )
+        {
+            if ( authorities.contains( authority ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates whether the user has the given UID.
+     *
+     * @param uid the user UID.
+     */
+    public boolean isUser( String uid )
+    {
+        return user != null && user.getUid() != null && user.getUid().equals( uid );
+    }
+
+    /**
+     * Indicates whether the user is a member of the given user group. The
+     * lookup is done against the UIDs of the groups of the user. If the group
+     * is not found there, the members of the group are only consulted if
+     * they are already loaded, which covers group memberships that have been
+     * added on the owning side within the current session.
+     *
+     * @param userGroup the user group.
+     */
+    public boolean isMemberOf( UserGroup userGroup )
+    {
+        if ( user == null || userGroup == null )
+        {
+            return false;
+        }
+
+        if ( getUserGroupUids().contains( userGroup.getUid() ) )
+        {
+            return true;
+        }
+
+        return membershipCache.computeIfAbsent( userGroup.getUid(), uid ->
+            userGroup.getMembers() != null && Hibernate.isInitialized( userGroup.getMembers() )
+                && userGroup.getMembers().contains( user ) );
+    }
+
+    private Set<String> getUserGroupUids()
+    {
+        if ( userGroupUids == null )
+        {
+            userGroupUids = new HashSet<>();
+
+            if ( user != null && user.getGroups() != null )
+            {
+                for ( UserGroup group : user.getGroups() )
+                {
+                    userGroupUids.add( group.getUid() );
+                }
+            }
+        }
+
+        return userGroupUids;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public User getUser()
+    {
+        return user;
+    }
+
+    public Set<String> getAuthorities()
+    {
+        return authorities;
+    }
+}
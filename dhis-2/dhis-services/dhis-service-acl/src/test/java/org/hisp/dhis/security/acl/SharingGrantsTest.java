@@ -0,0 +1,83 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SharingGrantsTest
+{
+    @Test
+    public void testGetSharingGrants()
+    {
+        UserGroup userGroup = new UserGroup();
+        userGroup.setUid( "userGroupA" );
+
+        User user = new User();
+        user.setUid( "userA" );
+
+        DataElement dataElement = new DataElement();
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( userGroup, "rwr-----" ) );
+        dataElement.getUserAccesses().add( new UserAccess( user, "r--w----" ) );
+
+        SharingGrants.updateSharingGrants( dataElement );
+
+        assertEquals( Sets.newHashSet( "userGroupA:r", "userGroupA:w", "userGroupA:dr", "userA:r", "userA:dw" ),
+            dataElement.getSharingGrants() );
+    }
+
+    @Test
+    public void testGetSharingGrantsEmpty()
+    {
+        DataElement dataElement = new DataElement();
+
+        assertTrue( SharingGrants.getSharingGrants( dataElement ).isEmpty() );
+    }
+
+    @Test
+    public void testGetPermission()
+    {
+        assertEquals( Permission.READ, SharingGrants.getPermission( AclService.LIKE_READ_METADATA ) );
+        assertEquals( Permission.WRITE, SharingGrants.getPermission( AclService.LIKE_WRITE_METADATA ) );
+        assertEquals( Permission.DATA_READ, SharingGrants.getPermission( AclService.LIKE_READ_DATA ) );
+        assertEquals( Permission.DATA_WRITE, SharingGrants.getPermission( AclService.LIKE_WRITE_DATA ) );
+        assertNull( SharingGrants.getPermission( "rw%" ) );
+        assertEquals( "userA:dr", SharingGrants.getGrant( "userA", Permission.DATA_READ ) );
+    }
+}
@@ -13,6 +13,7 @@ import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.user.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
@@ -99,6 +100,9 @@ public class DefaultMaintenanceService
     @Autowired
     private DataApprovalAuditService dataApprovalAuditService;
 
+    @Autowired
+    private TrackedEntityInstanceStore trackedEntityInstanceStore;
+
     // -------------------------------------------------------------------------
     // MaintenanceService implementation
     // -------------------------------------------------------------------------
@@ -153,6 +157,16 @@ public class DefaultMaintenanceService
         return result;
     }
 
+    @Override
+    public int rebuildTrackedEntityInstanceSearchProjection()
+    {
+        int result = trackedEntityInstanceStore.rebuildSearchProjection();
+
+        log.info( "Rebuilt tracked entity instance search projection rows: " + result );
+
+        return result;
+    }
+
     @Override
     public void prunePeriods()
     {
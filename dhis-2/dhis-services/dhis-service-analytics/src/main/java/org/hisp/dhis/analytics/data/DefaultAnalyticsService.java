@@ -90,6 +90,7 @@ import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SingleFlight;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.BaseDimensionalObject;
@@ -180,6 +181,12 @@ public class DefaultAnalyticsService
 
     private Cache<Grid> queryCache;
 
+    /**
+     * De-duplicates identical queries which are executed concurrently. Only
+     * used together with the cache, as callers then share the grid anyway.
+     */
+    private final SingleFlight<Grid> queryFlight = new SingleFlight<>( "analytics" );
+
     @PostConstruct
     public void init()
     {
@@ -190,6 +197,8 @@ public class DefaultAnalyticsService
             .expireAfterWrite( expiration, TimeUnit.SECONDS ).withMaximumSize( enabled ? MAX_CACHE_ENTRIES : 0 ).build();
 
         log.info( String.format( "Analytics server-side cache is enabled: %b with expiration: %d s", enabled, expiration ) );
+
+        cacheProvider.registerSingleFlight( queryFlight );
     }
 
     @Autowired
@@ -245,13 +254,16 @@ public class DefaultAnalyticsService
 
         queryValidator.validate( params );
 
+        final DataQueryParams query = DataQueryParams.newBuilder( params ).build();
+
         if ( dhisConfig.isAnalyticsCacheEnabled() )
         {
-            final DataQueryParams query = DataQueryParams.newBuilder( params ).build();
-            return queryCache.get( params.getKey(), key -> getAggregatedDataValueGridInternal( query ) ).orElseGet( () -> new ListGrid() );
+            String responseKey = AnalyticsUtils.getResponseKey( query, securityManager.getCurrentUser( query ) );
+
+            return queryCache.get( responseKey, key -> queryFlight.execute( key, () -> getAggregatedDataValueGridInternal( query ) ) ).orElseGet( () -> new ListGrid() );
         }
 
-        return getAggregatedDataValueGridInternal( params );
+        return getAggregatedDataValueGridInternal( query );
     }
 
     @Override
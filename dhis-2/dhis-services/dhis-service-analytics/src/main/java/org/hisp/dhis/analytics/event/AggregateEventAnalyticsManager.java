@@ -0,0 +1,80 @@
+package org.hisp.dhis.analytics.event;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.Grid;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Retrieval of aggregated event data. The retrieval is available as separate
+ * steps, so that the SQL can be generated and the rows be mapped to a grid on
+ * the thread which owns the session while the query itself is executed
+ * elsewhere.
+ */
+public interface AggregateEventAnalyticsManager
+{
+    /**
+     * Retrieves aggregated data.
+     *
+     * @param params the query to retrieve aggregated data for.
+     * @param grid the grid to insert data into.
+     * @param maxLimit the max number of records to retrieve.
+     * @return a grid with data.
+     */
+    Grid getAggregatedEventData( EventQueryParams params, Grid grid, int maxLimit );
+
+    /**
+     * Returns the SQL for retrieving aggregated data.
+     *
+     * @param params the query to retrieve aggregated data for.
+     * @param maxLimit the max number of records to retrieve.
+     * @return the SQL.
+     */
+    String getAggregatedEventDataSql( EventQueryParams params, int maxLimit );
+
+    /**
+     * Executes the given aggregated data SQL. Only accesses the database
+     * through JDBC and can be invoked without a session.
+     *
+     * @param sql the SQL.
+     * @return a disconnected row set, or null if the analytics table does
+     *         not exist.
+     */
+    SqlRowSet getAggregatedEventDataRows( String sql );
+
+    /**
+     * Adds the rows of the given row set to the given grid.
+     *
+     * @param params the query the rows were retrieved for.
+     * @param grid the grid to insert data into.
+     * @param rowSet the row set, may be null.
+     * @return a grid with data.
+     */
+    Grid addAggregatedEventData( EventQueryParams params, Grid grid, SqlRowSet rowSet );
+}
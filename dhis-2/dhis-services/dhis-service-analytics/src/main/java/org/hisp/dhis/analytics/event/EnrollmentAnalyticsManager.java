@@ -28,21 +28,11 @@ package org.hisp.dhis.analytics.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.hisp.dhis.common.Grid;
-
 /**
  * @author Markus Bekken
  */
 public interface EnrollmentAnalyticsManager
+    extends AggregateEventAnalyticsManager
 {
-    /**
-     * Retrieves aggregated data based on enrollments.
-     *
-     * @param params the query to retrieve aggregated data for.
-     * @param grid the grid to insert data into.
-     * @param maxLimit the max number of records to retrieve.
-     * @return a grid with data.
-     */
-    Grid getAggregatedEventData( EventQueryParams params, Grid grid, int maxLimit );
 }
 
@@ -36,9 +36,8 @@ import org.hisp.dhis.analytics.Rectangle;
  * @author Lars Helge Overland
  */
 public interface EventAnalyticsManager
+    extends AggregateEventAnalyticsManager
 {
-    Grid getAggregatedEventData( EventQueryParams params, Grid grid, int maxLimit );
-
     Grid getEvents( EventQueryParams params, Grid grid, int maxLimit );
 
     Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit );
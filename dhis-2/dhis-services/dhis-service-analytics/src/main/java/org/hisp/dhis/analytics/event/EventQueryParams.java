@@ -183,6 +183,12 @@ public class EventQueryParams
      */
     private boolean includeClusterPoints;
 
+    /**
+     * Indicates whether counts may be approximated through table sampling and
+     * hash-based distinct counting in exchange for faster responses.
+     */
+    private boolean approximate;
+
     /**
      * Indicates the program status
      */
@@ -255,6 +261,7 @@ public class EventQueryParams
         params.coordinateField = this.coordinateField;
         params.bbox = this.bbox;
         params.includeClusterPoints = this.includeClusterPoints;
+        params.approximate = this.approximate;
         params.programStatus = this.programStatus;
         params.includeMetadataDetails = this.includeMetadataDetails;
         params.dataIdScheme = this.dataIdScheme;
@@ -351,6 +358,7 @@ public class EventQueryParams
             .addIgnoreNull( coordinateField )
             .addIgnoreNull( bbox )
             .addIgnoreNull( includeClusterPoints )
+            .addIgnoreNull( approximate )
             .addIgnoreNull( programStatus )
             .addIgnoreNull( includeMetadataDetails )
             .addIgnoreNull( dataIdScheme )
@@ -870,6 +878,11 @@ public class EventQueryParams
         return includeClusterPoints;
     }
 
+    public boolean isApproximate()
+    {
+        return approximate;
+    }
+
     @Override
     public boolean isIncludeMetadataDetails()
     {
@@ -1180,6 +1193,12 @@ public class EventQueryParams
             return this;
         }
 
+        public Builder withApproximate( boolean approximate )
+        {
+            this.params.approximate = approximate;
+            return this;
+        }
+
         public Builder withProgramStatus( ProgramStatus programStatus )
         {
             this.params.programStatus = programStatus;
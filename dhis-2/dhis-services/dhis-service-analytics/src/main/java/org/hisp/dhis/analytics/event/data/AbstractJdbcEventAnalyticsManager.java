@@ -48,6 +48,8 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.EventOutputType;
 import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.table.ProgramIndicatorMaterializationUtils;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalObject;
@@ -86,6 +88,17 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
     protected static final int LAST_VALUE_YEARS_OFFSET = -10;
 
+    /**
+     * Inverse of the fraction of table blocks read for approximate counts.
+     */
+    protected static final int APPROXIMATE_SAMPLE_FACTOR = 10;
+
+    /**
+     * Inverse of the fraction of the hash space of which values are counted
+     * for approximate distinct counts.
+     */
+    protected static final int APPROXIMATE_HASH_FACTOR = 16;
+
     @Resource( name = "readOnlyJdbcTemplate" )
     protected JdbcTemplate jdbcTemplate;
 
@@ -95,6 +108,9 @@ public abstract class AbstractJdbcEventAnalyticsManager
     @Autowired
     protected ProgramIndicatorService programIndicatorService;
 
+    @Autowired
+    protected PartitionManager partitionManager;
+
     /**
      * Returns the dynamic select column names to use in a group by clause. Dimensions come
      * first and query items second. Program indicator expressions are converted to SQL expressions.
@@ -191,6 +207,13 @@ public abstract class AbstractJdbcEventAnalyticsManager
     }
 
     public Grid getAggregatedEventData( EventQueryParams params, Grid grid, int maxLimit )
+    {
+        SqlRowSet rowSet = getAggregatedEventDataRows( getAggregatedEventDataSql( params, maxLimit ) );
+
+        return addAggregatedEventData( params, grid, rowSet );
+    }
+
+    public String getAggregatedEventDataSql( EventQueryParams params, int maxLimit )
     {
         String countClause = getAggregateClause( params );
 
@@ -201,7 +224,7 @@ public abstract class AbstractJdbcEventAnalyticsManager
         // Criteria
         // ---------------------------------------------------------------------
 
-        sql += getFromClause( params );
+        sql += getFromClause( params, isSampledCount( params ) );
 
         sql += getWhereClause( params );
 
@@ -238,13 +261,16 @@ public abstract class AbstractJdbcEventAnalyticsManager
             sql += "limit " + ( maxLimit + 1 );
         }
 
-        // ---------------------------------------------------------------------
-        // Grid
-        // ---------------------------------------------------------------------
+        return sql;
+    }
+
+    public SqlRowSet getAggregatedEventDataRows( String sql )
+    {
+        log.debug( "Analytics event aggregate SQL: " + sql );
 
         try
         {
-            getAggregatedEventData( grid, params, sql );
+            return jdbcTemplate.queryForRowSet( sql );
         }
         catch ( BadSqlGrammarException ex )
         {
@@ -256,14 +282,15 @@ public abstract class AbstractJdbcEventAnalyticsManager
             throw new QueryTimeoutException( AnalyticsUtils.ERR_MSG_QUERY_TIMEOUT, ex );
         }
 
-        return grid;
+        return null;
     }
 
-    private void getAggregatedEventData( Grid grid, EventQueryParams params, String sql )
+    public Grid addAggregatedEventData( EventQueryParams params, Grid grid, SqlRowSet rowSet )
     {
-        log.debug( "Analytics enrollment aggregate SQL: " + sql );
-
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        if ( rowSet == null )
+        {
+            return grid;
+        }
 
         while ( rowSet.next() )
         {
@@ -319,6 +346,8 @@ public abstract class AbstractJdbcEventAnalyticsManager
                 grid.addNullValues( 5 );
             }
         }
+
+        return grid;
     }
 
     /**
@@ -348,8 +377,10 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
             function = TextUtils.emptyIfEqual( function, AggregationType.CUSTOM.getValue() );
 
-            String expression = programIndicatorService.getAnalyticsSQl( params.getProgramIndicator().getExpression(),
-                params.getProgramIndicator(), params.getEarliestStartDate(), params.getLatestEndDate() );
+            String expression = isMaterializedProgramIndicator( params ) ?
+                getMaterializedProgramIndicatorColumn( params ) :
+                programIndicatorService.getAnalyticsSQl( params.getProgramIndicator().getExpression(),
+                    params.getProgramIndicator(), params.getEarliestStartDate(), params.getLatestEndDate() );
 
             return function + "(" + expression + ")";
         }
@@ -359,26 +390,26 @@ public abstract class AbstractJdbcEventAnalyticsManager
             {
                 if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
                 {
-                    return "count(distinct tei)";
+                    return getDistinctCountClause( params, "tei" );
                 }
                 else // EVENT
                 {
-                    return "count(pi)";
+                    return getCountClause( params, "pi" );
                 }
             }
             else
             {
                 if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
                 {
-                    return "count(distinct " + quoteAlias( "tei") + ")";
+                    return getDistinctCountClause( params, "tei" );
                 }
                 else if ( EventOutputType.ENROLLMENT.equals( outputType ) )
                 {
-                    return "count(distinct " + quoteAlias( "pi") + ")";
+                    return getDistinctCountClause( params, "pi" );
                 }
                 else // EVENT
                 {
-                    return "count(" + quoteAlias( "psi") + ")";
+                    return getCountClause( params, "psi" );
                 }
             }
         }
@@ -432,6 +463,34 @@ public abstract class AbstractJdbcEventAnalyticsManager
         return item.isText() ? "lower(" + col + ")" : col;
     }
 
+    /**
+     * Indicates whether the program indicator dimension of the given query is
+     * materialized in the analytics table of the query, in which case the
+     * pre-computed column can be used instead of the expression and filter.
+     * Materialization is decided when the table is built, and the column name
+     * holds a hash of the value SQL, so a column computed from a previous
+     * expression or filter is not used.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    protected boolean isMaterializedProgramIndicator( EventQueryParams params )
+    {
+        return params.hasProgramIndicatorDimension() && params.getProgramIndicator().isMaterialize() &&
+            partitionManager.columnExists( params.getTableName(),
+                ProgramIndicatorMaterializationUtils.getColumnName( params.getProgramIndicator(), programIndicatorService ) );
+    }
+
+    /**
+     * Returns the quoted column of the materialized program indicator dimension
+     * of the given query.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    protected String getMaterializedProgramIndicatorColumn( EventQueryParams params )
+    {
+        return quoteAlias( ProgramIndicatorMaterializationUtils.getColumnName( params.getProgramIndicator(), programIndicatorService ) );
+    }
+
     /**
      * Returns an SQL to select the expression or column of the item. If the item is
      * a program indicator, the program indicator expression is returned; if the item
@@ -513,7 +572,79 @@ public abstract class AbstractJdbcEventAnalyticsManager
      * @param params the {@link EventQueryParams} that define what is going to be queried.
      * @return SQL to add to the analytics query.
      */
-    protected abstract String getFromClause( EventQueryParams params );
+    protected String getFromClause( EventQueryParams params )
+    {
+        return getFromClause( params, false );
+    }
+
+    /**
+     * Generate the SQL for the from-clause. Generally this means which analytics table to get data from.
+     * @param params the {@link EventQueryParams} that define what is going to be queried.
+     * @param sample whether to read a sample of the analytics table only, see {@link #getSampleClause(boolean)}.
+     * @return SQL to add to the analytics query.
+     */
+    protected abstract String getFromClause( EventQueryParams params, boolean sample );
+
+    /**
+     * Returns a table sample clause to follow the analytics table alias if
+     * sampling is requested, an empty string otherwise.
+     *
+     * @param sample whether to sample the analytics table.
+     */
+    protected String getSampleClause( boolean sample )
+    {
+        return sample ? "tablesample system (" + ( 100 / APPROXIMATE_SAMPLE_FACTOR ) + ") " : "";
+    }
+
+    /**
+     * Indicates whether the aggregate value of the given query is a count which
+     * is approximated by sampling the analytics table.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    protected boolean isSampledCount( EventQueryParams params )
+    {
+        return params.isApproximate() && !params.hasValueDimension() && !params.hasProgramIndicatorDimension() &&
+            !( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( params.getOutputType() ) && params.isProgramRegistration() ) &&
+            !( EventOutputType.ENROLLMENT.equals( params.getOutputType() ) && !params.hasEnrollmentProgramIndicatorDimension() );
+    }
+
+    /**
+     * Returns a count clause for the given column, scaled up from the sample if
+     * the count is sampled.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param column the column to count.
+     */
+    private String getCountClause( EventQueryParams params, String column )
+    {
+        String count = "count(" + quoteAlias( column ) + ")";
+
+        return isSampledCount( params ) ? count + " * " + APPROXIMATE_SAMPLE_FACTOR : count;
+    }
+
+    /**
+     * Returns a distinct count clause for the given column. For approximate
+     * queries, only values with a hash, stored in the column of the same name
+     * suffixed by {@code hash}, in the lower part of the hash space are
+     * counted, and the count is scaled up accordingly. Tables built before the
+     * hash column was introduced are counted exactly.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param column the column to count.
+     */
+    private String getDistinctCountClause( EventQueryParams params, String column )
+    {
+        String count = "count(distinct " + quoteAlias( column ) + ")";
+
+        if ( params.isApproximate() && partitionManager.columnExists( params.getTableName(), column + "hash" ) )
+        {
+            return count + " filter (where " + quoteAlias( column + "hash" ) + " < " +
+                ( Integer.MAX_VALUE / APPROXIMATE_HASH_FACTOR ) + ") * " + APPROXIMATE_HASH_FACTOR;
+        }
+
+        return count;
+    }
 
     /**
      * Generate the SQL for the where-clause. Generally this means adding filters, grouping and ordering
@@ -28,6 +28,7 @@ package org.hisp.dhis.analytics.event.data;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.APPROXIMATE;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.DIMENSIONS;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.ITEMS;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.ORG_UNIT_HIERARCHY;
@@ -65,9 +66,14 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -76,6 +82,7 @@ import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.EventAnalyticsDimensionalItem;
 import org.hisp.dhis.analytics.Rectangle;
+import org.hisp.dhis.analytics.event.AggregateEventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EnrollmentAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
@@ -87,6 +94,7 @@ import org.hisp.dhis.analytics.event.EventQueryValidator;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SingleFlight;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.DimensionalItemObject;
@@ -105,6 +113,7 @@ import org.hisp.dhis.common.ValueTypedDimensionalItemObject;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.legend.Legend;
 import org.hisp.dhis.option.Option;
@@ -112,12 +121,15 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.springframework.core.env.Environment;
 
 /**
@@ -144,6 +156,7 @@ public class DefaultEventAnalyticsService
     private static final Option OPT_FALSE = new Option( "No", "0" );
 
     private static final int MAX_CACHE_ENTRIES = 20000;
+    private static final int MAX_QUERY_PARALLELISM = 16;
     private static final String CACHE_REGION = "eventAnalyticsQueryResponse";
 
     @Autowired
@@ -192,6 +205,20 @@ public class DefaultEventAnalyticsService
 
     private Cache<Grid> queryCache;
 
+    /**
+     * De-duplicates identical queries which are executed concurrently. Only
+     * used together with the cache, as callers then share the grid anyway.
+     */
+    private final SingleFlight<Grid> queryFlight = new SingleFlight<>( "event analytics" );
+
+    /**
+     * Executes planned sub-queries of aggregate event queries, bounded by
+     * the configured query parallelism.
+     */
+    private ExecutorService queryExecutor;
+
+    private int queryParallelism;
+
     @PostConstruct
     public void init()
     {
@@ -202,6 +229,37 @@ public class DefaultEventAnalyticsService
             .expireAfterWrite( expiration, TimeUnit.SECONDS ).withMaximumSize( enabled ? MAX_CACHE_ENTRIES : 0 ).build();
 
         log.info( String.format( "Event analytics server-side cache is enabled: %b with expiration: %d s", enabled, expiration ) );
+
+        cacheProvider.registerSingleFlight( queryFlight );
+
+        queryParallelism = MathUtils.getWithin( getQueryParallelism(), 1, MAX_QUERY_PARALLELISM );
+
+        queryExecutor = Executors.newFixedThreadPool( queryParallelism,
+            new ThreadFactoryBuilder().setNameFormat( "event-analytics-query-%d" ).setDaemon( true ).build() );
+
+        log.info( String.format( "Event analytics query parallelism: %d", queryParallelism ) );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        queryExecutor.shutdownNow();
+    }
+
+    private int getQueryParallelism()
+    {
+        String value = dhisConfig.getProperty( ConfigurationKey.ANALYTICS_EVENT_QUERY_PARALLELISM );
+
+        try
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        catch ( NumberFormatException | NullPointerException ex )
+        {
+            log.warn( String.format( "Invalid event analytics query parallelism: '%s', using default", value ) );
+
+            return Integer.parseInt( ConfigurationKey.ANALYTICS_EVENT_QUERY_PARALLELISM.getDefaultValue() );
+        }
     }
 
     @Override
@@ -451,13 +509,16 @@ public class DefaultEventAnalyticsService
 
         queryValidator.validate( params );
 
+        final EventQueryParams query = new EventQueryParams.Builder( params ).build();
+
         if ( dhisConfig.isAnalyticsCacheEnabled() )
         {
-            final EventQueryParams query = new EventQueryParams.Builder( params ).build();
-            return queryCache.get( query.getKey(), key -> getAggregatedEventDataGrid( query ) ).orElseGet( () -> new ListGrid() );
+            String responseKey = AnalyticsUtils.getResponseKey( query, securityManager.getCurrentUser( query ) );
+
+            return queryCache.get( responseKey, key -> queryFlight.execute( key, () -> getAggregatedEventDataGrid( query ) ) ).orElseGet( () -> new ListGrid() );
         }
 
-        return getAggregatedEventDataGrid( params );
+        return getAggregatedEventDataGrid( query );
     }
 
     private Grid getAggregatedEventDataGrid( EventQueryParams params )
@@ -516,17 +577,15 @@ public class DefaultEventAnalyticsService
 
             timer.getSplitTime( "Planned event query, got partitions: " + params.getPartitions() );
 
-            for ( EventQueryParams query : queries )
+            if ( queries.size() > 1 && queryParallelism > 1 )
             {
-                //TODO As we build support for event reports with enrollment listings we will have to change this
-
-                if ( query.hasEnrollmentProgramIndicatorDimension() )
-                {
-                    enrollmentAnalyticsManager.getAggregatedEventData( query, grid, maxLimit );
-                }
-                else
+                addAggregatedEventDataConcurrently( queries, grid, maxLimit );
+            }
+            else
+            {
+                for ( EventQueryParams query : queries )
                 {
-                    eventAnalyticsManager.getAggregatedEventData( query, grid, maxLimit );
+                    addAggregatedEventData( query, grid, maxLimit );
                 }
             }
 
@@ -561,6 +620,81 @@ public class DefaultEventAnalyticsService
         return grid;
     }
 
+    /**
+     * Executes the given planned queries concurrently and adds the resulting
+     * rows to the given grid in the order of the queries. Each query is
+     * limited to the max limit, and the remaining queries are cancelled as
+     * soon as the merged rows exceed the max limit.
+     * <p>
+     * The SQL is generated and the rows are mapped to the grid on the calling
+     * thread, which owns the session. Only the JDBC execution of the SQL is
+     * done by the pool threads, which do not touch any persistent objects.
+     *
+     * @param queries the planned queries.
+     * @param grid the grid to add rows to.
+     * @param maxLimit the max number of rows, 0 if unlimited.
+     */
+    private void addAggregatedEventDataConcurrently( List<EventQueryParams> queries, Grid grid, int maxLimit )
+    {
+        List<Future<SqlRowSet>> futures = new ArrayList<>();
+
+        for ( EventQueryParams query : queries )
+        {
+            final AggregateEventAnalyticsManager manager = getAggregateManager( query );
+            final String sql = manager.getAggregatedEventDataSql( query, maxLimit );
+
+            futures.add( queryExecutor.submit( () -> manager.getAggregatedEventDataRows( sql ) ) );
+        }
+
+        try
+        {
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                EventQueryParams query = queries.get( i );
+
+                getAggregateManager( query ).addAggregatedEventData( query, grid, futures.get( i ).get() );
+
+                if ( maxLimit > 0 && grid.getHeight() > maxLimit )
+                {
+                    throw new IllegalQueryException( "Number of rows produced by query is larger than the max limit: " + maxLimit );
+                }
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Interrupted during execution of event aggregation query task", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+            }
+            else
+            {
+                throw new RuntimeException( "Error during execution of event aggregation query task", ex );
+            }
+        }
+        finally
+        {
+            futures.forEach( future -> future.cancel( true ) );
+        }
+    }
+
+    private Grid addAggregatedEventData( EventQueryParams query, Grid grid, int maxLimit )
+    {
+        return getAggregateManager( query ).getAggregatedEventData( query, grid, maxLimit );
+    }
+
+    private AggregateEventAnalyticsManager getAggregateManager( EventQueryParams query )
+    {
+        //TODO As we build support for event reports with enrollment listings we will have to change this
+
+        return query.hasEnrollmentProgramIndicatorDimension() ? enrollmentAnalyticsManager : eventAnalyticsManager;
+    }
+
     @Override
     public Grid getAggregatedEventData( AnalyticalObject object )
     {
@@ -757,6 +891,11 @@ public class DefaultEventAnalyticsService
             metadata.put( ITEMS.getKey(), getMetadataItems( params ) );
             metadata.put( DIMENSIONS.getKey(), getDimensionItems( params ) );
 
+            if ( params.isApproximate() )
+            {
+                metadata.put( APPROXIMATE.getKey(), true );
+            }
+
             if ( params.isHierarchyMeta() || params.isShowHierarchy() )
             {
                 User user = securityManager.getCurrentUser( params );
@@ -197,6 +197,7 @@ public class DefaultEventDataQueryService
             .withSkipMeta( request.isSkipMeta() )
             .withSkipData( request.isSkipData() )
             .withCompletedOnly( request.isCompletedOnly() )
+            .withApproximate( request.isApproximate() )
             .withHierarchyMeta( request.isHierarchyMeta() )
             .withCoordinatesOnly( request.isCoordinatesOnly() )
             .withIncludeMetadataDetails( request.isIncludeMetadataDetails() )
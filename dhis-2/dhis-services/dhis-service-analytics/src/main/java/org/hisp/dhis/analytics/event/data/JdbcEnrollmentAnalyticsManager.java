@@ -67,11 +67,12 @@ public class JdbcEnrollmentAnalyticsManager
      * Returns a from SQL clause for the given analytics table partition.
      *
      * @param params the {@link EventQueryParams}.
+     * @param sample whether to sample the analytics table.
      */
     @Override
-    protected String getFromClause( EventQueryParams params )
+    protected String getFromClause( EventQueryParams params, boolean sample )
     {
-        return " from " + params.getTableName() + " as " + ANALYTICS_TBL_ALIAS + " ";
+        return " from " + params.getTableName() + " as " + ANALYTICS_TBL_ALIAS + " " + getSampleClause( sample );
     }
 
     /**
@@ -188,7 +189,11 @@ public class JdbcEnrollmentAnalyticsManager
         // Filter expression
         // ---------------------------------------------------------------------
 
-        if ( params.hasProgramIndicatorDimension() && params.getProgramIndicator().hasFilter() )
+        if ( isMaterializedProgramIndicator( params ) )
+        {
+            sql += "and " + getMaterializedProgramIndicatorColumn( params ) + " is not null ";
+        }
+        else if ( params.hasProgramIndicatorDimension() && params.getProgramIndicator().hasFilter() )
         {
             String filter = programIndicatorService.getAnalyticsSQl( params.getProgramIndicator().getFilter(),
                 params.getProgramIndicator(), false, params.getEarliestStartDate(), params.getLatestEndDate() );
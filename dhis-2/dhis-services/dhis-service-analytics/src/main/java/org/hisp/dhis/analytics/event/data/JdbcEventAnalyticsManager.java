@@ -44,6 +44,7 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 import static org.hisp.dhis.commons.util.TextUtils.removeLastComma;
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -56,6 +57,8 @@ import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.Rectangle;
 import org.hisp.dhis.analytics.event.EventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.table.EventClusterUtils;
+import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalItemObject;
@@ -74,6 +77,8 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.program.AnalyticsPeriodBoundary;
 import org.hisp.dhis.system.util.MathUtils;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
@@ -170,6 +175,13 @@ public class JdbcEventAnalyticsManager
     @Override
     public Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit )
     {
+        Integer resolution = EventClusterUtils.getResolution( params.getClusterSize() );
+
+        if ( resolution != null && isClusterTableQuery( params ) )
+        {
+            return getEventClustersFromClusterTables( params, grid, resolution );
+        }
+
         String clusterField = params.getCoordinateField();
         String quotedClusterField = quoteAlias( clusterField );
 
@@ -204,12 +216,140 @@ public class JdbcEventAnalyticsManager
         return grid;
     }
 
+    /**
+     * Returns event clusters from the pre-computed cluster tile tables by
+     * merging the cells of the given resolution into clusters of the requested
+     * size. The center of a cluster is the count-weighted mean of its cells.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the grid to add rows to.
+     * @param resolution the cell size of the cluster tiles to use.
+     */
+    private Grid getEventClustersFromClusterTables( EventQueryParams params, Grid grid, int resolution )
+    {
+        List<String> selects = new ArrayList<>();
+
+        for ( Integer year : params.getPartitions().getPartitions() )
+        {
+            String table = EventClusterUtils.getClusterTableName( PartitionUtils.getPartitionName( params.getTableName(), year ) );
+
+            selects.add( "select count, sumx, sumy, extent, psi, cell from " + table + " " + getClusterTableWhereClause( params, resolution ) );
+        }
+
+        String sql = "select sum(count) as count, " +
+            "ST_AsText(ST_SetSRID(ST_MakePoint(sum(sumx) / sum(count), sum(sumy) / sum(count)), 4326)) as center, " +
+            "ST_Extent(extent) as extent, " +
+            "case when sum(count) = 1 then max(psi) end as points " +
+            "from (" + StringUtils.join( selects, " union all " ) + ") as cl " +
+            "group by ST_SnapToGrid(cell, " + params.getClusterSize() + ") ";
+
+        log.debug( String.format( "Analytics event cluster tile SQL: %s", sql ) );
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            grid.addRow()
+                .addValue( rowSet.getLong( "count" ) )
+                .addValue( rowSet.getString( "center" ) )
+                .addValue( rowSet.getString( "extent" ) )
+                .addValue( rowSet.getString( "points" ) );
+        }
+
+        return grid;
+    }
+
+    /**
+     * Indicates whether the given cluster query can be served from the
+     * pre-computed cluster tile tables. This is the case for the event
+     * geometry without individual points, restricted by org units, whole
+     * months, program stage and bounding box only, and when cluster tile tables
+     * exist for all partitions.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    private boolean isClusterTableQuery( EventQueryParams params )
+    {
+        boolean simpleQuery = "psigeometry".equals( params.getCoordinateField() ) &&
+            !params.isIncludeClusterPoints() &&
+            params.getItems().isEmpty() &&
+            params.getItemFilters().isEmpty() &&
+            !params.hasValueDimension() &&
+            !params.hasProgramIndicatorDimension() &&
+            !params.hasProgramStatus() &&
+            !params.hasEventStatus() &&
+            !params.isCompletedOnly() &&
+            !params.hasTimeField() &&
+            !params.hasOrgUnitField() &&
+            params.hasStartEndDate() &&
+            params.hasPartitions() &&
+            isWholeMonths( params.getStartDate(), params.getEndDate() ) &&
+            params.getDimensionsAndFilters().stream().allMatch( d -> ORGUNIT_DIM_ID.equals( d.getDimension() ) );
+
+        return simpleQuery && params.getPartitions().getPartitions().stream()
+            .allMatch( year -> partitionManager.tableExists( EventClusterUtils.getClusterTableName( PartitionUtils.getPartitionName( params.getTableName(), year ) ) ) );
+    }
+
+    private boolean isWholeMonths( Date startDate, Date endDate )
+    {
+        return new DateTime( startDate ).getDayOfMonth() == 1 && new DateTime( endDate ).plusDays( 1 ).getDayOfMonth() == 1;
+    }
+
+    /**
+     * Returns a where clause for the cluster tile tables, equivalent to the
+     * restrictions applied by {@link #getWhereClause(EventQueryParams)} for
+     * queries accepted by {@link #isClusterTableQuery(EventQueryParams)}.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param resolution the cell size of the cluster tiles to use.
+     */
+    private String getClusterTableWhereClause( EventQueryParams params, int resolution )
+    {
+        String sql = "where resolution = " + resolution + " " +
+            "and monthstart >= '" + getMediumDateString( params.getStartDate() ) + "' " +
+            "and monthstart <= '" + getMediumDateString( params.getEndDate() ) + "' ";
+
+        if ( params.isOrganisationUnitMode( OrganisationUnitSelectionMode.SELECTED ) )
+        {
+            sql += "and " + quote( "ou" ) + " in (" + getQuotedCommaDelimitedString( getUids( params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ) ) ) + ") ";
+        }
+        else if ( params.isOrganisationUnitMode( OrganisationUnitSelectionMode.CHILDREN ) )
+        {
+            sql += "and " + quote( "ou" ) + " in (" + getQuotedCommaDelimitedString( getUids( params.getOrganisationUnitChildren() ) ) + ") ";
+        }
+        else // Descendants
+        {
+            sql += "and (";
+
+            for ( DimensionalItemObject object : params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ) )
+            {
+                OrganisationUnit unit = (OrganisationUnit) object;
+
+                sql += quote( "uidlevel" + unit.getLevel() ) + " = '" + unit.getUid() + "' or ";
+            }
+
+            sql = removeLastOr( sql ) + ") ";
+        }
+
+        if ( params.hasProgramStage() )
+        {
+            sql += "and " + quote( "ps" ) + " = '" + params.getProgramStage().getUid() + "' ";
+        }
+
+        if ( params.hasBbox() )
+        {
+            sql += "and extent && ST_MakeEnvelope(" + params.getBbox() + ",4326) ";
+        }
+
+        return sql;
+    }
+
     @Override
     public long getEventCount( EventQueryParams params )
     {
-        String sql = "select count(psi) ";
+        String sql = params.isApproximate() ? "select count(psi) * " + APPROXIMATE_SAMPLE_FACTOR + " " : "select count(psi) ";
 
-        sql += getFromClause( params );
+        sql += getFromClause( params, params.isApproximate() );
 
         sql += getWhereClause( params );
 
@@ -273,9 +413,10 @@ public class JdbcEventAnalyticsManager
      * {@code date period structure} resource table in that field is included.
      *
      * @param params the {@link EventQueryParams}.
+     * @param sample whether to sample the analytics table.
      */
     @Override
-    protected String getFromClause( EventQueryParams params )
+    protected String getFromClause( EventQueryParams params, boolean sample )
     {
         String sql = " from ";
 
@@ -288,7 +429,7 @@ public class JdbcEventAnalyticsManager
             sql += params.getTableName();
         }
 
-        sql += " as " + ANALYTICS_TBL_ALIAS + " ";
+        sql += " as " + ANALYTICS_TBL_ALIAS + " " + getSampleClause( sample );
 
         if ( params.hasTimeField() )
         {
@@ -437,7 +578,11 @@ public class JdbcEventAnalyticsManager
         // Filter expression
         // ---------------------------------------------------------------------
 
-        if ( params.hasProgramIndicatorDimension() && params.getProgramIndicator().hasFilter() )
+        if ( isMaterializedProgramIndicator( params ) )
+        {
+            sql += sqlHelper.whereAnd() + " " + getMaterializedProgramIndicatorColumn( params ) + " is not null ";
+        }
+        else if ( params.hasProgramIndicatorDimension() && params.getProgramIndicator().hasFilter() )
         {
             String filter = programIndicatorService.getAnalyticsSQl( params.getProgramIndicator().getFilter(),
                 params.getProgramIndicator(), false, params.getEarliestStartDate(), params.getLatestEndDate() );
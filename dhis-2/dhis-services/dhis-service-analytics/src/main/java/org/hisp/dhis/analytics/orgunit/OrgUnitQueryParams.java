@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hisp.dhis.analytics.QueryKey;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalObject;
@@ -103,6 +104,18 @@ public class OrgUnitQueryParams
         return !columns.isEmpty();
     }
 
+    /**
+     * Returns a unique key representing this query.
+     */
+    public String getKey()
+    {
+        QueryKey key = new QueryKey();
+        orgUnits.forEach( ou -> key.add( "ou" ).add( ou.getUid() ) );
+        orgUnitGroupSets.forEach( ougs -> key.add( "ougs" ).add( ougs.getUid() ) );
+        columns.forEach( col -> key.add( "col" ).add( col.getDimension() ) );
+        return key.build();
+    }
+
     @Override
     public String toString()
     {
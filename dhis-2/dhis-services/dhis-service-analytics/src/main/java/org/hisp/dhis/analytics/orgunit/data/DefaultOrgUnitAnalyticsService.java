@@ -38,6 +38,8 @@ import org.hisp.dhis.analytics.orgunit.OrgUnitAnalyticsManager;
 import org.hisp.dhis.analytics.orgunit.OrgUnitQueryParams;
 import org.hisp.dhis.analytics.orgunit.OrgUnitQueryPlanner;
 import org.hisp.dhis.analytics.util.GridRenderUtils;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SingleFlight;
 import org.hisp.dhis.analytics.orgunit.OrgUnitAnalyticsService;
 import org.hisp.dhis.common.DimensionalObjectUtils;
 import org.hisp.dhis.common.Grid;
@@ -70,19 +72,28 @@ public class DefaultOrgUnitAnalyticsService
 
     private OrgUnitQueryPlanner queryPlanner;
 
+    /**
+     * De-duplicates identical data map queries which are executed concurrently.
+     * The shared data map is only read, and every caller builds its own grid.
+     */
+    private final SingleFlight<Map<String, Object>> queryFlight = new SingleFlight<>( "org unit analytics" );
+
     //TODO Add outputIdScheme support
 
     @Autowired
     public DefaultOrgUnitAnalyticsService( IdentifiableObjectManager idObjectManager,
-        OrgUnitAnalyticsManager analyticsManager, OrgUnitQueryPlanner queryPlanner )
+        OrgUnitAnalyticsManager analyticsManager, OrgUnitQueryPlanner queryPlanner, CacheProvider cacheProvider )
     {
         checkNotNull( idObjectManager );
         checkNotNull( analyticsManager );
         checkNotNull( queryPlanner );
+        checkNotNull( cacheProvider );
 
         this.idObjectManager = idObjectManager;
         this.analyticsManager = analyticsManager;
         this.queryPlanner = queryPlanner;
+
+        cacheProvider.registerSingleFlight( queryFlight );
     }
 
     @Override
@@ -118,7 +129,7 @@ public class DefaultOrgUnitAnalyticsService
         addHeaders( params, grid );
         addMetadata( params, grid );
 
-        getOrgUnitDataMap( params ).entrySet().forEach( entry -> {
+        getSharedOrgUnitDataMap( params ).entrySet().forEach( entry -> {
             grid.addRow()
                 .addValues( entry.getKey().split( DIMENSION_SEP ) )
                 .addValue( entry.getValue() );
@@ -129,7 +140,16 @@ public class DefaultOrgUnitAnalyticsService
 
     private Grid getOrgUnitDataTableLayout( OrgUnitQueryParams params )
     {
-        return GridRenderUtils.asGrid( params.getColumns(), params.getRows(), getOrgUnitDataMap( params ) );
+        return GridRenderUtils.asGrid( params.getColumns(), params.getRows(), getSharedOrgUnitDataMap( params ) );
+    }
+
+    /**
+     * Returns the org unit data map for the given query, shared with concurrent
+     * callers of an identical query. The returned map must not be modified.
+     */
+    private Map<String, Object> getSharedOrgUnitDataMap( OrgUnitQueryParams params )
+    {
+        return queryFlight.execute( params.getKey(), () -> getOrgUnitDataMap( params ) );
     }
 
     @Override
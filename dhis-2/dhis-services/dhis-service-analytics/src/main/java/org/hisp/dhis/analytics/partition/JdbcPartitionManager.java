@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -52,6 +53,8 @@ public class JdbcPartitionManager
 
     private Map<AnalyticsTableType, Set<String>> analyticsPartitions = new HashMap<>();
 
+    private final Map<String, Set<String>> tableColumns = new ConcurrentHashMap<>();
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -92,6 +95,23 @@ public class JdbcPartitionManager
         return count > 0;
     }
 
+    @Override
+    public boolean columnExists( String table, String column )
+    {
+        return tableColumns.computeIfAbsent( table, this::getColumns ).contains( column );
+    }
+
+    private Set<String> getColumns( String table )
+    {
+        final String sql =
+            "select column_name from information_schema.columns " +
+            "where table_name = '" + table + "'";
+
+        log.debug( "Table columns SQL: " + sql );
+
+        return new HashSet<>( jdbcTemplate.queryForList( sql, String.class ) );
+    }
+
     @Override
     public void filterNonExistingPartitions( Partitions partitions, String tableName )
     {
@@ -112,5 +132,6 @@ public class JdbcPartitionManager
     public void clearCaches()
     {
         analyticsPartitions = new HashMap<>();
+        tableColumns.clear();
     }
 }
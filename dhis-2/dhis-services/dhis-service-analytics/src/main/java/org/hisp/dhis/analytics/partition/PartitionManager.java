@@ -54,6 +54,16 @@ public interface PartitionManager
      */
     boolean tableExists( String table );
 
+    /**
+     * Indicates whether the given column exists in the given analytics table.
+     * The columns of a table are looked up once and kept until the caches
+     * are cleared.
+     *
+     * @param table the analytics table name.
+     * @param column the column name.
+     */
+    boolean columnExists( String table, String column );
+
     /**
      * Filters the set of integers for which a database partition table
      * exists.
@@ -64,7 +74,7 @@ public interface PartitionManager
     void filterNonExistingPartitions( Partitions partitions, String tableName );
 
     /**
-     * Clears the partition name caches.
+     * Clears the partition name and table column caches.
      */
     void clearCaches();
 }
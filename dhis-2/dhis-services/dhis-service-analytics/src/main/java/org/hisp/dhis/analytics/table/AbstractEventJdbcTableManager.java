@@ -28,14 +28,28 @@ package org.hisp.dhis.analytics.table;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.ANALYTICS_TBL_ALIAS;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
+import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.program.AnalyticsType;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramIndicatorService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 
 /**
@@ -44,6 +58,9 @@ import org.springframework.scheduling.annotation.Async;
 public abstract class AbstractEventJdbcTableManager
     extends AbstractJdbcTableManager
 {
+    @Autowired
+    protected ProgramIndicatorService programIndicatorService;
+
     @Override
     @Async
     public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions,
@@ -127,6 +144,106 @@ public abstract class AbstractEventJdbcTableManager
         }
     }
 
+    /**
+     * Returns a clause for a non-negative 31-bit hash of the given column,
+     * used to count a uniform fraction of distinct values for approximate
+     * distinct counts.
+     *
+     * @param columnName the column to hash.
+     */
+    String getHashClause( String columnName )
+    {
+        return "(hashtext(" + columnName + ") & 2147483647)";
+    }
+
+    /**
+     * Returns the columns of the materialized program indicators of the given
+     * program and analytics type. The alias of each column is the SQL for the
+     * program indicator value evaluated against the analytics table columns,
+     * and the name of each column holds a hash of that SQL.
+     *
+     * @param program the {@link Program}.
+     * @param analyticsType the {@link AnalyticsType}.
+     * @see ProgramIndicatorMaterializationUtils
+     */
+    protected List<AnalyticsTableColumn> getProgramIndicatorColumns( Program program, AnalyticsType analyticsType )
+    {
+        List<ProgramIndicator> programIndicators = ProgramIndicatorMaterializationUtils
+            .getMaterializedProgramIndicators( program, analyticsType, programIndicatorService );
+
+        if ( !programIndicators.isEmpty() )
+        {
+            log.info( String.format( "Materialized program indicators for program: %s, analytics type: %s, indicators: %s",
+                program.getUid(), analyticsType, programIndicators.stream().map( ProgramIndicator::getUid ).collect( Collectors.toList() ) ) );
+        }
+
+        List<AnalyticsTableColumn> columns = new ArrayList<>();
+
+        for ( ProgramIndicator pi : programIndicators )
+        {
+            String valueSql = ProgramIndicatorMaterializationUtils.getValueSql( pi, programIndicatorService );
+            String column = quote( ProgramIndicatorMaterializationUtils.getColumnName( pi, valueSql ) );
+
+            columns.add( new AnalyticsTableColumn( column, ColumnDataType.DOUBLE, valueSql ).withSkipIndex( true ) );
+        }
+
+        return columns;
+    }
+
+    /**
+     * Returns an insert statement for the given table which selects the given
+     * columns using the given from clause. When program indicator columns are
+     * given, the columns are selected in a subquery with the analytics table
+     * alias, so that the program indicator values can be computed from the
+     * analytics table columns in the same pass. Column aliases which already
+     * end with the column name are selected as is.
+     *
+     * @param tableName the name of the table to populate.
+     * @param columns the columns to select from the given from clause.
+     * @param programIndicatorColumns the materialized program indicator columns.
+     * @param fromClause the from clause including the where clause.
+     */
+    protected String getInsertSql( String tableName, List<AnalyticsTableColumn> columns,
+        List<AnalyticsTableColumn> programIndicatorColumns, String fromClause )
+    {
+        String sql = "insert into " + tableName + " (";
+
+        for ( AnalyticsTableColumn col : ListUtils.union( columns, programIndicatorColumns ) )
+        {
+            sql += col.getName() + ",";
+        }
+
+        sql = TextUtils.removeLastComma( sql ) + ") select ";
+
+        if ( programIndicatorColumns.isEmpty() )
+        {
+            for ( AnalyticsTableColumn col : columns )
+            {
+                sql += col.getAlias() + ",";
+            }
+
+            return TextUtils.removeLastComma( sql ) + " " + fromClause;
+        }
+
+        sql += ANALYTICS_TBL_ALIAS + ".*,";
+
+        for ( AnalyticsTableColumn col : programIndicatorColumns )
+        {
+            sql += col.getAlias() + ",";
+        }
+
+        sql = TextUtils.removeLastComma( sql ) + " from (select ";
+
+        for ( AnalyticsTableColumn col : columns )
+        {
+            String alias = col.getAlias();
+
+            sql += ( alias.endsWith( " as " + col.getName() ) ? alias : alias + " as " + col.getName() ) + ",";
+        }
+
+        return TextUtils.removeLastComma( sql ) + " " + fromClause + ") as " + ANALYTICS_TBL_ALIAS;
+    }
+
     @Override
     public String validState()
     {
@@ -468,10 +468,6 @@ public abstract class AbstractJdbcTableManager
         log.info( String.format( "Populated table in %s: %s", timer.stop().toString(), tableName ) );
     }
 
-    // -------------------------------------------------------------------------
-    // Private supportive methods
-    // -------------------------------------------------------------------------
-
     /**
      * Swaps a database table, meaning drops the real table and renames the
      * temporary table to become the real table.
@@ -479,7 +475,7 @@ public abstract class AbstractJdbcTableManager
      * @param tempTableName the temporary table name.
      * @param realTableName the real table name.
      */
-    private void swapTable( String tempTableName, String realTableName )
+    protected void swapTable( String tempTableName, String realTableName )
     {
         final String sql =
             "drop table if exists " + realTableName + " cascade; " +
@@ -488,6 +484,10 @@ public abstract class AbstractJdbcTableManager
         executeSilently( sql );
     }
 
+    // -------------------------------------------------------------------------
+    // Private supportive methods
+    // -------------------------------------------------------------------------
+
     /**
      * Updates table inheritance of a table partition from the temp master table
      * to the real master table.
@@ -42,6 +42,7 @@ import org.hisp.dhis.analytics.AnalyticsTableGenerator;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.api.util.DateUtils;
 import org.hisp.dhis.commons.collection.CollectionUtils;
 import org.hisp.dhis.message.MessageService;
@@ -76,6 +77,9 @@ public class DefaultAnalyticsTableGenerator
     @Autowired
     private Notifier notifier;
 
+    @Autowired
+    private PartitionManager partitionManager;
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -115,6 +119,8 @@ public class DefaultAnalyticsTableGenerator
                 }
             }
 
+            partitionManager.clearCaches();
+
             clock.logTime( "Analytics tables updated" );
 
             notifier.notify( jobId, INFO, "Analytics tables updated: " + clock.time(), true );
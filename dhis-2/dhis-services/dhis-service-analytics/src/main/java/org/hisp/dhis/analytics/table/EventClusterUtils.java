@@ -0,0 +1,96 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Utilities for the pre-computed event cluster tile tables. A cluster tile
+ * table holds event counts per cell of a grid in the EPSG:3785 projection for
+ * a number of fixed resolutions, and is built alongside each event analytics
+ * table partition.
+ */
+public class EventClusterUtils
+{
+    public static final String TABLE_SUFFIX = "_cluster";
+
+    /**
+     * Cell sizes in meters of the pre-computed grids, in ascending order.
+     */
+    public static final List<Integer> RESOLUTIONS = ImmutableList.of( 1000, 4000, 16000, 64000 );
+
+    /**
+     * Minimum ratio between a requested cluster size and the cell size of the
+     * grid used to serve it, ensuring that cells are small compared to
+     * clusters.
+     */
+    public static final int MIN_CELLS_PER_CLUSTER = 4;
+
+    /**
+     * Returns the name of the cluster tile table for the given event analytics
+     * table partition.
+     *
+     * @param partitionTableName the partition table name.
+     * @return the cluster tile table name.
+     */
+    public static String getClusterTableName( String partitionTableName )
+    {
+        return partitionTableName + TABLE_SUFFIX;
+    }
+
+    /**
+     * Returns the largest pre-computed resolution which can serve the given
+     * cluster size, or null if the cluster size is too fine to be served from
+     * the cluster tile tables.
+     *
+     * @param clusterSize the cluster size in meters.
+     * @return a resolution in meters, or null.
+     */
+    public static Integer getResolution( Long clusterSize )
+    {
+        if ( clusterSize == null )
+        {
+            return null;
+        }
+
+        Integer resolution = null;
+
+        for ( Integer candidate : RESOLUTIONS )
+        {
+            if ( (long) candidate * MIN_CELLS_PER_CLUSTER <= clusterSize )
+            {
+                resolution = candidate;
+            }
+        }
+
+        return resolution;
+    }
+}
@@ -32,6 +32,7 @@ import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_11;
 import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_50;
 import static org.hisp.dhis.analytics.ColumnDataType.DOUBLE;
 import static org.hisp.dhis.analytics.ColumnDataType.GEOMETRY;
+import static org.hisp.dhis.analytics.ColumnDataType.INTEGER;
 import static org.hisp.dhis.analytics.ColumnDataType.TEXT;
 import static org.hisp.dhis.analytics.ColumnDataType.TIMESTAMP;
 import static org.hisp.dhis.analytics.ColumnNotNullConstraint.NOT_NULL;
@@ -44,6 +45,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
@@ -54,13 +56,14 @@ import org.hisp.dhis.api.util.DateUtils;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.ValueType;
-import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.legend.LegendSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.springframework.transaction.annotation.Transactional;
@@ -102,7 +105,8 @@ public class JdbcEventAnalyticsTableManager
 
             Collections.sort( dataYears );
 
-            AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ), Lists.newArrayList(), program );
+            AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ),
+                getProgramIndicatorColumns( program, AnalyticsType.EVENT ), program );
 
             for ( Integer year : dataYears )
             {
@@ -135,27 +139,11 @@ public class JdbcEventAnalyticsTableManager
         final String end = DateUtils.getMediumDateString( partition.getEndDate() );
         final String tableName = partition.getTempTableName();
 
-        String sql = "insert into " + partition.getTempTableName() + " (";
-
         List<AnalyticsTableColumn> columns = getDimensionColumns( program );
 
         validateDimensionColumns( columns );
 
-        for ( AnalyticsTableColumn col : columns )
-        {
-            sql += col.getName() + ",";
-        }
-
-        sql = TextUtils.removeLastComma( sql ) + ") select ";
-
-        for ( AnalyticsTableColumn col : columns )
-        {
-            sql += col.getAlias() + ",";
-        }
-
-        sql = TextUtils.removeLastComma( sql ) + " ";
-
-        sql += "from programstageinstance psi " +
+        String fromClause = "from programstageinstance psi " +
             "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
             "inner join programstage ps on psi.programstageid=ps.programstageid " +
             "inner join program pr on pi.programid=pr.programid and pi.deleted is false " +
@@ -175,7 +163,85 @@ public class JdbcEventAnalyticsTableManager
             "and psi.executiondate is not null " +
             "and psi.deleted is false ";
 
+        String sql = getInsertSql( tableName, columns, partition.getMasterTable().getValueColumns(), fromClause );
+
+        populateAndLog( sql, tableName );
+
+        if ( databaseInfo.isSpatialSupport() )
+        {
+            populateClusterTable( partition );
+        }
+    }
+
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        if ( databaseInfo.isSpatialSupport() )
+        {
+            table.getPartitionTables().forEach( p -> swapTable(
+                EventClusterUtils.getClusterTableName( p.getTempTableName() ),
+                EventClusterUtils.getClusterTableName( p.getTableName() ) ) );
+        }
+
+        super.swapTable( params, table );
+    }
+
+    @Override
+    public void dropTempTable( AnalyticsTable table )
+    {
+        table.getPartitionTables().forEach( p -> dropTable( EventClusterUtils.getClusterTableName( p.getTempTableName() ) ) );
+
+        super.dropTempTable( table );
+    }
+
+    /**
+     * Populates the cluster tile table for the given partition from the
+     * populated temporary partition table. Event counts, coordinate sums and
+     * extents are aggregated per program stage, org unit, month and grid cell
+     * for each of the {@link EventClusterUtils#RESOLUTIONS}.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    private void populateClusterTable( AnalyticsTablePartition partition )
+    {
+        final String sourceTable = partition.getTempTableName();
+        final String tableName = EventClusterUtils.getClusterTableName( sourceTable );
+        final String centroid = "ST_Centroid(" + quote( "psigeometry" ) + ")";
+
+        List<String> groupCols = Lists.newArrayList( quote( "ps" ), quote( "ou" ) );
+
+        for ( OrganisationUnitLevel level : organisationUnitService.getFilledOrganisationUnitLevels() )
+        {
+            groupCols.add( quote( PREFIX_ORGUNITLEVEL + level.getLevel() ) );
+        }
+
+        String groupClause = StringUtils.join( groupCols, "," );
+
+        List<String> selects = new ArrayList<>();
+
+        for ( Integer resolution : EventClusterUtils.RESOLUTIONS )
+        {
+            selects.add( "select " + resolution + " as resolution," + groupClause + "," +
+                "cast(date_trunc('month', executiondate) as date) as monthstart," +
+                "ST_SnapToGrid(ST_Transform(" + centroid + ", 3785), " + resolution + ") as cell," +
+                "count(psi) as count," +
+                "sum(ST_X(" + centroid + ")) as sumx," +
+                "sum(ST_Y(" + centroid + ")) as sumy," +
+                "ST_SetSRID(cast(ST_Extent(" + quote( "psigeometry" ) + ") as geometry), 4326) as extent," +
+                "case when count(psi) = 1 then min(psi) end as psi " +
+                "from " + sourceTable + " " +
+                "where " + quote( "psigeometry" ) + " is not null " +
+                "group by " + groupClause + ",monthstart,cell" );
+        }
+
+        String sql = "create table " + tableName + " as " + StringUtils.join( selects, " union all " );
+
+        dropTable( tableName );
+
         populateAndLog( sql, tableName );
+
+        jdbcTemplate.execute( "create index " + quote( "in_resolution_monthstart_" + CodeGenerator.generateCode( 5 ) ) +
+            " on " + tableName + " (resolution, monthstart)" );
     }
 
     private List<AnalyticsTableColumn> getDimensionColumns( Program program )
@@ -306,6 +372,7 @@ public class JdbcEventAnalyticsTableManager
 
         columns.add( new AnalyticsTableColumn( quote( "psi" ), CHARACTER_11, NOT_NULL, "psi.uid" ) );
         columns.add( new AnalyticsTableColumn( quote( "pi" ), CHARACTER_11, NOT_NULL, "pi.uid" ) );
+        columns.add( new AnalyticsTableColumn( quote( "pihash" ), INTEGER, getHashClause( "pi.uid" ) ).withSkipIndex( true ) );
         columns.add( new AnalyticsTableColumn( quote( "ps" ), CHARACTER_11, NOT_NULL, "ps.uid" ) );
         columns.add( new AnalyticsTableColumn( quote( "ao" ), CHARACTER_11, NOT_NULL, "ao.uid" ) );
         columns.add( new AnalyticsTableColumn( quote( "enrollmentdate" ), TIMESTAMP, "pi.enrollmentdate" ) );
@@ -330,6 +397,7 @@ public class JdbcEventAnalyticsTableManager
         if ( program.isRegistration() )
         {
             columns.add( new AnalyticsTableColumn( quote( "tei" ), CHARACTER_11, "tei.uid" ) );
+            columns.add( new AnalyticsTableColumn( quote( "teihash" ), INTEGER, getHashClause( "tei.uid" ) ).withSkipIndex( true ) );
             columns.add( new AnalyticsTableColumn( quote( "pigeometry" ), GEOMETRY, "pi.geometry" ) );
         }
 
@@ -0,0 +1,233 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.commons.util.ExpressionUtils;
+import org.hisp.dhis.program.AnalyticsType;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramIndicatorService;
+import org.hisp.dhis.program.ProgramIndicatorVariable;
+import org.joda.time.DateTime;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+
+/**
+ * Utilities for program indicators which are materialized into dedicated
+ * numeric columns of the event and enrollment analytics tables. The column of
+ * a materialized program indicator holds the value of the expression for rows
+ * which satisfy the filter, and null otherwise.
+ * <p>
+ * A program indicator is only materialized when its SQL does not depend on
+ * the reporting period, so that the value computed during table population
+ * equals the value computed at query time for any period. Materialization is
+ * decided when the analytics table is built. The column name holds a hash of
+ * the value SQL, so that queries only use a column which was computed from
+ * the current expression and filter of the program indicator.
+ */
+public class ProgramIndicatorMaterializationUtils
+{
+    public static final String COLUMN_PREFIX = "pi_";
+
+    /**
+     * Variables which are either aggregate expressions or resolved to the
+     * current date, and hence cannot be computed per row in advance.
+     */
+    private static final Set<String> NON_MATERIALIZABLE_VARIABLES = ImmutableSet.of(
+        ProgramIndicatorVariable.VAR_CURRENT_DATE.getVariableName(),
+        ProgramIndicatorVariable.VAR_EVENT_COUNT.getVariableName(),
+        ProgramIndicatorVariable.VAR_ENROLLMENT_COUNT.getVariableName(),
+        ProgramIndicatorVariable.VAR_TEI_COUNT.getVariableName() );
+
+    private static final Date PROBE_START_A = new DateTime( 2000, 1, 1, 0, 0 ).toDate();
+    private static final Date PROBE_END_A = new DateTime( 2000, 12, 31, 0, 0 ).toDate();
+    private static final Date PROBE_START_B = new DateTime( 2010, 3, 1, 0, 0 ).toDate();
+    private static final Date PROBE_END_B = new DateTime( 2010, 3, 31, 0, 0 ).toDate();
+
+    /**
+     * Returns the name of the analytics table column of the given program
+     * indicator, based on its current value SQL.
+     *
+     * @param programIndicator the {@link ProgramIndicator}.
+     * @param programIndicatorService the {@link ProgramIndicatorService}.
+     * @return the column name.
+     */
+    public static String getColumnName( ProgramIndicator programIndicator, ProgramIndicatorService programIndicatorService )
+    {
+        return getColumnName( programIndicator, getValueSql( programIndicator, programIndicatorService ) );
+    }
+
+    /**
+     * Returns the name of the analytics table column of the given program
+     * indicator with the given value SQL.
+     *
+     * @param programIndicator the {@link ProgramIndicator}.
+     * @param valueSql the value SQL of the program indicator.
+     * @return the column name.
+     */
+    public static String getColumnName( ProgramIndicator programIndicator, String valueSql )
+    {
+        return COLUMN_PREFIX + programIndicator.getUid() + "_" +
+            Hashing.murmur3_32().hashString( valueSql, StandardCharsets.UTF_8 ).toString();
+    }
+
+    /**
+     * Returns the program indicators of the given program and analytics type
+     * which are materialized, sorted by identifier.
+     *
+     * @param program the {@link Program}.
+     * @param analyticsType the {@link AnalyticsType}.
+     * @param programIndicatorService the {@link ProgramIndicatorService}.
+     * @return a list of program indicators.
+     */
+    public static List<ProgramIndicator> getMaterializedProgramIndicators( Program program, AnalyticsType analyticsType,
+        ProgramIndicatorService programIndicatorService )
+    {
+        return program.getProgramIndicators().stream()
+            .filter( pi -> analyticsType == pi.getAnalyticsType() )
+            .filter( pi -> isMaterializable( pi, programIndicatorService ) )
+            .sorted( Comparator.comparing( ProgramIndicator::getUid ) )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Indicates whether the given program indicator is marked to be
+     * materialized and can be computed per row in advance, which requires
+     * that it has a numeric expression, a standard aggregation type, and SQL
+     * which neither depends on the reporting period nor reads from other
+     * analytics tables.
+     *
+     * @param programIndicator the {@link ProgramIndicator}.
+     * @param programIndicatorService the {@link ProgramIndicatorService}.
+     */
+    public static boolean isMaterializable( ProgramIndicator programIndicator, ProgramIndicatorService programIndicatorService )
+    {
+        if ( programIndicator == null || !programIndicator.isMaterialize() || programIndicator.getExpression() == null ||
+            AggregationType.CUSTOM == programIndicator.getAggregationTypeFallback() )
+        {
+            return false;
+        }
+
+        if ( hasNonMaterializableVariable( programIndicator.getExpression() ) ||
+            hasNonMaterializableVariable( programIndicator.getFilter() ) )
+        {
+            return false;
+        }
+
+        if ( !ProgramIndicator.VALID.equals( programIndicatorService.expressionIsValid( programIndicator.getExpression() ) ) )
+        {
+            return false;
+        }
+
+        // Expression must be numeric, so an expression which is a valid boolean filter is rejected
+
+        if ( ProgramIndicator.VALID.equals( programIndicatorService.filterIsValid( programIndicator.getExpression() ) ) )
+        {
+            return false;
+        }
+
+        if ( programIndicator.hasFilter() &&
+            !ProgramIndicator.VALID.equals( programIndicatorService.filterIsValid( programIndicator.getFilter() ) ) )
+        {
+            return false;
+        }
+
+        String sql = getValueSql( programIndicator, programIndicatorService, PROBE_START_A, PROBE_END_A );
+
+        return sql.equals( getValueSql( programIndicator, programIndicatorService, PROBE_START_B, PROBE_END_B ) ) &&
+            !sql.contains( AnalyticsTableType.EVENT.getTableName() ) &&
+            !sql.contains( AnalyticsTableType.ENROLLMENT.getTableName() );
+    }
+
+    /**
+     * Returns the SQL for the materialized value of the given program
+     * indicator, evaluated against the analytics table columns. The value is
+     * null for rows which do not satisfy the program indicator filter.
+     *
+     * @param programIndicator the {@link ProgramIndicator}.
+     * @param programIndicatorService the {@link ProgramIndicatorService}.
+     * @return the value SQL.
+     */
+    public static String getValueSql( ProgramIndicator programIndicator, ProgramIndicatorService programIndicatorService )
+    {
+        return getValueSql( programIndicator, programIndicatorService, PROBE_START_A, PROBE_END_A );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static String getValueSql( ProgramIndicator programIndicator, ProgramIndicatorService programIndicatorService,
+        Date startDate, Date endDate )
+    {
+        String value = "cast((" + programIndicatorService.getAnalyticsSQl( programIndicator.getExpression(),
+            programIndicator, startDate, endDate ) + ") as double precision)";
+
+        if ( !programIndicator.hasFilter() )
+        {
+            return value;
+        }
+
+        String filter = ExpressionUtils.asSql( programIndicatorService.getAnalyticsSQl( programIndicator.getFilter(),
+            programIndicator, false, startDate, endDate ) );
+
+        return "case when (" + filter + ") then " + value + " else null end";
+    }
+
+    private static boolean hasNonMaterializableVariable( String expression )
+    {
+        if ( expression == null )
+        {
+            return false;
+        }
+
+        Matcher matcher = ProgramIndicator.VARIABLE_PATTERN.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            if ( NON_MATERIALIZABLE_VARIABLES.contains( matcher.group( 1 ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
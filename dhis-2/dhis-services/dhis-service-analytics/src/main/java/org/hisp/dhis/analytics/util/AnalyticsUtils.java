@@ -88,6 +88,7 @@ import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramStage;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.system.util.ReflectionUtils;
+import org.hisp.dhis.user.User;
 import org.joda.time.DateTime;
 import org.springframework.util.Assert;
 
@@ -168,6 +169,26 @@ public class AnalyticsUtils
         return sql;
     }
 
+    /**
+     * Returns a key for caching and coalescing the response of the given query.
+     * The uid of the given user is included when the response meta data depends
+     * on the data view organisation units of the user, which is the case for
+     * hierarchy meta data and show hierarchy.
+     *
+     * @param params the data query parameters.
+     * @param user the current user, can be null.
+     * @return a key.
+     */
+    public static String getResponseKey( DataQueryParams params, User user )
+    {
+        if ( ( params.isHierarchyMeta() || params.isShowHierarchy() ) && user != null )
+        {
+            return params.getKey() + DIMENSION_SEP + user.getUid();
+        }
+
+        return params.getKey();
+    }
+
     /**
      * Returns a list of data dimension options which match the given data
      * dimension item type.
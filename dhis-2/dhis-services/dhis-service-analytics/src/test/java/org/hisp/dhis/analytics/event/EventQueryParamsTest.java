@@ -144,6 +144,22 @@ public class EventQueryParamsTest
 
         assertFalse( paramsA.getKey().equals( paramsB.getKey() ) );
     }
+
+    @Test
+    public void testGetKeyApproximate()
+    {
+        EventQueryParams paramsA = new EventQueryParams.Builder()
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, Lists.newArrayList( peA, peB ) ) )
+            .build();
+
+        EventQueryParams paramsB = new EventQueryParams.Builder( paramsA )
+            .withApproximate( true )
+            .build();
+
+        assertFalse( paramsA.isApproximate() );
+        assertTrue( paramsB.isApproximate() );
+        assertFalse( paramsA.getKey().equals( paramsB.getKey() ) );
+    }
     @Test
     public void testReplacePeriodsWithStartEndDates()
     {
@@ -0,0 +1,171 @@
+package org.hisp.dhis.analytics.event.data;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.event.EventAnalyticsManager;
+import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.table.EventClusterUtils;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests serving event clusters from a pre-computed cluster tile table.
+ */
+public class JdbcEventAnalyticsManagerClusterTest
+    extends IntegrationTestBase
+{
+    private static final String TABLE_NAME = "analytics_event_clustertest";
+
+    private static final String CLUSTER_TABLE_NAME = EventClusterUtils.getClusterTableName( TABLE_NAME + "_2019" );
+
+    /**
+     * Cluster size served from cells of 16 km.
+     */
+    private static final long CLUSTER_SIZE = 100000L;
+
+    private static final int RESOLUTION = 16000;
+
+    @Autowired
+    private EventAnalyticsManager eventAnalyticsManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OrganisationUnit ouA;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void setUpTest()
+    {
+        ouA = createOrganisationUnit( 'A' );
+
+        jdbcTemplate.execute( "create table " + CLUSTER_TABLE_NAME + " (resolution integer, ps character(11), " +
+            "ou character(11), monthstart date, cell geometry, count bigint, sumx double precision, " +
+            "sumy double precision, extent geometry, psi character(11))" );
+
+        // Two cells of the same cluster within the bounding box
+
+        insertCell( RESOLUTION, "2019-01-01", 10.0, 59.0, 2, null );
+        insertCell( RESOLUTION, "2019-03-01", 10.2, 59.0, 1, "eventUidA01" );
+
+        // A cell of another cluster outside of the bounding box
+
+        insertCell( RESOLUTION, "2019-02-01", 20.0, 60.0, 1, "eventUidB01" );
+
+        // Cells of another resolution and outside of the date range
+
+        insertCell( 4000, "2019-01-01", 10.0, 59.0, 5, null );
+        insertCell( RESOLUTION, "2019-07-01", 10.0, 59.0, 7, null );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        jdbcTemplate.execute( "drop table if exists " + CLUSTER_TABLE_NAME );
+    }
+
+    @Test
+    public void testGetEventClustersWithBbox()
+    {
+        Grid grid = eventAnalyticsManager.getEventClusters( getParams( "9,58,11,60" ), new ListGrid(), 10000 );
+
+        assertEquals( 1, grid.getHeight() );
+
+        List<Object> cluster = grid.getRow( 0 );
+
+        assertEquals( 3L, cluster.get( 0 ) );
+        assertTrue( String.valueOf( cluster.get( 1 ) ).startsWith( "POINT(10.066" ) );
+        assertNotNull( cluster.get( 2 ) );
+        assertNull( cluster.get( 3 ) );
+    }
+
+    @Test
+    public void testGetEventClustersWithoutBbox()
+    {
+        Grid grid = eventAnalyticsManager.getEventClusters( getParams( null ), new ListGrid(), 10000 );
+
+        assertEquals( 2, grid.getHeight() );
+
+        List<Object> single = (Long) grid.getRow( 0 ).get( 0 ) == 1L ? grid.getRow( 0 ) : grid.getRow( 1 );
+
+        assertEquals( 1L, single.get( 0 ) );
+        assertEquals( "POINT(20 60)", single.get( 1 ) );
+        assertEquals( "eventUidB01", single.get( 3 ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private EventQueryParams getParams( String bbox )
+    {
+        return new EventQueryParams.Builder()
+            .withTableName( TABLE_NAME )
+            .withPartitions( new Partitions( Sets.newHashSet( 2019 ) ) )
+            .withStartDate( getDate( 2019, 1, 1 ) )
+            .withEndDate( getDate( 2019, 6, 30 ) )
+            .withOrganisationUnits( Lists.newArrayList( ouA ) )
+            .withOrganisationUnitMode( OrganisationUnitSelectionMode.SELECTED )
+            .withCoordinateField( "psigeometry" )
+            .withClusterSize( CLUSTER_SIZE )
+            .withBbox( bbox )
+            .build();
+    }
+
+    private void insertCell( int resolution, String monthStart, double x, double y, int count, String psi )
+    {
+        String point = "ST_SetSRID(ST_MakePoint(" + x + "," + y + "),4326)";
+
+        jdbcTemplate.update( "insert into " + CLUSTER_TABLE_NAME + " values (?,null,?,cast(? as date)," +
+            "ST_SnapToGrid(ST_Transform(" + point + ",3785)," + resolution + "),?,?,?," + point + ",?)",
+            resolution, ouA.getUid(), monthStart, count, x * count, y * count, psi );
+    }
+}
@@ -0,0 +1,77 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.ColumnDataType;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AbstractEventJdbcTableManagerTest
+{
+    private final AbstractEventJdbcTableManager tableManager = new JdbcEventAnalyticsTableManager();
+
+    private final List<AnalyticsTableColumn> columns = Lists.newArrayList(
+        new AnalyticsTableColumn( "\"ou\"", ColumnDataType.CHARACTER_11, "ou.uid" ),
+        new AnalyticsTableColumn( "\"deabcdefghA\"", ColumnDataType.DOUBLE,
+            "(select cast(eventdatavalues #>> '{deabcdefghA, value}' as double precision)) as \"deabcdefghA\"" ) );
+
+    @Test
+    public void testGetInsertSql()
+    {
+        String sql = tableManager.getInsertSql( "analytics_event_temp_2018", columns, Lists.newArrayList(),
+            "from programstageinstance psi" );
+
+        assertEquals( "insert into analytics_event_temp_2018 (\"ou\",\"deabcdefghA\") select ou.uid," +
+            "(select cast(eventdatavalues #>> '{deabcdefghA, value}' as double precision)) as \"deabcdefghA\" " +
+            "from programstageinstance psi", sql );
+    }
+
+    @Test
+    public void testGetInsertSqlWithProgramIndicatorColumns()
+    {
+        List<AnalyticsTableColumn> programIndicatorColumns = Lists.newArrayList(
+            new AnalyticsTableColumn( "\"pi_piabcdefghA_1a2b3c4d\"", ColumnDataType.DOUBLE,
+                "cast((\"deabcdefghA\" + 1) as double precision)" ) );
+
+        String sql = tableManager.getInsertSql( "analytics_event_temp_2018", columns, programIndicatorColumns,
+            "from programstageinstance psi" );
+
+        assertEquals( "insert into analytics_event_temp_2018 (\"ou\",\"deabcdefghA\",\"pi_piabcdefghA_1a2b3c4d\") " +
+            "select ax.*,cast((\"deabcdefghA\" + 1) as double precision) " +
+            "from (select ou.uid as \"ou\"," +
+            "(select cast(eventdatavalues #>> '{deabcdefghA, value}' as double precision)) as \"deabcdefghA\" " +
+            "from programstageinstance psi) as ax", sql );
+    }
+}
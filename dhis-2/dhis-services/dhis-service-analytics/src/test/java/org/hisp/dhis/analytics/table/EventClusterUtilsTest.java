@@ -0,0 +1,55 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class EventClusterUtilsTest
+{
+    @Test
+    public void testGetClusterTableName()
+    {
+        assertEquals( "analytics_event_ebayegv0exc_2018_cluster", EventClusterUtils.getClusterTableName( "analytics_event_ebayegv0exc_2018" ) );
+    }
+
+    @Test
+    public void testGetResolution()
+    {
+        assertNull( EventClusterUtils.getResolution( null ) );
+        assertNull( EventClusterUtils.getResolution( 500L ) );
+        assertNull( EventClusterUtils.getResolution( 3999L ) );
+        assertEquals( Integer.valueOf( 1000 ), EventClusterUtils.getResolution( 4000L ) );
+        assertEquals( Integer.valueOf( 1000 ), EventClusterUtils.getResolution( 15000L ) );
+        assertEquals( Integer.valueOf( 4000 ), EventClusterUtils.getResolution( 24000L ) );
+        assertEquals( Integer.valueOf( 64000 ), EventClusterUtils.getResolution( 1000000L ) );
+    }
+}
@@ -0,0 +1,199 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramIndicatorService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class ProgramIndicatorMaterializationUtilsTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private ProgramIndicatorService programIndicatorService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private Program program;
+
+    @Before
+    public void setUp()
+    {
+        program = createProgram( 'A' );
+
+        when( programIndicatorService.expressionIsValid( anyString() ) ).thenReturn( ProgramIndicator.VALID );
+        when( programIndicatorService.filterIsValid( anyString() ) ).thenReturn( ProgramIndicator.FILTER_NOT_EVALUATING_TO_TRUE_OR_FALSE );
+    }
+
+    @Test
+    public void testIsMaterializable()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1} + 1", null );
+
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d1} + 1" ), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "coalesce(\"d1\"::numeric,0) + 1" );
+
+        assertTrue( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+
+        pi.setMaterialize( false );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testIsMaterializableCustomAggregationType()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "sum(#{s1.d1})", null );
+        pi.setAggregationType( AggregationType.CUSTOM );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testIsMaterializableCountVariable()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "V{event_count}", null );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testIsMaterializableReportingPeriodDependent()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "V{analytics_period_end}", null );
+
+        when( programIndicatorService.getAnalyticsSQl( anyString(), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenAnswer( invocation -> "'" + invocation.getArgument( 3 ) + "'" );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testIsMaterializableBooleanExpression()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1} == 1", null );
+
+        when( programIndicatorService.filterIsValid( "#{s1.d1} == 1" ) ).thenReturn( ProgramIndicator.VALID );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testIsMaterializableFilter()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1}", "#{s1.d2} == 2" );
+
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d1}" ), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d1\"" );
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d2} == 2" ), eq( pi ), anyBoolean(), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d2\" == 2" );
+        when( programIndicatorService.filterIsValid( "#{s1.d2} == 2" ) ).thenReturn( ProgramIndicator.VALID );
+
+        assertTrue( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+
+        when( programIndicatorService.filterIsValid( "#{s1.d2} == 2" ) ).thenReturn( ProgramIndicator.INVALID_IDENTIFIERS_IN_EXPRESSION );
+
+        assertFalse( ProgramIndicatorMaterializationUtils.isMaterializable( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testGetValueSqlWithFilter()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1}", "#{s1.d2} == 2" );
+
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d1}" ), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d1\"" );
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d2} == 2" ), eq( pi ), anyBoolean(), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d2\" == 2" );
+
+        assertEquals( "case when (\"d2\" = 2) then cast((\"d1\") as double precision) else null end",
+            ProgramIndicatorMaterializationUtils.getValueSql( pi, programIndicatorService ) );
+    }
+
+    @Test
+    public void testGetColumnName()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1}", null );
+
+        String columnA = ProgramIndicatorMaterializationUtils.getColumnName( pi, "cast((\"d1\") as double precision)" );
+        String columnB = ProgramIndicatorMaterializationUtils.getColumnName( pi, "cast((\"d2\") as double precision)" );
+
+        assertTrue( columnA.startsWith( "pi_" + pi.getUid() + "_" ) );
+        assertEquals( columnA, ProgramIndicatorMaterializationUtils.getColumnName( pi, "cast((\"d1\") as double precision)" ) );
+        assertNotEquals( columnA, columnB );
+    }
+
+    @Test
+    public void testGetColumnNameFollowsExpression()
+    {
+        ProgramIndicator pi = createMaterializedProgramIndicator( 'A', "#{s1.d1}", null );
+
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d1}" ), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d1\"" );
+        when( programIndicatorService.getAnalyticsSQl( eq( "#{s1.d2}" ), eq( pi ), any( Date.class ), any( Date.class ) ) )
+            .thenReturn( "\"d2\"" );
+
+        String column = ProgramIndicatorMaterializationUtils.getColumnName( pi, programIndicatorService );
+
+        assertEquals( ProgramIndicatorMaterializationUtils.getColumnName( pi,
+            ProgramIndicatorMaterializationUtils.getValueSql( pi, programIndicatorService ) ), column );
+
+        pi.setExpression( "#{s1.d2}" );
+
+        assertNotEquals( column, ProgramIndicatorMaterializationUtils.getColumnName( pi, programIndicatorService ) );
+    }
+
+    private ProgramIndicator createMaterializedProgramIndicator( char uniqueCharacter, String expression, String filter )
+    {
+        ProgramIndicator pi = createProgramIndicator( uniqueCharacter, program, expression, filter );
+        pi.setMaterialize( true );
+        return pi;
+    }
+}
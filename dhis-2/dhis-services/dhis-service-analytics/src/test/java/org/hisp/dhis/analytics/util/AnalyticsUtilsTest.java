@@ -50,6 +50,7 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramDataElementDimensionItem;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.user.User;
 import org.junit.Test;
 
 import java.util.Calendar;
@@ -550,4 +551,22 @@ public class AnalyticsUtilsTest
         assertEquals( 10, AnalyticsUtils.getBaseMonth( new FinancialNovemberPeriodType() ), 0 ) ;
         assertEquals( 0, AnalyticsUtils.getBaseMonth( new DailyPeriodType() ), 0 );
     }
+
+    @Test
+    public void testGetResponseKey()
+    {
+        User userA = createUser( 'A' );
+        User userB = createUser( 'B' );
+
+        DataQueryParams params = DataQueryParams.newBuilder()
+            .withPeriods( Lists.newArrayList( createPeriod( "2019" ) ) ).build();
+
+        assertEquals( AnalyticsUtils.getResponseKey( params, userA ), AnalyticsUtils.getResponseKey( params, userB ) );
+
+        DataQueryParams hierarchyParams = DataQueryParams.newBuilder( params )
+            .withHierarchyMeta( true ).build();
+
+        assertNotEquals( AnalyticsUtils.getResponseKey( hierarchyParams, userA ), AnalyticsUtils.getResponseKey( hierarchyParams, userB ) );
+        assertEquals( hierarchyParams.getKey(), AnalyticsUtils.getResponseKey( hierarchyParams, null ) );
+    }
 }
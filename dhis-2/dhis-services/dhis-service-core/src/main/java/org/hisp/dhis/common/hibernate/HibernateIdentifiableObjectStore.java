@@ -38,6 +38,10 @@ import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.StringType;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.common.AuditLogUtil;
 import org.hisp.dhis.common.BaseIdentifiableObject;
@@ -56,7 +60,9 @@ import org.hisp.dhis.hibernate.exception.ReadAccessDeniedException;
 import org.hisp.dhis.hibernate.exception.UpdateAccessDeniedException;
 import org.hisp.dhis.query.JpaQueryUtils;
 import org.hisp.dhis.security.acl.AccessStringHelper;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.security.acl.SharingGrants;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAccess;
@@ -108,6 +114,8 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
 
     private boolean transientIdentifiableProperties = false;
 
+    private Boolean sharingGrantsSupported;
+
     /**
      * Indicates whether the object represented by the implementation does not
      * have persisted identifiable object properties.
@@ -901,30 +909,7 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.like( "c.publicAccess", access ) );
         disjunction.add( Restrictions.isNull( "c.publicAccess" ) );
 
-        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
-        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
-        userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
-        userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
-
-        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
-        userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
-        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
-
-        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
-
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
-
-        DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
-        userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
-        userDetachedCriteria.createCriteria( "ua.user", "u" );
-
-        userDetachedCriteria.add( Restrictions.eqProperty( "udc.id", "c.id" ) );
-        userDetachedCriteria.add( Restrictions.eq( "u.id", user.getId() ) );
-        userDetachedCriteria.add( Restrictions.like( "ua.access", access ) );
-
-        userDetachedCriteria.setProjection( Property.forName( "ua.id" ) );
-
-        disjunction.add( Subqueries.exists( userDetachedCriteria ) );
+        disjunction.add( getAccessRestriction( user, access ) );
 
         criteria.add( disjunction );
 
@@ -959,6 +944,41 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.isNull( "c.user.id" ) );
         disjunction.add( Restrictions.eq( "c.user.id", user.getId() ) );
 
+        disjunction.add( getAccessRestriction( user, access ) );
+
+        criteria.add( disjunction );
+
+        return criteria;
+    }
+
+    /**
+     * Creates a criterion which restricts to objects shared with the given user
+     * or any of the user groups of the user with the given access. Uses the
+     * indexed sharing grants column when supported by the database and the
+     * access can be expressed as a grant, otherwise falls back to subqueries
+     * over the user group access and user access tables.
+     *
+     * @param user the user.
+     * @param access the access string.
+     * @return a Criterion.
+     */
+    private Criterion getAccessRestriction( UserInfo user, String access )
+    {
+        Permission permission = SharingGrants.getPermission( access );
+
+        if ( permission != null && isSharingGrantsSupported() )
+        {
+            List<String> grants = getSharingGrants( user, permission );
+
+            if ( grants.isEmpty() )
+            {
+                return Restrictions.sqlRestriction( "1 = 0" );
+            }
+
+            return Restrictions.sqlRestriction( "{alias}.sharinggrants @> any(cast(? as jsonb[]))",
+                toJsonArrays( grants ), StringType.INSTANCE );
+        }
+
         DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
         userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
         userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
@@ -970,8 +990,6 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
 
         userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
 
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
-
         DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
         userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
         userDetachedCriteria.createCriteria( "ua.user", "u" );
@@ -982,11 +1000,66 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
 
         userDetachedCriteria.setProjection( Property.forName( "ua.id" ) );
 
-        disjunction.add( Subqueries.exists( userDetachedCriteria ) );
+        return Restrictions.or(
+            Subqueries.exists( userGroupDetachedCriteria ),
+            Subqueries.exists( userDetachedCriteria ) );
+    }
 
-        criteria.add( disjunction );
+    /**
+     * Returns the sharing grants which give the given user the given permission,
+     * i.e. the grants of the user itself and of all user groups of the user. The
+     * uids of the user and its user groups are cached per user.
+     *
+     * @param user the user.
+     * @param permission the permission.
+     * @return a list of grants.
+     */
+    private List<String> getSharingGrants( UserInfo user, Permission permission )
+    {
+        return SharingGrantsUserCache.getUserUids( user.getId(), this::getUserUids ).stream()
+            .map( uid -> SharingGrants.getGrant( uid, permission ) )
+            .collect( Collectors.toList() );
+    }
 
-        return criteria;
+    private List<String> getUserUids( long userId )
+    {
+        List<String> uids = new ArrayList<>( getSession()
+            .createQuery( "select u.uid from User u where u.id = :id", String.class )
+            .setParameter( "id", userId ).list() );
+
+        uids.addAll( getSession()
+            .createQuery( "select g.uid from UserGroup g join g.members m where m.id = :id", String.class )
+            .setParameter( "id", userId ).list() );
+
+        return uids;
+    }
+
+    /**
+     * Indicates whether sharing grants can be queried, which requires the
+     * jsonb containment operator of PostgreSQL.
+     */
+    private boolean isSharingGrantsSupported()
+    {
+        if ( sharingGrantsSupported == null )
+        {
+            Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getJdbcServices().getDialect();
+
+            sharingGrantsSupported = dialect instanceof PostgreSQL81Dialect;
+        }
+
+        return sharingGrantsSupported;
+    }
+
+    /**
+     * Returns a PostgreSQL jsonb[] literal with one single-element json array
+     * per grant, matched against the sharing grants column with a single
+     * containment condition which can be served by the GIN index.
+     */
+    private String toJsonArrays( List<String> grants )
+    {
+        return grants.stream()
+            .map( grant -> "\"[\\\"" + grant + "\\\"]\"" )
+            .collect( Collectors.joining( ",", "{", "}" ) );
     }
 
     // ----------------------------------------------------------------------
@@ -1086,39 +1159,14 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return predicates;
         }
 
-        Function<Root<T>, Subquery<Integer>> userGroupPredicate = ( ( Root<T> root ) -> {
-            Subquery<Integer> userGroupSubQuery = criteria.subquery( Integer.class );
-            Root<T> ugdc = userGroupSubQuery.from( getClazz() );
-            Join<T, UserGroupAccess> uga = ugdc.join( "userGroupAccesses" );
-            userGroupSubQuery.select( uga.get("id") );
-
-            return userGroupSubQuery.where(
-                builder.and(
-                    builder.equal( root.get( "id" ), ugdc.get( "id" ) ),
-                    builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() ),
-                    builder.like( uga.get( "access" ), access ) ) );
-        } );
-
-        Function<Root<T>, Subquery<Integer>> userPredicate = ( root -> {
-            Subquery<Integer> userSubQuery = criteria.subquery( Integer.class );
-            Root<T> udc = userSubQuery.from( getClazz() );
-            Join<T, UserAccess> ua = udc.join( "userAccesses" );
-            userSubQuery.select( ua.get( "id" ) );
-
-            return userSubQuery.where(
-                builder.and(
-                    builder.equal( root.get( "id" ), udc.get( "id" ) ),
-                    builder.equal( ua.get( "user" ).get( "id" ), user.getId() ),
-                    builder.like( ua.get( "access" ), access ) ) );
-        } );
+        Function<Root<T>, Predicate> accessPredicate = getAccessPredicate( builder, criteria, user, access );
 
         predicates.add( root -> builder.or(
             builder.like( root.get( "publicAccess" ), access ),
             builder.isNull( root.get( "publicAccess" ) ),
             builder.isNull( root.get( "user" ) ),
             builder.equal( root.get( "user" ).get( "id" ), user.getId() ),
-            builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
+            accessPredicate.apply( root ) ) );
 
         return predicates;
     }
@@ -1137,6 +1185,48 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return predicates;
         }
 
+        Function<Root<T>, Predicate> accessPredicate = getAccessPredicate( builder, criteria, user, access );
+
+        predicates.add( root -> builder.or(
+            builder.like( root.get( "publicAccess" ), access ),
+            builder.isNull( root.get( "publicAccess" ) ),
+            accessPredicate.apply( root ) ) );
+
+        return predicates;
+    }
+
+    /**
+     * Creates a predicate function which restricts to objects shared with the
+     * given user or any of the user groups of the user with the given access.
+     * Uses the indexed sharing grants column when supported by the database and
+     * the access can be expressed as a grant, otherwise falls back to subqueries
+     * over the user group access and user access tables.
+     *
+     * @param builder the CriteriaBuilder.
+     * @param criteria the CriteriaQuery used to create subqueries.
+     * @param user the user.
+     * @param access the access string.
+     * @return a function of Root to Predicate.
+     */
+    private Function<Root<T>, Predicate> getAccessPredicate( CriteriaBuilder builder, CriteriaQuery<T> criteria, UserInfo user, String access )
+    {
+        Permission permission = SharingGrants.getPermission( access );
+
+        if ( permission != null && isSharingGrantsSupported() )
+        {
+            List<String> grants = getSharingGrants( user, permission );
+
+            if ( grants.isEmpty() )
+            {
+                return root -> builder.disjunction();
+            }
+
+            String jsonArrays = toJsonArrays( grants );
+
+            return root -> builder.isTrue( builder.function( "jsonb_contains_any", Boolean.class,
+                root.get( "sharingGrants" ), builder.literal( jsonArrays ) ) );
+        }
+
         Function<Root<T>, Subquery<Integer>> userGroupPredicate = ( ( Root<T> root ) -> {
             Subquery<Integer> userGroupSubQuery = criteria.subquery( Integer.class );
             Root<T> ugdc = userGroupSubQuery.from( getClazz() );
@@ -1163,13 +1253,9 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
                     builder.like( ua.get( "access" ), access ) ) );
         } );
 
-        predicates.add( root -> builder.or(
-            builder.like( root.get( "publicAccess" ), access ),
-            builder.isNull( root.get( "publicAccess" ) ),
+        return root -> builder.or(
             builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
-
-        return predicates;
+            builder.exists( userPredicate.apply( root ) ) );
     }
 
     // ----------------------------------------------------------------------
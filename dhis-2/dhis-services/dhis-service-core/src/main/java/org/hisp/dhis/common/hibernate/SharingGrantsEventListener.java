@@ -0,0 +1,159 @@
+package org.hisp.dhis.common.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.FlushEntityEvent;
+import org.hibernate.event.spi.FlushEntityEventListener;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.security.acl.SharingGrants;
+import org.hisp.dhis.user.UserGroup;
+
+/**
+ * Keeps the denormalized sharing grants of shareable objects in line with
+ * their user group and user accesses for every write which goes through
+ * Hibernate, including changes picked up by dirty checking. Inserts get the
+ * grants set on the insert state. Flushed entities get the grants recomputed
+ * before dirty checking, so that a change of accesses alone schedules an
+ * update of the grants. Writes of user group members invalidate the cached
+ * user and user group uids which grants are matched against.
+ */
+public class SharingGrantsEventListener
+    implements PreInsertEventListener, FlushEntityEventListener, PostCollectionRecreateEventListener,
+    PostCollectionUpdateEventListener, PostCollectionRemoveEventListener
+{
+    private static final String PROPERTY = "sharingGrants";
+
+    @Override
+    public boolean onPreInsert( PreInsertEvent event )
+    {
+        if ( event.getEntity() instanceof BaseIdentifiableObject )
+        {
+            int index = getPropertyIndex( event.getPersister() );
+
+            if ( index >= 0 )
+            {
+                BaseIdentifiableObject object = (BaseIdentifiableObject) event.getEntity();
+
+                SharingGrants.updateSharingGrants( object );
+
+                event.getState()[index] = object.getSharingGrants();
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void onFlushEntity( FlushEntityEvent event )
+        throws HibernateException
+    {
+        EntityEntry entry = event.getEntityEntry();
+
+        if ( !( event.getEntity() instanceof BaseIdentifiableObject ) || entry.getStatus() != Status.MANAGED ||
+            getPropertyIndex( entry.getPersister() ) < 0 )
+        {
+            return;
+        }
+
+        BaseIdentifiableObject object = (BaseIdentifiableObject) event.getEntity();
+
+        // Accesses which were never loaded cannot have been changed
+
+        if ( !isInitialized( object.getUserGroupAccesses() ) || !isInitialized( object.getUserAccesses() ) )
+        {
+            return;
+        }
+
+        Set<String> grants = SharingGrants.getSharingGrants( object );
+
+        if ( !Objects.equals( grants, object.getSharingGrants() ) )
+        {
+            object.setSharingGrants( grants );
+        }
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateUserUids( event );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateUserUids( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateUserUids( event );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidateUserUids( AbstractCollectionEvent event )
+    {
+        if ( event.getAffectedOwnerOrNull() instanceof UserGroup )
+        {
+            SharingGrantsUserCache.invalidateAll();
+        }
+    }
+
+    private int getPropertyIndex( EntityPersister persister )
+    {
+        return Arrays.asList( persister.getPropertyNames() ).indexOf( PROPERTY );
+    }
+
+    private boolean isInitialized( Collection<?> collection )
+    {
+        return collection == null || Hibernate.isInitialized( collection );
+    }
+}
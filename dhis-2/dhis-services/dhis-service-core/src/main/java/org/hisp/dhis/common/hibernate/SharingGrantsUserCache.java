@@ -0,0 +1,77 @@
+package org.hisp.dhis.common.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the identifiers which the sharing grants of objects are matched
+ * against for a user, i.e. the uid of the user and the uids of the user groups
+ * of the user. Key is user id. Entries are invalidated when user group
+ * memberships are written through Hibernate, and expire shortly after being
+ * loaded to bound staleness for memberships changed on other instances.
+ */
+final class SharingGrantsUserCache
+{
+    private static final Cache<Long, List<String>> USER_UIDS_CACHE = Caffeine.newBuilder()
+        .expireAfterWrite( 1, TimeUnit.MINUTES )
+        .initialCapacity( 200 )
+        .maximumSize( 4000 )
+        .build();
+
+    private SharingGrantsUserCache()
+    {
+    }
+
+    /**
+     * Returns the uids of the user and user groups of the user with the given
+     * id, loading them with the given function if not cached.
+     *
+     * @param userId the user id.
+     * @param loader the function loading the uids.
+     * @return a list of uids.
+     */
+    static List<String> getUserUids( long userId, Function<Long, List<String>> loader )
+    {
+        return USER_UIDS_CACHE.get( userId, loader );
+    }
+
+    /**
+     * Invalidates all cached uids.
+     */
+    static void invalidateAll()
+    {
+        USER_UIDS_CACHE.invalidateAll();
+    }
+}
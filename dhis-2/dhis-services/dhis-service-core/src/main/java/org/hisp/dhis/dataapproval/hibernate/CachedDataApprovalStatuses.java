@@ -0,0 +1,105 @@
+package org.hisp.dhis.dataapproval.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.dataapproval.DataApprovalLevel;
+import org.hisp.dhis.dataapproval.DataApprovalStatus;
+
+/**
+ * Data approval statuses as computed by the approval status query, held in
+ * the approval status cache. The statuses are copied both when stored and
+ * when returned, since callers fill in permissions and creation details for
+ * the current user.
+ */
+class CachedDataApprovalStatuses
+{
+    private final List<DataApprovalStatus> statuses;
+
+    CachedDataApprovalStatuses( List<DataApprovalStatus> statuses )
+    {
+        this.statuses = copy( statuses );
+    }
+
+    /**
+     * Returns a copy of the cached statuses.
+     */
+    List<DataApprovalStatus> getStatuses()
+    {
+        return copy( statuses );
+    }
+
+    /**
+     * Checks whether the given statuses are the same as the cached statuses,
+     * regardless of order, ignoring permissions and creation details.
+     *
+     * @param other the statuses to compare with.
+     * @return true if the statuses are the same.
+     */
+    boolean isSameAs( List<DataApprovalStatus> other )
+    {
+        return getSignatures( statuses ).equals( getSignatures( other ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static List<DataApprovalStatus> copy( List<DataApprovalStatus> statuses )
+    {
+        List<DataApprovalStatus> copies = new ArrayList<>( statuses.size() );
+
+        for ( DataApprovalStatus s : statuses )
+        {
+            copies.add( new DataApprovalStatus( s.getState(), s.getApprovedLevel(), s.getApprovedOrgUnitId(),
+                s.getActionLevel(), s.getOrganisationUnitUid(), s.getOrganisationUnitName(),
+                s.getAttributeOptionComboUid(), s.isAccepted(), null ) );
+        }
+
+        return copies;
+    }
+
+    private static List<String> getSignatures( List<DataApprovalStatus> statuses )
+    {
+        return statuses.stream()
+            .map( s -> s.getOrganisationUnitUid() + "-" + s.getAttributeOptionComboUid() + "-" + s.getState() +
+                "-" + getLevel( s.getApprovedLevel() ) + "-" + s.getApprovedOrgUnitId() +
+                "-" + getLevel( s.getActionLevel() ) + "-" + s.isAccepted() )
+            .sorted()
+            .collect( Collectors.toList() );
+    }
+
+    private static int getLevel( DataApprovalLevel level )
+    {
+        return level == null ? 0 : level.getLevel();
+    }
+}
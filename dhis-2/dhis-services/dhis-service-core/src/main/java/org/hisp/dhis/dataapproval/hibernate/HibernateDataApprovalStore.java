@@ -38,8 +38,10 @@ import static org.hisp.dhis.dataapproval.DataApprovalState.UNAPPROVED_WAITING;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -57,6 +59,7 @@ import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataapproval.DataApproval;
@@ -66,6 +69,8 @@ import org.hisp.dhis.dataapproval.DataApprovalState;
 import org.hisp.dhis.dataapproval.DataApprovalStatus;
 import org.hisp.dhis.dataapproval.DataApprovalStore;
 import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.hibernate.HibernateGenericStore;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -78,6 +83,9 @@ import org.hisp.dhis.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * @author Jim Grace
@@ -93,14 +101,43 @@ public class HibernateDataApprovalStore
     private static final String SQL_CONCAT = "-";
     private static final String SQL_CAT = StatementBuilder.QUOTE + SQL_CONCAT + StatementBuilder.QUOTE;
 
+    private static final String STATUS_CACHE_VERIFY = "verify";
+
+    private static final Object STATUS_VERSION_RESOURCE_KEY = new Object();
+
+    /**
+     * Key of the status version shared by all workflow periods, replaced when
+     * approvals are changed across workflow periods.
+     */
+    private static final String STATUS_VERSION_ALL_KEY = "all";
+
     private Cache<Boolean> IS_APPROVED_CACHE;
 
+    /**
+     * Approval statuses by workflow, workflow period, status version, user
+     * and query. Changes to approvals of a workflow period replace the status
+     * version of that workflow period, which makes the statuses cached for it
+     * unreachable. Metadata changes that affect statuses, such as sharing and
+     * the org unit hierarchy, are picked up when entries expire.
+     * <p/>
+     * Kept in memory as the statuses hold approval levels, which are not
+     * serializable. The status versions are shared through Redis when it is
+     * enabled, so changes made on any instance make the statuses cached on
+     * all instances unreachable.
+     */
+    private Cache<CachedDataApprovalStatuses> APPROVAL_STATUS_CACHE;
+
+    private Cache<String> APPROVAL_STATUS_VERSION_CACHE;
+
     @Autowired
     private CacheProvider cacheProvider;
 
     @Autowired
     private Environment env;
 
+    @Autowired
+    private DhisConfigurationProvider configurationProvider;
+
     @PostConstruct
     public void init()
     {
@@ -108,6 +145,16 @@ public class HibernateDataApprovalStore
             .forRegion( "isDataApproved" )
             .expireAfterAccess( 12, TimeUnit.HOURS )
             .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 20000 ).build();
+
+        APPROVAL_STATUS_CACHE = cacheProvider.newCacheBuilder( CachedDataApprovalStatuses.class )
+            .forRegion( "dataApprovalStatus" )
+            .expireAfterWrite( 10, TimeUnit.MINUTES )
+            .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 20000 ).forceInMemory().build();
+
+        APPROVAL_STATUS_VERSION_CACHE = cacheProvider.newCacheBuilder( String.class )
+            .forRegion( "dataApprovalStatusVersion" )
+            .expireAfterAccess( 12, TimeUnit.HOURS )
+            .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 20000 ).build();
     }
 
     // -------------------------------------------------------------------------
@@ -160,6 +207,7 @@ public class HibernateDataApprovalStore
     public void addDataApproval( DataApproval dataApproval )
     {
         IS_APPROVED_CACHE.invalidateAll();
+        invalidateStatuses( dataApproval );
 
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
@@ -170,6 +218,7 @@ public class HibernateDataApprovalStore
     public void updateDataApproval( DataApproval dataApproval )
     {
         IS_APPROVED_CACHE.invalidateAll();
+        invalidateStatuses( dataApproval );
 
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
@@ -180,6 +229,7 @@ public class HibernateDataApprovalStore
     public void deleteDataApproval( DataApproval dataApproval )
     {
         IS_APPROVED_CACHE.invalidateAll();
+        invalidateStatuses( dataApproval );
 
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
@@ -190,6 +240,7 @@ public class HibernateDataApprovalStore
     public void deleteDataApprovals( OrganisationUnit organisationUnit )
     {
         IS_APPROVED_CACHE.invalidateAll();
+        invalidateStatuses( STATUS_VERSION_ALL_KEY );
 
         String hql = "delete from DataApproval d where d.organisationUnit = :unit";
 
@@ -264,6 +315,45 @@ public class HibernateDataApprovalStore
         Period period, Collection<OrganisationUnit> orgUnits, int orgUnitLevel,
         CategoryCombo attributeCombo,
         Set<CategoryOptionCombo> attributeOptionCombos )
+    {
+        if ( configurationProvider.isDisabled( ConfigurationKey.APPROVAL_STATUS_CACHE ) )
+        {
+            return getDataApprovalStatusesFromDatabase( workflow, period, orgUnits, orgUnitLevel, attributeCombo, attributeOptionCombos );
+        }
+
+        String key = getStatusCacheKey( workflow, period, orgUnits, orgUnitLevel, attributeCombo, attributeOptionCombos );
+
+        Optional<CachedDataApprovalStatuses> cached = APPROVAL_STATUS_CACHE.getIfPresent( key );
+
+        boolean verify = STATUS_CACHE_VERIFY.equals( configurationProvider.getProperty( ConfigurationKey.APPROVAL_STATUS_CACHE ) );
+
+        if ( cached.isPresent() && !verify )
+        {
+            return cached.get().getStatuses();
+        }
+
+        List<DataApprovalStatus> statuses = getDataApprovalStatusesFromDatabase( workflow, period, orgUnits, orgUnitLevel,
+            attributeCombo, attributeOptionCombos );
+
+        if ( cached.isPresent() && !cached.get().isSameAs( statuses ) )
+        {
+            log.warn( "Cached approval statuses differ from database for workflow " + workflow.getUid() +
+                ", period " + period.getIsoDate() + ", cache key: " + key );
+        }
+
+        APPROVAL_STATUS_CACHE.put( key, new CachedDataApprovalStatuses( statuses ) );
+
+        return statuses;
+    }
+
+    /**
+     * Gets the approval statuses from the database, bypassing the approval
+     * status cache.
+     */
+    List<DataApprovalStatus> getDataApprovalStatusesFromDatabase( DataApprovalWorkflow workflow,
+        Period period, Collection<OrganisationUnit> orgUnits, int orgUnitLevel,
+        CategoryCombo attributeCombo,
+        Set<CategoryOptionCombo> attributeOptionCombos )
     {
         // ---------------------------------------------------------------------
         // Get validation criteria
@@ -575,6 +665,140 @@ public class HibernateDataApprovalStore
         return statusList;
     }
 
+    /**
+     * Makes the approval statuses cached for the workflow period of the given
+     * approval unreachable, by giving that workflow period a new version.
+     * Within a transaction the version is replaced again after commit, since
+     * statuses read by other transactions before the commit are cached under
+     * the intermediate version without the change. After a rollback the
+     * version is replaced as well, since statuses read within the transaction
+     * are cached with the change.
+     *
+     * @param dataApproval the data approval which is changed.
+     */
+    private void invalidateStatuses( DataApproval dataApproval )
+    {
+        invalidateStatuses( getWorkflowPeriodKey( dataApproval.getWorkflow(), dataApproval.getPeriod() ) );
+    }
+
+    /**
+     * Makes the approval statuses cached for the given workflow period key
+     * unreachable, or all cached statuses for {@link #STATUS_VERSION_ALL_KEY}.
+     *
+     * @param workflowPeriodKey the workflow period key.
+     */
+    private void invalidateStatuses( String workflowPeriodKey )
+    {
+        APPROVAL_STATUS_VERSION_CACHE.put( workflowPeriodKey, CodeGenerator.generateUid() );
+
+        StatusVersionSynchronization synchronization = getStatusVersionSynchronization();
+
+        if ( synchronization != null )
+        {
+            synchronization.workflowPeriodKeys.add( workflowPeriodKey );
+        }
+    }
+
+    /**
+     * Returns the status version synchronization of the current transaction,
+     * registering it on first use. Returns null if there is no transaction.
+     */
+    private StatusVersionSynchronization getStatusVersionSynchronization()
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            return null;
+        }
+
+        StatusVersionSynchronization synchronization = (StatusVersionSynchronization)
+            TransactionSynchronizationManager.getResource( STATUS_VERSION_RESOURCE_KEY );
+
+        if ( synchronization == null )
+        {
+            synchronization = new StatusVersionSynchronization();
+
+            TransactionSynchronizationManager.bindResource( STATUS_VERSION_RESOURCE_KEY, synchronization );
+            TransactionSynchronizationManager.registerSynchronization( synchronization );
+        }
+
+        return synchronization;
+    }
+
+    /**
+     * Replaces the status versions of the workflow periods changed within a
+     * transaction once the transaction completes.
+     */
+    private class StatusVersionSynchronization
+        extends TransactionSynchronizationAdapter
+    {
+        private final Set<String> workflowPeriodKeys = new HashSet<>();
+
+        @Override
+        public void afterCommit()
+        {
+            invalidate();
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResourceIfPossible( STATUS_VERSION_RESOURCE_KEY );
+
+            if ( status != TransactionSynchronization.STATUS_COMMITTED )
+            {
+                invalidate();
+            }
+        }
+
+        private void invalidate()
+        {
+            workflowPeriodKeys.forEach( key -> APPROVAL_STATUS_VERSION_CACHE.put( key, CodeGenerator.generateUid() ) );
+        }
+    }
+
+    /**
+     * Returns the key of the workflow period which contains the end date of
+     * the given period. Approvals within this workflow period are the only
+     * approvals which affect the statuses of the given period.
+     *
+     * @param workflow the workflow.
+     * @param period the period.
+     * @return the workflow period key.
+     */
+    private String getWorkflowPeriodKey( DataApprovalWorkflow workflow, Period period )
+    {
+        return workflow.getUid() + SQL_CONCAT + workflow.getPeriodType().createPeriod( period.getEndDate() ).getIsoDate();
+    }
+
+    /**
+     * Returns the approval status cache key for a query made by the current
+     * user. The key starts with the workflow period, its current status
+     * version and the status version shared by all workflow periods.
+     */
+    private String getStatusCacheKey( DataApprovalWorkflow workflow, Period period,
+        Collection<OrganisationUnit> orgUnits, int orgUnitLevel, CategoryCombo attributeCombo,
+        Set<CategoryOptionCombo> attributeOptionCombos )
+    {
+        String workflowPeriodKey = getWorkflowPeriodKey( workflow, period );
+
+        String version = APPROVAL_STATUS_VERSION_CACHE.get( workflowPeriodKey, key -> CodeGenerator.generateUid() ).orElse( null );
+        String allVersion = APPROVAL_STATUS_VERSION_CACHE.get( STATUS_VERSION_ALL_KEY, key -> CodeGenerator.generateUid() ).orElse( null );
+
+        User user = currentUserService.getCurrentUser();
+
+        return StringUtils.join( new Object[] {
+            workflowPeriodKey,
+            version,
+            allVersion,
+            user == null ? null : user.getUid(),
+            period.getIsoDate(),
+            orgUnits == null ? null : orgUnits.stream().map( OrganisationUnit::getUid ).sorted().collect( Collectors.joining( "," ) ),
+            orgUnitLevel,
+            attributeCombo == null ? null : attributeCombo.getUid(),
+            attributeOptionCombos == null ? null : attributeOptionCombos.stream().map( CategoryOptionCombo::getUid ).sorted().collect( Collectors.joining( "," ) ),
+            systemSettingManager.getSystemSetting( SettingKey.ACCEPTANCE_REQUIRED_FOR_APPROVAL ) }, SQL_CONCAT );
+    }
+
     /**
      * Get the id for the workflow period that spans the given end date.
      * The workflow period may or may not be the same as the period for which
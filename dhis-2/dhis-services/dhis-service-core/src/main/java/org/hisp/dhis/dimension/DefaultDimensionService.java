@@ -92,6 +92,7 @@ import org.hisp.dhis.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -169,9 +170,14 @@ public class DefaultDimensionService
     @Override
     public <T extends IdentifiableObject> List<T> getCanReadObjects( User user, List<T> objects )
     {
-        List<T> list = new ArrayList<>( objects );
+        BitSet readable = aclService.canRead( user, objects );
 
-        list.removeIf(object -> !aclService.canRead(user, object));
+        List<T> list = new ArrayList<>( readable.cardinality() );
+
+        for ( int i = readable.nextSetBit( 0 ); i >= 0; i = readable.nextSetBit( i + 1 ) )
+        {
+            list.add( objects.get( i ) );
+        }
 
         return list;
     }
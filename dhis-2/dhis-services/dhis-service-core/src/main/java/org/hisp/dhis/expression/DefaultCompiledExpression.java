@@ -0,0 +1,108 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING;
+import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING;
+
+import org.hisp.dhis.system.jep.JepExpression;
+
+/**
+ * Compiled expression where each distinct data item is a parser variable
+ * bound to a position in the value array, optionally followed by a variable
+ * holding the number of days.
+ */
+class DefaultCompiledExpression
+    implements CompiledExpression
+{
+    private final JepExpression jepExpression;
+
+    private final int[] itemIndexes;
+
+    private final boolean hasDays;
+
+    private final MissingValueStrategy missingValueStrategy;
+
+    private final double[] variableValues;
+
+    /**
+     * @param jepExpression the parsed expression.
+     * @param itemIndexes the index in the value array of each item variable,
+     *        or -1 if the item never has a value.
+     * @param hasDays whether the last variable holds the number of days.
+     * @param missingValueStrategy the missing value strategy.
+     */
+    DefaultCompiledExpression( JepExpression jepExpression, int[] itemIndexes, boolean hasDays,
+        MissingValueStrategy missingValueStrategy )
+    {
+        this.jepExpression = jepExpression;
+        this.itemIndexes = itemIndexes;
+        this.hasDays = hasDays;
+        this.missingValueStrategy = missingValueStrategy;
+        this.variableValues = new double[itemIndexes.length + (hasDays ? 1 : 0)];
+    }
+
+    @Override
+    public Double evaluate( double[] values, Integer days )
+    {
+        int valueCount = 0;
+
+        for ( int i = 0; i < itemIndexes.length; i++ )
+        {
+            double value = itemIndexes[i] < 0 ? Double.NaN : values[itemIndexes[i]];
+
+            if ( Double.isNaN( value ) )
+            {
+                if ( SKIP_IF_ANY_VALUE_MISSING == missingValueStrategy )
+                {
+                    return null;
+                }
+
+                variableValues[i] = 0d;
+            }
+            else
+            {
+                variableValues[i] = value;
+                valueCount++;
+            }
+        }
+
+        if ( SKIP_IF_ALL_VALUES_MISSING == missingValueStrategy && itemIndexes.length > 0 && valueCount == 0 )
+        {
+            return null;
+        }
+
+        if ( hasDays )
+        {
+            variableValues[itemIndexes.length] = days != null ? days : 0d;
+        }
+
+        return jepExpression.getValue( variableValues );
+    }
+}
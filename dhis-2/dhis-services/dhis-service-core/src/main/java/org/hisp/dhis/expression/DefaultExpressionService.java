@@ -38,6 +38,7 @@ import static org.hisp.dhis.system.util.MathUtils.isEqual;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,6 +70,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.system.jep.CustomFunctions;
+import org.hisp.dhis.system.jep.JepExpression;
 import org.hisp.dhis.system.util.ExpressionUtils;
 import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -260,6 +262,93 @@ public class DefaultExpressionService
         return expressionString != null ? calculateExpression( expressionString ) : null;
     }
 
+    @Override
+    public CompiledExpression compileExpression( Expression expression, Map<String, Integer> itemIndexMap,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap )
+    {
+        if ( expression == null || StringUtils.isEmpty( expression.getExpression() ) )
+        {
+            return null;
+        }
+
+        String expressionString = ExpressionUtils.normalizeExpression( expression.getExpression() );
+
+        // Aggregates and isNull are resolved from the values before parsing,
+        // and a negative value raised to a power evaluates differently as a
+        // literal than as a variable, so such expressions are not compiled
+
+        if ( CustomFunctions.AGGREGATE_PATTERN_PREFIX.matcher( expressionString ).find() ||
+            ISNULL_PATTERN.matcher( expressionString ).find() || expressionString.contains( "^" ) )
+        {
+            return null;
+        }
+
+        expressionString = upperCaseScalarFunctions( expressionString );
+
+        // ---------------------------------------------------------------------
+        // DimensionalItemObjects as variables
+        // ---------------------------------------------------------------------
+
+        Map<String, String> itemVariables = new LinkedHashMap<>();
+        List<Integer> itemIndexes = new ArrayList<>();
+
+        StringBuffer sb = new StringBuffer();
+        Matcher matcher = VARIABLE_PATTERN.matcher( expressionString );
+
+        while ( matcher.find() )
+        {
+            char next = matcher.end() < expressionString.length() ? expressionString.charAt( matcher.end() ) : ' ';
+
+            if ( Character.isLetterOrDigit( next ) || next == '.' || next == '_' )
+            {
+                return null; // Value would be concatenated with what follows
+            }
+
+            String dimItem = matcher.group( GROUP_ID );
+
+            String variable = itemVariables.computeIfAbsent( dimItem, d -> {
+                itemIndexes.add( ObjectUtils.firstNonNull( itemIndexMap.get( d ), -1 ) );
+                return "v" + itemIndexes.size();
+            } );
+
+            matcher.appendReplacement( sb, variable );
+        }
+
+        expressionString = TextUtils.appendTail( matcher, sb );
+
+        expressionString = substituteConstants( expressionString, constantMap );
+
+        expressionString = substituteOrgUnitCounts( expressionString, orgUnitCountMap );
+
+        // ---------------------------------------------------------------------
+        // Days as variable
+        // ---------------------------------------------------------------------
+
+        List<String> variables = new ArrayList<>( itemVariables.values() );
+
+        matcher = DAYS_PATTERN.matcher( expressionString );
+
+        boolean hasDays = matcher.find();
+
+        if ( hasDays )
+        {
+            expressionString = matcher.replaceAll( "days" );
+            variables.add( "days" );
+        }
+
+        JepExpression jepExpression = new JepExpression( expressionString, variables );
+
+        if ( jepExpression.hasError() )
+        {
+            log.debug( "Could not compile expression: " + expression.getExpression() );
+
+            return null;
+        }
+
+        return new DefaultCompiledExpression( jepExpression, itemIndexes.stream().mapToInt( i -> i ).toArray(),
+            hasDays, ObjectUtils.firstNonNull( expression.getMissingValueStrategy(), NEVER_SKIP ) );
+    }
+
     @Override
     public Set<DataElement> getDataElementsInExpression( String expression )
     {
@@ -909,16 +998,7 @@ public class DefaultExpressionService
         // Other scalar custom functions (make them case-insensitive)
         // ---------------------------------------------------------------------
 
-        sb = new StringBuffer();
-        matcher = CustomFunctions.SCALAR_PATTERN_PREFIX.matcher( expression );
-
-        while ( matcher.find() )
-        {
-            matcher.appendReplacement( sb,
-                expression.substring( matcher.start(), matcher.end() ).toUpperCase() );
-        }
-
-        expression = TextUtils.appendTail( matcher, sb );
+        expression = upperCaseScalarFunctions( expression );
 
         // ---------------------------------------------------------------------
         // DimensionalItemObjects
@@ -963,11 +1043,41 @@ public class DefaultExpressionService
         expression = TextUtils.appendTail( matcher, sb );
 
         // ---------------------------------------------------------------------
-        // Constants
+        // Constants and org unit groups
+        // ---------------------------------------------------------------------
+
+        expression = substituteConstants( expression, constantMap );
+
+        expression = substituteOrgUnitCounts( expression, orgUnitCountMap );
+
+        // ---------------------------------------------------------------------
+        // Days
         // ---------------------------------------------------------------------
 
         sb = new StringBuffer();
-        matcher = CONSTANT_PATTERN.matcher( expression );
+        matcher = DAYS_PATTERN.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            String replacement = days != null ? String.valueOf( days ) : NULL_REPLACEMENT;
+
+            matcher.appendReplacement( sb, replacement );
+        }
+
+        return TextUtils.appendTail( matcher, sb );
+    }
+
+    /**
+     * Replaces constants in the given expression with their values.
+     *
+     * @param expression the expression.
+     * @param constantMap the constant map.
+     * @return the expression with constant values.
+     */
+    private String substituteConstants( String expression, Map<String, Double> constantMap )
+    {
+        StringBuffer sb = new StringBuffer();
+        Matcher matcher = CONSTANT_PATTERN.matcher( expression );
 
         while ( matcher.find() )
         {
@@ -978,14 +1088,21 @@ public class DefaultExpressionService
             matcher.appendReplacement( sb, replacement );
         }
 
-        expression = TextUtils.appendTail( matcher, sb );
-
-        // ---------------------------------------------------------------------
-        // Org unit groups
-        // ---------------------------------------------------------------------
+        return TextUtils.appendTail( matcher, sb );
+    }
 
-        sb = new StringBuffer();
-        matcher = OU_GROUP_PATTERN.matcher( expression );
+    /**
+     * Replaces organisation unit groups in the given expression with their
+     * member counts.
+     *
+     * @param expression the expression.
+     * @param orgUnitCountMap the organisation unit count map.
+     * @return the expression with organisation unit counts.
+     */
+    private String substituteOrgUnitCounts( String expression, Map<String, Integer> orgUnitCountMap )
+    {
+        StringBuffer sb = new StringBuffer();
+        Matcher matcher = OU_GROUP_PATTERN.matcher( expression );
 
         while ( matcher.find() )
         {
@@ -996,20 +1113,25 @@ public class DefaultExpressionService
             matcher.appendReplacement( sb, replacement );
         }
 
-        expression = TextUtils.appendTail( matcher, sb );
-
-        // ---------------------------------------------------------------------
-        // Days
-        // ---------------------------------------------------------------------
+        return TextUtils.appendTail( matcher, sb );
+    }
 
-        sb = new StringBuffer();
-        matcher = DAYS_PATTERN.matcher( expression );
+    /**
+     * Upper-cases the names of scalar custom functions in the given expression
+     * so that they are case-insensitive.
+     *
+     * @param expression the expression.
+     * @return the expression with upper-cased scalar function names.
+     */
+    private String upperCaseScalarFunctions( String expression )
+    {
+        StringBuffer sb = new StringBuffer();
+        Matcher matcher = CustomFunctions.SCALAR_PATTERN_PREFIX.matcher( expression );
 
         while ( matcher.find() )
         {
-            String replacement = days != null ? String.valueOf( days ) : NULL_REPLACEMENT;
-
-            matcher.appendReplacement( sb, replacement );
+            matcher.appendReplacement( sb,
+                expression.substring( matcher.start(), matcher.end() ).toUpperCase() );
         }
 
         return TextUtils.appendTail( matcher, sb );
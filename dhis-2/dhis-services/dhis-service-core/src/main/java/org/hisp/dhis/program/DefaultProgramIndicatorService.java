@@ -35,9 +35,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang.StringUtils;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.hisp.dhis.commons.sqlfunc.ConditionalSqlFunction;
 import org.hisp.dhis.commons.sqlfunc.HasValueSqlFunction;
@@ -47,6 +52,7 @@ import org.hisp.dhis.commons.sqlfunc.SqlFunction;
 import org.hisp.dhis.commons.sqlfunc.ZeroIfNegativeSqlFunction;
 import org.hisp.dhis.commons.sqlfunc.ZeroPositiveValueCountFunction;
 import org.hisp.dhis.commons.util.ExpressionUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
@@ -61,6 +67,7 @@ import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.collect.ImmutableMap;
@@ -109,12 +116,16 @@ public class DefaultProgramIndicatorService implements ProgramIndicatorService
 
     private I18nManager i18nManager;
 
+    private CacheProvider cacheProvider;
+
+    private Environment env;
+
     @Autowired
     public DefaultProgramIndicatorService( ProgramIndicatorStore programIndicatorStore,
         ProgramStageService programStageService, DataElementService dataElementService,
         TrackedEntityAttributeService attributeService, ConstantService constantService, StatementBuilder statementBuilder,
         @Qualifier("org.hisp.dhis.program.ProgramIndicatorGroupStore") IdentifiableObjectStore<ProgramIndicatorGroup> programIndicatorGroupStore,
-        I18nManager i18nManager )
+        I18nManager i18nManager, CacheProvider cacheProvider, Environment env )
     {
         checkNotNull( programIndicatorStore );
         checkNotNull( programStageService );
@@ -124,6 +135,8 @@ public class DefaultProgramIndicatorService implements ProgramIndicatorService
         checkNotNull( statementBuilder );
         checkNotNull( programIndicatorGroupStore );
         checkNotNull( i18nManager );
+        checkNotNull( cacheProvider );
+        checkNotNull( env );
 
         this.programIndicatorStore = programIndicatorStore;
         this.programStageService = programStageService;
@@ -133,6 +146,25 @@ public class DefaultProgramIndicatorService implements ProgramIndicatorService
         this.statementBuilder = statementBuilder;
         this.programIndicatorGroupStore = programIndicatorGroupStore;
         this.i18nManager = i18nManager;
+        this.cacheProvider = cacheProvider;
+        this.env = env;
+    }
+
+    /**
+     * Cache for compiled analytics SQL, keyed on program indicator version,
+     * expression, referenced constant values and reporting boundaries.
+     */
+    private Cache<String> analyticsSqlCache;
+
+    // -------------------------------------------------------------------------
+    // Initialization
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    public void init()
+    {
+        analyticsSqlCache = cacheProvider.newCacheBuilder( String.class ).forRegion( "programIndicatorAnalyticsSql" )
+            .expireAfterWrite( 1, TimeUnit.HOURS ).withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
     }
 
     // -------------------------------------------------------------------------
@@ -274,6 +306,76 @@ public class DefaultProgramIndicatorService implements ProgramIndicatorService
             return null;
         }
 
+        if ( programIndicator == null || programIndicator.getUid() == null )
+        {
+            return getCompiledAnalyticsSql( expression, programIndicator, ignoreMissingValues, startDate, endDate );
+        }
+
+        String key = getAnalyticsSqlCacheKey( expression, programIndicator, ignoreMissingValues, startDate, endDate );
+
+        return analyticsSqlCache.get( key, k -> getCompiledAnalyticsSql(
+            expression, programIndicator, ignoreMissingValues, startDate, endDate ) ).orElse( null );
+    }
+
+    /**
+     * Returns the cache key for the analytics SQL of the given expression. The
+     * last updated timestamp of the program indicator is part of the key so that
+     * changes made outside of this service, such as metadata imports, do not
+     * produce stale SQL. The values of referenced constants are part of the key
+     * as they are rendered into the SQL. Data elements, attributes and program
+     * stages are rendered by identifier only and need no versioning. The
+     * reporting dates are part of the key as analytics period boundaries and
+     * date variables are resolved into literal dates.
+     */
+    private String getAnalyticsSqlCacheKey( String expression, ProgramIndicator programIndicator,
+        boolean ignoreMissingValues, Date startDate, Date endDate )
+    {
+        return StringUtils.join( new Object[] {
+            programIndicator.getUid(),
+            getTime( programIndicator.getLastUpdated() ),
+            ignoreMissingValues,
+            getTime( startDate ),
+            getTime( endDate ),
+            getConstantValues( expression ),
+            expression }, "-" );
+    }
+
+    /**
+     * Returns the values of the constants referenced by the given expression,
+     * or an empty string if no constants are referenced.
+     */
+    private String getConstantValues( String expression )
+    {
+        if ( !expression.contains( ProgramIndicator.KEY_CONSTANT + "{" ) )
+        {
+            return StringUtils.EMPTY;
+        }
+
+        StringBuilder values = new StringBuilder();
+
+        Matcher matcher = ProgramIndicator.EXPRESSION_PATTERN.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            if ( ProgramIndicator.KEY_CONSTANT.equals( matcher.group( 1 ) ) )
+            {
+                Constant constant = constantService.getConstant( matcher.group( 2 ) );
+
+                values.append( matcher.group( 2 ) ).append( ":" ).append( constant != null ? constant.getValue() : null ).append( ";" );
+            }
+        }
+
+        return values.toString();
+    }
+
+    private Long getTime( Date date )
+    {
+        return date != null ? date.getTime() : null;
+    }
+
+    private String getCompiledAnalyticsSql( String expression, ProgramIndicator programIndicator, boolean ignoreMissingValues,
+        Date startDate, Date endDate )
+    {
         String sqlExpression = TextUtils.removeNewlines( expression );
 
         sqlExpression = getSubstitutedFunctionsAnalyticsSql( sqlExpression, programIndicator, startDate, endDate );
@@ -45,6 +45,7 @@ import org.hisp.dhis.programrule.engine.TrackedEntityInstanceEnrolledEvent;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
 import org.hisp.dhis.trackedentity.TrackedEntityTypeService;
 import org.hisp.dhis.user.CurrentUserService;
@@ -91,6 +92,9 @@ public class DefaultProgramInstanceService
     @Autowired
     private TrackedEntityInstanceService trackedEntityInstanceService;
 
+    @Autowired
+    private TrackedEntityInstanceStore trackedEntityInstanceStore;
+
     @Autowired
     private OrganisationUnitService organisationUnitService;
 
@@ -117,6 +121,7 @@ public class DefaultProgramInstanceService
     public long addProgramInstance( ProgramInstance programInstance )
     {
         programInstanceStore.save( programInstance );
+        trackedEntityInstanceStore.updateSearchProjection( programInstance.getEntityInstance() );
         return programInstance.getId();
     }
 
@@ -139,6 +144,8 @@ public class DefaultProgramInstanceService
             programInstance.setStatus( ProgramStatus.CANCELLED );
             programInstanceStore.update( programInstance );
         }
+
+        trackedEntityInstanceStore.updateSearchProjection( programInstance.getEntityInstance() );
     }
 
     @Override
@@ -187,6 +194,7 @@ public class DefaultProgramInstanceService
     public void updateProgramInstance( ProgramInstance programInstance )
     {
         programInstanceStore.update( programInstance );
+        trackedEntityInstanceStore.updateSearchProjection( programInstance.getEntityInstance() );
     }
 
     @Override
@@ -37,6 +37,7 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.security.acl.UserAccessContext;
 import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -104,8 +105,10 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
     @SuppressWarnings( "unchecked" )
     private List<T> runQuery( Query query )
     {
+        UserAccessContext accessContext = new UserAccessContext( query.getUser() );
+
         return query.getObjects().stream()
-            .filter( object -> test( query, (T) object ) )
+            .filter( object -> test( query, accessContext, (T) object ) )
             .map( object -> (T) object )
             .collect( Collectors.toList() );
     }
@@ -128,7 +131,7 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
         return sorted;
     }
 
-    private boolean test( Query query, T object )
+    private boolean test( Query query, UserAccessContext accessContext, T object )
     {
         List<Boolean> testResults = new ArrayList<>();
 
@@ -140,17 +143,17 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
             if ( Restriction.class.isInstance( criterion ) )
             {
                 Restriction restriction = (Restriction) criterion;
-                testResult = testAnd( query, object, Lists.newArrayList( restriction ) );
+                testResult = testAnd( query, accessContext, object, Lists.newArrayList( restriction ) );
             }
             else if ( Conjunction.class.isInstance( criterion ) )
             {
                 Conjunction conjunction = (Conjunction) criterion;
-                testResult = testAnd( query, object, conjunction.getCriterions() );
+                testResult = testAnd( query, accessContext, object, conjunction.getCriterions() );
             }
             else if ( Disjunction.class.isInstance( criterion ) )
             {
                 Disjunction disjunction = (Disjunction) criterion;
-                testResult = testOr( query, object, disjunction.getCriterions() );
+                testResult = testOr( query, accessContext, object, disjunction.getCriterions() );
             }
 
             testResults.add( testResult );
@@ -164,14 +167,14 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
         return !testResults.contains( Boolean.FALSE );
     }
 
-    private boolean testAnd( Query query, T object, List<Criterion> criterions )
+    private boolean testAnd( Query query, UserAccessContext accessContext, T object, List<Criterion> criterions )
     {
         for ( Criterion criterion : criterions )
         {
             if ( Restriction.class.isInstance( criterion ) )
             {
                 Restriction restriction = (Restriction) criterion;
-                Object value = getValue( query, object, restriction.getPath() );
+                Object value = getValue( query, accessContext, object, restriction.getPath() );
 
                 if ( !Collection.class.isInstance( value ) )
                 {
@@ -200,14 +203,14 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
         return true;
     }
 
-    private boolean testOr( Query query, T object, List<Criterion> criterions )
+    private boolean testOr( Query query, UserAccessContext accessContext, T object, List<Criterion> criterions )
     {
         for ( Criterion criterion : criterions )
         {
             if ( Restriction.class.isInstance( criterion ) )
             {
                 Restriction restriction = (Restriction) criterion;
-                Object value = getValue( query, object, restriction.getPath() );
+                Object value = getValue( query, accessContext, object, restriction.getPath() );
 
                 if ( !Collection.class.isInstance( value ) )
                 {
@@ -235,14 +238,14 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
     }
 
     @SuppressWarnings( "unchecked" )
-    private Object getValue( Query query, Object object, String path )
+    private Object getValue( Query query, UserAccessContext accessContext, Object object, String path )
     {
         String[] paths = path.split( "\\." );
         Schema currentSchema = query.getSchema();
 
         if ( path.contains( "access" ) && query.getSchema().isIdentifiableObject() )
         {
-            ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
+            ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, accessContext ) );
         }
 
         for ( int i = 0; i < paths.length; i++ )
@@ -271,12 +274,12 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
                 {
                     for ( Object item : ((Collection<?>) object) )
                     {
-                        ((BaseIdentifiableObject) item).setAccess( aclService.getAccess( (T) item, query.getUser() ) );
+                        ((BaseIdentifiableObject) item).setAccess( aclService.getAccess( (T) item, accessContext ) );
                     }
                 }
                 else
                 {
-                    ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
+                    ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, accessContext ) );
                 }
             }
 
@@ -0,0 +1,142 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.security.SecurityContextRunnable;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs independent parts of a data processing run, such as predictors or
+ * min-max value generation for organisation unit subtrees, in parallel on a
+ * pool shared by all runs, so that concurrent runs share the available
+ * threads instead of each creating their own.
+ */
+public class ParallelTaskExecutor
+{
+    private ExecutorService pool;
+
+    /**
+     * Runs the given tasks in parallel, each in the security context of the
+     * calling thread, and waits for all of them to complete. If a task fails
+     * or the calling thread is interrupted, the remaining tasks are cancelled.
+     * <p/>
+     * The tasks must not run tasks on this executor themselves, as they could
+     * otherwise wait for threads held by their callers.
+     *
+     * @param tasks the tasks to run.
+     * @throws RuntimeException the exception of the first failed task, wrapped
+     *         when it is not a runtime exception, or when interrupted.
+     */
+    public void runAll( Collection<? extends Runnable> tasks )
+    {
+        ExecutorService executor = getPool();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        try
+        {
+            for ( Runnable task : tasks )
+            {
+                futures.add( executor.submit( new SecurityContextRunnable()
+                {
+                    @Override
+                    public void call()
+                    {
+                        task.run();
+                    }
+
+                    @Override
+                    public void handleError( Throwable ex )
+                    {
+                        throw ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException( ex );
+                    }
+                } ) );
+            }
+
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Parallel tasks were interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : new RuntimeException( ex.getCause() );
+        }
+        finally
+        {
+            futures.forEach( future -> future.cancel( true ) );
+        }
+    }
+
+    @PreDestroy
+    public synchronized void destroy()
+    {
+        if ( pool != null )
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets the shared pool, creating it on first use. Leaves one processor
+     * free for the rest of the system when there are more than two.
+     *
+     * @return the shared pool.
+     */
+    private synchronized ExecutorService getPool()
+    {
+        if ( pool == null )
+        {
+            int threadPoolSize = SystemUtils.getCpuCores();
+
+            pool = Executors.newFixedThreadPool( threadPoolSize > 2 ? threadPoolSize - 1 : threadPoolSize );
+        }
+
+        return pool;
+    }
+}
@@ -0,0 +1,135 @@
+package org.hisp.dhis.startup;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.scheduling.SchedulingManager;
+import org.hisp.dhis.system.startup.AbstractStartupRoutine;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Creates the trigram index on lower case tracked entity attribute values
+ * which serves tracked entity instance queries and like filters. The index is
+ * created concurrently so that attribute values can be written while it is
+ * built, which is not possible within the transaction of a migration. The
+ * build takes a while for large tables, so it runs in the background and does
+ * not hold up startup. An invalid index left behind by an interrupted build is
+ * dropped and rebuilt.
+ */
+public class TrigramIndexCreator
+    extends AbstractStartupRoutine
+{
+    private static final Log log = LogFactory.getLog( TrigramIndexCreator.class );
+
+    private static final String INDEX_NAME = "in_trackedentityattributevalue_value_trgm";
+
+    private static final String DROP_INDEX_SQL = "drop index concurrently if exists in_trackedentityattributevalue_value_trgm";
+
+    private static final String CREATE_INDEX_SQL = "create index concurrently in_trackedentityattributevalue_value_trgm " +
+        "on trackedentityattributevalue using gin (lower(value) gin_trgm_ops)";
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private JdbcTemplate jdbcTemplate;
+
+    public void setJdbcTemplate( JdbcTemplate jdbcTemplate )
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private SchedulingManager schedulingManager;
+
+    public void setSchedulingManager( SchedulingManager schedulingManager )
+    {
+        this.schedulingManager = schedulingManager;
+    }
+
+    // -------------------------------------------------------------------------
+    // StartupRoutine implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void execute()
+    {
+        schedulingManager.executeJob( this::createIndex );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void createIndex()
+    {
+        try
+        {
+            Integer extensions = jdbcTemplate.queryForObject(
+                "select count(*) from pg_extension where extname = 'pg_trgm'", Integer.class );
+
+            if ( extensions == null || extensions == 0 )
+            {
+                log.info( "Extension pg_trgm is not installed, skipping index " + INDEX_NAME );
+                return;
+            }
+
+            List<Boolean> valid = jdbcTemplate.queryForList(
+                "select i.indisvalid from pg_index i " +
+                "inner join pg_class c on i.indexrelid = c.oid " +
+                "where c.relname = ?", Boolean.class, INDEX_NAME );
+
+            if ( valid.contains( Boolean.TRUE ) )
+            {
+                return;
+            }
+
+            if ( !valid.isEmpty() )
+            {
+                log.info( "Dropping invalid index " + INDEX_NAME );
+
+                jdbcTemplate.execute( DROP_INDEX_SQL );
+            }
+
+            log.info( "Creating index " + INDEX_NAME );
+
+            jdbcTemplate.execute( CREATE_INDEX_SQL );
+
+            log.info( "Created index " + INDEX_NAME );
+        }
+        catch ( Exception ex )
+        {
+            log.warn( "Index " + INDEX_NAME + " could not be created: " + ex.getMessage() );
+            log.debug( DebugUtils.getStackTrace( ex ) );
+        }
+    }
+}
@@ -69,7 +69,10 @@ import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.QueryOperator;
 import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.event.EventStatus;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
@@ -132,6 +135,9 @@ public class DefaultTrackedEntityInstanceService
     @Autowired
     private TrackerOwnershipManager trackerOwnershipAccessManager;
 
+    @Autowired
+    private DhisConfigurationProvider configurationProvider;
+
     // -------------------------------------------------------------------------
     // Implementation methods
     // -------------------------------------------------------------------------
@@ -483,6 +489,15 @@ public class DefaultTrackedEntityInstanceService
             violation = "Filters cannot be specified more than once: " + params.getDuplicateFilters();
         }
 
+        final int minCharacters = getSearchMinCharacters();
+
+        String shortSearchTerm = getShortSearchTerm( params, minCharacters );
+
+        if ( shortSearchTerm != null )
+        {
+            violation = "Search terms must have at least " + minCharacters + " characters: " + shortSearchTerm;
+        }
+
         if ( violation != null )
         {
             log.warn( "Validation failed: " + violation );
@@ -491,6 +506,62 @@ public class DefaultTrackedEntityInstanceService
         }
     }
 
+    /**
+     * Returns the first query token or like filter value which is shorter than
+     * the given minimum number of characters, or null if no such term exists.
+     * Short terms cannot be served by the trigram index on attribute values
+     * and result in scans of all attribute values.
+     *
+     * @param params the {@link TrackedEntityInstanceQueryParams}.
+     * @param minCharacters the minimum number of characters, where 0 or less
+     *        means that any term is accepted.
+     */
+    static String getShortSearchTerm( TrackedEntityInstanceQueryParams params, int minCharacters )
+    {
+        if ( minCharacters <= 0 )
+        {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+
+        if ( params.hasQuery() )
+        {
+            terms.addAll( TextUtils.getTokens( params.getQuery().getFilter() ) );
+        }
+
+        for ( QueryItem item : params.getFilters() )
+        {
+            for ( QueryFilter filter : item.getFilters() )
+            {
+                if ( QueryOperator.LIKE == filter.getOperator() && filter.getFilter() != null )
+                {
+                    terms.add( filter.getFilter() );
+                }
+            }
+        }
+
+        return terms.stream()
+            .filter( term -> term.length() < minCharacters )
+            .findFirst().orElse( null );
+    }
+
+    private int getSearchMinCharacters()
+    {
+        String value = configurationProvider.getProperty( ConfigurationKey.TRACKER_SEARCH_MIN_CHARACTERS );
+
+        try
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        catch ( NumberFormatException | NullPointerException ex )
+        {
+            log.warn( String.format( "Invalid tracker search min characters: '%s', using default", value ) );
+
+            return Integer.parseInt( ConfigurationKey.TRACKER_SEARCH_MIN_CHARACTERS.getDefaultValue() );
+        }
+    }
+
     @Override
     public void validateSearchScope( TrackedEntityInstanceQueryParams params )
         throws IllegalQueryException
@@ -47,14 +47,20 @@ import static org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams.ORG_U
 import static org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams.TRACKED_ENTITY_ID;
 import static org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams.TRACKED_ENTITY_INSTANCE_ID;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
@@ -73,6 +79,8 @@ import org.hisp.dhis.common.QueryOperator;
 import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.event.EventStatus;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
@@ -81,6 +89,10 @@ import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.user.User;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.hash.Hashing;
 
 /**
  * @author Abyot Asalefew Gizaw
@@ -92,6 +104,12 @@ public class HibernateTrackedEntityInstanceStore
 {
     private static final Log log = LogFactory.getLog( HibernateTrackedEntityInstanceStore.class );
 
+    private static final String SEARCH_PROJECTION_TABLE = "trackedentityinstancesearch";
+
+    private static final String SEARCH_PROJECTION_PROGRAM_TABLE = "trackedentityinstancesearchprogram";
+
+    private static final Object SEARCH_PROJECTION_RESOURCE_KEY = new Object();
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -103,6 +121,13 @@ public class HibernateTrackedEntityInstanceStore
         this.statementBuilder = statementBuilder;
     }
 
+    private DhisConfigurationProvider configurationProvider;
+
+    public void setConfigurationProvider( DhisConfigurationProvider configurationProvider )
+    {
+        this.configurationProvider = configurationProvider;
+    }
+
     // -------------------------------------------------------------------------
     // Implementation methods
     // -------------------------------------------------------------------------
@@ -331,11 +356,15 @@ public class HibernateTrackedEntityInstanceStore
                 (params.isIncludeDeleted() ? "tei.deleted as " + DELETED + ", " : "") +
                 "tei.inactive as " + INACTIVE_ID + ", ";
 
+        final boolean projection = isSearchProjectionQuery( params );
+
         for ( QueryItem item : params.getAttributes() )
         {
             String col = statementBuilder.columnQuote( item.getItemId() );
 
-            sql += item.isNumeric() ? "CAST( " + col + ".value AS NUMERIC ) as " : col + ".value as ";
+            String valueCol = getAttributeValueColumn( item, projection );
+
+            sql += item.isNumeric() ? "CAST( " + valueCol + " AS NUMERIC ) as " : valueCol + " as ";
 
             sql += col + ", ";
         }
@@ -346,13 +375,13 @@ public class HibernateTrackedEntityInstanceStore
         // From and where clause
         // ---------------------------------------------------------------------
 
-        sql += getFromWhereClause( params, hlp );
+        sql += getFromWhereClause( params, hlp, projection );
 
         // ---------------------------------------------------------------------
         // Order clause
         // ---------------------------------------------------------------------
 
-        sql += getOrderClause( params );
+        sql += getOrderClause( params, projection );
 
         // ---------------------------------------------------------------------
         // Paging clause
@@ -416,7 +445,7 @@ public class HibernateTrackedEntityInstanceStore
         // From and where clause
         // ---------------------------------------------------------------------
 
-        sql += getFromWhereClause( params, hlp );
+        sql += getFromWhereClause( params, hlp, isSearchProjectionQuery( params ) );
 
         // ---------------------------------------------------------------------
         // Query
@@ -431,9 +460,14 @@ public class HibernateTrackedEntityInstanceStore
 
     /**
      * From, join and where clause. For attribute params, restriction is set in
-     * inner join. For query params, restriction is set in where clause.
+     * inner join. For query params, restriction is set in where clause. When
+     * the query is served by the search projection, the enrollment and the
+     * attribute values are read from the projection row of the program and
+     * attribute restrictions are set in the where clause.
+     *
+     * @param projection whether the query is served by the search projection.
      */
-    private String getFromWhereClause( TrackedEntityInstanceQueryParams params, SqlHelper hlp )
+    String getFromWhereClause( TrackedEntityInstanceQueryParams params, SqlHelper hlp, boolean projection )
     {
         final String regexp = statementBuilder.getRegexpMatch();
         final String wordStart = statementBuilder.getRegexpWordStart();
@@ -443,7 +477,12 @@ public class HibernateTrackedEntityInstanceStore
         String sql = "from trackedentityinstance tei "
             + "inner join trackedentitytype te on tei.trackedentitytypeid = te.trackedentitytypeid ";
 
-        if ( params.hasProgram() )
+        if ( projection )
+        {
+            sql += "inner join " + SEARCH_PROJECTION_TABLE + " en on tei.trackedentityinstanceid = en.trackedentityinstanceid "
+                + "and en.programid = " + params.getProgram().getId() + " ";
+        }
+        else if ( params.hasProgram() )
         {
             sql += "inner join ("
                 + "select trackedentityinstanceid, min(case when status='ACTIVE' then 0 when status='COMPLETED' then 1 else 2 end) as status "
@@ -504,11 +543,23 @@ public class HibernateTrackedEntityInstanceStore
         {
             final String col = statementBuilder.columnQuote( item.getItemId() );
 
-            final String joinClause = item.hasFilter() ? "inner join" : "left join";
+            final String valueCol = getAttributeValueColumn( item, projection );
+
+            if ( projection )
+            {
+                if ( item.hasFilter() )
+                {
+                    sql += hlp.whereAnd() + " " + valueCol + " is not null ";
+                }
+            }
+            else
+            {
+                final String joinClause = item.hasFilter() ? "inner join" : "left join";
 
-            sql += joinClause + " " + "trackedentityattributevalue as " + col + " " + "on " + col
-                + ".trackedentityinstanceid = tei.trackedentityinstanceid " + "and " + col
-                + ".trackedentityattributeid = " + item.getItem().getId() + " ";
+                sql += joinClause + " " + "trackedentityattributevalue as " + col + " " + "on " + col
+                    + ".trackedentityinstanceid = tei.trackedentityinstanceid " + "and " + col
+                    + ".trackedentityattributeid = " + item.getItem().getId() + " ";
+            }
 
             if ( !params.isOrQuery() && item.hasFilter() )
             {
@@ -516,9 +567,9 @@ public class HibernateTrackedEntityInstanceStore
                 {
                     final String encodedFilter = statementBuilder.encode( filter.getFilter(), false );
 
-                    final String queryCol = item.isNumeric() ? (col + ".value") : "lower(" + col + ".value)";
+                    final String queryCol = item.isNumeric() ? valueCol : "lower(" + valueCol + ")";
 
-                    sql += "and " + queryCol + " " + filter.getSqlOperator() + " "
+                    sql += ( projection ? hlp.whereAnd() + " " : "and " ) + queryCol + " " + filter.getSqlOperator() + " "
                         + StringUtils.lowerCase( filter.getSqlFilter( encodedFilter ) ) + " ";
                 }
             }
@@ -573,9 +624,9 @@ public class HibernateTrackedEntityInstanceStore
 
                 for ( QueryItem item : params.getAttributesAndFilters() )
                 {
-                    final String col = statementBuilder.columnQuote( item.getItemId() );
+                    final String valueCol = getAttributeValueColumn( item, projection );
 
-                    sql += col + ".value " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
+                    sql += "lower(" + valueCol + ") " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
                 }
 
                 sql = removeLastOr( sql ) + ") and ";
@@ -592,7 +643,7 @@ public class HibernateTrackedEntityInstanceStore
         return sql;
     }
 
-    private String getOrderClause( TrackedEntityInstanceQueryParams params )
+    private String getOrderClause( TrackedEntityInstanceQueryParams params, boolean projection )
     {
         List<String> cols = getStaticGridColumns();
 
@@ -636,12 +687,128 @@ public class HibernateTrackedEntityInstanceStore
             }
         }
 
+        String rankClause = isRankedQuery( params ) ? getRankClause( params, projection ) + " asc, " : "";
+
         if ( params.hasProgram() )
         {
-            return "order by en.status asc, lastUpdated desc ";
+            return "order by " + rankClause + "en.status asc, lastUpdated desc ";
+        }
+
+        return "order by " + rankClause + "lastUpdated desc ";
+    }
+
+    private boolean isRankedQuery( TrackedEntityInstanceQueryParams params )
+    {
+        return params.isOrQuery() && params.hasAttributesOrFilters() &&
+            configurationProvider.isEnabled( ConfigurationKey.TRACKER_SEARCH_RANKING );
+    }
+
+    /**
+     * Returns a rank for the query match of a tracked entity instance, where
+     * 0 means an attribute value equal to the query, 1 means an attribute value
+     * starting with the query and 2 means any other match. The clause is based
+     * on lower case values so that it is served by the same expression as the
+     * query restriction. Wildcards in the query are escaped for the prefix
+     * match.
+     *
+     * @param projection whether the query is served by the search projection.
+     */
+    String getRankClause( TrackedEntityInstanceQueryParams params, boolean projection )
+    {
+        final String query = StringUtils.lowerCase( statementBuilder.encode( params.getQuery().getFilter(), false ) );
+        final String likeQuery = query.replace( "\\", "\\\\" ).replace( "%", "\\%" ).replace( "_", "\\_" );
+
+        List<String> ranks = new ArrayList<>();
+
+        for ( QueryItem item : params.getAttributesAndFilters() )
+        {
+            final String col = "lower(" + getAttributeValueColumn( item, projection ) + ")";
+
+            ranks.add( "case when " + col + " = '" + query + "' then 0 when " + col + " like '" + likeQuery + "%' then 1 else 2 end" );
+        }
+
+        return "least(" + StringUtils.join( ranks, "," ) + ")";
+    }
+
+    /**
+     * Indicates whether the given query can be served by the search projection.
+     * This is the case when the projection is enabled, the query is restricted
+     * to a program, all query attributes are attributes of the program and the
+     * query has no enrollment or event level restrictions, as the projection
+     * holds only the enrollment status rank of the program. The projection of
+     * the program must further have been built with the current attributes of
+     * the program, as values of attributes added later are not projected.
+     */
+    boolean isSearchProjectionQuery( TrackedEntityInstanceQueryParams params )
+    {
+        if ( !params.hasProgram() || params.isIncludeDeleted() || params.hasProgramStatus() || params.hasFollowUp() ||
+            params.hasProgramEnrollmentStartDate() || params.hasProgramEnrollmentEndDate() ||
+            params.hasProgramIncidentStartDate() || params.hasProgramIncidentEndDate() || params.hasEventStatus() ||
+            !configurationProvider.isEnabled( ConfigurationKey.TRACKER_SEARCH_PROJECTION ) )
+        {
+            return false;
         }
 
-        return "order by lastUpdated desc ";
+        List<String> programAttributes = getUids( params.getProgram().getTrackedEntityAttributes() );
+
+        if ( !params.getAttributesAndFilters().stream().allMatch( item -> programAttributes.contains( item.getItemId() ) ) )
+        {
+            return false;
+        }
+
+        List<String> signatures = jdbcTemplate.queryForList( "select attributesignature from " + SEARCH_PROJECTION_PROGRAM_TABLE +
+            " where programid = ?", String.class, params.getProgram().getId() );
+
+        String signature = getAttributeSignature( programAttributes );
+
+        if ( !signatures.contains( signature ) )
+        {
+            log.debug( String.format( "Search projection of program: %s is stale, expected attribute signature: %s, found: %s",
+                params.getProgram().getUid(), signature, signatures ) );
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the signature of the given attribute identifiers, which is the
+     * MD5 hex digest of the sorted, comma separated identifiers. Must match
+     * the signature computed by {@link #getAttributeSignatureSql(String)}.
+     *
+     * @param attributeUids the attribute identifiers.
+     */
+    static String getAttributeSignature( Collection<String> attributeUids )
+    {
+        String uids = attributeUids.stream().sorted().collect( Collectors.joining( "," ) );
+
+        return Hashing.md5().hashString( uids, StandardCharsets.UTF_8 ).toString();
+    }
+
+    /**
+     * Returns SQL computing the signature of the current attributes of the
+     * program identified by the given column.
+     *
+     * @param programIdColumn the program identifier column.
+     */
+    private String getAttributeSignatureSql( String programIdColumn )
+    {
+        return "(select md5(coalesce(string_agg(tea.uid, ',' order by tea.uid collate \"C\"), '')) " +
+            "from program_attributes pa " +
+            "inner join trackedentityattribute tea on pa.trackedentityattributeid = tea.trackedentityattributeid " +
+            "where pa.programid = " + programIdColumn + ")";
+    }
+
+    /**
+     * Returns the column holding the value of the given attribute query item,
+     * which is the value of the joined attribute value or the value of the
+     * projected attribute values keyed on the attribute identifier.
+     */
+    private String getAttributeValueColumn( QueryItem item, boolean projection )
+    {
+        return projection ? "(en.attributevalues ->> '" + item.getItemId() + "')" :
+            statementBuilder.columnQuote( item.getItemId() ) + ".value";
     }
 
     private List<String> getStaticGridColumns()
@@ -721,6 +888,126 @@ public class HibernateTrackedEntityInstanceStore
             .list();
     }
 
+    @Override
+    public void updateSearchProjection( TrackedEntityInstance instance )
+    {
+        if ( instance == null || !configurationProvider.isEnabled( ConfigurationKey.TRACKER_SEARCH_PROJECTION ) )
+        {
+            return;
+        }
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            getSession().flush();
+            refreshSearchProjection( Collections.singleton( instance.getId() ) );
+            return;
+        }
+
+        SearchProjectionSynchronization synchronization = (SearchProjectionSynchronization)
+            TransactionSynchronizationManager.getResource( SEARCH_PROJECTION_RESOURCE_KEY );
+
+        if ( synchronization == null )
+        {
+            synchronization = new SearchProjectionSynchronization();
+
+            TransactionSynchronizationManager.bindResource( SEARCH_PROJECTION_RESOURCE_KEY, synchronization );
+            TransactionSynchronizationManager.registerSynchronization( synchronization );
+        }
+
+        synchronization.instanceIds.add( instance.getId() );
+    }
+
+    @Override
+    public int rebuildSearchProjection()
+    {
+        jdbcTemplate.update( "delete from " + SEARCH_PROJECTION_TABLE );
+
+        int count = jdbcTemplate.update( getSearchProjectionInsertSql( "" ) );
+
+        jdbcTemplate.update( "insert into " + SEARCH_PROJECTION_PROGRAM_TABLE + " (programid, attributesignature) " +
+            "select p.programid, " + getAttributeSignatureSql( "p.programid" ) + " from program p " +
+            "on conflict (programid) do update set attributesignature = excluded.attributesignature" );
+
+        return count;
+    }
+
+    /**
+     * Refreshes the search projection rows of the given tracked entity
+     * instances. Rows are upserted so that concurrent refreshes of the same
+     * tracked entity instance do not collide on the primary key, and rows of
+     * enrollments which no longer exist are removed.
+     */
+    void refreshSearchProjection( Collection<Long> instanceIds )
+    {
+        if ( instanceIds.isEmpty() )
+        {
+            return;
+        }
+
+        final String ids = getCommaDelimitedString( instanceIds );
+
+        jdbcTemplate.update( getSearchProjectionInsertSql( "and pi.trackedentityinstanceid in (" + ids + ") " ) );
+        jdbcTemplate.update( "delete from " + SEARCH_PROJECTION_TABLE + " en " +
+            "where en.trackedentityinstanceid in (" + ids + ") " +
+            "and not exists (select 1 from programinstance pi " +
+                "where pi.trackedentityinstanceid = en.trackedentityinstanceid " +
+                "and pi.programid = en.programid " +
+                "and pi.deleted is false)" );
+    }
+
+    /**
+     * Returns the SQL projecting the non-deleted enrollments of tracked entity
+     * instances, with the enrollment status rank of the program and the values
+     * of the program attributes.
+     *
+     * @param restriction additional restriction on the programinstance table.
+     */
+    private String getSearchProjectionInsertSql( String restriction )
+    {
+        return "insert into " + SEARCH_PROJECTION_TABLE + " (trackedentityinstanceid, programid, status, attributevalues, lastupdated) " +
+            "select pi.trackedentityinstanceid, pi.programid, " +
+            "min(case when pi.status='ACTIVE' then 0 when pi.status='COMPLETED' then 1 else 2 end), " +
+            "coalesce((select jsonb_object_agg(tea.uid, teav.value) " +
+                "from trackedentityattributevalue teav " +
+                "inner join trackedentityattribute tea on teav.trackedentityattributeid = tea.trackedentityattributeid " +
+                "inner join program_attributes pa on teav.trackedentityattributeid = pa.trackedentityattributeid " +
+                "where teav.trackedentityinstanceid = pi.trackedentityinstanceid " +
+                "and pa.programid = pi.programid " +
+                "and teav.value is not null), '{}'::jsonb), " +
+            "now() " +
+            "from programinstance pi " +
+            "where pi.trackedentityinstanceid is not null " +
+            "and pi.deleted is false " + restriction +
+            "group by pi.trackedentityinstanceid, pi.programid " +
+            "on conflict (trackedentityinstanceid, programid) do update " +
+            "set status = excluded.status, attributevalues = excluded.attributevalues, lastupdated = excluded.lastupdated";
+    }
+
+    /**
+     * Collects the tracked entity instances written in a transaction and
+     * refreshes their search projection rows before the transaction commits.
+     * The session is flushed first so that the projection reflects pending
+     * attribute value and enrollment changes.
+     */
+    private class SearchProjectionSynchronization
+        extends TransactionSynchronizationAdapter
+    {
+        private final Set<Long> instanceIds = new HashSet<>();
+
+        @Override
+        public void beforeCommit( boolean readOnly )
+        {
+            getSession().flush();
+            refreshSearchProjection( instanceIds );
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResourceIfPossible( SEARCH_PROJECTION_RESOURCE_KEY );
+        }
+    }
+
     @Override
     protected void preProcessPredicates( CriteriaBuilder builder, List<Function<Root<TrackedEntityInstance>, Predicate>> predicates )
     {
@@ -36,6 +36,7 @@ import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.reservedvalue.ReservedValueService;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
@@ -79,6 +80,9 @@ public class DefaultTrackedEntityAttributeValueService
     @Autowired
     private DhisConfigurationProvider dhisConfigurationProvider;
 
+    @Autowired
+    private TrackedEntityInstanceStore trackedEntityInstanceStore;
+
     // -------------------------------------------------------------------------
     // Implementation methods
     // -------------------------------------------------------------------------
@@ -93,6 +97,7 @@ public class DefaultTrackedEntityAttributeValueService
         trackedEntityAttributeValueAuditService.addTrackedEntityAttributeValueAudit( trackedEntityAttributeValueAudit );
         deleteFileValue( attributeValue );
         attributeValueStore.delete( attributeValue );
+        trackedEntityInstanceStore.updateSearchProjection( attributeValue.getEntityInstance() );
     }
 
     @Override
@@ -165,6 +170,7 @@ public class DefaultTrackedEntityAttributeValueService
         if ( attributeValue.getValue() != null )
         {
             attributeValueStore.saveVoid( attributeValue );
+            trackedEntityInstanceStore.updateSearchProjection( attributeValue.getEntityInstance() );
 
             if ( attributeValue.getAttribute().isGenerated() && attributeValue.getAttribute().getTextPattern() != null )
             {
@@ -181,6 +187,7 @@ public class DefaultTrackedEntityAttributeValueService
         {
             deleteFileValue( attributeValue );
             attributeValueStore.delete( attributeValue );
+            trackedEntityInstanceStore.updateSearchProjection( attributeValue.getEntityInstance() );
         }
         else
         {
@@ -206,6 +213,7 @@ public class DefaultTrackedEntityAttributeValueService
             trackedEntityAttributeValueAuditService
                 .addTrackedEntityAttributeValueAudit( trackedEntityAttributeValueAudit );
             attributeValueStore.update( attributeValue );
+            trackedEntityInstanceStore.updateSearchProjection( attributeValue.getEntityInstance() );
 
             if ( attributeValue.getAttribute().isGenerated() && attributeValue.getAttribute().getTextPattern() != null )
             {
@@ -411,6 +411,38 @@ public class IdentifiableObjectManagerTest
         assertEquals( 4, identifiableObjectManager.getAll( DataElement.class ).size() );
     }
 
+    @Test
+    public void testSharingGrantsFollowDirtyCheckedAccesses()
+    {
+        createUserAndInjectSecurityContext( true );
+
+        UserGroup userGroup = createUserGroup( 'A', Sets.newHashSet() );
+        identifiableObjectManager.save( userGroup );
+
+        DataElement dataElement = createDataElement( 'A' );
+
+        UserGroupAccess readAccess = new UserGroupAccess( userGroup, AccessStringHelper.READ );
+        dataElement.getUserGroupAccesses().add( readAccess );
+
+        identifiableObjectManager.save( dataElement );
+
+        sessionFactory.getCurrentSession().flush();
+
+        assertEquals( Sets.newHashSet( userGroup.getUid() + ":r" ), dataElement.getSharingGrants() );
+
+        // Change accesses on the managed object without going through the store
+
+        dataElement.getUserGroupAccesses().clear();
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( userGroup, AccessStringHelper.READ_WRITE ) );
+
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        DataElement reloaded = identifiableObjectManager.get( DataElement.class, dataElement.getUid() );
+
+        assertEquals( Sets.newHashSet( userGroup.getUid() + ":r", userGroup.getUid() + ":w" ), reloaded.getSharingGrants() );
+    }
+
     @Test
     public void getByUidTest()
     {
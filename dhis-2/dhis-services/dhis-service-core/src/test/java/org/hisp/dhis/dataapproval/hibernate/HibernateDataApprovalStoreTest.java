@@ -0,0 +1,425 @@
+package org.hisp.dhis.dataapproval.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataapproval.DataApproval;
+import org.hisp.dhis.dataapproval.DataApprovalLevel;
+import org.hisp.dhis.dataapproval.DataApprovalState;
+import org.hisp.dhis.dataapproval.DataApprovalStatus;
+import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.BoundValueOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class HibernateDataApprovalStoreTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @Mock
+    private PeriodService periodService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @InjectMocks
+    private HibernateDataApprovalStore store;
+
+    private DataApprovalLevel level1;
+
+    private DataApprovalWorkflow workflowA;
+
+    private Period periodA;
+
+    private Period periodB;
+
+    private OrganisationUnit organisationUnitA;
+
+    private CategoryOptionCombo optionComboA;
+
+    private List<DataApprovalStatus> databaseStatuses;
+
+    private Map<String, Object> redis = new HashMap<>();
+
+    @Before
+    public void setUp()
+    {
+        when( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "false" );
+        when( configurationProvider.getProperty( ConfigurationKey.APPROVAL_STATUS_CACHE ) ).thenReturn( "on" );
+        when( env.getActiveProfiles() ).thenReturn( new String[] {} );
+        when( cacheProvider.newCacheBuilder( Boolean.class ) ).thenReturn( new CacheBuilder<>( null, configurationProvider ) );
+        when( cacheProvider.newCacheBuilder( CachedDataApprovalStatuses.class ) ).thenReturn( new CacheBuilder<>( null, configurationProvider ) );
+        when( cacheProvider.newCacheBuilder( String.class ) ).thenReturn( new CacheBuilder<>( null, configurationProvider ) );
+        when( periodService.reloadPeriod( any() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+
+        store.init();
+        store = spy( store );
+
+        doAnswer( invocation -> databaseStatuses ).when( store )
+            .getDataApprovalStatusesFromDatabase( any(), any(), any(), anyInt(), any(), any() );
+        doNothing().when( store ).save( any( DataApproval.class ) );
+        doNothing().when( store ).update( any( DataApproval.class ) );
+        doNothing().when( store ).delete( any( DataApproval.class ) );
+
+        level1 = new DataApprovalLevel( "level1", 1, null );
+        level1.setLevel( 1 );
+
+        workflowA = new DataApprovalWorkflow( "workflowA", new MonthlyPeriodType(), newHashSet( level1 ) );
+        workflowA.setAutoFields();
+
+        periodA = createPeriod( "201801" );
+        periodB = createPeriod( "201802" );
+
+        organisationUnitA = createOrganisationUnit( 'A' );
+        optionComboA = createCategoryOptionCombo( 'A' );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.UNAPPROVED_READY, false ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.getSynchronizations().forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK ) );
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testStatusesAreCached()
+    {
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 1 );
+    }
+
+    @Test
+    public void testApproveInvalidatesStatuses()
+    {
+        getStatuses( periodA );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        store.addDataApproval( approval( periodA, false ) );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testUnapproveInvalidatesStatuses()
+    {
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        getStatuses( periodA );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.UNAPPROVED_READY, false ) );
+        store.deleteDataApproval( approval( periodA, false ) );
+
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testAcceptInvalidatesStatuses()
+    {
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        getStatuses( periodA );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.ACCEPTED_HERE, true ) );
+        store.updateDataApproval( approval( periodA, true ) );
+
+        assertStatus( DataApprovalState.ACCEPTED_HERE, true, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testUnacceptInvalidatesStatuses()
+    {
+        databaseStatuses = newArrayList( status( DataApprovalState.ACCEPTED_HERE, true ) );
+        getStatuses( periodA );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        store.updateDataApproval( approval( periodA, false ) );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testApproveKeepsStatusesOfOtherWorkflowPeriods()
+    {
+        getStatuses( periodA );
+
+        store.addDataApproval( approval( periodB, false ) );
+
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 1 );
+    }
+
+    @Test
+    public void testApproveInvalidatesStatusesAfterCommit()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.addDataApproval( approval( periodA, false ) );
+
+        // Read by another transaction before commit, without the approval
+
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        assertEquals( 1, synchronizations.size() );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+
+        synchronizations.get( 0 ).afterCommit();
+        synchronizations.get( 0 ).afterCompletion( TransactionSynchronization.STATUS_COMMITTED );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+        assertTrue( TransactionSynchronizationManager.getResourceMap().isEmpty() );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testApproveInvalidatesStatusesAfterRollback()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        store.addDataApproval( approval( periodA, false ) );
+
+        // Read within the transaction, with the approval
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.UNAPPROVED_READY, false ) );
+
+        TransactionSynchronizationManager.getSynchronizations().get( 0 ).afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK );
+
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testStatusesAreCachedWithRedis()
+    {
+        enableRedis();
+
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+        assertStatus( DataApprovalState.UNAPPROVED_READY, false, getStatuses( periodA ) );
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        store.addDataApproval( approval( periodA, false ) );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testStatusVersionChangedByOtherInstanceInvalidatesStatuses()
+    {
+        enableRedis();
+
+        getStatuses( periodA );
+
+        // Approved on another instance, which replaces the shared status version
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+        redis.replaceAll( ( key, value ) -> key.startsWith( "dataApprovalStatusVersion:" ) ? "otherInstance" : value );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    @Test
+    public void testVerifyModeReadsDatabase()
+    {
+        when( configurationProvider.getProperty( ConfigurationKey.APPROVAL_STATUS_CACHE ) ).thenReturn( "verify" );
+
+        getStatuses( periodA );
+
+        // Changed without invalidation, the statuses differ from the cache
+
+        databaseStatuses = newArrayList( status( DataApprovalState.APPROVED_HERE, false ) );
+
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+        assertStatus( DataApprovalState.APPROVED_HERE, false, getStatuses( periodA ) );
+
+        verifyDatabaseReads( 3 );
+    }
+
+    @Test
+    public void testDisabledCacheReadsDatabase()
+    {
+        when( configurationProvider.isDisabled( ConfigurationKey.APPROVAL_STATUS_CACHE ) ).thenReturn( true );
+
+        getStatuses( periodA );
+        getStatuses( periodA );
+
+        verifyDatabaseReads( 2 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<DataApprovalStatus> getStatuses( Period period )
+    {
+        return store.getDataApprovalStatuses( workflowA, period, newHashSet( organisationUnitA ), 1, null, newHashSet( optionComboA ) );
+    }
+
+    private DataApproval approval( Period period, boolean accepted )
+    {
+        return new DataApproval( level1, workflowA, period, organisationUnitA, optionComboA, accepted, new Date(), null );
+    }
+
+    private DataApprovalStatus status( DataApprovalState state, boolean accepted )
+    {
+        return new DataApprovalStatus( state, level1, 0, level1, organisationUnitA.getUid(), organisationUnitA.getName(),
+            optionComboA.getUid(), accepted, null );
+    }
+
+    private void assertStatus( DataApprovalState state, boolean accepted, List<DataApprovalStatus> statuses )
+    {
+        assertEquals( 1, statuses.size() );
+        assertEquals( state, statuses.get( 0 ).getState() );
+        assertEquals( accepted, statuses.get( 0 ).isAccepted() );
+    }
+
+    /**
+     * Rebuilds the caches of the store with Redis enabled, backed by a map
+     * which holds serialized copies of the values like Redis does.
+     */
+    @SuppressWarnings( "unchecked" )
+    private void enableRedis()
+    {
+        RedisTemplate<String, Object> redisTemplate = mock( RedisTemplate.class );
+
+        when( redisTemplate.boundValueOps( anyString() ) ).thenAnswer( invocation -> {
+            String key = invocation.getArgument( 0 );
+
+            return mock( BoundValueOperations.class, call -> {
+                switch ( call.getMethod().getName() )
+                {
+                    case "get":
+                        return redis.get( key );
+                    case "set":
+                        redis.put( key, SerializationUtils.clone( (Serializable) call.getArgument( 0 ) ) );
+                        return null;
+                    default:
+                        return null;
+                }
+            } );
+        } );
+
+        when( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "true" );
+        when( cacheProvider.newCacheBuilder( Boolean.class ) ).thenReturn( new CacheBuilder<>( redisTemplate, configurationProvider ) );
+        when( cacheProvider.newCacheBuilder( CachedDataApprovalStatuses.class ) ).thenReturn( new CacheBuilder<>( redisTemplate, configurationProvider ) );
+        when( cacheProvider.newCacheBuilder( String.class ) ).thenReturn( new CacheBuilder<>( redisTemplate, configurationProvider ) );
+
+        store.init();
+    }
+
+    private void verifyDatabaseReads( int count )
+    {
+        verify( store, times( count ) ).getDataApprovalStatusesFromDatabase( any(), any(), any(), anyInt(), any(), any() );
+    }
+}
@@ -668,6 +668,71 @@ public class ExpressionService2Test {
         assertEquals( 54d, target.getExpressionValue( expR, valueMap, constantMap, orgUnitCountMap, null ), DELTA );
     }
 
+    @Test
+    public void testCompileExpression()
+    {
+        List<DimensionalItemObject> items = Lists.newArrayList( new DataElementOperand( deA, coc ),
+            new DataElementOperand( deB, coc ), new DataElementOperand( deA, cocA, cocB ),
+            new DataElementOperand( deB, cocA ), reportingRate );
+
+        double[] values = { 12d, 34d, 26d, 16d, 20d };
+
+        Map<String, Integer> itemIndexMap = new HashMap<>();
+        Map<DimensionalItemObject, Double> valueMap = new HashMap<>();
+
+        for ( int i = 0; i < items.size(); i++ )
+        {
+            itemIndexMap.put( items.get( i ).getDimensionItem(), i );
+            valueMap.put( items.get( i ), values[i] );
+        }
+
+        Map<String, Double> constantMap = new HashMap<>();
+        constantMap.put( constantA.getUid(), 2.0 );
+
+        Map<String, Integer> orgUnitCountMap = new HashMap<>();
+        orgUnitCountMap.put( groupA.getUid(), groupA.getMembers().size() );
+
+        for ( String expressionString : Lists.newArrayList( expressionA, expressionD, expressionE, expressionH,
+            expressionN, expressionR, expressionF + "+#{" + deC.getUid() + "}" ) )
+        {
+            Expression expression = new Expression( expressionString, null );
+
+            CompiledExpression compiledExpression = target.compileExpression( expression, itemIndexMap,
+                constantMap, orgUnitCountMap );
+
+            assertNotNull( compiledExpression );
+            assertEquals( target.getExpressionValue( expression, valueMap, constantMap, orgUnitCountMap, 5 ),
+                compiledExpression.evaluate( values, 5 ), DELTA );
+        }
+
+        assertNull( target.compileExpression( new Expression( expressionK, null ), itemIndexMap, constantMap, null ) );
+        assertNull( target.compileExpression( new Expression( expressionF + "^2", null ), itemIndexMap, constantMap, null ) );
+    }
+
+    @Test
+    public void testCompileExpressionMissingValues()
+    {
+        Map<String, Integer> itemIndexMap = new HashMap<>();
+        itemIndexMap.put( opA.getDimensionItem(), 0 );
+        itemIndexMap.put( opB.getDimensionItem(), 1 );
+
+        double[] someValues = { 5d, Double.NaN };
+        double[] noValues = { Double.NaN, Double.NaN };
+
+        CompiledExpression neverSkip = target.compileExpression(
+            new Expression( expressionA, null, MissingValueStrategy.NEVER_SKIP ), itemIndexMap, null, null );
+        CompiledExpression skipIfAny = target.compileExpression(
+            new Expression( expressionA, null, MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING ), itemIndexMap, null, null );
+        CompiledExpression skipIfAll = target.compileExpression(
+            new Expression( expressionA, null, MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING ), itemIndexMap, null, null );
+
+        assertEquals( 5d, neverSkip.evaluate( someValues, null ), DELTA );
+        assertEquals( 0d, neverSkip.evaluate( noValues, null ), DELTA );
+        assertNull( skipIfAny.evaluate( someValues, null ) );
+        assertEquals( 5d, skipIfAll.evaluate( someValues, null ), DELTA );
+        assertNull( skipIfAll.evaluate( noValues, null ) );
+    }
+
     @Test
     public void testGetIndicatorValue()
     {
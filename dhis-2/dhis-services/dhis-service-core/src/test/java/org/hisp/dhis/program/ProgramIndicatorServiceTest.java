@@ -33,6 +33,7 @@ import static org.hisp.dhis.program.ProgramIndicator.*;
 import static org.hisp.dhis.program.ProgramIndicatorVariable.*;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +45,8 @@ import java.util.Set;
 
 import org.hisp.dhis.DhisConvenienceTest;
 import org.hisp.dhis.api.util.DateUtils;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.constant.Constant;
@@ -51,6 +54,8 @@ import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementDomain;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.i18n.I18n;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.jdbc.statementbuilder.PostgreSQLStatementBuilder;
@@ -65,6 +70,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
 
 /**
  * @author Chau Thu Tran
@@ -105,6 +111,15 @@ public class ProgramIndicatorServiceTest extends DhisConvenienceTest
     @Mock
     private I18n i18n;
 
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private DhisConfigurationProvider dhisConfig;
+
+    @Mock
+    private Environment env;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -144,11 +159,10 @@ public class ProgramIndicatorServiceTest extends DhisConvenienceTest
     public void setUpTest()
     {
 
-        subject = new DefaultProgramIndicatorService(programIndicatorStore,
-                programStageService,
-                dataElementService,
-                trackedEntityAttributeService,
-                constantService, statementBuilder, identifiableObjectStore, i18nManager);
+        when( cacheProvider.newCacheBuilder( String.class ) ).thenReturn( new CacheBuilder<>( null, dhisConfig ) );
+        when( env.getActiveProfiles() ).thenReturn( new String[] { "test" } );
+
+        subject = createProgramIndicatorService();
         OrganisationUnit organisationUnit = createOrganisationUnit( 'A' );
         organisationUnitService.addOrganisationUnit( organisationUnit );
 
@@ -749,6 +763,72 @@ public class ProgramIndicatorServiceTest extends DhisConvenienceTest
         }
     }
 
+    @Test
+    public void testGetAnalyticsSqlIsCachedUntilUpdate()
+    {
+        when( dhisConfig.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "false" );
+        when( env.getActiveProfiles() ).thenReturn( new String[] {} );
+        when( constantService.getConstant( constantA.getUid() ) ).thenReturn( constantA );
+
+        ProgramIndicatorService cachingSubject = createProgramIndicatorService();
+
+        Date startDate = DateUtils.parseDate( "2018-01-01" );
+        Date endDate = DateUtils.parseDate( "2018-12-31" );
+
+        String expression = "C{" + constantA.getUid() + "} * 2";
+        String expected = "7.0 * 2";
+
+        assertEquals( expected, cachingSubject.getAnalyticsSQl( expression, indicatorA, startDate, endDate ) );
+
+        // Constant is resolved for the cache key and for the compilation
+
+        verify( constantService, times( 2 ) ).getConstant( constantA.getUid() );
+
+        assertEquals( expected, cachingSubject.getAnalyticsSQl( expression, indicatorA, startDate, endDate ) );
+
+        // Constant is resolved for the cache key only
+
+        verify( constantService, times( 3 ) ).getConstant( constantA.getUid() );
+
+        indicatorA.setLastUpdated( new Date( indicatorA.getLastUpdated().getTime() + 1000 ) );
+
+        assertEquals( expected, cachingSubject.getAnalyticsSQl( expression, indicatorA, startDate, endDate ) );
+
+        verify( constantService, times( 5 ) ).getConstant( constantA.getUid() );
+    }
+
+    @Test
+    public void testGetAnalyticsSqlFollowsConstantValue()
+    {
+        when( dhisConfig.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "false" );
+        when( env.getActiveProfiles() ).thenReturn( new String[] {} );
+        when( constantService.getConstant( constantA.getUid() ) ).thenReturn( constantA );
+
+        ProgramIndicatorService cachingSubject = createProgramIndicatorService();
+
+        Date startDate = DateUtils.parseDate( "2018-01-01" );
+        Date endDate = DateUtils.parseDate( "2018-12-31" );
+
+        String expression = "C{" + constantA.getUid() + "} * 2";
+
+        assertEquals( "7.0 * 2", cachingSubject.getAnalyticsSQl( expression, indicatorA, startDate, endDate ) );
+
+        constantA.setValue( 8.0 );
+
+        assertEquals( "8.0 * 2", cachingSubject.getAnalyticsSQl( expression, indicatorA, startDate, endDate ) );
+    }
+
+    private ProgramIndicatorService createProgramIndicatorService()
+    {
+        DefaultProgramIndicatorService programIndicatorService = new DefaultProgramIndicatorService( programIndicatorStore,
+            programStageService, dataElementService, trackedEntityAttributeService, constantService, statementBuilder,
+            identifiableObjectStore, i18nManager, cacheProvider, env );
+
+        programIndicatorService.init();
+
+        return programIndicatorService;
+    }
+
     private String getAnalyticsSQl( String expression )
     {
         return subject.getAnalyticsSQl( expression, createProgramIndicator( 'X', programA, expression, null ),
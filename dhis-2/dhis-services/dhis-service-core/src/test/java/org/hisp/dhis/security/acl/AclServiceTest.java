@@ -28,6 +28,7 @@ package org.hisp.dhis.security.acl;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.category.CategoryOption;
@@ -54,6 +55,7 @@ import org.hisp.dhis.user.UserService;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 
@@ -533,6 +535,53 @@ public class AclServiceTest
         assertFalse( aclService.canManage( user2, dashboard ) );
     }
 
+    @Test
+    public void testCanReadBatch()
+    {
+        User user1 = createUser( "user1", "F_DATAELEMENT_PRIVATE_ADD" );
+        User user2 = createUser( "user2", "F_DATAELEMENT_PRIVATE_ADD" );
+
+        manager.save( user1 );
+        manager.save( user2 );
+
+        UserGroup userGroup = createUserGroup( 'A', Sets.newHashSet( user2 ) );
+        manager.save( userGroup );
+
+        DataElement dataElementA = createDataElement( 'A' );
+        dataElementA.setPublicAccess( AccessStringHelper.DEFAULT );
+        dataElementA.setUser( user1 );
+        manager.save( dataElementA );
+
+        DataElement dataElementB = createDataElement( 'B' );
+        dataElementB.setPublicAccess( AccessStringHelper.DEFAULT );
+        dataElementB.setUser( user1 );
+        dataElementB.getUserGroupAccesses().add( new UserGroupAccess( userGroup, AccessStringHelper.READ ) );
+        manager.save( dataElementB );
+
+        DataElement dataElementC = createDataElement( 'C' );
+        dataElementC.setPublicAccess( AccessStringHelper.DEFAULT );
+        dataElementC.setUser( user1 );
+        dataElementC.getUserAccesses().add( new UserAccess( user2, AccessStringHelper.READ ) );
+        manager.save( dataElementC );
+
+        List<DataElement> dataElements = Lists.newArrayList( dataElementA, dataElementB, dataElementC );
+
+        BitSet readable = aclService.canRead( user2, dataElements );
+
+        assertFalse( readable.get( 0 ) );
+        assertTrue( readable.get( 1 ) );
+        assertTrue( readable.get( 2 ) );
+
+        UserAccessContext context = new UserAccessContext( user2 );
+
+        for ( int i = 0; i < dataElements.size(); i++ )
+        {
+            assertEquals( aclService.canRead( user2, dataElements.get( i ) ), aclService.canRead( context, dataElements.get( i ) ) );
+        }
+
+        assertEquals( 3, aclService.canRead( user1, dataElements ).cardinality() );
+    }
+
     @Test
     public void testReadPrivateDataElementSharedThroughGroup()
     {
@@ -0,0 +1,78 @@
+package org.hisp.dhis.trackedentity;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.QueryFilter;
+import org.hisp.dhis.common.QueryItem;
+import org.hisp.dhis.common.QueryOperator;
+import org.junit.Test;
+
+public class DefaultTrackedEntityInstanceServiceTest
+    extends DhisConvenienceTest
+{
+    @Test
+    public void testGetShortSearchTermQuery()
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, "john ab" ) );
+
+        assertEquals( "ab", DefaultTrackedEntityInstanceService.getShortSearchTerm( params, 3 ) );
+        assertNull( DefaultTrackedEntityInstanceService.getShortSearchTerm( params, 2 ) );
+    }
+
+    @Test
+    public void testGetShortSearchTermFilter()
+    {
+        QueryItem likeItem = new QueryItem( createTrackedEntityAttribute( 'A' ) );
+        likeItem.addFilter( new QueryFilter( QueryOperator.LIKE, "jo" ) );
+
+        QueryItem eqItem = new QueryItem( createTrackedEntityAttribute( 'B' ) );
+        eqItem.addFilter( new QueryFilter( QueryOperator.EQ, "x" ) );
+
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .addFilter( eqItem )
+            .addFilter( likeItem );
+
+        assertEquals( "jo", DefaultTrackedEntityInstanceService.getShortSearchTerm( params, 3 ) );
+        assertNull( DefaultTrackedEntityInstanceService.getShortSearchTerm( params, 2 ) );
+    }
+
+    @Test
+    public void testGetShortSearchTermDisabled()
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, "a" ) );
+
+        assertNull( DefaultTrackedEntityInstanceService.getShortSearchTerm( params, 0 ) );
+    }
+}
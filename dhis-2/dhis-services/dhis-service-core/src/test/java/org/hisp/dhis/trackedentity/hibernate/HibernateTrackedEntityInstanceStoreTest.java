@@ -0,0 +1,277 @@
+package org.hisp.dhis.trackedentity.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.QueryFilter;
+import org.hisp.dhis.common.QueryItem;
+import org.hisp.dhis.common.QueryOperator;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.commons.util.SqlHelper;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.jdbc.statementbuilder.PostgreSQLStatementBuilder;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class HibernateTrackedEntityInstanceStoreTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private HibernateTrackedEntityInstanceStore store;
+
+    private TrackedEntityAttribute attributeA;
+
+    private TrackedEntityAttribute attributeB;
+
+    private TrackedEntityAttribute attributeC;
+
+    private Program program;
+
+    @Before
+    public void setUp()
+    {
+        store = new HibernateTrackedEntityInstanceStore();
+        store.setStatementBuilder( new PostgreSQLStatementBuilder() );
+        store.setConfigurationProvider( configurationProvider );
+        store.setJdbcTemplate( jdbcTemplate );
+
+        attributeA = createTrackedEntityAttribute( 'A' );
+        attributeB = createTrackedEntityAttribute( 'B' );
+        attributeC = createTrackedEntityAttribute( 'C' );
+
+        program = createProgram( 'A' );
+        program.setId( 1 );
+        program.getProgramAttributes().add( new ProgramTrackedEntityAttribute( program, attributeA ) );
+        program.getProgramAttributes().add( new ProgramTrackedEntityAttribute( program, attributeB ) );
+
+        when( configurationProvider.isEnabled( ConfigurationKey.TRACKER_SEARCH_PROJECTION ) ).thenReturn( true );
+    }
+
+    @Test
+    public void testGetRankClause()
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, "John" ) )
+            .addAttribute( new QueryItem( attributeA ) )
+            .addAttribute( new QueryItem( attributeB ) );
+
+        String colA = "lower(\"" + attributeA.getUid() + "\".value)";
+        String colB = "lower(\"" + attributeB.getUid() + "\".value)";
+
+        assertEquals( "least(" +
+            "case when " + colA + " = 'john' then 0 when " + colA + " like 'john%' then 1 else 2 end," +
+            "case when " + colB + " = 'john' then 0 when " + colB + " like 'john%' then 1 else 2 end)",
+            store.getRankClause( params, false ) );
+    }
+
+    @Test
+    public void testGetRankClauseProjection()
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, "John" ) )
+            .addAttribute( new QueryItem( attributeA ) );
+
+        String colA = "lower((en.attributevalues ->> '" + attributeA.getUid() + "'))";
+
+        assertEquals( "least(" +
+            "case when " + colA + " = 'john' then 0 when " + colA + " like 'john%' then 1 else 2 end)",
+            store.getRankClause( params, true ) );
+    }
+
+    @Test
+    public void testGetRankClauseEscapesWildcards()
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, "50%_o'b" ) )
+            .addAttribute( new QueryItem( attributeA ) );
+
+        String colA = "lower(\"" + attributeA.getUid() + "\".value)";
+
+        assertEquals( "least(" +
+            "case when " + colA + " = '50%_o''b' then 0 when " + colA + " like '50\\%\\_o''b%' then 1 else 2 end)",
+            store.getRankClause( params, false ) );
+    }
+
+    @Test
+    public void testIsSearchProjectionQuery()
+    {
+        setStoredAttributeSignature( attributeA.getUid(), attributeB.getUid() );
+
+        TrackedEntityInstanceQueryParams params = getProgramQueryParams( attributeA, attributeB );
+
+        assertTrue( store.isSearchProjectionQuery( params ) );
+
+        String sql = store.getFromWhereClause( params, new SqlHelper(), true );
+
+        assertTrue( sql.contains( "inner join trackedentityinstancesearch en on tei.trackedentityinstanceid = en.trackedentityinstanceid and en.programid = 1 " ) );
+        assertTrue( sql.contains( "(en.attributevalues ->> '" + attributeB.getUid() + "') is not null" ) );
+        assertFalse( sql.contains( "trackedentityattributevalue" ) );
+    }
+
+    @Test
+    public void testIsSearchProjectionQueryDisabled()
+    {
+        when( configurationProvider.isEnabled( ConfigurationKey.TRACKER_SEARCH_PROJECTION ) ).thenReturn( false );
+
+        assertFalse( store.isSearchProjectionQuery( getProgramQueryParams( attributeA ) ) );
+    }
+
+    @Test
+    public void testIsSearchProjectionQueryNonProgramAttribute()
+    {
+        setStoredAttributeSignature( attributeA.getUid(), attributeB.getUid() );
+
+        assertFalse( store.isSearchProjectionQuery( getProgramQueryParams( attributeA, attributeC ) ) );
+
+        verify( jdbcTemplate, never() ).queryForList( anyString(), eq( String.class ), any() );
+    }
+
+    @Test
+    public void testIsSearchProjectionQueryStaleAttributes()
+    {
+        setStoredAttributeSignature( attributeA.getUid(), attributeB.getUid() );
+
+        TrackedEntityInstanceQueryParams params = getProgramQueryParams( attributeA );
+
+        assertTrue( store.isSearchProjectionQuery( params ) );
+
+        // Attribute added to program after the projection was built
+
+        program.getProgramAttributes().add( new ProgramTrackedEntityAttribute( program, attributeC ) );
+
+        assertFalse( store.isSearchProjectionQuery( params ) );
+
+        String sql = store.getFromWhereClause( params, new SqlHelper(), store.isSearchProjectionQuery( params ) );
+
+        assertFalse( sql.contains( "trackedentityinstancesearch" ) );
+        assertTrue( sql.contains( "trackedentityattributevalue as \"" + attributeA.getUid() + "\"" ) );
+    }
+
+    @Test
+    public void testIsSearchProjectionQueryNotBuilt()
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ), any() ) ).thenReturn( Lists.newArrayList() );
+
+        assertFalse( store.isSearchProjectionQuery( getProgramQueryParams( attributeA ) ) );
+    }
+
+    @Test
+    public void testGetAttributeSignature()
+    {
+        assertEquals( HibernateTrackedEntityInstanceStore.getAttributeSignature( Lists.newArrayList( "b", "a" ) ),
+            HibernateTrackedEntityInstanceStore.getAttributeSignature( Sets.newHashSet( "a", "b" ) ) );
+        assertEquals( "d41d8cd98f00b204e9800998ecf8427e",
+            HibernateTrackedEntityInstanceStore.getAttributeSignature( Lists.newArrayList() ) );
+    }
+
+    @Test
+    public void testRefreshSearchProjectionUpserts()
+    {
+        store.refreshSearchProjection( Sets.newHashSet( 1L ) );
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass( String.class );
+
+        verify( jdbcTemplate, times( 2 ) ).update( sqlCaptor.capture() );
+
+        List<String> sqls = sqlCaptor.getAllValues();
+
+        assertTrue( sqls.get( 0 ).startsWith( "insert into trackedentityinstancesearch " ) );
+        assertTrue( sqls.get( 0 ).contains( "and pi.trackedentityinstanceid in (1) " ) );
+        assertTrue( sqls.get( 0 ).endsWith( "on conflict (trackedentityinstanceid, programid) do update " +
+            "set status = excluded.status, attributevalues = excluded.attributevalues, lastupdated = excluded.lastupdated" ) );
+        assertTrue( sqls.get( 1 ).startsWith( "delete from trackedentityinstancesearch en where en.trackedentityinstanceid in (1) " +
+            "and not exists" ) );
+    }
+
+    @Test
+    public void testRefreshSearchProjectionEmpty()
+    {
+        store.refreshSearchProjection( Sets.newHashSet() );
+
+        verify( jdbcTemplate, never() ).update( anyString() );
+    }
+
+    private void setStoredAttributeSignature( String... attributeUids )
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ), any() ) )
+            .thenReturn( Lists.newArrayList( HibernateTrackedEntityInstanceStore.getAttributeSignature( Lists.newArrayList( attributeUids ) ) ) );
+    }
+
+    private TrackedEntityInstanceQueryParams getProgramQueryParams( TrackedEntityAttribute... filterAttributes )
+    {
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams()
+            .setProgram( program )
+            .setOrganisationUnitMode( OrganisationUnitSelectionMode.ALL );
+
+        for ( TrackedEntityAttribute attribute : filterAttributes )
+        {
+            QueryItem item = new QueryItem( attribute, null, ValueType.TEXT, null, null );
+            item.addFilter( new QueryFilter( QueryOperator.LIKE, "john" ) );
+            params.addFilter( item );
+        }
+
+        return params;
+    }
+}
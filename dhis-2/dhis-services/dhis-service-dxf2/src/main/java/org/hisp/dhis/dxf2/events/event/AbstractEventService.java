@@ -59,6 +59,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -639,6 +640,43 @@ public abstract class AbstractEventService
         return events;
     }
 
+    @Override
+    public void getEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        validate( params );
+
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        if ( !params.isPaging() && !params.isSkipPaging() )
+        {
+            params.setDefaultPaging();
+        }
+
+        eventStore.getEvents( params, organisationUnits, Collections.emptyMap(), new Consumer<Event>()
+        {
+            private User user = currentUserService.getCurrentUser();
+
+            private int counter = 0;
+
+            @Override
+            public void accept( Event event )
+            {
+                if ( trackerOwnershipAccessManager.hasAccess( user, event.getTrackedEntityInstance(), event.getProgram() ) )
+                {
+                    consumer.accept( event );
+                }
+
+                // Ownership checks load tracked entity instances into the session
+
+                if ( ++counter % FLUSH_FREQUENCY == 0 )
+                {
+                    dbmsManager.clearSession();
+                    user = currentUserService.getCurrentUser();
+                }
+            }
+        } );
+    }
+
     @Override
     public Grid getEventsGrid( EventSearchParams params )
     {
@@ -34,6 +34,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.Grid;
@@ -60,6 +61,16 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Passes the events matching the given parameters to the given consumer
+     * as they are read from the database, without holding the result in
+     * memory. Used for large exports. Page counts are not calculated.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of events.
+     */
+    void getEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
     EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp,
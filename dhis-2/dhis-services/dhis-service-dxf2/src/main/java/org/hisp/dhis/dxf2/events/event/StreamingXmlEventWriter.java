@@ -0,0 +1,104 @@
+package org.hisp.dhis.dxf2.events.event;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.DxfNamespaces;
+import org.hisp.dhis.render.DefaultRenderService;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes events as an events element with one event element per event, equal
+ * to the XML rendering of {@link Events} without pager and meta data.
+ */
+public class StreamingXmlEventWriter
+    implements EventWriter
+{
+    private static final String ELEMENT_EVENTS = "events";
+
+    private final OutputStream outputStream;
+
+    private final XMLStreamWriter writer;
+
+    public StreamingXmlEventWriter( OutputStream outputStream )
+    {
+        this.outputStream = outputStream;
+
+        try
+        {
+            this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter( outputStream, StandardCharsets.UTF_8.name() );
+            this.writer.writeStartDocument( StandardCharsets.UTF_8.name(), "1.0" );
+            this.writer.writeStartElement( ELEMENT_EVENTS );
+            this.writer.writeDefaultNamespace( DxfNamespaces.DXF_2_0 );
+        }
+        catch ( XMLStreamException ex )
+        {
+            throw new UncheckedIOException( new IOException( ex ) );
+        }
+    }
+
+    @Override
+    public void writeEvent( Event event )
+    {
+        try
+        {
+            DefaultRenderService.getXmlMapper().writeValue( writer, event );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+            outputStream.close();
+        }
+        catch ( XMLStreamException ex )
+        {
+            throw new UncheckedIOException( new IOException( ex ) );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
@@ -29,6 +29,7 @@ package org.hisp.dhis.dxf2.events.event.csv;
  */
 
 import com.vividsolutions.jts.io.ParseException;
+import org.hisp.dhis.dxf2.events.event.EventWriter;
 import org.hisp.dhis.dxf2.events.event.Events;
 
 import java.io.IOException;
@@ -42,6 +43,16 @@ public interface CsvEventService
 {
     void writeEvents( OutputStream outputStream, Events events, boolean withHeader ) throws IOException;
 
+    /**
+     * Returns a writer of events to the given output stream, writing one CSV
+     * row per data value as events are passed to it.
+     *
+     * @param outputStream the output stream.
+     * @param withHeader whether to write a header row.
+     * @return an event writer.
+     */
+    EventWriter getEventWriter( OutputStream outputStream, boolean withHeader ) throws IOException;
+
     Events readEvents( InputStream inputStream, boolean skipFirst )
         throws IOException, ParseException;
 }
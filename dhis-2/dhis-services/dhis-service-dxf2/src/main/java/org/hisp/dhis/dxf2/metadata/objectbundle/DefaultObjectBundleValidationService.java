@@ -55,6 +55,7 @@ import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.schema.validation.SchemaValidator;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.security.acl.UserAccessContext;
 import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
@@ -290,6 +291,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
 
         Iterator<IdentifiableObject> iterator = objects.iterator();
         PreheatIdentifier identifier = bundle.getPreheatIdentifier();
+        UserAccessContext accessContext = new UserAccessContext( bundle.getUser() );
         int idx = 0;
 
         while ( iterator.hasNext() )
@@ -318,7 +320,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
 
                 if ( importMode.isUpdate() )
                 {
-                    if ( !aclService.canUpdate( bundle.getUser(), persistedObject ) )
+                    if ( !aclService.canUpdate( accessContext, persistedObject ) )
                     {
                         ObjectReport objectReport = new ObjectReport( klass, idx, object.getUid() );
                         objectReport.setDisplayName( IdentifiableObjectUtils.getDisplayName( object ) );
@@ -334,7 +336,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
                 }
                 else if ( importMode.isDelete() )
                 {
-                    if ( !aclService.canDelete( bundle.getUser(), persistedObject ) )
+                    if ( !aclService.canDelete( accessContext, persistedObject ) )
                     {
                         ObjectReport objectReport = new ObjectReport( klass, idx, object.getUid() );
                         objectReport.setDisplayName( IdentifiableObjectUtils.getDisplayName( object ) );
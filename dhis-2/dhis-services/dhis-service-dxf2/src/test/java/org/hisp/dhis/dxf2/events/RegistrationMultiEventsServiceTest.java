@@ -60,8 +60,11 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -288,6 +291,45 @@ public class RegistrationMultiEventsServiceTest
         assertEquals( 2, eventService.getEvents( params ).getEvents().size() );
     }
 
+    @Test
+    public void testGetEventsStreamMatchesList()
+    {
+        Enrollment enrollment = createEnrollment( programA.getUid(), trackedEntityInstanceMaleA.getTrackedEntityInstance() );
+        ImportSummary importSummary = enrollmentService.addEnrollment( enrollment, null, null );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        Event event = createEvent( programA.getUid(), programStageA.getUid(), organisationUnitA.getUid(),
+            trackedEntityInstanceMaleA.getTrackedEntityInstance(), dataElementA.getUid() );
+        importSummary = eventService.addEvent( event, null, false );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        event = createEvent( programA.getUid(), programStageB.getUid(), organisationUnitA.getUid(),
+            trackedEntityInstanceMaleA.getTrackedEntityInstance(), dataElementB.getUid() );
+        importSummary = eventService.addEvent( event, null, false );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        EventSearchParams params = new EventSearchParams();
+        params.setProgram( programA );
+        params.setOrgUnit( organisationUnitA );
+        params.setOrgUnitSelectionMode( OrganisationUnitSelectionMode.SELECTED );
+        params.setSkipPaging( true );
+
+        List<Event> expected = eventService.getEvents( params ).getEvents();
+
+        List<Event> actual = new ArrayList<>();
+
+        eventService.getEvents( params, actual::add );
+
+        assertEquals( 2, actual.size() );
+        assertEquals( expected.stream().map( Event::getEvent ).collect( Collectors.toSet() ),
+            actual.stream().map( Event::getEvent ).collect( Collectors.toSet() ) );
+
+        for ( Event streamed : actual )
+        {
+            assertEquals( 1, streamed.getDataValues().size() );
+        }
+    }
+
     // -------------------------------------------------------------------------
     // Supportive tests
     // -------------------------------------------------------------------------
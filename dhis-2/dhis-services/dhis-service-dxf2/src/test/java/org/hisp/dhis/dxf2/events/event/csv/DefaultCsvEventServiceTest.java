@@ -0,0 +1,94 @@
+package org.hisp.dhis.dxf2.events.event.csv;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dxf2.events.event.DataValue;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.EventWriter;
+import org.hisp.dhis.dxf2.events.event.Events;
+import org.hisp.dhis.event.EventStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultCsvEventServiceTest
+{
+    private CsvEventService csvEventService;
+
+    private Events events;
+
+    @Before
+    public void setUp()
+    {
+        csvEventService = new DefaultCsvEventService();
+
+        events = new Events();
+        events.getEvents().add( createEvent( 'A' ) );
+        events.getEvents().add( createEvent( 'B' ) );
+    }
+
+    @Test
+    public void testEventWriterMatchesWriteEvents()
+        throws Exception
+    {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        csvEventService.writeEvents( expected, events, true );
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        EventWriter writer = csvEventService.getEventWriter( actual, true );
+        events.getEvents().forEach( writer::writeEvent );
+        writer.close();
+
+        String csv = new String( actual.toByteArray(), StandardCharsets.UTF_8 );
+
+        assertEquals( new String( expected.toByteArray(), StandardCharsets.UTF_8 ), csv );
+        assertEquals( 5, csv.split( "\n" ).length );
+        assertTrue( csv.contains( "eventUidB" ) );
+    }
+
+    private Event createEvent( char uniqueCharacter )
+    {
+        Event event = new Event();
+        event.setEvent( "eventUid" + uniqueCharacter );
+        event.setStatus( EventStatus.COMPLETED );
+        event.setProgram( "programUid" + uniqueCharacter );
+        event.setProgramStage( "stageUid" + uniqueCharacter );
+        event.setOrgUnit( "orgUnitUid" + uniqueCharacter );
+        event.setEventDate( "2019-01-01" );
+        event.getDataValues().add( new DataValue( "dataElementA", "10" ) );
+        event.getDataValues().add( new DataValue( "dataElementB", "20" ) );
+
+        return event;
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.common.EmbeddedObject;
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.hibernate.AssociationPrefetcher;
 import org.hisp.dhis.node.AbstractNode;
 import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.NodeTransformer;
@@ -50,9 +51,9 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.security.acl.UserAccessContext;
 import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
-import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
@@ -71,6 +72,11 @@ public class DefaultFieldFilterService implements FieldFilterService
 
     private final static Pattern FIELD_PATTERN = Pattern.compile( "^(?<field>\\w+)" );
 
+    /**
+     * Maximum depth of the object graph for which associations are prefetched.
+     */
+    private final static int MAX_PREFETCH_DEPTH = 4;
+
     private final static Pattern TRANSFORMER_PATTERN = Pattern.compile( "(?<type>\\||::|~)(?<name>\\w+)(?:\\((?<args>[\\w;]+)\\))?" );
 
     private final FieldParser fieldParser;
@@ -81,6 +87,8 @@ public class DefaultFieldFilterService implements FieldFilterService
 
     private final CurrentUserService currentUserService;
 
+    private final AssociationPrefetcher associationPrefetcher;
+
     @Autowired( required = false )
     private Set<NodeTransformer> nodeTransformers = new HashSet<>();
 
@@ -89,12 +97,13 @@ public class DefaultFieldFilterService implements FieldFilterService
     private ImmutableMap<String, NodeTransformer> transformers = ImmutableMap.of();
 
     public DefaultFieldFilterService( FieldParser fieldParser, SchemaService schemaService, AclService aclService,
-        CurrentUserService currentUserService )
+        CurrentUserService currentUserService, AssociationPrefetcher associationPrefetcher )
     {
         this.fieldParser = fieldParser;
         this.schemaService = schemaService;
         this.aclService = aclService;
         this.currentUserService = currentUserService;
+        this.associationPrefetcher = associationPrefetcher;
     }
 
     @PostConstruct
@@ -182,8 +191,12 @@ public class DefaultFieldFilterService implements FieldFilterService
             params.setUser( currentUserService.getCurrentUser() );
         }
 
+        final UserAccessContext accessContext = new UserAccessContext( params.getUser() );
+
+        prefetchAssociations( finalFieldMap, wrapper, objects, 0 );
+
         objects.forEach( object -> {
-            AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() );
+            AbstractNode node = buildNode( finalFieldMap, wrapper, object, accessContext, params.getDefaults() );
 
             if ( node != null )
             {
@@ -194,10 +207,65 @@ public class DefaultFieldFilterService implements FieldFilterService
         return collectionNode;
     }
 
-    private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, User user, Defaults defaults )
+    /**
+     * Initializes the associations which will be traversed when building nodes
+     * for the given field map with batched queries, so that rendering a list
+     * of objects does not lazy load each association of each object one by one.
+     * Follows the same rules as {@link #buildNode} for which fields are rendered.
+     */
+    private void prefetchAssociations( FieldMap fieldMap, Class<?> klass, Collection<?> objects, int depth )
+    {
+        if ( objects.isEmpty() || depth > MAX_PREFETCH_DEPTH )
+        {
+            return;
+        }
+
+        Schema schema = schemaService.getDynamicSchema( klass );
+
+        if ( !schema.isPersisted() )
+        {
+            return;
+        }
+
+        updateFields( fieldMap, schema.getKlass() );
+
+        if ( fieldMap.containsKey( "access" ) && schema.isShareable() )
+        {
+            associationPrefetcher.prefetch( associationPrefetcher.prefetch( objects, "userGroupAccesses" ), "userGroup" );
+            associationPrefetcher.prefetch( associationPrefetcher.prefetch( objects, "userAccesses" ), "user" );
+        }
+
+        for ( String fieldKey : fieldMap.keySet() )
+        {
+            Property property = schema.getProperty( fieldKey );
+
+            if ( property == null || !property.isReadable() || !property.isPersisted() || property.getFieldName() == null
+                || !(property.isCollection() || property.isManyToOne() || property.isOneToOne()) )
+            {
+                continue;
+            }
+
+            List<Object> associated = associationPrefetcher.prefetch( objects, property.getFieldName() );
+
+            Class<?> associatedKlass = property.isCollection() ? property.getItemKlass() : property.getKlass();
+            FieldMap fieldValue = fieldMap.get( fieldKey );
+
+            if ( !fieldValue.isEmpty() )
+            {
+                prefetchAssociations( fieldValue, associatedKlass, associated, depth + 1 );
+            }
+            else if ( !(property.isIdentifiableObject() && isProperIdObject( associatedKlass )) && !property.isSimple() )
+            {
+                prefetchAssociations( getFullFieldMap( schemaService.getDynamicSchema( associatedKlass ) ),
+                    associatedKlass, associated, depth + 1 );
+            }
+        }
+    }
+
+    private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, UserAccessContext accessContext, Defaults defaults )
     {
         Schema schema = schemaService.getDynamicSchema( klass );
-        return buildNode( fieldMap, klass, object, user, schema.getName(), defaults );
+        return buildNode( fieldMap, klass, object, accessContext, schema.getName(), defaults );
     }
 
     private boolean shouldExclude( Object object, Defaults defaults )
@@ -206,7 +274,7 @@ public class DefaultFieldFilterService implements FieldFilterService
             Preheat.isDefaultClass( (IdentifiableObject) object ) && "default".equals( ((IdentifiableObject) object).getName() );
     }
 
-    private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, User user, String nodeName, Defaults defaults )
+    private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, UserAccessContext accessContext, String nodeName, Defaults defaults )
     {
         Schema schema = schemaService.getDynamicSchema( klass );
 
@@ -227,7 +295,7 @@ public class DefaultFieldFilterService implements FieldFilterService
 
         if ( fieldMap.containsKey( "access" ) && schema.isIdentifiableObject() )
         {
-            ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (IdentifiableObject) object, user ) );
+            ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (IdentifiableObject) object, accessContext ) );
         }
 
         for ( String fieldKey : fieldMap.keySet() )
@@ -288,7 +356,7 @@ public class DefaultFieldFilterService implements FieldFilterService
 
                         for ( Object collectionObject : collection )
                         {
-                            Node node = buildNode( map, property.getItemKlass(), collectionObject, user, defaults );
+                            Node node = buildNode( map, property.getItemKlass(), collectionObject, accessContext, defaults );
 
                             if ( node != null && !node.getChildren().isEmpty() )
                             {
@@ -327,7 +395,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                     }
                     else
                     {
-                        child = buildNode( getFullFieldMap( propertySchema ), property.getKlass(), returnValue, user, defaults );
+                        child = buildNode( getFullFieldMap( propertySchema ), property.getKlass(), returnValue, accessContext, defaults );
                     }
                 }
             }
@@ -340,7 +408,7 @@ public class DefaultFieldFilterService implements FieldFilterService
 
                     for ( Object collectionObject : (Collection<?>) returnValue )
                     {
-                        Node node = buildNode( fieldValue, property.getItemKlass(), collectionObject, user, property.getName(), defaults );
+                        Node node = buildNode( fieldValue, property.getItemKlass(), collectionObject, accessContext, property.getName(), defaults );
 
                         if ( !node.getChildren().isEmpty() )
                         {
@@ -350,7 +418,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 }
                 else
                 {
-                    child = buildNode( fieldValue, property.getKlass(), returnValue, user, defaults );
+                    child = buildNode( fieldValue, property.getKlass(), returnValue, accessContext, defaults );
                 }
             }
 
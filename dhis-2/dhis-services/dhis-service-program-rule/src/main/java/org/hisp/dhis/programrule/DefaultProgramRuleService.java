@@ -105,6 +105,12 @@ public class DefaultProgramRuleService
         return programRuleStore.getImplementableProgramRules( program, types );
     }
 
+    @Override
+    public String getProgramRuleVersion( Program program )
+    {
+        return programRuleStore.getProgramRuleVersion( program );
+    }
+
     @Override
     public List<ProgramRule> getProgramRule( Program program )
     {
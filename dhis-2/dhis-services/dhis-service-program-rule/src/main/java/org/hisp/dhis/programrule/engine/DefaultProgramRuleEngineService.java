@@ -37,6 +37,8 @@ import org.hisp.dhis.rules.models.RuleEffect;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 /**
  * Created by zubair@dhis2.org on 23.10.17.
@@ -56,6 +58,9 @@ public class DefaultProgramRuleEngineService
     @Autowired
     private List<RuleActionImplementer> ruleActionImplementers;
 
+    @Autowired
+    private RuleEffectOutboxService ruleEffectOutboxService;
+
     @Override
     public List<RuleEffect> evaluate( ProgramInstance programInstance )
     {
@@ -71,15 +76,8 @@ public class DefaultProgramRuleEngineService
             log.error( DebugUtils.getStackTrace( ex.getCause() ) );
         }
 
-        for ( RuleEffect effect : ruleEffects )
-        {
-            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i ->
-            {
-                log.info( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
-
-                i.implement( effect, programInstance );
-            } );
-        }
+        implementEffects( ruleEffects, effect -> ruleEffectOutboxService.enqueue( effect, programInstance ),
+            ( implementer, effect ) -> implementer.implement( effect, programInstance ) );
 
         return ruleEffects;
     }
@@ -99,16 +97,65 @@ public class DefaultProgramRuleEngineService
             log.error( DebugUtils.getStackTrace( ex.getCause() ) );
         }
 
+        implementEffects( ruleEffects, effect -> ruleEffectOutboxService.enqueue( effect, programStageInstance ),
+            ( implementer, effect ) -> implementer.implement( effect, programStageInstance ) );
+
+        return ruleEffects;
+    }
+
+    @Override
+    public Map<String, List<RuleEffect>> evaluate( Collection<ProgramStageInstance> programStageInstances )
+    {
+        Map<String, List<RuleEffect>> ruleEffects = new HashMap<>();
+
+        try
+        {
+            ruleEffects = programRuleEngine.evaluateEvents( programStageInstances );
+        }
+        catch( Exception ex )
+        {
+            log.error( DebugUtils.getStackTrace( ex ) );
+            log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+        }
+
+        for ( ProgramStageInstance programStageInstance : programStageInstances )
+        {
+            implementEffects( ruleEffects.getOrDefault( programStageInstance.getUid(), new ArrayList<>() ),
+                effect -> ruleEffectOutboxService.enqueue( effect, programStageInstance ),
+                ( implementer, effect ) -> implementer.implement( effect, programStageInstance ) );
+        }
+
+        return ruleEffects;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Implements the given rule effects with the accepting rule action
+     * implementers, except for effects which are enqueued to the outbox.
+     *
+     * @param ruleEffects the rule effects.
+     * @param enqueue enqueues an effect to the outbox, returns true if enqueued.
+     * @param implement implements an effect with an implementer.
+     */
+    private void implementEffects( List<RuleEffect> ruleEffects, Predicate<RuleEffect> enqueue,
+        BiConsumer<RuleActionImplementer, RuleEffect> implement )
+    {
         for ( RuleEffect effect : ruleEffects )
         {
+            if ( enqueue.test( effect ) )
+            {
+                continue;
+            }
+
             ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i ->
             {
                 log.info( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
 
-                i.implement( effect, programStageInstance );
+                implement.accept( i, effect );
             } );
         }
-
-        return ruleEffects;
     }
 }
@@ -0,0 +1,379 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.programrule.ProgramRuleActionType;
+import org.hisp.dhis.rules.models.RuleAction;
+import org.hisp.dhis.rules.models.RuleActionScheduleMessage;
+import org.hisp.dhis.rules.models.RuleActionSendMessage;
+import org.hisp.dhis.rules.models.RuleEffect;
+import org.joda.time.DateTimeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox for send message and schedule message effects. Those effects render
+ * templates and look up recipients, which is kept out of the import
+ * transaction when the outbox is enabled. Assign value effects only update the
+ * in-memory calculated values and are always implemented directly.
+ */
+public class DefaultRuleEffectOutboxService
+    implements RuleEffectOutboxService
+{
+    private static final Log log = LogFactory.getLog( DefaultRuleEffectOutboxService.class );
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private static final long LEASE_MILLIS = DateTimeConstants.MILLIS_PER_MINUTE * 10;
+
+    private static final long RETRY_DELAY_MILLIS = DateTimeConstants.MILLIS_PER_MINUTE;
+
+    private static final long POLL_DELAY_MILLIS = DateTimeConstants.MILLIS_PER_SECOND * 5;
+
+    private static final long INITIAL_DELAY_MILLIS = DateTimeConstants.MILLIS_PER_SECOND * 30;
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    @Autowired
+    private RuleEffectOutboxStore outboxStore;
+
+    @Autowired
+    private List<RuleActionImplementer> ruleActionImplementers;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // -------------------------------------------------------------------------
+    // Metrics
+    // -------------------------------------------------------------------------
+
+    private final AtomicLong enqueued = new AtomicLong();
+
+    private final AtomicLong implemented = new AtomicLong();
+
+    private final AtomicLong retried = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+
+    private boolean enabled;
+
+    private int workers;
+
+    private ScheduledExecutorService executor;
+
+    // -------------------------------------------------------------------------
+    // Initialization
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    public void init()
+    {
+        enabled = config.isEnabled( ConfigurationKey.TRACKER_RULE_EFFECT_OUTBOX );
+
+        if ( !enabled )
+        {
+            return;
+        }
+
+        workers = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.TRACKER_RULE_EFFECT_OUTBOX_THREADS ) ) );
+
+        executor = Executors.newScheduledThreadPool( workers );
+
+        for ( int i = 0; i < workers; i++ )
+        {
+            executor.scheduleWithFixedDelay( this::drainOutbox, INITIAL_DELAY_MILLIS, POLL_DELAY_MILLIS, TimeUnit.MILLISECONDS );
+        }
+
+        log.info( String.format( "Rule effect outbox enabled with %d workers", workers ) );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // RuleEffectOutboxService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    @Transactional
+    public boolean enqueue( RuleEffect ruleEffect, ProgramInstance programInstance )
+    {
+        RuleEffectOutboxEntry entry = toOutboxEntry( ruleEffect );
+
+        if ( entry == null || programInstance == null )
+        {
+            return false;
+        }
+
+        entry.setProgramInstance( programInstance );
+
+        outboxStore.save( entry );
+        enqueued.incrementAndGet();
+
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean enqueue( RuleEffect ruleEffect, ProgramStageInstance programStageInstance )
+    {
+        RuleEffectOutboxEntry entry = toOutboxEntry( ruleEffect );
+
+        if ( entry == null || programStageInstance == null )
+        {
+            return false;
+        }
+
+        entry.setProgramInstance( programStageInstance.getProgramInstance() );
+        entry.setProgramStageInstance( programStageInstance );
+
+        outboxStore.save( entry );
+        enqueued.incrementAndGet();
+
+        return true;
+    }
+
+    @Override
+    public int processOutbox()
+    {
+        long startTime = System.currentTimeMillis();
+
+        Date leaseUntil = new Date( startTime + LEASE_MILLIS );
+
+        List<Long> ids = transactionTemplate.execute( status -> outboxStore.claimPendingEntries( leaseUntil, MAX_ATTEMPTS, BATCH_SIZE )
+            .stream().map( RuleEffectOutboxEntry::getId ).collect( Collectors.toList() ) );
+
+        if ( ids == null || ids.isEmpty() )
+        {
+            return 0;
+        }
+
+        for ( Long id : ids )
+        {
+            try
+            {
+                transactionTemplate.execute( status -> implement( outboxStore.get( id ) ) );
+
+                implemented.incrementAndGet();
+            }
+            catch ( Exception ex )
+            {
+                handleFailure( id, ex );
+            }
+        }
+
+        lastBatchMillis.set( System.currentTimeMillis() - startTime );
+
+        log.debug( String.format( "Processed %d rule effect outbox entries in %d ms", ids.size(), lastBatchMillis.get() ) );
+
+        return ids.size();
+    }
+
+    @Override
+    public Map<String, Object> getMetrics()
+    {
+        ImmutableMap.Builder<String, Object> metrics = ImmutableMap.<String, Object> builder()
+            .put( "enabled", enabled )
+            .put( "workers", workers )
+            .put( "enqueued", enqueued.get() )
+            .put( "implemented", implemented.get() )
+            .put( "retried", retried.get() )
+            .put( "failed", failed.get() )
+            .put( "lastBatchMillis", lastBatchMillis.get() );
+
+        if ( enabled )
+        {
+            transactionTemplate.execute( status -> metrics
+                .put( "pending", outboxStore.getPendingCount( MAX_ATTEMPTS ) )
+                .put( "exhausted", outboxStore.getFailedCount( MAX_ATTEMPTS ) ) );
+        }
+
+        return metrics.build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void drainOutbox()
+    {
+        try
+        {
+            while ( processOutbox() == BATCH_SIZE && !Thread.currentThread().isInterrupted() )
+            {
+                log.debug( "Rule effect outbox batch was full, continuing" );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.error( DebugUtils.getStackTrace( ex ) );
+        }
+    }
+
+    private RuleEffectOutboxEntry implement( RuleEffectOutboxEntry entry )
+    {
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        RuleEffect ruleEffect = toRuleEffect( entry );
+
+        for ( RuleActionImplementer implementer : ruleActionImplementers )
+        {
+            if ( implementer.accept( ruleEffect.ruleAction() ) )
+            {
+                if ( entry.isEvent() )
+                {
+                    implementer.implement( ruleEffect, entry.getProgramStageInstance() );
+                }
+                else
+                {
+                    implementer.implement( ruleEffect, entry.getProgramInstance() );
+                }
+            }
+        }
+
+        outboxStore.delete( entry );
+
+        return entry;
+    }
+
+    private void handleFailure( long id, Exception ex )
+    {
+        log.warn( String.format( "Rule effect outbox entry %d failed: %s", id, ex.getMessage() ) );
+        log.debug( DebugUtils.getStackTrace( ex ) );
+
+        RuleEffectOutboxEntry entry = transactionTemplate.execute( status ->
+        {
+            RuleEffectOutboxEntry failedEntry = outboxStore.get( id );
+
+            if ( failedEntry != null )
+            {
+                long delay = RETRY_DELAY_MILLIS << Math.min( failedEntry.getAttempts() - 1, 10 );
+
+                failedEntry.setNextAttempt( new Date( System.currentTimeMillis() + delay ) );
+                failedEntry.setLastError( StringUtils.abbreviate( ex.getClass().getSimpleName() + ": " + ex.getMessage(), MAX_ERROR_LENGTH ) );
+
+                outboxStore.update( failedEntry );
+            }
+
+            return failedEntry;
+        } );
+
+        if ( entry != null && entry.getAttempts() >= MAX_ATTEMPTS )
+        {
+            failed.incrementAndGet();
+
+            log.error( String.format( "Rule effect outbox entry %d failed after %d attempts", id, entry.getAttempts() ) );
+        }
+        else
+        {
+            retried.incrementAndGet();
+        }
+    }
+
+    private RuleEffectOutboxEntry toOutboxEntry( RuleEffect ruleEffect )
+    {
+        if ( !enabled || ruleEffect == null )
+        {
+            return null;
+        }
+
+        RuleAction ruleAction = ruleEffect.ruleAction();
+
+        if ( ruleAction instanceof RuleActionSendMessage )
+        {
+            RuleActionSendMessage sendMessage = (RuleActionSendMessage) ruleAction;
+
+            return new RuleEffectOutboxEntry( ProgramRuleActionType.SENDMESSAGE, sendMessage.notification(), sendMessage.data(), ruleEffect.data() );
+        }
+        else if ( ruleAction instanceof RuleActionScheduleMessage )
+        {
+            RuleActionScheduleMessage scheduleMessage = (RuleActionScheduleMessage) ruleAction;
+
+            return new RuleEffectOutboxEntry( ProgramRuleActionType.SCHEDULEMESSAGE, scheduleMessage.notification(), scheduleMessage.data(), ruleEffect.data() );
+        }
+
+        return null;
+    }
+
+    private RuleEffect toRuleEffect( RuleEffectOutboxEntry entry )
+    {
+        RuleAction ruleAction = ProgramRuleActionType.SCHEDULEMESSAGE == entry.getActionType() ?
+            RuleActionScheduleMessage.create( entry.getNotification(), entry.getActionData() ) :
+            RuleActionSendMessage.create( entry.getNotification(), entry.getActionData() );
+
+        return RuleEffect.create( ruleAction, entry.getEffectData() );
+    }
+}
@@ -31,8 +31,12 @@ package org.hisp.dhis.programrule.engine;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
@@ -44,8 +48,11 @@ import org.hisp.dhis.rules.models.*;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserAuthorityGroup;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -87,6 +94,48 @@ public class ProgramRuleEngine
     @Autowired
     private CurrentUserService currentUserService;
 
+    @Autowired
+    private CacheProvider cacheProvider;
+
+    @Autowired
+    private Environment env;
+
+    /**
+     * Compiled rules and rule variables per program, keyed on program uid. Each
+     * entry holds the program rule version it was compiled from, so that
+     * changes done through the services or through metadata import are picked
+     * up on the next evaluation. Kept in memory as the compiled rule engine
+     * models are not serializable.
+     */
+    private Cache<ProgramRuleContext> programRuleContextCache;
+
+    /**
+     * Member organisation unit uids per organisation unit group, shared by all
+     * evaluations of rules using d2:inOrgUnitGroup.
+     */
+    private Cache<List<String>> orgUnitGroupMembersCache;
+
+    // -------------------------------------------------------------------------
+    // Initialization
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    @SuppressWarnings( "unchecked" )
+    public void init()
+    {
+        boolean testRun = SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        programRuleContextCache = cacheProvider.newCacheBuilder( ProgramRuleContext.class ).forRegion( "programRuleContext" )
+            .expireAfterWrite( 1, TimeUnit.HOURS ).withMaximumSize( testRun ? 0 : 1000 ).forceInMemory().build();
+
+        orgUnitGroupMembersCache = cacheProvider.newCacheBuilder( (Class<List<String>>) (Class<?>) List.class ).forRegion( "programRuleOrgUnitGroupMembers" )
+            .expireAfterWrite( 5, TimeUnit.MINUTES ).withMaximumSize( testRun ? 0 : 1000 ).build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Evaluation
+    // -------------------------------------------------------------------------
+
     public List<RuleEffect> evaluateEnrollment( ProgramInstance enrollment )
     {
         if ( enrollment == null )
@@ -95,16 +144,14 @@ public class ProgramRuleEngine
         }
 
         List<RuleEffect> ruleEffects = new ArrayList<>();
-        
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() ) // if implementation does not exist on back end side
+        ProgramRuleContext programRuleContext = getProgramRuleContext( enrollment.getProgram() );
+
+        if ( programRuleContext.isEmpty() ) // if implementation does not exist on back end side
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
-
         RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
 
         List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances() );
@@ -113,7 +160,7 @@ public class ProgramRuleEngine
 
         try
         {
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( getRuleEngineContext( programRuleContext ) ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( ruleEnrollment  ).call();
 
@@ -131,33 +178,101 @@ public class ProgramRuleEngine
 
     public List<RuleEffect> evaluateEvent( ProgramStageInstance programStageInstance )
     {
-        List<RuleEffect> ruleEffects = new ArrayList<>();
-
         if ( programStageInstance == null )
         {
-            return ruleEffects;
+            return new ArrayList<>();
         }
 
-        ProgramInstance enrollment = programStageInstance.getProgramInstance();
+        return evaluateEvents( Collections.singletonList( programStageInstance ) )
+            .getOrDefault( programStageInstance.getUid(), new ArrayList<>() );
+    }
+
+    /**
+     * Evaluates program rules for the given events. The rule engine context is
+     * created once per program, and the enrollment and its events are mapped
+     * once per enrollment and reused for every event of that enrollment.
+     *
+     * @param programStageInstances the events to evaluate.
+     * @return a mapping between event uid and the rule effects of the event.
+     */
+    public Map<String, List<RuleEffect>> evaluateEvents( Collection<ProgramStageInstance> programStageInstances )
+    {
+        Map<String, List<RuleEffect>> ruleEffects = new HashMap<>();
 
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
+        Map<String, List<ProgramStageInstance>> enrollmentEvents = programStageInstances.stream()
+            .filter( Objects::nonNull )
+            .collect( Collectors.groupingBy( psi -> psi.getProgramInstance().getUid(), LinkedHashMap::new, Collectors.toList() ) );
 
-        if ( implementableProgramRules.isEmpty() )
+        Map<String, ProgramRuleContext> programRuleContexts = new HashMap<>();
+
+        Map<String, RuleEngineContext> ruleEngineContexts = new HashMap<>();
+
+        for ( List<ProgramStageInstance> events : enrollmentEvents.values() )
         {
-            return ruleEffects;
+            ProgramInstance enrollment = events.get( 0 ).getProgramInstance();
+
+            Program program = enrollment.getProgram();
+
+            ProgramRuleContext programRuleContext = programRuleContexts.computeIfAbsent( program.getUid(), uid -> getProgramRuleContext( program ) );
+
+            if ( programRuleContext.isEmpty() )
+            {
+                events.forEach( psi -> ruleEffects.put( psi.getUid(), new ArrayList<>() ) );
+
+                continue;
+            }
+
+            RuleEnrollment ruleEnrollment;
+
+            List<RuleEvent> ruleEvents;
+
+            RuleEngineContext ruleEngineContext;
+
+            try
+            {
+                ruleEngineContext = ruleEngineContexts.computeIfAbsent( program.getUid(), uid -> getRuleEngineContext( programRuleContext ) );
+
+                ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
+
+                ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances() );
+            }
+            catch ( Exception e )
+            {
+                log.error( DebugUtils.getStackTrace( e ) );
+                log.error( DebugUtils.getStackTrace( e.getCause() ) );
+
+                events.forEach( psi -> ruleEffects.put( psi.getUid(), new ArrayList<>() ) );
+
+                continue;
+            }
+
+            for ( ProgramStageInstance programStageInstance : events )
+            {
+                ruleEffects.put( programStageInstance.getUid(), evaluateEvent( programStageInstance, ruleEngineContext, ruleEnrollment, ruleEvents ) );
+            }
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
+        return ruleEffects;
+    }
 
-        RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
 
-        List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances(), programStageInstance );
+    private List<RuleEffect> evaluateEvent( ProgramStageInstance programStageInstance, RuleEngineContext ruleEngineContext,
+        RuleEnrollment ruleEnrollment, List<RuleEvent> enrollmentRuleEvents )
+    {
+        List<RuleEffect> ruleEffects = new ArrayList<>();
+
+        List<RuleEvent> ruleEvents = enrollmentRuleEvents.stream()
+            .filter( event -> !event.event().equals( programStageInstance.getUid() ) )
+            .collect( Collectors.toList() );
 
         RuleEngine ruleEngine;
 
         try
         {
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( ruleEngineContext ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( programRuleEntityMapperService.toMappedRuleEvent( programStageInstance )  ).call();
 
@@ -173,11 +288,84 @@ public class ProgramRuleEngine
         return ruleEffects;
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules, List<ProgramRuleVariable> programRuleVariables )
+    private RuleEngine.Builder ruleEngineBuilder( RuleEngineContext ruleEngineContext )
+    {
+        return ruleEngineContext.toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
+    }
+
+    /**
+     * Creates the rule engine context for the compiled rules of a program. The
+     * context holds the current user's roles and is therefore not cached across
+     * evaluations.
+     */
+    private RuleEngineContext getRuleEngineContext( ProgramRuleContext programRuleContext )
     {
         Map<String, List<String>> supplementaryData = new HashMap<>();
 
-        List<String> orgUnitGroups = new ArrayList<>();
+        for ( String orgUnitGroup : programRuleContext.getOrgUnitGroups() )
+        {
+            supplementaryData.put( orgUnitGroup, getOrgUnitGroupMembers( orgUnitGroup ) );
+        }
+
+        if ( currentUserService.getCurrentUser() != null )
+        {
+            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+        }
+
+        return RuleEngineContext
+            .builder( programRuleExpressionEvaluator )
+            .supplementaryData( supplementaryData )
+            .calculatedValueMap( inMemoryMap.getVariablesMap() )
+            .rules( programRuleContext.getRules() )
+            .ruleVariables( programRuleContext.getRuleVariables() )
+            .build();
+    }
+
+    private List<String> getOrgUnitGroupMembers( String uid )
+    {
+        return orgUnitGroupMembersCache.get( uid, key -> {
+            OrganisationUnitGroup group = organisationUnitGroupService.getOrganisationUnitGroup( key );
+
+            return group != null ? group.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) : new ArrayList<>();
+        } ).orElse( new ArrayList<>() );
+    }
+
+    /**
+     * Returns the compiled rule context of the given program. Only the program
+     * rule version is queried when the cached context is current. The rules
+     * and rule variables are loaded and mapped to rule engine models when the
+     * version has changed.
+     */
+    private ProgramRuleContext getProgramRuleContext( Program program )
+    {
+        String version = programRuleService.getProgramRuleVersion( program );
+
+        Optional<ProgramRuleContext> cachedContext = programRuleContextCache.getIfPresent( program.getUid() );
+
+        if ( cachedContext.isPresent() && cachedContext.get().getVersion().equals( version ) )
+        {
+            return cachedContext.get();
+        }
+
+        ProgramRuleContext programRuleContext = compileProgramRuleContext( version, program );
+
+        programRuleContextCache.put( program.getUid(), programRuleContext );
+
+        return programRuleContext;
+    }
+
+    private ProgramRuleContext compileProgramRuleContext( String version, Program program )
+    {
+        List<ProgramRule> programRules = programRuleService.getImplementableProgramRules( program, IMPLEMENTABLE_TYPES );
+
+        if ( programRules.isEmpty() )
+        {
+            return new ProgramRuleContext( version, new ArrayList<>(), new ArrayList<>(), new HashSet<>() );
+        }
+
+        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( program );
+
+        Set<String> orgUnitGroups = new HashSet<>();
 
         List<Rule> rules = new ArrayList<>();
 
@@ -198,28 +386,54 @@ public class ProgramRuleEngine
             }
         }
 
-        if ( !orgUnitGroups.isEmpty() )
+        return new ProgramRuleContext( version, rules, programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ), orgUnitGroups );
+    }
+
+    /**
+     * Rules, rule variables and referenced organisation unit groups of a
+     * program, mapped to rule engine models.
+     */
+    private static final class ProgramRuleContext
+    {
+        private final String version;
+
+        private final List<Rule> rules;
+
+        private final List<RuleVariable> ruleVariables;
+
+        private final Set<String> orgUnitGroups;
+
+        ProgramRuleContext( String version, List<Rule> rules, List<RuleVariable> ruleVariables, Set<String> orgUnitGroups )
         {
-            supplementaryData = orgUnitGroups.stream().collect( Collectors.toMap( g -> g,  g -> organisationUnitGroupService.getOrganisationUnitGroup( g ).getMembers()
-                .stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+            this.version = version;
+            this.rules = Collections.unmodifiableList( rules );
+            this.ruleVariables = Collections.unmodifiableList( ruleVariables );
+            this.orgUnitGroups = Collections.unmodifiableSet( orgUnitGroups );
         }
 
-        if ( currentUserService.getCurrentUser() != null )
+        String getVersion()
         {
-            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+            return version;
         }
 
-        return RuleEngineContext
-            .builder( programRuleExpressionEvaluator )
-            .supplementaryData( supplementaryData )
-            .calculatedValueMap( inMemoryMap.getVariablesMap() )
-            .rules( rules )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .build().toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
-    }
+        List<Rule> getRules()
+        {
+            return rules;
+        }
 
-    private List<ProgramRule> getImplementableRules( Program program )
-    {
-        return programRuleService.getImplementableProgramRules( program, IMPLEMENTABLE_TYPES );
+        List<RuleVariable> getRuleVariables()
+        {
+            return ruleVariables;
+        }
+
+        Set<String> getOrgUnitGroups()
+        {
+            return orgUnitGroups;
+        }
+
+        boolean isEmpty()
+        {
+            return rules.isEmpty();
+        }
     }
 }
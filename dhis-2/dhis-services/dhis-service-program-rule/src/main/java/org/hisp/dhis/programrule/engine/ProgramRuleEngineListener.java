@@ -28,17 +28,32 @@ package org.hisp.dhis.programrule.engine;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.program.ProgramStageInstanceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @Author Zubair Asghar.
  */
 public class ProgramRuleEngineListener
 {
+    private static final Object EVENT_EVALUATION_RESOURCE_KEY = new Object();
+
     @Autowired
     private ProgramRuleEngineService programRuleEngineService;
 
+    @Autowired
+    private ProgramStageInstanceService programStageInstanceService;
+
     @EventListener
     public void listenEvent( TrackedEntityInstanceEnrolledEvent event )
     {
@@ -48,18 +63,80 @@ public class ProgramRuleEngineListener
     @EventListener
     public void listenEvent( DataValueUpdatedEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        evaluate( event.getProgramStageInstance() );
     }
 
     @EventListener
     public void listenEvent( ProgramStageInstanceCompletedEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        evaluate( event.getProgramStageInstance() );
     }
 
     @EventListener
     public void listenEvent( ProgramStageInstanceScheduledEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        evaluate( event.getProgramStageInstance() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates the program rules of the given event. Within a transaction the
+     * event is collected and the collected events are evaluated as one batch
+     * before the transaction commits, so that an import evaluates each event
+     * once and compiles the rules of each program once.
+     */
+    private void evaluate( ProgramStageInstance programStageInstance )
+    {
+        if ( programStageInstance == null || programStageInstance.getId() == 0 || !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            programRuleEngineService.evaluate( programStageInstance );
+            return;
+        }
+
+        EventEvaluationSynchronization synchronization = (EventEvaluationSynchronization)
+            TransactionSynchronizationManager.getResource( EVENT_EVALUATION_RESOURCE_KEY );
+
+        if ( synchronization == null )
+        {
+            synchronization = new EventEvaluationSynchronization();
+
+            TransactionSynchronizationManager.bindResource( EVENT_EVALUATION_RESOURCE_KEY, synchronization );
+            TransactionSynchronizationManager.registerSynchronization( synchronization );
+        }
+
+        synchronization.programStageInstanceIds.add( programStageInstance.getId() );
+    }
+
+    /**
+     * Collects the events to evaluate in a transaction and evaluates them
+     * before the transaction commits. Events are collected by identifier and
+     * loaded again, as the session may have been cleared during the import.
+     */
+    private class EventEvaluationSynchronization
+        extends TransactionSynchronizationAdapter
+    {
+        private final Set<Long> programStageInstanceIds = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit( boolean readOnly )
+        {
+            List<ProgramStageInstance> programStageInstances = programStageInstanceIds.stream()
+                .map( programStageInstanceService::getProgramStageInstance )
+                .filter( Objects::nonNull )
+                .collect( Collectors.toList() );
+
+            programStageInstanceIds.clear();
+
+            programRuleEngineService.evaluate( programStageInstances );
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResourceIfPossible( EVENT_EVALUATION_RESOURCE_KEY );
+        }
     }
 }
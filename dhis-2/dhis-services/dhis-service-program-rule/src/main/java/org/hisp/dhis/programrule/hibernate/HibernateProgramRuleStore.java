@@ -36,8 +36,12 @@ import org.hisp.dhis.programrule.ProgramRuleStore;
 import org.hisp.dhis.query.JpaQueryUtils;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author markusbekken
@@ -74,6 +78,24 @@ public class HibernateProgramRuleStore
             .getResultList();
     }
 
+    @Override
+    public String getProgramRuleVersion( Program program )
+    {
+        Object[] rules = (Object[]) getSession().createQuery( "SELECT count(DISTINCT pr.id), max(pr.lastUpdated), count(pra.id), max(pra.lastUpdated) " +
+            "FROM ProgramRule pr LEFT JOIN pr.programRuleActions pra WHERE pr.program = :program" )
+            .setParameter( "program", program )
+            .getSingleResult();
+
+        Object[] variables = (Object[]) getSession().createQuery( "SELECT count(prv.id), max(prv.lastUpdated) " +
+            "FROM ProgramRuleVariable prv WHERE prv.program = :program" )
+            .setParameter( "program", program )
+            .getSingleResult();
+
+        return Stream.concat( Arrays.stream( rules ), Arrays.stream( variables ) )
+            .map( value -> value instanceof Date ? String.valueOf( ( (Date) value ).getTime() ) : String.valueOf( value ) )
+            .collect( Collectors.joining( ":" ) );
+    }
+
     @Override
     public List<ProgramRule> get( Program program, String key )
     {
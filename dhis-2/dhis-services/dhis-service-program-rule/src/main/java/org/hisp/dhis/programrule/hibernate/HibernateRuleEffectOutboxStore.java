@@ -0,0 +1,85 @@
+package org.hisp.dhis.programrule.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.query.Query;
+import org.hisp.dhis.hibernate.HibernateGenericStore;
+import org.hisp.dhis.programrule.engine.RuleEffectOutboxEntry;
+import org.hisp.dhis.programrule.engine.RuleEffectOutboxStore;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Claims outbox entries with SELECT ... FOR UPDATE SKIP LOCKED so that several
+ * workers, also on different instances, can drain the outbox concurrently.
+ */
+public class HibernateRuleEffectOutboxStore
+    extends HibernateGenericStore<RuleEffectOutboxEntry>
+    implements RuleEffectOutboxStore
+{
+    @Override
+    public List<RuleEffectOutboxEntry> claimPendingEntries( Date leaseUntil, int maxAttempts, int max )
+    {
+        List<RuleEffectOutboxEntry> entries = getQuery( "from RuleEffectOutboxEntry e where e.nextAttempt <= :now and e.attempts < :maxAttempts order by e.nextAttempt" )
+            .setParameter( "now", new Date() )
+            .setParameter( "maxAttempts", maxAttempts )
+            .setMaxResults( max )
+            .setLockOptions( new LockOptions( LockMode.UPGRADE_SKIPLOCKED ) )
+            .getResultList();
+
+        for ( RuleEffectOutboxEntry entry : entries )
+        {
+            entry.setAttempts( entry.getAttempts() + 1 );
+            entry.setNextAttempt( leaseUntil );
+
+            getSession().update( entry );
+        }
+
+        return entries;
+    }
+
+    @Override
+    public long getPendingCount( int maxAttempts )
+    {
+        Query<Long> query = getTypedQuery( "select count(*) from RuleEffectOutboxEntry e where e.attempts < :maxAttempts" );
+
+        return query.setParameter( "maxAttempts", maxAttempts ).getSingleResult();
+    }
+
+    @Override
+    public long getFailedCount( int maxAttempts )
+    {
+        Query<Long> query = getTypedQuery( "select count(*) from RuleEffectOutboxEntry e where e.attempts >= :maxAttempts" );
+
+        return query.setParameter( "maxAttempts", maxAttempts ).getSingleResult();
+    }
+}
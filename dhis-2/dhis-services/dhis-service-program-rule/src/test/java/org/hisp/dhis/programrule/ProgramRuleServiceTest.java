@@ -221,6 +221,34 @@ public class ProgramRuleServiceTest
         assertNull( programRuleService.getProgramRule( idI ) );
         assertNull( programRuleService.getProgramRule( idJ ) );
     }
+
+    @Test
+    public void testGetProgramRuleVersion()
+    {
+        String versionA = programRuleService.getProgramRuleVersion( programB );
+
+        assertEquals( versionA, programRuleService.getProgramRuleVersion( programB ) );
+
+        ProgramRule ruleK = new ProgramRule( "RuleK", "descriptionK", programB, null, null, "true", null );
+        programRuleService.addProgramRule( ruleK );
+
+        String versionB = programRuleService.getProgramRuleVersion( programB );
+
+        assertNotEquals( versionA, versionB );
+
+        programRuleActonService.addProgramRuleAction( createProgramRuleAction( 'K', ruleK ) );
+
+        String versionC = programRuleService.getProgramRuleVersion( programB );
+
+        assertNotEquals( versionB, versionC );
+
+        programRuleVariableService.addProgramRuleVariable( createProgramRuleVariable( 'K', programB ) );
+
+        String versionD = programRuleService.getProgramRuleVersion( programB );
+
+        assertNotEquals( versionC, versionD );
+        assertEquals( programRuleService.getProgramRuleVersion( programC ), versionA );
+    }
     
     /*TODO: Fix the functionality for 2 level cascading deletes.
         
@@ -0,0 +1,207 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.programrule.ProgramRuleActionType;
+import org.hisp.dhis.rules.models.RuleActionScheduleMessage;
+import org.hisp.dhis.rules.models.RuleActionSendMessage;
+import org.hisp.dhis.rules.models.RuleEffect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DefaultRuleEffectOutboxServiceTest
+    extends DhisConvenienceTest
+{
+    private static final String NOTIFICATION_UID = "abc123";
+
+    private static final String DATA = "2019-01-01";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private RuleEffectOutboxStore outboxStore;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RuleActionScheduleMessageImplementer scheduleMessageImplementer;
+
+    @Spy
+    private ArrayList<RuleActionImplementer> ruleActionImplementers;
+
+    @InjectMocks
+    private DefaultRuleEffectOutboxService service;
+
+    private ProgramInstance programInstance;
+
+    private ProgramStageInstance programStageInstance;
+
+    @Before
+    public void initTest()
+    {
+        ruleActionImplementers.add( scheduleMessageImplementer );
+
+        when( config.isEnabled( ConfigurationKey.TRACKER_RULE_EFFECT_OUTBOX ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.TRACKER_RULE_EFFECT_OUTBOX_THREADS ) ).thenReturn( "1" );
+        when( transactionTemplate.execute( any() ) ).thenAnswer( invocation -> invocation.<TransactionCallback<?>>getArgument( 0 ).doInTransaction( null ) );
+        when( scheduleMessageImplementer.accept( any() ) ).thenReturn( true );
+
+        programInstance = new ProgramInstance();
+        programStageInstance = new ProgramStageInstance();
+        programStageInstance.setProgramInstance( programInstance );
+    }
+
+    @After
+    public void tearDown()
+    {
+        service.destroy();
+    }
+
+    @Test
+    public void testEnqueueWhenDisabled()
+    {
+        when( config.isEnabled( ConfigurationKey.TRACKER_RULE_EFFECT_OUTBOX ) ).thenReturn( false );
+
+        service.init();
+
+        assertFalse( service.enqueue( RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, null ) ), programInstance ) );
+
+        verify( outboxStore, never() ).save( any() );
+    }
+
+    @Test
+    public void testEnqueueEvent()
+    {
+        service.init();
+
+        RuleEffect ruleEffect = RuleEffect.create( RuleActionScheduleMessage.create( NOTIFICATION_UID, "V{current_date}" ), DATA );
+
+        assertTrue( service.enqueue( ruleEffect, programStageInstance ) );
+
+        ArgumentCaptor<RuleEffectOutboxEntry> captor = ArgumentCaptor.forClass( RuleEffectOutboxEntry.class );
+
+        verify( outboxStore ).save( captor.capture() );
+
+        RuleEffectOutboxEntry entry = captor.getValue();
+
+        assertEquals( ProgramRuleActionType.SCHEDULEMESSAGE, entry.getActionType() );
+        assertEquals( NOTIFICATION_UID, entry.getNotification() );
+        assertEquals( DATA, entry.getEffectData() );
+        assertEquals( programInstance, entry.getProgramInstance() );
+        assertEquals( programStageInstance, entry.getProgramStageInstance() );
+        assertEquals( 0, entry.getAttempts() );
+    }
+
+    @Test
+    public void testProcessOutbox()
+    {
+        service.init();
+
+        RuleEffectOutboxEntry entry = createEntry();
+
+        when( outboxStore.claimPendingEntries( any( Date.class ), anyInt(), anyInt() ) ).thenReturn( Collections.singletonList( entry ) );
+        when( outboxStore.get( entry.getId() ) ).thenReturn( entry );
+
+        assertEquals( 1, service.processOutbox() );
+
+        ArgumentCaptor<RuleEffect> captor = ArgumentCaptor.forClass( RuleEffect.class );
+
+        verify( scheduleMessageImplementer ).implement( captor.capture(), eq( programStageInstance ) );
+        verify( outboxStore ).delete( entry );
+
+        RuleActionScheduleMessage action = (RuleActionScheduleMessage) captor.getValue().ruleAction();
+
+        assertEquals( NOTIFICATION_UID, action.notification() );
+        assertEquals( DATA, captor.getValue().data() );
+        assertEquals( 1L, service.getMetrics().get( "implemented" ) );
+    }
+
+    @Test
+    public void testProcessOutboxSchedulesRetry()
+    {
+        service.init();
+
+        RuleEffectOutboxEntry entry = createEntry();
+        entry.setAttempts( 1 );
+
+        when( outboxStore.claimPendingEntries( any( Date.class ), anyInt(), anyInt() ) ).thenReturn( Collections.singletonList( entry ) );
+        when( outboxStore.get( entry.getId() ) ).thenReturn( entry );
+        doThrow( new IllegalStateException( "Template rendering failed" ) )
+            .when( scheduleMessageImplementer ).implement( any( RuleEffect.class ), any( ProgramStageInstance.class ) );
+
+        Date before = new Date();
+
+        assertEquals( 1, service.processOutbox() );
+
+        verify( outboxStore, never() ).delete( entry );
+        verify( outboxStore ).update( entry );
+
+        assertTrue( entry.getNextAttempt().after( before ) );
+        assertEquals( "IllegalStateException: Template rendering failed", entry.getLastError() );
+        assertEquals( 1L, service.getMetrics().get( "retried" ) );
+        assertEquals( 0L, service.getMetrics().get( "implemented" ) );
+    }
+
+    private RuleEffectOutboxEntry createEntry()
+    {
+        RuleEffectOutboxEntry entry = new RuleEffectOutboxEntry( ProgramRuleActionType.SCHEDULEMESSAGE, NOTIFICATION_UID, null, DATA );
+        entry.setId( 1 );
+        entry.setProgramInstance( programInstance );
+        entry.setProgramStageInstance( programStageInstance );
+
+        return entry;
+    }
+}
@@ -0,0 +1,152 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.program.ProgramStageInstanceService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProgramRuleEngineListenerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEngineService programRuleEngineService;
+
+    @Mock
+    private ProgramStageInstanceService programStageInstanceService;
+
+    @InjectMocks
+    private ProgramRuleEngineListener listener;
+
+    private ProgramStageInstance programStageInstanceA;
+
+    private ProgramStageInstance programStageInstanceB;
+
+    @Before
+    public void setUp()
+    {
+        programStageInstanceA = createProgramStageInstance( 1 );
+        programStageInstanceB = createProgramStageInstance( 2 );
+
+        when( programStageInstanceService.getProgramStageInstance( 1L ) ).thenReturn( programStageInstanceA );
+        when( programStageInstanceService.getProgramStageInstance( 2L ) ).thenReturn( programStageInstanceB );
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.getSynchronizations().forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK ) );
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testEventsAreEvaluatedOnceBeforeCommit()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.listenEvent( new DataValueUpdatedEvent( this, programStageInstanceA ) );
+        listener.listenEvent( new DataValueUpdatedEvent( this, programStageInstanceA ) );
+        listener.listenEvent( new ProgramStageInstanceScheduledEvent( this, programStageInstanceB ) );
+
+        verify( programRuleEngineService, never() ).evaluate( any( ProgramStageInstance.class ) );
+        verify( programRuleEngineService, never() ).evaluate( any( Collection.class ) );
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        assertEquals( 1, synchronizations.size() );
+
+        synchronizations.get( 0 ).beforeCommit( false );
+
+        ArgumentCaptor<Collection<ProgramStageInstance>> captor = ArgumentCaptor.forClass( Collection.class );
+
+        verify( programRuleEngineService ).evaluate( captor.capture() );
+
+        List<ProgramStageInstance> evaluated = new ArrayList<>( captor.getValue() );
+
+        assertEquals( 2, evaluated.size() );
+        assertEquals( programStageInstanceA, evaluated.get( 0 ) );
+        assertEquals( programStageInstanceB, evaluated.get( 1 ) );
+
+        synchronizations.get( 0 ).afterCompletion( TransactionSynchronization.STATUS_COMMITTED );
+
+        assertTrue( TransactionSynchronizationManager.getResourceMap().isEmpty() );
+    }
+
+    @Test
+    public void testEventIsEvaluatedWithoutTransaction()
+    {
+        assertFalse( TransactionSynchronizationManager.isSynchronizationActive() );
+
+        listener.listenEvent( new DataValueUpdatedEvent( this, programStageInstanceA ) );
+
+        verify( programRuleEngineService ).evaluate( programStageInstanceA );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private ProgramStageInstance createProgramStageInstance( long id )
+    {
+        ProgramStageInstance programStageInstance = new ProgramStageInstance();
+        programStageInstance.setAutoFields();
+        programStageInstance.setId( id );
+
+        return programStageInstance;
+    }
+}
@@ -49,8 +49,11 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -79,6 +82,9 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
     @Mock
     private ProgramRuleService programRuleService;
 
+    @Mock
+    private RuleEffectOutboxService ruleEffectOutboxService;
+
     @Spy
     private ArrayList<RuleActionImplementer> ruleActionImplementers;
 
@@ -190,6 +196,74 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
         assertTrue( this.ruleEffects.get( 0 ).ruleAction() instanceof RuleActionSendMessage );
     }
 
+    @Test
+    public void testEffectsWrittenToOutboxAreNotImplemented()
+    {
+        setProgramRuleActionType_SendMessage();
+
+        when( ruleEffectOutboxService.enqueue( any( RuleEffect.class ), any( ProgramStageInstance.class ) ) ).thenReturn( true );
+
+        List<RuleEffect> ruleEffects = service.evaluate( programStageInstance );
+
+        assertEquals( 1, ruleEffects.size() );
+
+        verify( ruleEffectOutboxService ).enqueue( ruleEffects.get( 0 ), programStageInstance );
+        verify( ruleActionSendMessage, never() ).implement( any( RuleEffect.class ), any( ProgramStageInstance.class ) );
+
+        assertEquals( 0, this.ruleEffects.size() );
+    }
+
+    @Test
+    public void testWithImplementableActionExist_programStageInstances()
+    {
+        setProgramRuleActionType_SendMessage();
+
+        ProgramStageInstance programStageInstanceB = new ProgramStageInstance();
+        programStageInstanceB.setAutoFields();
+        programStageInstanceB.setProgramStage( programStageInstance.getProgramStage() );
+        programStageInstanceB.setProgramInstance( programInstance );
+
+        List<ProgramStageInstance> programStageInstances = Arrays.asList( programStageInstance, programStageInstanceB );
+
+        Map<String, List<RuleEffect>> effects = new HashMap<>();
+        effects.put( programStageInstance.getUid(), Arrays.asList( RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, DATA ) ) ) );
+
+        when( programRuleEngine.evaluateEvents( programStageInstances ) ).thenReturn( effects );
+
+        Map<String, List<RuleEffect>> ruleEffects = service.evaluate( programStageInstances );
+
+        assertEquals( effects, ruleEffects );
+
+        verify( programRuleEngine, times( 1 ) ).evaluateEvents( programStageInstances );
+        verify( programRuleEngine, never() ).evaluateEvent( any() );
+
+        verify( ruleActionSendMessage ).implement( Matchers.any( RuleEffect.class ), Matchers.eq( programStageInstance ) );
+        verify( ruleActionSendMessage, never() ).implement( Matchers.any( RuleEffect.class ), Matchers.eq( programStageInstanceB ) );
+
+        assertEquals( 1, this.ruleEffects.size() );
+    }
+
+    @Test
+    public void testEffectsOfProgramStageInstancesWrittenToOutboxAreNotImplemented()
+    {
+        setProgramRuleActionType_SendMessage();
+
+        List<ProgramStageInstance> programStageInstances = Arrays.asList( programStageInstance );
+
+        Map<String, List<RuleEffect>> effects = new HashMap<>();
+        effects.put( programStageInstance.getUid(), Arrays.asList( RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, DATA ) ) ) );
+
+        when( programRuleEngine.evaluateEvents( programStageInstances ) ).thenReturn( effects );
+        when( ruleEffectOutboxService.enqueue( any( RuleEffect.class ), any( ProgramStageInstance.class ) ) ).thenReturn( true );
+
+        service.evaluate( programStageInstances );
+
+        verify( ruleEffectOutboxService ).enqueue( effects.get( programStageInstance.getUid() ).get( 0 ), programStageInstance );
+        verify( ruleActionSendMessage, never() ).implement( any( RuleEffect.class ), any( ProgramStageInstance.class ) );
+
+        assertEquals( 0, this.ruleEffects.size() );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
@@ -213,6 +287,7 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
         programA.getProgramStages().add( programStageA );
 
         programStageInstance = new ProgramStageInstance();
+        programStageInstance.setAutoFields();
         programStageInstance.setProgramStage( programStageA );
         programStageInstance.setProgramInstance( programInstance );
 
@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.analytics.AggregationType;
@@ -238,6 +239,26 @@ public class ProgramRuleEngineTest extends DhisSpringTest
         assertEquals( "PNT-1", ruleActionSendMessage.notification() );
     }
 
+    @Test
+    public void testSendMessageForEvents() throws Exception
+    {
+        setUpSendMessageForEnrollment();
+
+        ProgramStageInstance programStageInstanceA = programStageInstanceService.getProgramStageInstance( "UID-PS1" );
+        ProgramStageInstance programStageInstanceB = programStageInstanceService.getProgramStageInstance( "UID-PS2" );
+
+        Map<String, List<RuleEffect>> ruleEffects = programRuleEngine.evaluateEvents( Arrays.asList( programStageInstanceA, programStageInstanceB ) );
+
+        assertEquals( 2, ruleEffects.size() );
+        assertEquals( programRuleEngine.evaluateEvent( programStageInstanceA ), ruleEffects.get( "UID-PS1" ) );
+        assertEquals( programRuleEngine.evaluateEvent( programStageInstanceB ), ruleEffects.get( "UID-PS2" ) );
+
+        RuleAction ruleAction = ruleEffects.get( "UID-PS1" ).get( 0 ).ruleAction();
+
+        assertTrue( ruleAction instanceof RuleActionSendMessage );
+        assertEquals( "PNT-1", ((RuleActionSendMessage) ruleAction).notification() );
+    }
+
     @Test
     public void testSchedulingByProgramRule() throws Exception
     {
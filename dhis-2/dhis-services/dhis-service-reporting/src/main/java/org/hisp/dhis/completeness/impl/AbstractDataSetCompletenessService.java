@@ -63,21 +63,21 @@ public abstract class AbstractDataSetCompletenessService
     // Dependencies
     // -------------------------------------------------------------------------
 
-    private OrganisationUnitService organisationUnitService;
+    protected OrganisationUnitService organisationUnitService;
 
     public void setOrganisationUnitService( OrganisationUnitService organisationUnitService )
     {
         this.organisationUnitService = organisationUnitService;
     }
 
-    private DataSetService dataSetService;
+    protected DataSetService dataSetService;
 
     public void setDataSetService( DataSetService dataSetService )
     {
         this.dataSetService = dataSetService;
     }
 
-    private PeriodService periodService;
+    protected PeriodService periodService;
 
     public void setPeriodService( PeriodService periodService )
     {
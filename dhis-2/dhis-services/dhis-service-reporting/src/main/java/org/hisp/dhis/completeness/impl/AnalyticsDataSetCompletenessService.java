@@ -0,0 +1,312 @@
+package org.hisp.dhis.completeness.impl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dbms.DbmsManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Data set completeness based on complete data set registrations, answered
+ * from the completeness and completeness target analytics tables with one
+ * grouped query per report instead of queries per data set and organisation
+ * unit. Results reflect the last analytics table update and are cached per
+ * data set, period and organisation unit until the next update. Reports
+ * restricted to organisation unit groups, or made before the analytics tables
+ * exist, are answered from the registrations directly.
+ */
+public class AnalyticsDataSetCompletenessService
+    extends RegistrationDataSetCompletenessService
+{
+    private static final Log log = LogFactory.getLog( AnalyticsDataSetCompletenessService.class );
+
+    /**
+     * Completeness counts by data set, period, organisation unit and last
+     * analytics table update. Kept in memory as the results are not
+     * serializable. Entries of earlier updates are never read again, as the
+     * last update is shared by all instances through the system settings.
+     */
+    private Cache<DataSetCompletenessResult> completenessCache;
+
+    @Autowired
+    private CacheProvider cacheProvider;
+
+    @Autowired
+    private Environment env;
+
+    @PostConstruct
+    public void init()
+    {
+        completenessCache = cacheProvider.newCacheBuilder( DataSetCompletenessResult.class )
+            .forRegion( "dataSetCompleteness" )
+            .expireAfterAccess( 12, TimeUnit.HOURS )
+            .withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).forceInMemory().build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private DbmsManager dbmsManager;
+
+    public void setDbmsManager( DbmsManager dbmsManager )
+    {
+        this.dbmsManager = dbmsManager;
+    }
+
+    private SystemSettingManager systemSettingManager;
+
+    public void setSystemSettingManager( SystemSettingManager systemSettingManager )
+    {
+        this.systemSettingManager = systemSettingManager;
+    }
+
+    // -------------------------------------------------------------------------
+    // DataSetCompletenessService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    @Transactional
+    public List<DataSetCompletenessResult> getDataSetCompleteness( long periodId, long organisationUnitId, Set<Long> groupIds )
+    {
+        final Date lastUpdate = getAnalyticsTablesUpdate( groupIds );
+
+        if ( lastUpdate == null )
+        {
+            return super.getDataSetCompleteness( periodId, organisationUnitId, groupIds );
+        }
+
+        final Period period = periodService.getPeriod( periodId );
+
+        final OrganisationUnit unit = organisationUnitService.getOrganisationUnit( organisationUnitId );
+
+        final List<DataSet> dataSets = dataSetService.getAllDataSets();
+
+        final Map<String, DataSetCompletenessResult> completeness = getCompleteness( dataSets, period, Lists.newArrayList( unit ), lastUpdate );
+
+        final List<DataSetCompletenessResult> results = new ArrayList<>();
+
+        for ( final DataSet dataSet : dataSets )
+        {
+            final DataSetCompletenessResult result = getResult( completeness, dataSet, period, unit, lastUpdate );
+
+            if ( result.getSources() > 0 )
+            {
+                result.setName( dataSet.getName() );
+
+                results.add( result );
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<DataSetCompletenessResult> getDataSetCompleteness( long periodId,
+        Collection<Long> organisationUnitIds, long dataSetId, Set<Long> groupIds )
+    {
+        final Date lastUpdate = getAnalyticsTablesUpdate( groupIds );
+
+        if ( lastUpdate == null )
+        {
+            return super.getDataSetCompleteness( periodId, organisationUnitIds, dataSetId, groupIds );
+        }
+
+        final DataSet dataSet = dataSetService.getDataSet( dataSetId );
+
+        final Period period = periodService.getPeriod( periodId );
+
+        final Map<Long, OrganisationUnit> orgUnits = Maps.uniqueIndex( organisationUnitService.getOrganisationUnits( organisationUnitIds ), OrganisationUnit::getId );
+
+        final Map<String, DataSetCompletenessResult> completeness = getCompleteness( Lists.newArrayList( dataSet ), period, orgUnits.values(), lastUpdate );
+
+        final List<DataSetCompletenessResult> results = new ArrayList<>();
+
+        for ( final Long unitId : organisationUnitIds )
+        {
+            final OrganisationUnit unit = orgUnits.get( unitId );
+
+            final DataSetCompletenessResult result = getResult( completeness, dataSet, period, unit, lastUpdate );
+
+            if ( result.getSources() > 0 )
+            {
+                result.setName( unit.getName() );
+                result.setPeriodName( period.getName() );
+
+                results.add( result );
+            }
+        }
+
+        return results;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the time of the last analytics table update if the completeness
+     * analytics tables can answer a report for the given organisation unit
+     * groups, or null if not.
+     */
+    private Date getAnalyticsTablesUpdate( Set<Long> groupIds )
+    {
+        if ( groupIds != null && !groupIds.isEmpty() )
+        {
+            return null;
+        }
+
+        final Date lastUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+
+        if ( lastUpdate == null || !dbmsManager.tableExists( AnalyticsTableType.COMPLETENESS.getTableName() ) ||
+            !dbmsManager.tableExists( AnalyticsTableType.COMPLETENESS_TARGET.getTableName() ) )
+        {
+            log.debug( "Completeness analytics tables not available, using complete data set registrations" );
+
+            return null;
+        }
+
+        return lastUpdate;
+    }
+
+    /**
+     * Returns completeness counts for each data set and organisation unit,
+     * keyed by cache key. Organisation units with counts missing from the
+     * cache are fetched with one store call per organisation unit level.
+     */
+    private Map<String, DataSetCompletenessResult> getCompleteness( Collection<DataSet> dataSets, Period period,
+        Collection<OrganisationUnit> orgUnits, Date lastUpdate )
+    {
+        final Map<String, DataSetCompletenessResult> completeness = new HashMap<>();
+
+        final ListMap<Integer, OrganisationUnit> missingOrgUnits = new ListMap<>();
+
+        for ( final OrganisationUnit unit : orgUnits )
+        {
+            for ( final DataSet dataSet : dataSets )
+            {
+                final String key = getCacheKey( dataSet, period, unit, lastUpdate );
+
+                final Optional<DataSetCompletenessResult> cached = completenessCache.getIfPresent( key );
+
+                if ( cached.isPresent() )
+                {
+                    completeness.put( key, cached.get() );
+                }
+                else
+                {
+                    missingOrgUnits.putValue( unit.getLevel(), unit );
+                    break;
+                }
+            }
+        }
+
+        for ( final Map.Entry<Integer, List<OrganisationUnit>> entry : missingOrgUnits.entrySet() )
+        {
+            final Map<String, DataSetCompletenessResult> fetched = new HashMap<>();
+
+            for ( final DataSetCompletenessResult result : completenessStore.getAnalyticsCompleteness( dataSets, period, entry.getValue(), entry.getKey() ) )
+            {
+                fetched.put( result.getDataSetId() + "-" + result.getOrganisationUnitId(), result );
+            }
+
+            for ( final OrganisationUnit unit : entry.getValue() )
+            {
+                for ( final DataSet dataSet : dataSets )
+                {
+                    final String key = getCacheKey( dataSet, period, unit, lastUpdate );
+
+                    final DataSetCompletenessResult result = fetched.getOrDefault( dataSet.getId() + "-" + unit.getId(), new DataSetCompletenessResult() );
+
+                    completenessCache.put( key, result );
+                    completeness.put( key, result );
+                }
+            }
+        }
+
+        return completeness;
+    }
+
+    /**
+     * Returns a new completeness result for the given data set, period and
+     * organisation unit, where sources are the expected reports for all data
+     * set periods within the period.
+     */
+    private DataSetCompletenessResult getResult( Map<String, DataSetCompletenessResult> completeness,
+        DataSet dataSet, Period period, OrganisationUnit unit, Date lastUpdate )
+    {
+        final DataSetCompletenessResult counts = completeness.get( getCacheKey( dataSet, period, unit, lastUpdate ) );
+
+        final DataSetCompletenessResult result = new DataSetCompletenessResult();
+
+        result.setSources( counts.getSources() * period.getPeriodSpan( dataSet.getPeriodType() ) );
+        result.setRegistrations( counts.getRegistrations() );
+        result.setRegistrationsOnTime( counts.getRegistrationsOnTime() );
+        result.setDataSetId( dataSet.getId() );
+        result.setPeriodId( period.getId() );
+        result.setOrganisationUnitId( unit.getId() );
+
+        return result;
+    }
+
+    private String getCacheKey( DataSet dataSet, Period period, OrganisationUnit unit, Date lastUpdate )
+    {
+        return dataSet.getUid() + "-" + period.getIsoDate() + "-" + unit.getUid() + "-" + lastUpdate.getTime();
+    }
+}
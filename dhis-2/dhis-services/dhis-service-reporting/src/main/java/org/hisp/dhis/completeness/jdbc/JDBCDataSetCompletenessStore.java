@@ -29,15 +29,28 @@ package org.hisp.dhis.completeness.jdbc;
  */
 
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
+import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hisp.quick.StatementManager;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.api.util.DateUtils;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
 import org.hisp.dhis.completeness.DataSetCompletenessStore;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 /**
  * @author Lars Helge Overland
@@ -64,6 +77,20 @@ public class JDBCDataSetCompletenessStore
         this.statementBuilder = statementBuilder;
     }
 
+    private JdbcTemplate jdbcTemplate;
+
+    public void setJdbcTemplate( JdbcTemplate jdbcTemplate )
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private OrganisationUnitService organisationUnitService;
+
+    public void setOrganisationUnitService( OrganisationUnitService organisationUnitService )
+    {
+        this.organisationUnitService = organisationUnitService;
+    }
+
     // -------------------------------------------------------------------------
     // Based on complete data set registrations
     // -------------------------------------------------------------------------
@@ -166,4 +193,116 @@ public class JDBCDataSetCompletenessStore
         
         return selection;
     }
+
+    // -------------------------------------------------------------------------
+    // Based on completeness analytics tables
+    // -------------------------------------------------------------------------
+
+    @Override
+    public List<DataSetCompletenessResult> getAnalyticsCompleteness( Collection<DataSet> dataSets, Period period,
+        Collection<OrganisationUnit> orgUnits, int orgUnitLevel )
+    {
+        if ( dataSets == null || dataSets.isEmpty() || orgUnits == null || orgUnits.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        final Map<String, Long> dataSetIds = getIdMap( dataSets );
+        final Map<String, Long> orgUnitIds = getIdMap( orgUnits );
+
+        final String levelColumn = statementBuilder.columnQuote( "uidlevel" + orgUnitLevel );
+        final String orgUnitColumn = getOrgUnitColumn( orgUnitLevel );
+        final String periodColumn = statementBuilder.columnQuote( period.getPeriodType().getName().toLowerCase() );
+        final String startDate = DateUtils.getMediumDateString( period.getStartDate() );
+        final String endDate = DateUtils.getMediumDateString( period.getEndDate() );
+
+        final String criteria =
+            "WHERE dx IN ( " + getQuotedCommaDelimitedString( dataSetIds.keySet() ) + " ) " +
+            "AND " + levelColumn + " IN ( " + getQuotedCommaDelimitedString( orgUnitIds.keySet() ) + " ) ";
+
+        final String targetSql =
+            "SELECT dx, " + levelColumn + ", COUNT( DISTINCT " + orgUnitColumn + " ) " +
+            "FROM " + AnalyticsTableType.COMPLETENESS_TARGET.getTableName() + " " + criteria +
+            "AND ( ouopeningdate IS NULL OR ouopeningdate <= '" + endDate + "' ) " +
+            "AND ( oucloseddate IS NULL OR oucloseddate >= '" + startDate + "' ) " +
+            "AND ( costartdate IS NULL OR costartdate <= '" + endDate + "' ) " +
+            "AND ( coenddate IS NULL OR coenddate >= '" + startDate + "' ) " +
+            "GROUP BY dx, " + levelColumn;
+
+        final String registrationSql =
+            "SELECT dx, " + levelColumn + ", COUNT(*), SUM( CASE WHEN timely THEN 1 ELSE 0 END ) " +
+            "FROM " + AnalyticsTableType.COMPLETENESS.getTableName() + " " + criteria +
+            "AND " + periodColumn + " = '" + period.getIsoDate() + "' " +
+            "GROUP BY dx, " + levelColumn;
+
+        final Map<String, DataSetCompletenessResult> results = new HashMap<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( targetSql );
+
+        while ( rowSet.next() )
+        {
+            getResult( results, dataSetIds, orgUnitIds, rowSet ).setSources( rowSet.getInt( 3 ) );
+        }
+
+        rowSet = jdbcTemplate.queryForRowSet( registrationSql );
+
+        while ( rowSet.next() )
+        {
+            DataSetCompletenessResult result = getResult( results, dataSetIds, orgUnitIds, rowSet );
+            result.setRegistrations( rowSet.getInt( 3 ) );
+            result.setRegistrationsOnTime( rowSet.getInt( 4 ) );
+        }
+
+        return new ArrayList<>( results.values() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Map<String, Long> getIdMap( Collection<? extends IdentifiableObject> objects )
+    {
+        return objects.stream().collect( Collectors.toMap( IdentifiableObject::getUid, IdentifiableObject::getId, ( a, b ) -> a ) );
+    }
+
+    /**
+     * Returns the uid of the organisation unit of a completeness target row,
+     * which is the deepest organisation unit level column with a value. The
+     * target table has a row per organisation unit and attribute option
+     * combination, so sources are counted as distinct organisation units.
+     *
+     * @param orgUnitLevel the level of the organisation units to count for.
+     * @return the organisation unit uid expression.
+     */
+    private String getOrgUnitColumn( int orgUnitLevel )
+    {
+        int levels = Math.max( organisationUnitService.getNumberOfOrganisationalLevels(), orgUnitLevel );
+
+        List<String> columns = new ArrayList<>();
+
+        for ( int level = levels; level >= orgUnitLevel; level-- )
+        {
+            columns.add( statementBuilder.columnQuote( "uidlevel" + level ) );
+        }
+
+        return columns.size() == 1 ? columns.get( 0 ) : "COALESCE( " + String.join( ", ", columns ) + " )";
+    }
+
+    /**
+     * Returns the result for the data set and organisation unit of the
+     * current row, creating it if not present.
+     */
+    private DataSetCompletenessResult getResult( Map<String, DataSetCompletenessResult> results,
+        Map<String, Long> dataSetIds, Map<String, Long> orgUnitIds, SqlRowSet rowSet )
+    {
+        String dataSetUid = rowSet.getString( 1 );
+        String orgUnitUid = rowSet.getString( 2 );
+
+        return results.computeIfAbsent( dataSetUid + orgUnitUid, key -> {
+            DataSetCompletenessResult result = new DataSetCompletenessResult();
+            result.setDataSetId( dataSetIds.get( dataSetUid ) );
+            result.setOrganisationUnitId( orgUnitIds.get( orgUnitUid ) );
+            return result;
+        } );
+    }
 }
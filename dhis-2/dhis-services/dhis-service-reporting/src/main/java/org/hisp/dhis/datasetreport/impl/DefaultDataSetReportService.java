@@ -114,13 +114,9 @@ public class DefaultDataSetReportService
     public String getCustomDataSetReport( DataSet dataSet, Period period, OrganisationUnit orgUnit, Set<String> filters,
         boolean selectedUnitOnly )
     {
-        Map<String, Object> valueMap = dataSetReportStore.getAggregatedValues( dataSet, period, orgUnit, filters );
+        Map<String, Object> valueMap = dataSetReportStore.getAggregatedReportValues( dataSet, period, orgUnit, filters );
 
-        valueMap.putAll( dataSetReportStore.getAggregatedTotals( dataSet, period, orgUnit, filters ) );
-
-        Map<String, Object> indicatorValueMap = dataSetReportStore.getAggregatedIndicatorValues( dataSet, period, orgUnit, filters );
-
-        return prepareReportContent( dataSet.getDataEntryForm(), valueMap, indicatorValueMap );
+        return prepareReportContent( dataSet.getDataEntryForm(), valueMap );
     }
 
     @Override
@@ -172,9 +168,8 @@ public class DefaultDataSetReportService
         List<Section> sections = new ArrayList<>( dataSet.getSections() );
         Collections.sort( sections, new SectionOrderComparator() );
 
-        Map<String, Object> valueMap = dataSetReportStore.getAggregatedValues( dataSet, period, unit, filters );
+        Map<String, Object> valueMap = dataSetReportStore.getAggregatedReportValues( dataSet, period, unit, filters );
         Map<String, Object> subTotalMap = dataSetReportStore.getAggregatedSubTotals( dataSet, period, unit, filters );
-        Map<String, Object> totalMap = dataSetReportStore.getAggregatedTotals( dataSet, period, unit, filters );
 
         List<Grid> grids = new ArrayList<>();
 
@@ -264,7 +259,7 @@ public class DefaultDataSetReportService
 
                     if ( categoryCombo.doTotal() && !selectedUnitOnly ) // Total
                     {
-                        Object value = totalMap.get( String.valueOf( dataElement.getUid() ) );
+                        Object value = valueMap.get( dataElement.getUid() );
 
                         grid.addValue( new GridValue( value ) );
                     }
@@ -313,12 +308,12 @@ public class DefaultDataSetReportService
      * whole report text.
      *
      * @param dataEntryForm the data entry form.
-     * @param a map with aggregated data values mapped to data element operands.
+     * @param dataValues a map with aggregated data values mapped to data element
+     *        operands, data element totals and indicators.
      * @return data entry form HTML code populated with aggregated data in the
      *         input fields.
      */
-    private String prepareReportContent( DataEntryForm dataEntryForm, Map<String, Object> dataValues,
-        Map<String, Object> indicatorValues )
+    private String prepareReportContent( DataEntryForm dataEntryForm, Map<String, Object> dataValues )
     {
         I18nFormat format = i18nManager.getI18nFormat();
 
@@ -369,7 +364,7 @@ public class DefaultDataSetReportService
             {
                 String indicatorId = indicatorMatcher.group( 1 );
 
-                Object indicatorValue = indicatorValues.get( indicatorId );
+                Object indicatorValue = dataValues.get( indicatorId );
 
                 inputMatcher.appendReplacement( buffer, Matcher.quoteReplacement( format.formatValue( indicatorValue ) ) );
             }
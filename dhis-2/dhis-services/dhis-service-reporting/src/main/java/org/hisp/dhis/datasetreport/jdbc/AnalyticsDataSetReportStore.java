@@ -28,21 +28,23 @@ package org.hisp.dhis.datasetreport.jdbc;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.collect.Lists;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataQueryService;
+import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.commons.filter.FilterUtils;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetElement;
 import org.hisp.dhis.dataset.Section;
 import org.hisp.dhis.datasetreport.DataSetReportStore;
-import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.system.filter.AggregatableDataElementFilter;
@@ -51,6 +53,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.*;
 import java.util.Map.Entry;
 
+import static org.hisp.dhis.common.DimensionalObjectUtils.COMPOSITE_DIM_OBJECT_PLAIN_SEP;
+
 /**
  * @author Lars Helge Overland
  */
@@ -70,23 +74,42 @@ public class AnalyticsDataSetReportStore
     // -------------------------------------------------------------------------
 
     @Override
-    public Map<String, Object> getAggregatedValues( DataSet dataSet, Period period, OrganisationUnit unit,
-        Set<String> filters )
+    public Map<String, Object> getAggregatedReportValues( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters )
     {
         List<DataElement> dataElements = new ArrayList<>( dataSet.getDataElements() );
 
         FilterUtils.filter( dataElements, AggregatableDataElementFilter.INSTANCE );
 
-        if ( dataElements.isEmpty() )
+        Set<DataElement> aggregatableDataElements = new HashSet<>( dataElements );
+
+        // ---------------------------------------------------------------------
+        // Data elements for totals, operands for values and indicators
+        // ---------------------------------------------------------------------
+
+        List<DimensionalItemObject> items = new ArrayList<>( dataElements );
+
+        for ( DataSetElement element : dataSet.getDataSetElements() )
+        {
+            if ( aggregatableDataElements.contains( element.getDataElement() ) )
+            {
+                for ( CategoryOptionCombo optionCombo : element.getResolvedCategoryCombo().getOptionCombos() )
+                {
+                    items.add( new DataElementOperand( element.getDataElement(), optionCombo ) );
+                }
+            }
+        }
+
+        items.addAll( dataSet.getIndicators() );
+
+        if ( items.isEmpty() )
         {
             return new HashMap<>();
         }
 
         DataQueryParams.Builder params = DataQueryParams.newBuilder()
-            .withDataElements( dataElements )
+            .withDataDimensionItems( items )
             .withPeriod( period )
-            .withOrganisationUnit( unit )
-            .withCategoryOptionCombos( Lists.newArrayList() );
+            .withOrganisationUnit( unit );
 
         if ( filters != null )
         {
@@ -100,7 +123,7 @@ public class AnalyticsDataSetReportStore
         for ( Entry<String, Object> entry : map.entrySet() )
         {
             String[] split = entry.getKey().split( SEPARATOR );
-            dataMap.put( split[0] + SEPARATOR + split[3], entry.getValue() );
+            dataMap.put( split[0].replace( COMPOSITE_DIM_OBJECT_PLAIN_SEP, SEPARATOR ), entry.getValue() );
         }
 
         return dataMap;
@@ -109,7 +132,7 @@ public class AnalyticsDataSetReportStore
     @Override
     public Map<String, Object> getAggregatedSubTotals( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters )
     {
-        Map<String, Object> dataMap = new HashMap<>();
+        Map<Category, Set<DataElement>> categoryDataElements = new HashMap<>();
 
         for ( Section section : dataSet.getSections() )
         {
@@ -130,104 +153,49 @@ public class AnalyticsDataSetReportStore
 
             for ( Category category : categories )
             {
-                if ( category.isDefault() )
-                {
-                    continue; // No need for sub-total for default
-                }
-
-                if ( !category.isDataDimension() )
-                {
-                    log.warn( "Could not get sub-total for category: " + category.getUid() + " for data set report: " + dataSet + ", not a data dimension" );
-                    continue;
-                }
-
-                DataQueryParams.Builder params = DataQueryParams.newBuilder()
-                    .withDataElements( dataElements )
-                    .withPeriod( period )
-                    .withOrganisationUnit( unit )
-                    .withCategory( category );
-
-                if ( filters != null )
-                {
-                    params.addFilters( dataQueryService.getDimensionalObjects( filters, null, null, null, false, IdScheme.UID ) );
-                }
-
-                Map<String, Object> map = analyticsService.getAggregatedDataValueMapping( params.build() );
-
-                for ( Entry<String, Object> entry : map.entrySet() )
-                {
-                    String[] split = entry.getKey().split( SEPARATOR );
-                    dataMap.put( split[0] + SEPARATOR + split[3], entry.getValue() );
-                }
+                categoryDataElements.computeIfAbsent( category, c -> new HashSet<>() ).addAll( dataElements );
             }
         }
 
-        return dataMap;
-    }
-
-    @Override
-    public Map<String, Object> getAggregatedTotals( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters )
-    {
-        List<DataElement> dataElements = new ArrayList<>( dataSet.getDataElements() );
-
-        FilterUtils.filter( dataElements, AggregatableDataElementFilter.INSTANCE );
-
-        if ( dataElements.isEmpty() )
-        {
-            return new HashMap<>();
-        }
-
-        DataQueryParams.Builder params = DataQueryParams.newBuilder()
-            .withDataElements( dataElements )
-            .withPeriod( period )
-            .withOrganisationUnit( unit );
-
-        if ( filters != null )
-        {
-            params.addFilters( dataQueryService.getDimensionalObjects( filters, null, null, null, false, IdScheme.UID ) );
-        }
-
-        Map<String, Object> map = analyticsService.getAggregatedDataValueMapping( params.build() );
+        // ---------------------------------------------------------------------
+        // One query per category across all sections
+        // ---------------------------------------------------------------------
 
         Map<String, Object> dataMap = new HashMap<>();
 
-        for ( Entry<String, Object> entry : map.entrySet() )
+        for ( Entry<Category, Set<DataElement>> categoryEntry : categoryDataElements.entrySet() )
         {
-            String[] split = entry.getKey().split( SEPARATOR );
-            dataMap.put( split[0], entry.getValue() );
-        }
+            Category category = categoryEntry.getKey();
 
-        return dataMap;
-    }
-
-    @Override
-    public Map<String, Object> getAggregatedIndicatorValues( DataSet dataSet, Period period, OrganisationUnit unit, Set<String> filters )
-    {
-        List<Indicator> indicators = new ArrayList<>( dataSet.getIndicators() );
-
-        if ( indicators.isEmpty() )
-        {
-            return new HashMap<>();
-        }
+            if ( category.isDefault() )
+            {
+                continue; // No need for sub-total for default
+            }
 
-        DataQueryParams.Builder params = DataQueryParams.newBuilder()
-            .withIndicators( indicators )
-            .withPeriod( period )
-            .withOrganisationUnit( unit );
+            if ( !category.isDataDimension() )
+            {
+                log.warn( "Could not get sub-total for category: " + category.getUid() + " for data set report: " + dataSet + ", not a data dimension" );
+                continue;
+            }
 
-        if ( filters != null )
-        {
-            params.addFilters( dataQueryService.getDimensionalObjects( filters, null, null, null, false, IdScheme.UID ) );
-        }
+            DataQueryParams.Builder params = DataQueryParams.newBuilder()
+                .withDataElements( new ArrayList<>( categoryEntry.getValue() ) )
+                .withPeriod( period )
+                .withOrganisationUnit( unit )
+                .withCategory( category );
 
-        Map<String, Object> map = analyticsService.getAggregatedDataValueMapping( params.build() );
+            if ( filters != null )
+            {
+                params.addFilters( dataQueryService.getDimensionalObjects( filters, null, null, null, false, IdScheme.UID ) );
+            }
 
-        Map<String, Object> dataMap = new HashMap<>();
+            Map<String, Object> map = analyticsService.getAggregatedDataValueMapping( params.build() );
 
-        for ( Entry<String, Object> entry : map.entrySet() )
-        {
-            String[] split = entry.getKey().split( SEPARATOR );
-            dataMap.put( split[0], entry.getValue() );
+            for ( Entry<String, Object> entry : map.entrySet() )
+            {
+                String[] split = entry.getKey().split( SEPARATOR );
+                dataMap.put( split[0] + SEPARATOR + split[3], entry.getValue() );
+            }
         }
 
         return dataMap;
@@ -50,6 +50,7 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.api.util.DateUtils;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.common.DimensionItemType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
@@ -66,11 +67,13 @@ import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.MissingValueStrategy;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
@@ -81,6 +84,7 @@ import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.ParallelTaskExecutor;
 import org.hisp.dhis.scheduling.parameters.PredictorJobParameters;
 import org.hisp.dhis.system.notification.NotificationLevel;
 import org.hisp.dhis.system.notification.Notifier;
@@ -90,7 +94,10 @@ import org.hisp.dhis.user.User;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -137,6 +144,12 @@ public class DefaultPredictionService
     @Autowired
     private BatchHandlerFactory batchHandlerFactory;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ParallelTaskExecutor parallelTaskExecutor;
+
     public void setAnalyticsService( AnalyticsService analyticsService )
     {
         this.analyticsService = analyticsService;
@@ -156,6 +169,11 @@ public class DefaultPredictionService
 
     public final static String NON_AOC = ""; // String that is not an Attribute Option Combo
 
+    /**
+     * Bound on the estimated memory held by the sample cache of a run.
+     */
+    private static final long SAMPLE_CACHE_MAX_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
     @Override
     public PredictionSummary predictJob( PredictorJobParameters params, JobConfiguration jobId )
     {
@@ -222,18 +240,155 @@ public class DefaultPredictionService
 
         log.info( "Running " + predictorList.size() + " predictors from " + startDate.toString() + " to " + endDate.toString() );
 
-        for ( Predictor predictor : predictorList )
-        {
-            predict( predictor, startDate, endDate, predictionSummary );
-        }
+        runPredictors( predictorList, startDate, endDate, predictionSummary );
 
         log.info( "Finished predictors from " + startDate.toString() + " to " + endDate.toString() + ": " + predictionSummary.toString() );
 
         return predictionSummary;
     }
 
+    /**
+     * Runs predictors, in parallel where they are independent. The predictors
+     * are divided into dependency levels, which are run one after another.
+     * The predictors within a level are run in parallel on the shared
+     * executor, each in its own transaction and in the security context of
+     * the caller. Output periods are created up front in a separate
+     * transaction so that the predictors can write to them in bulk.
+     *
+     * @param predictorList the predictors to run, in order.
+     * @param startDate the start date of the predictions.
+     * @param endDate the end date of the predictions.
+     * @param predictionSummary the summary to update.
+     */
+    private void runPredictors( List<Predictor> predictorList, Date startDate, Date endDate, PredictionSummary predictionSummary )
+    {
+        if ( predictorList.isEmpty() )
+        {
+            return;
+        }
+
+        User currentUser = currentUserService.getCurrentUser();
+        Set<OrganisationUnit> currentUserOrgUnits = currentUser != null ? new HashSet<>( currentUser.getOrganisationUnits() ) : new HashSet<>();
+        String storedBy = currentUser != null ? currentUser.getUsername() : "system-process";
+        PredictionSampleCache sampleCache = new PredictionSampleCache( SAMPLE_CACHE_MAX_BYTES );
+
+        TransactionTemplate newTransaction = new TransactionTemplate( transactionManager );
+        newTransaction.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+
+        newTransaction.execute( status -> {
+            predictorList.stream().map( Predictor::getPeriodType ).distinct()
+                .forEach( periodType -> getPeriodsBetweenDates( periodType, startDate, endDate ).forEach( periodService::reloadPeriod ) );
+            return null;
+        } );
+
+        List<List<Predictor>> levels = getDependencyLevels( predictorList );
+
+        try
+        {
+            for ( List<Predictor> level : levels )
+            {
+                List<Runnable> tasks = new ArrayList<>();
+
+                for ( Predictor predictor : level )
+                {
+                    long predictorId = predictor.getId();
+
+                    tasks.add( () -> newTransaction.execute( status -> {
+                        predict( predictorService.getPredictor( predictorId ), startDate, endDate,
+                            predictionSummary, currentUserOrgUnits, storedBy, sampleCache );
+                        return null;
+                    } ) );
+                }
+
+                parallelTaskExecutor.runAll( tasks );
+            }
+        }
+        finally
+        {
+            predictionSummary.setSampleCacheHitRatio( sampleCache.getHitRatio() );
+            predictionSummary.setSampleCacheBytes( sampleCache.getBytes() );
+        }
+    }
+
+    /**
+     * Divides predictors into levels that can each be run in parallel. A
+     * predictor goes into a later level than any earlier predictor in the
+     * list that it depends on: where one of them reads the output data
+     * element of the other, or both have the same output data element.
+     * This gives the same results as running the predictors in list order.
+     *
+     * @param predictorList the predictors, in order.
+     * @return the predictors divided into levels, in running order.
+     */
+    private List<List<Predictor>> getDependencyLevels( List<Predictor> predictorList )
+    {
+        List<List<Predictor>> levels = new ArrayList<>();
+        List<Set<DataElement>> inputs = new ArrayList<>();
+        int[] predictorLevels = new int[predictorList.size()];
+
+        for ( int j = 0; j < predictorList.size(); j++ )
+        {
+            Predictor predictor = predictorList.get( j );
+
+            Set<DataElement> input = new HashSet<>( expressionService.getDataElementsInExpression( predictor.getGenerator().getExpression() ) );
+
+            if ( predictor.getSampleSkipTest() != null )
+            {
+                input.addAll( expressionService.getDataElementsInExpression( predictor.getSampleSkipTest().getExpression() ) );
+            }
+
+            inputs.add( input );
+
+            int level = 0;
+
+            for ( int i = 0; i < j; i++ )
+            {
+                Predictor earlier = predictorList.get( i );
+
+                if ( input.contains( earlier.getOutput() ) || inputs.get( i ).contains( predictor.getOutput() ) ||
+                    earlier.getOutput().equals( predictor.getOutput() ) )
+                {
+                    level = Math.max( level, predictorLevels[i] + 1 );
+                }
+            }
+
+            predictorLevels[j] = level;
+
+            if ( level == levels.size() )
+            {
+                levels.add( new ArrayList<>() );
+            }
+
+            levels.get( level ).add( predictor );
+        }
+
+        return levels;
+    }
+
     @Override
     public void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary )
+    {
+        User currentUser = currentUserService.getCurrentUser();
+        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
+        String storedBy = "system-process";
+
+        if ( currentUser != null )
+        {
+            currentUserOrgUnits = currentUser.getOrganisationUnits();
+            storedBy = currentUser.getUsername();
+        }
+
+        predict( predictor, startDate, endDate, predictionSummary, currentUserOrgUnits, storedBy, null );
+    }
+
+    /**
+     * Makes the predictions of a predictor.
+     *
+     * @param sampleCache cache of sample data shared by the predictors in a
+     *        run, or null if sample data is not cached.
+     */
+    private void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary,
+        Set<OrganisationUnit> currentUserOrgUnits, String storedBy, PredictionSampleCache sampleCache )
     {
         Expression generator = predictor.getGenerator();
         Expression skipTest = predictor.getSampleSkipTest();
@@ -250,7 +405,6 @@ public class DefaultPredictionService
         Set<Period> existingSamplePeriods = getExistingPeriods( allSamplePeriods );
         Set<DimensionalItemObject> aggregateDimensionItems = getDimensionItems( aggregates, skipTest );
         Set<DimensionalItemObject> nonAggregateDimensionItems = getDimensionItems( nonAggregates, null );
-        User currentUser = currentUserService.getCurrentUser();
         Set<String> defaultOptionComboAsSet = Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() );
         Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> emptyMap4 = new Map4<>();
         MapMapMap<Period, String, DimensionalItemObject, Double> emptyMapMapMap = new MapMapMap<>();
@@ -260,14 +414,6 @@ public class DefaultPredictionService
             categoryService.getDefaultCategoryOptionCombo() : predictor.getOutputCombo();
 
         Date now = new Date();
-        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
-        String storedBy = "system-process";
-
-        if ( currentUser != null )
-        {
-            currentUserOrgUnits = currentUser.getOrganisationUnits();
-            storedBy = currentUser.getUsername();
-        }
 
         predictionSummary.incrementPredictors();
 
@@ -287,11 +433,11 @@ public class DefaultPredictionService
             {
                 Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> aggregateDataMap4 =
                     aggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( aggregateDimensionItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+                        getDataValues( aggregateDimensionItems, allSamplePeriods, existingSamplePeriods, orgUnits, sampleCache );
 
                 Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> nonAggregateDataMap4 =
                     nonAggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( nonAggregateDimensionItems, outputPeriods, existingOutputPeriods, orgUnits );
+                        getDataValues( nonAggregateDimensionItems, outputPeriods, existingOutputPeriods, orgUnits, sampleCache );
 
                 List<DataValue> predictions = new ArrayList<>();
 
@@ -355,7 +501,12 @@ public class DefaultPredictionService
                 }
 
                 writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriods, orgUnits, storedBy, predictionSummary );
+                    outputPeriods, existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+
+                if ( sampleCache != null )
+                {
+                    sampleCache.invalidate( outputDataElement );
+                }
             }
         }
     }
@@ -651,11 +802,105 @@ public class DefaultPredictionService
      * @param allPeriods all data Periods (to fetch event data).
      * @param existingPeriods existing data Periods (to fetch aggregate data).
      * @param orgUnits the roots of the OrganisationUnit trees to include.
+     * @param sampleCache cache of sample data, or null if not caching.
      * @return the map of values
      */
     private Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> getDataValues(
         Set<DimensionalItemObject> dimensionItems, Set<Period> allPeriods, Set<Period> existingPeriods,
-        List<OrganisationUnit> orgUnits)
+        List<OrganisationUnit> orgUnits, PredictionSampleCache sampleCache )
+    {
+        if ( sampleCache == null )
+        {
+            return fetchDataValues( dimensionItems, allPeriods, existingPeriods, orgUnits );
+        }
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues = new Map4<>();
+        Set<DimensionalItemObject> itemsToFetch = new HashSet<>();
+
+        for ( DimensionalItemObject o : dimensionItems )
+        {
+            MapMapMap<OrganisationUnit, Period, String, Double> cachedValues =
+                sampleCache.get( o, orgUnits, isAggregate( o ) ? existingPeriods : allPeriods );
+
+            if ( cachedValues == null )
+            {
+                itemsToFetch.add( o );
+            }
+            else
+            {
+                addItemValues( dataValues, o, cachedValues );
+            }
+        }
+
+        if ( !itemsToFetch.isEmpty() )
+        {
+            Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> fetchedValues =
+                fetchDataValues( itemsToFetch, allPeriods, existingPeriods, orgUnits );
+
+            for ( DimensionalItemObject o : itemsToFetch )
+            {
+                sampleCache.put( o, orgUnits, isAggregate( o ) ? existingPeriods : allPeriods, getItemValues( fetchedValues, o ) );
+            }
+
+            dataValues.putMap( fetchedValues );
+        }
+
+        return dataValues;
+    }
+
+    private boolean isAggregate( DimensionalItemObject o )
+    {
+        return o instanceof DataElement || o instanceof DataElementOperand;
+    }
+
+    /**
+     * Gets the values of one dimensional item, for caching.
+     */
+    private MapMapMap<OrganisationUnit, Period, String, Double> getItemValues(
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues, DimensionalItemObject item )
+    {
+        MapMapMap<OrganisationUnit, Period, String, Double> itemValues = new MapMapMap<>();
+
+        for ( Map.Entry<OrganisationUnit, MapMapMap<Period, String, DimensionalItemObject, Double>> ouEntry : dataValues.entrySet() )
+        {
+            for ( Map.Entry<Period, MapMap<String, DimensionalItemObject, Double>> peEntry : ouEntry.getValue().entrySet() )
+            {
+                for ( Map.Entry<String, Map<DimensionalItemObject, Double>> aocEntry : peEntry.getValue().entrySet() )
+                {
+                    Double value = aocEntry.getValue().get( item );
+
+                    if ( value != null )
+                    {
+                        itemValues.putEntry( ouEntry.getKey(), peEntry.getKey(), aocEntry.getKey(), value );
+                    }
+                }
+            }
+        }
+
+        return itemValues;
+    }
+
+    /**
+     * Adds cached values of one dimensional item to a map of data values.
+     */
+    private void addItemValues( Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues,
+        DimensionalItemObject item, MapMapMap<OrganisationUnit, Period, String, Double> itemValues )
+    {
+        for ( Map.Entry<OrganisationUnit, MapMap<Period, String, Double>> ouEntry : itemValues.entrySet() )
+        {
+            for ( Map.Entry<Period, Map<String, Double>> peEntry : ouEntry.getValue().entrySet() )
+            {
+                for ( Map.Entry<String, Double> aocEntry : peEntry.getValue().entrySet() )
+                {
+                    dataValues.putEntry( ouEntry.getKey(), peEntry.getKey(), aocEntry.getKey(), item, aocEntry.getValue() );
+                }
+            }
+        }
+    }
+
+    private Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> fetchDataValues(
+        Set<DimensionalItemObject> dimensionItems, Set<Period> allPeriods, Set<Period> existingPeriods,
+        List<OrganisationUnit> orgUnits )
     {
         Set<DataElement> dataElements = new HashSet<>();
         Set<DataElementOperand> dataElementOperands = new HashSet<>();
@@ -838,31 +1083,44 @@ public class DefaultPredictionService
     /**
      * Writes the predicted values to the database. Also updates the
      * prediction summmary per-record counts.
+     * <p/>
+     * The predictions are compared in memory with the values already stored,
+     * and the differences are written with batch handlers together with
+     * their audits. Values in periods which did not exist before the
+     * prediction are added through the data value service, because the
+     * batch handler would not see a period added within this transaction.
      *
      * @param predictions Predictions to write to the database.
      * @param outputDataElement Predictor output data elmeent.
      * @param outputOptionCombo Predictor output category option commbo.
      * @param periods Periods to predict for.
+     * @param existingPeriods Periods to predict for that existed before.
      * @param orgUnits Organisation units to predict for.
      * @param summary Prediction summary to update.
      */
     private void writePredictions( List<DataValue> predictions, DataElement outputDataElement,
-        CategoryOptionCombo outputOptionCombo, Set<Period> periods, List<OrganisationUnit> orgUnits,
-        String storedBy, PredictionSummary summary )
+        CategoryOptionCombo outputOptionCombo, Set<Period> periods, Set<Period> existingPeriods,
+        List<OrganisationUnit> orgUnits, String storedBy, PredictionSummary summary )
     {
         DataExportParams params = new DataExportParams();
         params.setDataElementOperands( Sets.newHashSet( new DataElementOperand( outputDataElement, outputOptionCombo ) ) );
         params.setPeriods( new HashSet<>( periodService.reloadPeriods( new ArrayList<>( periods ) ) ) );
         params.setOrganisationUnits( new HashSet<>( orgUnits ) );
         params.setReturnParentOrgUnit( true );
+        params.setIncludeDeleted( true );
 
         List<DeflatedDataValue> oldValueList = dataValueService.getDeflatedDataValues( params );
 
         Map<String, DeflatedDataValue> oldValues = oldValueList.stream().collect( Collectors.toMap(
-            d -> d.getPeriodId() + "-" + d.getSourceId() + "-" + d.getAttributeOptionComboId(), d -> d ) );
+            d -> d.getPeriodId() + "-" + d.getSourceId() + "-" + d.getAttributeOptionComboId(), d -> d,
+            ( d1, d2 ) -> d1.isDeleted() ? d2 : d1 ) );
+
+        Set<Long> existingPeriodIds = existingPeriods.stream().map( Period::getId ).collect( Collectors.toSet() );
 
         BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
 
+        BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
+
         for ( DataValue newValue : predictions )
         {
             boolean zeroInsignificant = dataValueIsZeroAndInsignificant( newValue.getValue(), newValue.getDataElement() );
@@ -871,7 +1129,7 @@ public class DefaultPredictionService
 
             DeflatedDataValue oldValue = oldValues.get( key );
 
-            if ( oldValue == null )
+            if ( oldValue == null || oldValue.isDeleted() )
             {
                 if ( zeroInsignificant )
                 {
@@ -880,14 +1138,20 @@ public class DefaultPredictionService
 
                 summary.incrementInserted();
 
-                /*
-                 * NOTE: BatchHandler is not used for inserts. When run under
-                 * the scheduler, this code needs this to be @Transactional,
-                 * but the new data value might be in a new period (just added
-                 * to the database within this transaction). In this case
-                 * BatchHandler would not see the new period.
-                 */
-                dataValueService.addDataValue( newValue );
+                if ( oldValue != null )
+                {
+                    dataValueBatchHandler.updateObject( newValue ); // Restores the soft deleted value
+
+                    oldValues.remove( key );
+                }
+                else if ( existingPeriodIds.contains( newValue.getPeriod().getId() ) )
+                {
+                    dataValueBatchHandler.addObject( newValue );
+                }
+                else
+                {
+                    dataValueService.addDataValue( newValue );
+                }
             }
             else
             {
@@ -905,6 +1169,8 @@ public class DefaultPredictionService
                     summary.incrementUpdated();
 
                     dataValueBatchHandler.updateObject( newValue );
+
+                    auditBatchHandler.addObject( new DataValueAudit( newValue, oldValue.getValue(), storedBy, AuditType.UPDATE ) );
                 }
 
                 oldValues.remove( key );
@@ -913,18 +1179,29 @@ public class DefaultPredictionService
 
         Map<Long, OrganisationUnit> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap( OrganisationUnit::getId, o -> o ) );
 
+        Map<Long, Period> periodLookup = params.getPeriods().stream().collect( Collectors.toMap( Period::getId, p -> p ) );
+
         for ( DeflatedDataValue oldValue : oldValues.values() )
         {
+            if ( oldValue.isDeleted() )
+            {
+                continue;
+            }
+
             summary.incrementDeleted();
 
-            DataValue toDelete = new DataValue( outputDataElement, oldValue.getPeriod(),
+            DataValue toDelete = new DataValue( outputDataElement, periodLookup.get( oldValue.getPeriodId() ),
                 orgUnitLookup.get( oldValue.getSourceId() ), outputOptionCombo,
                 categoryService.getCategoryOptionCombo( oldValue.getAttributeOptionComboId() ),
                 oldValue.getValue(), storedBy, null, null );
 
             dataValueBatchHandler.deleteObject( toDelete );
+
+            auditBatchHandler.addObject( new DataValueAudit( toDelete, oldValue.getValue(), storedBy, AuditType.DELETE ) );
         }
 
         dataValueBatchHandler.flush();
+
+        auditBatchHandler.flush();
     }
 }
@@ -0,0 +1,284 @@
+package org.hisp.dhis.predictor;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+/**
+ * Caches sample data for the predictors in a prediction run, so predictors
+ * using the same data over the same organisation units and periods fetch it
+ * only once. Values are cached for each dimensional item, mapped by
+ * organisation unit, period and attribute option combo UID.
+ * <p/>
+ * The cache is bounded by an estimate of the memory it holds. When the bound
+ * is passed, the least recently used entries are evicted. Entries for a data
+ * element are invalidated when a predictor writes to it.
+ * <p/>
+ * The cache may be used by predictors running in parallel.
+ */
+class PredictionSampleCache
+{
+    /**
+     * Estimated memory held by each cached value, including the map entries
+     * and key sets which hold it.
+     */
+    private static final long BYTES_PER_VALUE = 160;
+
+    /**
+     * Estimated memory held by each cache entry without any values.
+     */
+    private static final long BYTES_PER_ENTRY = 200;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private final Map<Long, Set<String>> keysByDataElement = new HashMap<>();
+
+    private final Map<String, Integer> scopeIds = new HashMap<>();
+
+    private long bytes = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    public PredictionSampleCache( long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets the cached values of an item, or null if they are not cached.
+     *
+     * @param item the dimensional item.
+     * @param orgUnits the organisation units the values were fetched for.
+     * @param periods the periods the values were fetched for.
+     * @return the values by organisation unit, period and attribute option
+     *         combo UID, or null if not cached.
+     */
+    public synchronized MapMapMap<OrganisationUnit, Period, String, Double> get( DimensionalItemObject item,
+        List<OrganisationUnit> orgUnits, Set<Period> periods )
+    {
+        Entry entry = entries.get( getKey( item, orgUnits, periods ) );
+
+        if ( entry == null )
+        {
+            misses++;
+
+            return null;
+        }
+
+        hits++;
+
+        return entry.values;
+    }
+
+    /**
+     * Caches the values of an item. The values must not be changed after
+     * they are cached.
+     *
+     * @param item the dimensional item.
+     * @param orgUnits the organisation units the values were fetched for.
+     * @param periods the periods the values were fetched for.
+     * @param values the values by organisation unit, period and attribute
+     *        option combo UID.
+     */
+    public synchronized void put( DimensionalItemObject item, List<OrganisationUnit> orgUnits, Set<Period> periods,
+        MapMapMap<OrganisationUnit, Period, String, Double> values )
+    {
+        String key = getKey( item, orgUnits, periods );
+
+        DataElement dataElement = getDataElement( item );
+
+        long entryBytes = BYTES_PER_ENTRY + BYTES_PER_VALUE * countValues( values );
+
+        remove( entries.put( key, new Entry( dataElement, values, entryBytes ) ) );
+
+        bytes += entryBytes;
+
+        if ( dataElement != null )
+        {
+            keysByDataElement.computeIfAbsent( dataElement.getId(), k -> new HashSet<>() ).add( key );
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while ( bytes > maxBytes && iterator.hasNext() )
+        {
+            Map.Entry<String, Entry> eldest = iterator.next();
+
+            iterator.remove();
+
+            remove( eldest.getValue() );
+
+            Set<String> keys = eldest.getValue().dataElement == null ? null :
+                keysByDataElement.get( eldest.getValue().dataElement.getId() );
+
+            if ( keys != null )
+            {
+                keys.remove( eldest.getKey() );
+            }
+        }
+    }
+
+    /**
+     * Removes all cached values of a data element and its operands, because
+     * the data element has been written to.
+     *
+     * @param dataElement the data element.
+     */
+    public synchronized void invalidate( DataElement dataElement )
+    {
+        Set<String> keys = keysByDataElement.remove( dataElement.getId() );
+
+        if ( keys != null )
+        {
+            for ( String key : keys )
+            {
+                remove( entries.remove( key ) );
+            }
+        }
+    }
+
+    /**
+     * Gets the fraction of lookups which found cached values.
+     *
+     * @return the hit ratio, or 0 if there have been no lookups.
+     */
+    public synchronized double getHitRatio()
+    {
+        return hits + misses == 0 ? 0d : (double) hits / ( hits + misses );
+    }
+
+    /**
+     * Gets the estimated memory held by the cached values.
+     *
+     * @return the estimated number of bytes.
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void remove( Entry entry )
+    {
+        if ( entry != null )
+        {
+            bytes -= entry.bytes;
+        }
+    }
+
+    private String getKey( DimensionalItemObject item, List<OrganisationUnit> orgUnits, Set<Period> periods )
+    {
+        String orgUnitScope = orgUnits.stream().map( ou -> Long.toString( ou.getId() ) ).collect( Collectors.joining( "," ) );
+
+        String periodScope = periods.stream().map( Period::getIsoDate ).sorted().collect( Collectors.joining( "," ) );
+
+        return item.getDimensionItemType() + ":" + item.getDimensionItem() + ":" + getScopeId( orgUnitScope ) + ":" + getScopeId( periodScope );
+    }
+
+    /**
+     * Replaces long scope strings with short ids, so the keys of the cache
+     * stay small.
+     */
+    private int getScopeId( String scope )
+    {
+        return scopeIds.computeIfAbsent( scope, s -> scopeIds.size() );
+    }
+
+    private DataElement getDataElement( DimensionalItemObject item )
+    {
+        if ( item instanceof DataElement )
+        {
+            return (DataElement) item;
+        }
+
+        if ( item instanceof DataElementOperand )
+        {
+            return ( (DataElementOperand) item ).getDataElement();
+        }
+
+        return null;
+    }
+
+    private long countValues( MapMapMap<OrganisationUnit, Period, String, Double> values )
+    {
+        long count = 0;
+
+        for ( MapMap<Period, String, Double> periodValues : values.values() )
+        {
+            for ( Map<String, Double> aocValues : periodValues.values() )
+            {
+                count += aocValues.size();
+            }
+        }
+
+        return count;
+    }
+
+    private static class Entry
+    {
+        private final DataElement dataElement;
+
+        private final MapMapMap<OrganisationUnit, Period, String, Double> values;
+
+        private final long bytes;
+
+        private Entry( DataElement dataElement, MapMapMap<OrganisationUnit, Period, String, Double> values, long bytes )
+        {
+            this.dataElement = dataElement;
+            this.values = values;
+            this.bytes = bytes;
+        }
+    }
+}
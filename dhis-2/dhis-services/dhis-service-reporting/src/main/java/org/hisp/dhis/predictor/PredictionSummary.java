@@ -55,6 +55,10 @@ public class PredictionSummary extends AbstractWebMessageResponse
 
     private int unchanged = 0;
 
+    private double sampleCacheHitRatio = 0d;
+
+    private long sampleCacheBytes = 0;
+
     public PredictionSummary()
     {
     }
@@ -65,27 +69,27 @@ public class PredictionSummary extends AbstractWebMessageResponse
         this.description = description;
     }
 
-    public void incrementInserted()
+    public synchronized void incrementInserted()
     {
         inserted += 1;
     }
 
-    public void incrementPredictors()
+    public synchronized void incrementPredictors()
     {
         predictors += 1;
     }
 
-    public void incrementUpdated()
+    public synchronized void incrementUpdated()
     {
         updated += 1;
     }
 
-    public void incrementDeleted()
+    public synchronized void incrementDeleted()
     {
         deleted += 1;
     }
 
-    public void incrementUnchanged()
+    public synchronized void incrementUnchanged()
     {
         unchanged += 1;
     }
@@ -156,6 +160,30 @@ public class PredictionSummary extends AbstractWebMessageResponse
         return unchanged;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public double getSampleCacheHitRatio()
+    {
+        return sampleCacheHitRatio;
+    }
+
+    public void setSampleCacheHitRatio( double sampleCacheHitRatio )
+    {
+        this.sampleCacheHitRatio = sampleCacheHitRatio;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getSampleCacheBytes()
+    {
+        return sampleCacheBytes;
+    }
+
+    public void setSampleCacheBytes( long sampleCacheBytes )
+    {
+        this.sampleCacheBytes = sampleCacheBytes;
+    }
+
     @Override
     public String toString()
     {
@@ -167,6 +195,8 @@ public class PredictionSummary extends AbstractWebMessageResponse
             ", updated=" + updated +
             ", deleted=" + deleted +
             ", unchanged=" + unchanged +
+            ", sampleCacheHitRatio=" + sampleCacheHitRatio +
+            ", sampleCacheBytes=" + sampleCacheBytes +
             '}';
     }
 }
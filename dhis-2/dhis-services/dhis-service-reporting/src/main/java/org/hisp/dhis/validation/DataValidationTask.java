@@ -48,16 +48,19 @@ import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.expression.CompiledExpression;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.Operator;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.system.util.ExpressionUtils;
 import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -65,6 +68,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
@@ -107,7 +111,7 @@ public class DataValidationTask
 
     private Set<ValidationResult> validationResults;
 
-    private PeriodTypeExtended periodTypeX; // Current period type extended.
+    private PeriodTypeExtended periodTypeX; // Period type of this task.
 
     private Period period;                  // Current period.
 
@@ -124,9 +128,24 @@ public class DataValidationTask
 
     private MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowEventMap;
 
-    public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService )
+    // Rule sides compiled for the current period type, and the position of
+    // each item they reference in the value arrays:
+    private Map<String, Integer> itemIndexMap;
+
+    private Map<ValidationRuleExtended, CompiledExpression> compiledLeftSides;
+
+    private Map<ValidationRuleExtended, CompiledExpression> compiledRightSides;
+
+    // Value arrays for the current period, by org unit id and AOC uid:
+    private Map<Long, Map<String, double[]>> dataBlock;
+
+    private Map<Long, Map<String, double[]>> slidingWindowDataBlock;
+
+    public void init( List<OrganisationUnit> orgUnits, PeriodTypeExtended periodTypeX, ValidationRunContext context,
+        AnalyticsService analyticsService )
     {
         this.orgUnits = orgUnits;
+        this.periodTypeX = periodTypeX;
         this.context = context;
         this.analyticsService = analyticsService;
     }
@@ -153,7 +172,7 @@ public class DataValidationTask
 
     /**
      * Get the data needed for this task, then evaluate each combination
-     * of organisation unit / period / validation rule.
+     * of organisation unit / period / validation rule for its period type.
      */
     private void runInternal()
     {
@@ -162,34 +181,31 @@ public class DataValidationTask
             return;
         }
 
+        compileRules();
+
         loop:
-        for ( PeriodTypeExtended ptx : context.getPeriodTypeXs() )
+        for ( Period p : periodTypeX.getPeriods() )
         {
-            periodTypeX = ptx;
+            period = p;
 
-            for ( Period p : periodTypeX.getPeriods() )
-            {
-                period = p;
+            getData();
 
-                getData();
+            for ( OrganisationUnit ou : orgUnits )
+            {
+                orgUnit = ou;
+                orgUnitId = ou.getId();
 
-                for ( OrganisationUnit ou : orgUnits )
+                for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
                 {
-                    orgUnit = ou;
-                    orgUnitId = ou.getId();
+                    ruleX = r;
 
-                    for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+                    if ( context.isAnalysisComplete() )
                     {
-                        ruleX = r;
-
-                        if ( context.isAnalysisComplete() )
-                        {
-                            break loop;
-                        }
-                        validationResults = new HashSet<>();
-                        validateRule();
-                        addValidationResultsToContext();
+                        break loop;
                     }
+                    validationResults = new HashSet<>();
+                    validateRule();
+                    addValidationResultsToContext();
                 }
             }
         }
@@ -208,10 +224,16 @@ public class DataValidationTask
             return;
         }
 
+        // Skip validation if not affected by changed data
+        if ( !context.isInScope( orgUnit, ruleX.getRule(), period ) )
+        {
+            return;
+        }
+
         Map<String, Double> leftSideValues = getValuesForExpression( ruleX.getRule().getLeftSide(),
-            ruleX.getLeftSlidingWindow() );
+            compiledLeftSides.get( ruleX ), ruleX.getLeftSlidingWindow() );
         Map<String, Double> rightSideValues = getValuesForExpression( ruleX.getRule().getRightSide(),
-            ruleX.getRightSlidingWindow() );
+            compiledRightSides.get( ruleX ), ruleX.getRightSlidingWindow() );
 
         Set<String> attributeOptionCombos = Sets.union( leftSideValues.keySet(), rightSideValues.keySet() );
 
@@ -326,6 +348,122 @@ public class DataValidationTask
         eventMap.putMap( getEventMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
 
         dataMap.putMap( eventMap );
+
+        dataBlock = getDataBlock( dataMap );
+
+        slidingWindowDataBlock = getDataBlock( slidingWindowEventMap );
+    }
+
+    /**
+     * Compiles the left and right sides of the rules for the current period
+     * type, so they can be evaluated against value arrays. Sides which cannot
+     * be compiled are evaluated from the value maps instead.
+     */
+    private void compileRules()
+    {
+        itemIndexMap = new HashMap<>();
+        compiledLeftSides = new HashMap<>();
+        compiledRightSides = new HashMap<>();
+
+        for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+        {
+            addItemIndexes( r.getRule().getLeftSide() );
+            addItemIndexes( r.getRule().getRightSide() );
+        }
+
+        for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+        {
+            compileExpression( r, r.getRule().getLeftSide(), compiledLeftSides );
+            compileExpression( r, r.getRule().getRightSide(), compiledRightSides );
+        }
+    }
+
+    private void addItemIndexes( Expression expression )
+    {
+        if ( expression == null || expression.getExpression() == null )
+        {
+            return;
+        }
+
+        Matcher matcher = ExpressionService.VARIABLE_PATTERN.matcher(
+            ExpressionUtils.normalizeExpression( expression.getExpression() ) );
+
+        while ( matcher.find() )
+        {
+            itemIndexMap.putIfAbsent( matcher.group( ExpressionService.GROUP_ID ), itemIndexMap.size() );
+        }
+    }
+
+    private void compileExpression( ValidationRuleExtended r, Expression expression,
+        Map<ValidationRuleExtended, CompiledExpression> compiledExpressions )
+    {
+        CompiledExpression compiledExpression = expressionService.compileExpression( expression, itemIndexMap,
+            context.getConstantMap(), null );
+
+        if ( compiledExpression != null )
+        {
+            compiledExpressions.put( r, compiledExpression );
+        }
+    }
+
+    /**
+     * Converts a map of values into value arrays by org unit and attribute
+     * option combo, indexed by item. Missing values are NaN. Values without
+     * an attribute option combo are included in the values of each attribute
+     * option combo, as in {@link #getExpressionValueMap}.
+     *
+     * @param valueMap map of value maps, by org unit and attribute option combo.
+     * @return map of value arrays.
+     */
+    private Map<Long, Map<String, double[]>> getDataBlock(
+        MapMapMap<Long, String, DimensionalItemObject, Double> valueMap )
+    {
+        Map<Long, Map<String, double[]>> block = new HashMap<>();
+
+        for ( Map.Entry<Long, MapMap<String, DimensionalItemObject, Double>> ouEntry : valueMap.entrySet() )
+        {
+            Map<DimensionalItemObject, Double> nonAocValues = ouEntry.getValue().get( NON_AOC );
+
+            Map<String, double[]> aocValues = new HashMap<>();
+
+            for ( Map.Entry<String, Map<DimensionalItemObject, Double>> aocEntry : ouEntry.getValue().entrySet() )
+            {
+                if ( NON_AOC.equals( aocEntry.getKey() ) )
+                {
+                    continue; // Never validated on its own
+                }
+
+                double[] values = new double[itemIndexMap.size()];
+
+                Arrays.fill( values, Double.NaN );
+
+                putValues( values, aocEntry.getValue() );
+
+                if ( nonAocValues != null )
+                {
+                    putValues( values, nonAocValues );
+                }
+
+                aocValues.put( aocEntry.getKey(), values );
+            }
+
+            block.put( ouEntry.getKey(), aocValues );
+        }
+
+        return block;
+    }
+
+    private void putValues( double[] values, Map<DimensionalItemObject, Double> itemValues )
+    {
+        for ( Map.Entry<DimensionalItemObject, Double> entry : itemValues.entrySet() )
+        {
+            Integer index = itemIndexMap.get( entry.getKey().getDimensionItem() );
+
+            if ( index != null )
+            {
+                values[index] = entry.getValue() != null ? entry.getValue() : Double.NaN;
+            }
+        }
     }
 
     /**
@@ -333,15 +471,22 @@ public class DataValidationTask
      * (grouped by attribute option combo).
      *
      * @param expression    left or right side expression.
+     * @param compiledExpression the compiled expression, or null if the
+     *                      expression could not be compiled.
      * @param slidingWindow whether to use sliding window.
      * @return the values grouped by attribute option combo.
      */
-    private Map<String, Double> getValuesForExpression( Expression expression, boolean slidingWindow )
+    private Map<String, Double> getValuesForExpression( Expression expression,
+        CompiledExpression compiledExpression, boolean slidingWindow )
     {
         if ( expression == null )
         {
             return new HashMap<>();
         }
+        else if ( compiledExpression != null )
+        {
+            return getExpressionValueMap( compiledExpression, slidingWindow ? slidingWindowDataBlock : dataBlock );
+        }
         else if ( slidingWindow )
         {
             return getExpressionValueMap( expression, slidingWindowEventMap );
@@ -475,6 +620,41 @@ public class DataValidationTask
         return expressionValueMap;
     }
 
+    /**
+     * Evaluates a compiled expression, returning a map of values by attribute
+     * option combo.
+     *
+     * @param compiledExpression compiled expression to evaluate.
+     * @param block              value arrays, by attribute option combo.
+     * @return map of values.
+     */
+    private Map<String, Double> getExpressionValueMap( CompiledExpression compiledExpression,
+        Map<Long, Map<String, double[]>> block )
+    {
+        Map<String, Double> expressionValueMap = new HashMap<>();
+
+        Map<String, double[]> aocValues = block.get( orgUnitId );
+
+        if ( aocValues == null )
+        {
+            return expressionValueMap;
+        }
+
+        Integer days = period.getDaysInPeriod();
+
+        for ( Map.Entry<String, double[]> entry : aocValues.entrySet() )
+        {
+            Double value = compiledExpression.evaluate( entry.getValue(), days );
+
+            if ( MathUtils.isValidDouble( value ) )
+            {
+                expressionValueMap.put( entry.getKey(), value );
+            }
+        }
+
+        return expressionValueMap;
+    }
+
     /**
      * Gets data values for this task.
      */
@@ -35,6 +35,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
+import org.hisp.dhis.api.util.DateUtils;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
@@ -44,23 +45,31 @@ import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.jdbc.batchhandler.ValidationResultBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.AnalyticsType;
+import org.hisp.dhis.program.ProgramDataElementDimensionItem;
 import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramTrackedEntityAttributeDimensionItem;
 import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.validation.notification.ValidationNotificationService;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author Jim Grace
@@ -100,11 +109,17 @@ public class DefaultValidationService
     private ValidationRuleService validationRuleService;
 
     @Autowired
-    private ApplicationContext applicationContext;
+    private Validator validator;
 
     @Autowired
     private ValidationResultService validationResultService;
 
+    @Autowired
+    private BatchHandlerFactory batchHandlerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private AnalyticsService analyticsService;
 
     public void setAnalyticsService( AnalyticsService analyticsService )
@@ -133,17 +148,19 @@ public class DefaultValidationService
                 : parameters.getPeriods().size() + " periods" ) + ", "
             + parameters.getRules().size() + " rules"
             + ( parameters.isPersistResults() ? ", persisting results" : "" )
+            + ( parameters.getChangedSince() != null ? ", data changed since "
+                + DateUtils.getLongDateString( parameters.getChangedSince() ) : "" )
             + ( parameters.isSendNotifications() ? ", sending notifications" : "" ) );
 
         ValidationRunContext context = getValidationContext( parameters );
 
         clock.logTime( "Initialized validation analysis" );
 
-        Collection<ValidationResult> results = Validator.validate( context, applicationContext, analyticsService );
+        Collection<ValidationResult> results = validator.validate( context, analyticsService );
 
         if ( context.isPersistResults() )
         {
-            validationResultService.saveValidationResults( context.getValidationResults() );
+            persistValidationResults( context.getValidationResults() );
         }
 
         clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results").stop();
@@ -230,6 +247,9 @@ public class DefaultValidationService
     {
         User currentUser = currentUserService.getCurrentUser();
 
+        Collection<ValidationRule> rules = parameters.getRules();
+        Collection<Period> periods = parameters.getPeriods();
+
         OrganisationUnit parameterOrgUnit = parameters.getOrgUnit();
         List<OrganisationUnit> orgUnits;
         if ( parameterOrgUnit == null )
@@ -245,10 +265,26 @@ public class DefaultValidationService
             orgUnits = Lists.newArrayList( parameterOrgUnit );
         }
 
+        IncrementalValidationScope incrementalScope = null;
+
+        if ( parameters.getChangedSince() != null )
+        {
+            incrementalScope = getIncrementalScope( rules, periods, orgUnits, parameters.getChangedSince() );
+
+            log.info( "Incremental validation of " + incrementalScope.size()
+                + " org unit, period and rule combinations affected by changed data" );
+
+            Set<OrganisationUnit> scopeOrgUnits = incrementalScope.getOrgUnits();
+
+            orgUnits = orgUnits.stream().filter( scopeOrgUnits::contains ).collect( Collectors.toList() );
+            periods = incrementalScope.getPeriods();
+            rules = incrementalScope.getRules();
+        }
+
         Map<PeriodType, PeriodTypeExtended> periodTypeXMap = new HashMap<>();
 
-        addPeriodsToContext( periodTypeXMap, parameters.getPeriods() );
-        addRulesToContext( periodTypeXMap, parameters.getRules() );
+        addPeriodsToContext( periodTypeXMap, periods, parameters.getPeriods() );
+        addRulesToContext( periodTypeXMap, rules );
         removeAnyUnneededPeriodTypes( periodTypeXMap );
 
         ValidationRunContext.Builder builder = ValidationRunContext.newBuilder()
@@ -262,7 +298,9 @@ public class DefaultValidationService
             .withPersistResults( parameters.isPersistResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
-            .withMaxResults( parameters.getMaxResults() );
+            .withMaxResults( parameters.getMaxResults() )
+            .withIncrementalScope( incrementalScope )
+            .withJobConfiguration( parameters.getJobConfiguration() );
 
         if ( currentUser != null )
         {
@@ -276,14 +314,279 @@ public class DefaultValidationService
         return builder.build();
     }
 
+    /**
+     * Finds the combinations of organisation unit, period and rule affected by
+     * data values and events changed since the given time. Changed data
+     * elements and programs are mapped to the rules referencing them through
+     * an index built from the items in the rule expressions. Rules which
+     * cannot be indexed, such as rules on reporting rates, organisation unit
+     * group counts or constants only, are validated for all organisation units
+     * and periods.
+     *
+     * @param rules        the rules in the analysis.
+     * @param periods      the periods in the analysis.
+     * @param orgUnits     the organisation units in the analysis.
+     * @param changedSince the time from which changes should be validated.
+     * @return the combinations to validate.
+     */
+    private IncrementalValidationScope getIncrementalScope( Collection<ValidationRule> rules,
+        Collection<Period> periods, List<OrganisationUnit> orgUnits, Date changedSince )
+    {
+        IncrementalValidationScope scope = new IncrementalValidationScope();
+
+        SetMap<Long, ValidationRule> dataElementRules = new SetMap<>();
+        SetMap<Long, ValidationRule> programRules = new SetMap<>();
+        Set<ValidationRule> unindexedRules = new HashSet<>();
+
+        addRulesToIndex( rules, dataElementRules, programRules, unindexedRules );
+
+        ListMap<PeriodType, Period> periodTypePeriods = new ListMap<>();
+        periods.forEach( p -> periodTypePeriods.putValue( p.getPeriodType(), p ) );
+
+        if ( !unindexedRules.isEmpty() )
+        {
+            log.info( "Validating " + unindexedRules.size() + " rules not based on data elements or programs for all org units and periods" );
+
+            for ( ValidationRule rule : unindexedRules )
+            {
+                for ( Period period : getPeriods( periodTypePeriods, rule ) )
+                {
+                    orgUnits.forEach( ou -> scope.add( ou, period, rule ) );
+                }
+            }
+        }
+
+        Map<Long, OrganisationUnit> orgUnitIdMap = orgUnits.stream()
+            .collect( Collectors.toMap( OrganisationUnit::getId, ou -> ou ) );
+        Map<String, OrganisationUnit> orgUnitUidMap = orgUnits.stream()
+            .collect( Collectors.toMap( OrganisationUnit::getUid, ou -> ou ) );
+
+        String changed = DateUtils.getLongDateString( changedSince );
+
+        if ( !dataElementRules.isEmpty() )
+        {
+            String sql = "select dv.sourceid, pe.startdate, pe.enddate, dv.dataelementid from datavalue dv " +
+                "inner join period pe on dv.periodid = pe.periodid " +
+                "where dv.lastupdated >= '" + changed + "' " +
+                "and dv.dataelementid in (" + TextUtils.getCommaDelimitedString( dataElementRules.keySet() ) + ") " +
+                "group by dv.sourceid, pe.startdate, pe.enddate, dv.dataelementid";
+
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+            while ( rowSet.next() )
+            {
+                OrganisationUnit orgUnit = orgUnitIdMap.get( rowSet.getLong( 1 ) );
+
+                if ( orgUnit == null )
+                {
+                    continue;
+                }
+
+                Date startDate = rowSet.getDate( 2 );
+                Date endDate = rowSet.getDate( 3 );
+
+                for ( ValidationRule rule : dataElementRules.get( rowSet.getLong( 4 ) ) )
+                {
+                    // Values are validated in any period starting within their own period
+
+                    for ( Period period : getPeriods( periodTypePeriods, rule ) )
+                    {
+                        if ( !period.getStartDate().before( startDate ) && !period.getStartDate().after( endDate ) )
+                        {
+                            scope.add( orgUnit, period, rule );
+                        }
+                    }
+                }
+            }
+        }
+
+        if ( !programRules.isEmpty() )
+        {
+            String sql = "select ou.path, cast(psi.executiondate as date) as eventdate, pi.programid " +
+                "from programstageinstance psi " +
+                "inner join programinstance pi on psi.programinstanceid = pi.programinstanceid " +
+                "inner join organisationunit ou on psi.organisationunitid = ou.organisationunitid " +
+                "where psi.lastupdated >= '" + changed + "' and psi.executiondate is not null " +
+                "and pi.programid in (" + TextUtils.getCommaDelimitedString( programRules.keySet() ) + ") " +
+                "group by ou.path, cast(psi.executiondate as date), pi.programid";
+
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+            while ( rowSet.next() )
+            {
+                // Event data is aggregated to the ancestors of the event org unit
+
+                List<OrganisationUnit> eventOrgUnits = Arrays.stream( rowSet.getString( 1 ).split( "/" ) )
+                    .map( orgUnitUidMap::get )
+                    .filter( Objects::nonNull )
+                    .collect( Collectors.toList() );
+
+                if ( eventOrgUnits.isEmpty() )
+                {
+                    continue;
+                }
+
+                Date eventDate = rowSet.getDate( 2 );
+
+                for ( ValidationRule rule : programRules.get( rowSet.getLong( 3 ) ) )
+                {
+                    // Sliding windows reach back by the length of the period
+
+                    for ( Period period : getPeriods( periodTypePeriods, rule ) )
+                    {
+                        Date windowStart = DateUtils.getDateAfterAddition( period.getStartDate(),
+                            -period.frequencyOrder() );
+
+                        if ( !eventDate.before( windowStart ) && !eventDate.after( period.getEndDate() ) )
+                        {
+                            eventOrgUnits.forEach( ou -> scope.add( ou, period, rule ) );
+                        }
+                    }
+                }
+            }
+        }
+
+        return scope;
+    }
+
+    private List<Period> getPeriods( ListMap<PeriodType, Period> periodTypePeriods, ValidationRule rule )
+    {
+        return periodTypePeriods.getOrDefault( rule.getPeriodType(), Collections.emptyList() );
+    }
+
+    /**
+     * Indexes rules by the data elements and programs of the items in their
+     * expressions. Rules with no data element or program items, or with items
+     * or organisation unit groups whose changes are not tracked, are added to
+     * the unindexed rules instead.
+     *
+     * @param rules            the rules to index.
+     * @param dataElementRules the rules by data element id.
+     * @param programRules     the rules by program id.
+     * @param unindexedRules   the rules which cannot be indexed.
+     */
+    private void addRulesToIndex( Collection<ValidationRule> rules, SetMap<Long, ValidationRule> dataElementRules,
+        SetMap<Long, ValidationRule> programRules, Set<ValidationRule> unindexedRules )
+    {
+        SetMap<ValidationRule, DimensionalItemId> ruleItemIds = new SetMap<>();
+
+        for ( ValidationRule rule : rules )
+        {
+            ruleItemIds.putValues( rule, Sets.union(
+                expressionService.getDimensionalItemIdsInExpression( rule.getLeftSide().getExpression() ),
+                expressionService.getDimensionalItemIdsInExpression( rule.getRightSide().getExpression() ) ) );
+        }
+
+        Set<DimensionalItemId> allItemIds = ruleItemIds.values().stream()
+            .flatMap( Set::stream ).collect( Collectors.toSet() );
+
+        Map<DimensionalItemId, DimensionalItemObject> dimensionItemMap = dimensionService
+            .getDataDimensionalItemObjectMap( allItemIds );
+
+        for ( ValidationRule rule : rules )
+        {
+            boolean indexed = false;
+            boolean untracked = !expressionService.getOrganisationUnitGroupsInExpression( rule.getLeftSide().getExpression() ).isEmpty()
+                || !expressionService.getOrganisationUnitGroupsInExpression( rule.getRightSide().getExpression() ).isEmpty();
+
+            for ( DimensionalItemId itemId : ruleItemIds.getOrDefault( rule, Collections.emptySet() ) )
+            {
+                DimensionalItemObject item = dimensionItemMap.get( itemId );
+
+                if ( item == null )
+                {
+                    continue;
+                }
+
+                indexed = true;
+
+                switch ( item.getDimensionItemType() )
+                {
+                    case DATA_ELEMENT:
+                        dataElementRules.putValue( ( (DataElement) item ).getId(), rule );
+                        break;
+                    case DATA_ELEMENT_OPERAND:
+                        dataElementRules.putValue( ( (DataElementOperand) item ).getDataElement().getId(), rule );
+                        break;
+                    case PROGRAM_DATA_ELEMENT:
+                        programRules.putValue( ( (ProgramDataElementDimensionItem) item ).getProgram().getId(), rule );
+                        break;
+                    case PROGRAM_ATTRIBUTE:
+                        programRules.putValue(
+                            ( (ProgramTrackedEntityAttributeDimensionItem) item ).getProgram().getId(), rule );
+                        break;
+                    case PROGRAM_INDICATOR:
+                        programRules.putValue( ( (ProgramIndicator) item ).getProgram().getId(), rule );
+                        break;
+                    default:
+                        untracked = true;
+                        break;
+                }
+            }
+
+            if ( !indexed || untracked )
+            {
+                unindexedRules.add( rule );
+            }
+        }
+    }
+
+    /**
+     * Persists the validation results found by the analysis, skipping the
+     * results which were stored before. Results are inserted in bulk unless
+     * their period has not been stored yet.
+     *
+     * @param validationResults the validation results.
+     */
+    private void persistValidationResults( Collection<ValidationResult> validationResults )
+    {
+        BatchHandler<ValidationResult> batchHandler = batchHandlerFactory
+            .createBatchHandler( ValidationResultBatchHandler.class ).init();
+
+        List<ValidationResult> newPeriodResults = new ArrayList<>();
+
+        Date created = new Date();
+
+        for ( ValidationResult validationResult : validationResults )
+        {
+            if ( validationResult.getId() != 0 )
+            {
+                continue;
+            }
+
+            Period period = periodService.getPeriod( validationResult.getPeriod().getStartDate(),
+                validationResult.getPeriod().getEndDate(), validationResult.getPeriod().getPeriodType() );
+
+            if ( period == null )
+            {
+                newPeriodResults.add( validationResult );
+            }
+            else
+            {
+                validationResult.setPeriod( period );
+                validationResult.setCreated( created );
+                batchHandler.addObject( validationResult );
+            }
+        }
+
+        batchHandler.flush();
+
+        validationResultService.saveValidationResults( newPeriodResults );
+    }
+
     /**
      * Adds Periods to the context, grouped by period type.
      *
+     * Allowed period types are generated from all the requested periods,
+     * so that an incremental run restricted to some periods still sees
+     * data stored in the longer period types of the full request.
+     *
      * @param periodTypeXMap period type map to extended period types.
      * @param periods               periods to group and add.
+     * @param allPeriods            all periods requested for the validation.
      */
     private void addPeriodsToContext( Map<PeriodType, PeriodTypeExtended> periodTypeXMap,
-        Collection<Period> periods )
+        Collection<Period> periods, Collection<Period> allPeriods )
     {
         for ( Period period : periods )
         {
@@ -292,24 +595,29 @@ public class DefaultValidationService
             periodTypeX.addPeriod( period );
         }
 
-        generateAllowedPeriods( periodTypeXMap.values() );
+        Set<PeriodType> periodTypes = new HashSet<>( periodTypeXMap.keySet() );
+
+        allPeriods.forEach( period -> periodTypes.add( period.getPeriodType() ) );
+
+        generateAllowedPeriods( periodTypeXMap.values(), periodTypes );
     }
 
     /**
      * For each period type, allow all the longer period types in validation
      * queries.
      *
-     * @param periodTypeXs period types to generate allowed period types from.
+     * @param periodTypeXs period types to generate allowed period types for.
+     * @param periodTypes  period types which may be allowed.
      */
-    private void generateAllowedPeriods( Collection<PeriodTypeExtended> periodTypeXs )
+    private void generateAllowedPeriods( Collection<PeriodTypeExtended> periodTypeXs, Collection<PeriodType> periodTypes )
     {
         for ( PeriodTypeExtended p : periodTypeXs )
         {
-            for ( PeriodTypeExtended q : periodTypeXs )
+            for ( PeriodType q : periodTypes )
             {
-                if ( q.getPeriodType().getFrequencyOrder() >= p.getPeriodType().getFrequencyOrder() )
+                if ( q.getFrequencyOrder() >= p.getPeriodType().getFrequencyOrder() )
                 {
-                    p.getAllowedPeriodTypes().add( q.getPeriodType() );
+                    p.getAllowedPeriodTypes().add( q );
                 }
             }
         }
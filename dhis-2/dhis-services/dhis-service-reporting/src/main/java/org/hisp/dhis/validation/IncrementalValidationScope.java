@@ -1,4 +1,4 @@
-package org.hisp.dhis.dataanalysis;
+package org.hisp.dhis.validation;
 
 /*
  * Copyright (c) 2004-2018, University of Oslo
@@ -28,57 +28,72 @@ package org.hisp.dhis.dataanalysis;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+import java.util.HashSet;
+import java.util.Set;
+
 /**
- * DataAnalysisMeasures contains the average and standard deviation measures
- * of data for a given combination of organisation unit and
- * category option combo. (The data element is fixed.)
- *
- * @author Jim Grace
+ * The combinations of organisation unit, period and validation rule which
+ * are affected by changed data, and which an incremental validation run
+ * should evaluate.
  */
-public class DataAnalysisMeasures
+public class IncrementalValidationScope
 {
-    private long orgUnitId;
+    private final Set<String> keys = new HashSet<>();
 
-    private long categoryOptionComboId;
+    private final Set<OrganisationUnit> orgUnits = new HashSet<>();
 
-    private double average;
+    private final Set<Period> periods = new HashSet<>();
 
-    private double standardDeviation;
+    private final Set<ValidationRule> rules = new HashSet<>();
 
     // -------------------------------------------------------------------------
-    // Constructor
+    // Logic
     // -------------------------------------------------------------------------
 
-    public DataAnalysisMeasures( int orgUnitId, int categoryOptionComboId,
-        double average, double standardDeviation )
+    public void add( OrganisationUnit orgUnit, Period period, ValidationRule rule )
     {
-        this.orgUnitId = orgUnitId;
-        this.categoryOptionComboId = categoryOptionComboId;
-        this.average = average;
-        this.standardDeviation = standardDeviation;
+        if ( keys.add( getKey( orgUnit, period, rule ) ) )
+        {
+            orgUnits.add( orgUnit );
+            periods.add( period );
+            rules.add( rule );
+        }
     }
 
-    // -------------------------------------------------------------------------
-    // Getters
-    // -------------------------------------------------------------------------
+    public boolean contains( OrganisationUnit orgUnit, Period period, ValidationRule rule )
+    {
+        return keys.contains( getKey( orgUnit, period, rule ) );
+    }
 
-    public long getOrgUnitId()
+    public int size()
     {
-        return orgUnitId;
+        return keys.size();
     }
 
-    public long getCategoryOptionComboId()
+    private String getKey( OrganisationUnit orgUnit, Period period, ValidationRule rule )
+    {
+        return orgUnit.getUid() + "-" + period.getIsoDate() + "-" + rule.getUid();
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public Set<OrganisationUnit> getOrgUnits()
     {
-        return categoryOptionComboId;
+        return orgUnits;
     }
 
-    public double getAverage()
+    public Set<Period> getPeriods()
     {
-        return average;
+        return periods;
     }
 
-    public double getStandardDeviation()
+    public Set<ValidationRule> getRules()
     {
-        return standardDeviation;
+        return rules;
     }
 }
@@ -35,6 +35,7 @@ import org.hisp.dhis.category.CategoryOptionGroup;
 import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -53,7 +54,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class ValidationRunContext
 {
-    public static final int ORG_UNITS_PER_TASK = 500;
+    public static final int ORG_UNITS_PER_TASK = 100;
 
     private Queue<ValidationResult> validationResults;
 
@@ -83,6 +84,12 @@ public class ValidationRunContext
 
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
+    private IncrementalValidationScope incrementalScope;
+
+    private JobConfiguration jobConfiguration;
+
+    private volatile boolean cancelled = false;
+
     public ValidationRunContext()
     {
         validationResults = new ConcurrentLinkedQueue<>();
@@ -152,6 +159,11 @@ public class ValidationRunContext
         return persistResults;
     }
 
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
     public Queue<ValidationResult> getValidationResults()
     {
         return validationResults;
@@ -198,14 +210,32 @@ public class ValidationRunContext
 
     }
 
-    public int getNumberOfTasks()
+    /**
+     * Indicates whether the given combination should be validated. This is
+     * always the case unless the run is limited to an incremental scope.
+     */
+    public boolean isInScope( OrganisationUnit organisationUnit, ValidationRule validationRule, Period period )
+    {
+        return incrementalScope == null || incrementalScope.contains( organisationUnit, period, validationRule );
+    }
+
+    /**
+     * Stops the analysis. Tasks which are running finish at the next
+     * validation rule, and tasks which have not started do nothing.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
     {
-        return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
+        return cancelled;
     }
 
     public boolean isAnalysisComplete()
     {
-        return validationResults.size() >= maxResults;
+        return cancelled || validationResults.size() >= maxResults;
     }
 
     // -------------------------------------------------------------------------
@@ -337,6 +367,23 @@ public class ValidationRunContext
             return this;
         }
 
+        /**
+         * Limits the analysis to the combinations affected by changed data.
+         *
+         * @param incrementalScope null means that all combinations are validated
+         */
+        public Builder withIncrementalScope( IncrementalValidationScope incrementalScope )
+        {
+            this.context.incrementalScope = incrementalScope;
+            return this;
+        }
+
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.context.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
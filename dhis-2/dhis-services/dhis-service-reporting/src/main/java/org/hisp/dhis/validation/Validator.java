@@ -33,13 +33,18 @@ import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.system.notification.Notifier;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Evaluates validation rules.
@@ -48,51 +53,100 @@ import java.util.concurrent.TimeUnit;
  */
 public class Validator
 {
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    /**
+     * Work-stealing pool shared by validation runs of jobs, so that
+     * concurrent runs share the available threads instead of each creating
+     * their own.
+     */
+    private ForkJoinPool jobPool;
+
+    /**
+     * Work-stealing pool shared by interactive validation runs, kept apart
+     * from the job pool so that interactive runs do not queue behind
+     * monitoring jobs.
+     */
+    private ForkJoinPool interactivePool;
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
-     * independently in a multi-threaded environment.
+     * method breaks the job down into units of a small chunk of organisation
+     * units and a period type. Each unit is evaluated by a task on the job
+     * pool when the analysis is run by a job and on the interactive pool
+     * otherwise, so that idle threads pick up remaining units while others
+     * are still busy with expensive ones.
+     * <p/>
+     * If the calling thread is interrupted, for instance when the job running
+     * the analysis is stopped, the remaining units are cancelled and the
+     * results found so far are returned with the interrupt status kept.
      * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
      *
      * @return a collection of any validations that were found
      */
-    public static Collection<ValidationResult> validate( ValidationRunContext context,
-        ApplicationContext applicationContext, AnalyticsService analyticsService )
+    public Collection<ValidationResult> validate( ValidationRunContext context, AnalyticsService analyticsService )
     {
-        CategoryService categoryService = (CategoryService)
-            applicationContext.getBean( CategoryService.class );
-                
-        int threadPoolSize = getThreadPoolSize( context );
-
-        if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
+        if ( context.getOrgUnits().isEmpty() || context.getPeriodTypeXs().isEmpty() )
         {
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
+        Notifier notifier = context.getJobConfiguration() != null ?
+            (Notifier) applicationContext.getBean( Notifier.class ) : null;
 
         List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
 
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+        ForkJoinPool pool = context.getJobConfiguration() != null ? getJobPool() : getInteractivePool();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeXs() )
         {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
+            for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+            {
+                ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+                task.init( orgUnits, periodTypeX, context, analyticsService );
 
-            executor.execute( task );
+                futures.add( pool.submit( task ) );
+            }
         }
 
-        executor.shutdown();
+        int completed = 0;
 
-        try
-        {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
-        }
-        catch ( InterruptedException e )
+        for ( Future<?> future : futures )
         {
-            executor.shutdownNow();
+            try
+            {
+                future.get();
+            }
+            catch ( InterruptedException e )
+            {
+                context.cancel();
+
+                futures.forEach( f -> f.cancel( false ) );
+
+                Thread.currentThread().interrupt();
+
+                break;
+            }
+            catch ( ExecutionException | CancellationException e )
+            {
+                // Already logged by the task, continue with the other units
+            }
+
+            completed++;
+
+            if ( notifier != null )
+            {
+                notifier.notify( context.getJobConfiguration(),
+                    "Validated " + completed + " of " + futures.size() + " units" );
+            }
         }
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
@@ -100,29 +154,59 @@ public class Validator
         return context.getValidationResults();
     }
 
+    @PreDestroy
+    public synchronized void destroy()
+    {
+        if ( jobPool != null )
+        {
+            jobPool.shutdownNow();
+        }
+
+        if ( interactivePool != null )
+        {
+            interactivePool.shutdownNow();
+        }
+    }
+
     /**
-     * Determines how many threads we should use for testing validation rules.
-     * 
-     * @param context validation run context
-     * @return number of threads we should use for testing validation rules
+     * Gets the pool for validation runs of jobs, creating it on first use.
+     *
+     * @return the pool for evaluating validation tasks of jobs
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private synchronized ForkJoinPool getJobPool()
     {
-        int threadPoolSize = SystemUtils.getCpuCores();
-
-        if ( threadPoolSize > 2 )
+        if ( jobPool == null )
         {
-            threadPoolSize--;
+            jobPool = new ForkJoinPool( getParallelism() );
         }
 
-        int numberOfTasks = context.getNumberOfTasks();
+        return jobPool;
+    }
 
-        if ( threadPoolSize > numberOfTasks )
+    /**
+     * Gets the pool for interactive validation runs, creating it on first use.
+     *
+     * @return the pool for evaluating interactive validation tasks
+     */
+    private synchronized ForkJoinPool getInteractivePool()
+    {
+        if ( interactivePool == null )
         {
-            threadPoolSize = numberOfTasks;
+            interactivePool = new ForkJoinPool( getParallelism() );
         }
 
-        return threadPoolSize;
+        return interactivePool;
+    }
+
+    /**
+     * Leaves one processor free for the rest of the system when there are
+     * more than two.
+     */
+    private int getParallelism()
+    {
+        int parallelism = SystemUtils.getCpuCores();
+
+        return parallelism > 2 ? parallelism - 1 : parallelism;
     }
 
     /**
@@ -131,7 +215,7 @@ public class Validator
      * @param results
      * @param dataElementCategoryService
      */
-    private static void reloadAttributeOptionCombos( Collection<ValidationResult> results,
+    private void reloadAttributeOptionCombos( Collection<ValidationResult> results,
         CategoryService dataElementCategoryService )
     {
         for ( ValidationResult result : results )
@@ -47,6 +47,8 @@ import org.hisp.dhis.scheduling.AbstractJob;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
 import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.validation.ValidationAnalysisParams;
 import org.hisp.dhis.validation.ValidationRule;
@@ -81,6 +83,9 @@ public class MonitoringJob
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -100,7 +105,9 @@ public class MonitoringJob
         MonitoringJobParameters monitoringJobParameters = (MonitoringJobParameters) jobConfiguration.getJobParameters();
 
         //TODO improve collection usage
-        
+
+        Date startTime = new Date();
+
         try
         {
             List<Period> periods;
@@ -146,10 +153,21 @@ public class MonitoringJob
                 .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
                 .withSendNotifications( monitoringJobParameters.isSendNotifications() )
                 .withPersistResults( monitoringJobParameters.isPersistResults() )
+                .withChangedSince( monitoringJobParameters.isIncremental() ? getLastSuccessfulMonitoring() : null )
+                .withJobConfiguration( jobConfiguration )
                 .build();
 
             validationService.validationAnalysis( parameters );
 
+            if ( Thread.currentThread().isInterrupted() )
+            {
+                notifier.notify( jobConfiguration, INFO, "Monitoring process cancelled", true );
+
+                return;
+            }
+
+            systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_MONITORING, startTime );
+
             notifier.notify( jobConfiguration, INFO, "Monitoring process done", true );
         }
         catch ( RuntimeException ex )
@@ -162,4 +180,13 @@ public class MonitoringJob
         }
     }
 
+    /**
+     * Gets the start time of the last successful monitoring run, or null if
+     * there has been none, in which case all data is validated.
+     */
+    private Date getLastSuccessfulMonitoring()
+    {
+        return (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_MONITORING );
+    }
+
 }
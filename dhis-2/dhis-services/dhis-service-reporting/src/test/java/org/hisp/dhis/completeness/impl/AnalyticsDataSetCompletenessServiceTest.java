@@ -0,0 +1,306 @@
+package org.hisp.dhis.completeness.impl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
+import org.hisp.dhis.completeness.DataSetCompletenessStore;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.dbms.DbmsManager;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+public class AnalyticsDataSetCompletenessServiceTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private DataSetService dataSetService;
+
+    @Mock
+    private PeriodService periodService;
+
+    @Mock
+    private DataSetCompletenessStore completenessStore;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private DbmsManager dbmsManager;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @InjectMocks
+    private AnalyticsDataSetCompletenessService completenessService;
+
+    private Period periodA;
+
+    private DataSet dataSetA;
+
+    private OrganisationUnit unitA;
+
+    private OrganisationUnitGroup groupA;
+
+    private Date lastUpdate;
+
+    @Before
+    public void setUp()
+    {
+        periodA = createPeriod( new QuarterlyPeriodType(), getDate( 2018, 1, 1 ), getDate( 2018, 3, 31 ) );
+        periodA.setId( 1 );
+
+        unitA = createOrganisationUnit( 'A' );
+        unitA.setId( 2 );
+        unitA.setPath( "/" + unitA.getUid() );
+
+        dataSetA = createDataSet( 'A', new MonthlyPeriodType() );
+        dataSetA.setId( 3 );
+        dataSetA.addOrganisationUnit( unitA );
+
+        groupA = createOrganisationUnitGroup( 'A' );
+        groupA.setId( 4 );
+        groupA.addOrganisationUnit( unitA );
+
+        lastUpdate = getDate( 2018, 4, 2 );
+
+        when( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "false" );
+        when( env.getActiveProfiles() ).thenReturn( new String[] {} );
+        when( cacheProvider.newCacheBuilder( DataSetCompletenessResult.class ) ).thenReturn( new CacheBuilder<>( null, configurationProvider ) );
+
+        when( periodService.getPeriod( periodA.getId() ) ).thenReturn( periodA );
+        when( periodService.getPeriodsBetweenDates( any(), any(), any() ) ).thenReturn( newArrayList( periodA ) );
+        when( dataSetService.getDataSet( dataSetA.getId() ) ).thenReturn( dataSetA );
+        when( dataSetService.getAllDataSets() ).thenReturn( newArrayList( dataSetA ) );
+        when( organisationUnitService.getOrganisationUnit( unitA.getId() ) ).thenReturn( unitA );
+        when( organisationUnitService.getOrganisationUnits( anyCollection() ) ).thenReturn( newArrayList( unitA ) );
+        when( organisationUnitService.getOrganisationUnitHierarchy() ).thenReturn( new OrganisationUnitHierarchy( new HashMap<>() ) );
+        when( idObjectManager.getObjects( eq( OrganisationUnitGroup.class ), anyCollection() ) ).thenReturn( newArrayList( groupA ) );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenAnswer( invocation -> lastUpdate );
+        when( dbmsManager.tableExists( AnalyticsTableType.COMPLETENESS.getTableName() ) ).thenReturn( true );
+        when( dbmsManager.tableExists( AnalyticsTableType.COMPLETENESS_TARGET.getTableName() ) ).thenReturn( true );
+
+        when( completenessStore.getAnalyticsCompleteness( any(), any(), any(), anyInt() ) ).thenReturn( newArrayList( getCounts( 2, 5, 4 ) ) );
+        when( completenessStore.getCompleteDataSetRegistrations( any(), any(), any() ) ).thenReturn( 1 );
+        when( completenessStore.getCompleteDataSetRegistrationsWithTimeliness( any(), any(), any() ) ).thenReturn( 1 );
+
+        completenessService.init();
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testGetDataSetCompletenessForOrganisationUnits()
+    {
+        List<DataSetCompletenessResult> results = completenessService.getDataSetCompleteness(
+            periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null );
+
+        assertEquals( 1, results.size() );
+
+        // Sources are expected reports, three monthly reports per quarter
+
+        assertResult( results.get( 0 ), 6, 5, 4 );
+        assertEquals( unitA.getName(), results.get( 0 ).getName() );
+        assertEquals( periodA.getName(), results.get( 0 ).getPeriodName() );
+
+        verify( completenessStore ).getAnalyticsCompleteness( newArrayList( dataSetA ), periodA, newArrayList( unitA ), 1 );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessForDataSets()
+    {
+        List<DataSetCompletenessResult> results = completenessService.getDataSetCompleteness( periodA.getId(), unitA.getId(), null );
+
+        assertEquals( 1, results.size() );
+
+        assertResult( results.get( 0 ), 6, 5, 4 );
+        assertEquals( dataSetA.getName(), results.get( 0 ).getName() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessSkipsDataSetsWithoutSources()
+    {
+        when( completenessStore.getAnalyticsCompleteness( any(), any(), any(), anyInt() ) ).thenReturn( newArrayList() );
+
+        assertTrue( completenessService.getDataSetCompleteness( periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null ).isEmpty() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessIsCachedUntilAnalyticsUpdate()
+    {
+        completenessService.getDataSetCompleteness( periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null );
+        completenessService.getDataSetCompleteness( periodA.getId(), unitA.getId(), null );
+
+        verify( completenessStore, times( 1 ) ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+
+        lastUpdate = getDate( 2018, 4, 3 );
+
+        completenessService.getDataSetCompleteness( periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null );
+
+        verify( completenessStore, times( 2 ) ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessIsCachedWithRedis()
+    {
+        when( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "true" );
+        when( cacheProvider.newCacheBuilder( DataSetCompletenessResult.class ) ).thenReturn( new CacheBuilder<>( null, configurationProvider ) );
+
+        completenessService.init();
+
+        completenessService.getDataSetCompleteness( periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null );
+        completenessService.getDataSetCompleteness( periodA.getId(), unitA.getId(), null );
+
+        verify( completenessStore, times( 1 ) ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessWithGroupsUsesRegistrations()
+    {
+        List<DataSetCompletenessResult> results = completenessService.getDataSetCompleteness(
+            periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), newHashSet( groupA.getId() ) );
+
+        assertEquals( 1, results.size() );
+        assertResult( results.get( 0 ), 3, 1, 1 );
+
+        verify( completenessStore, never() ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+        verify( dbmsManager, never() ).tableExists( any() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessWithoutTablesUsesRegistrations()
+    {
+        when( dbmsManager.tableExists( AnalyticsTableType.COMPLETENESS_TARGET.getTableName() ) ).thenReturn( false );
+
+        List<DataSetCompletenessResult> results = completenessService.getDataSetCompleteness( periodA.getId(), unitA.getId(), null );
+
+        assertEquals( 1, results.size() );
+        assertResult( results.get( 0 ), 3, 1, 1 );
+
+        verify( completenessStore, never() ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+    }
+
+    @Test
+    public void testGetDataSetCompletenessWithoutAnalyticsUpdateUsesRegistrations()
+    {
+        lastUpdate = null;
+
+        List<DataSetCompletenessResult> results = completenessService.getDataSetCompleteness(
+            periodA.getId(), newArrayList( unitA.getId() ), dataSetA.getId(), null );
+
+        assertEquals( 1, results.size() );
+        assertResult( results.get( 0 ), 3, 1, 1 );
+
+        verify( completenessStore, never() ).getAnalyticsCompleteness( any(), any(), any(), anyInt() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataSetCompletenessResult getCounts( int sources, int registrations, int registrationsOnTime )
+    {
+        DataSetCompletenessResult result = new DataSetCompletenessResult();
+        result.setDataSetId( dataSetA.getId() );
+        result.setOrganisationUnitId( unitA.getId() );
+        result.setSources( sources );
+        result.setRegistrations( registrations );
+        result.setRegistrationsOnTime( registrationsOnTime );
+
+        return result;
+    }
+
+    private void assertResult( DataSetCompletenessResult result, int sources, int registrations, int registrationsOnTime )
+    {
+        assertEquals( sources, result.getSources() );
+        assertEquals( registrations, result.getRegistrations() );
+        assertEquals( registrationsOnTime, result.getRegistrationsOnTime() );
+        assertEquals( dataSetA.getId(), result.getDataSetId() );
+        assertEquals( periodA.getId(), result.getPeriodId() );
+        assertEquals( unitA.getId(), result.getOrganisationUnitId() );
+    }
+}
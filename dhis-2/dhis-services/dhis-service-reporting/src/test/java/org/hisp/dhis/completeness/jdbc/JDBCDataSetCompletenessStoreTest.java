@@ -0,0 +1,177 @@
+package org.hisp.dhis.completeness.jdbc;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.jdbc.statementbuilder.PostgreSQLStatementBuilder;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+public class JDBCDataSetCompletenessStoreTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private SqlRowSet targetRowSet;
+
+    @Mock
+    private SqlRowSet registrationRowSet;
+
+    private JDBCDataSetCompletenessStore completenessStore;
+
+    private Period periodA;
+
+    private DataSet dataSetA;
+
+    private OrganisationUnit unitA;
+
+    private OrganisationUnit unitB;
+
+    @Before
+    public void setUp()
+    {
+        completenessStore = new JDBCDataSetCompletenessStore();
+        completenessStore.setJdbcTemplate( jdbcTemplate );
+        completenessStore.setStatementBuilder( new PostgreSQLStatementBuilder() );
+        completenessStore.setOrganisationUnitService( organisationUnitService );
+
+        periodA = createPeriod( new MonthlyPeriodType(), getDate( 2018, 1, 1 ), getDate( 2018, 1, 31 ) );
+
+        dataSetA = createDataSet( 'A', new MonthlyPeriodType() );
+        dataSetA.setId( 1 );
+
+        unitA = createOrganisationUnit( 'A' );
+        unitA.setId( 2 );
+
+        unitB = createOrganisationUnit( 'B' );
+        unitB.setId( 3 );
+
+        when( jdbcTemplate.queryForRowSet( contains( "FROM " + AnalyticsTableType.COMPLETENESS_TARGET.getTableName() + " " ) ) ).thenReturn( targetRowSet );
+        when( jdbcTemplate.queryForRowSet( contains( "FROM " + AnalyticsTableType.COMPLETENESS.getTableName() + " " ) ) ).thenReturn( registrationRowSet );
+    }
+
+    @Test
+    public void testGetAnalyticsCompleteness()
+    {
+        when( targetRowSet.next() ).thenReturn( true, true, false );
+        when( targetRowSet.getString( 1 ) ).thenReturn( dataSetA.getUid(), dataSetA.getUid() );
+        when( targetRowSet.getString( 2 ) ).thenReturn( unitA.getUid(), unitB.getUid() );
+        when( targetRowSet.getInt( 3 ) ).thenReturn( 4, 2 );
+
+        when( registrationRowSet.next() ).thenReturn( true, false );
+        when( registrationRowSet.getString( 1 ) ).thenReturn( dataSetA.getUid() );
+        when( registrationRowSet.getString( 2 ) ).thenReturn( unitA.getUid() );
+        when( registrationRowSet.getInt( 3 ) ).thenReturn( 3 );
+        when( registrationRowSet.getInt( 4 ) ).thenReturn( 2 );
+
+        List<DataSetCompletenessResult> results = completenessStore.getAnalyticsCompleteness(
+            newArrayList( dataSetA ), periodA, newArrayList( unitA, unitB ), 2 );
+
+        results.sort( Comparator.comparingLong( DataSetCompletenessResult::getOrganisationUnitId ) );
+
+        assertEquals( 2, results.size() );
+        assertResult( results.get( 0 ), unitA, 4, 3, 2 );
+        assertResult( results.get( 1 ), unitB, 2, 0, 0 );
+
+        verify( jdbcTemplate, times( 2 ) ).queryForRowSet( contains( "\"uidlevel2\" IN ( '" ) );
+        verify( jdbcTemplate ).queryForRowSet( contains( "AND \"monthly\" = '201801' " ) );
+    }
+
+    @Test
+    public void testGetAnalyticsCompletenessCountsDistinctOrganisationUnits()
+    {
+        when( organisationUnitService.getNumberOfOrganisationalLevels() ).thenReturn( 4 );
+
+        completenessStore.getAnalyticsCompleteness( newArrayList( dataSetA ), periodA, newArrayList( unitA, unitB ), 2 );
+
+        verify( jdbcTemplate ).queryForRowSet( contains( "COUNT( DISTINCT COALESCE( \"uidlevel4\", \"uidlevel3\", \"uidlevel2\" ) )" ) );
+
+        when( organisationUnitService.getNumberOfOrganisationalLevels() ).thenReturn( 2 );
+
+        completenessStore.getAnalyticsCompleteness( newArrayList( dataSetA ), periodA, newArrayList( unitA, unitB ), 2 );
+
+        verify( jdbcTemplate ).queryForRowSet( contains( "COUNT( DISTINCT \"uidlevel2\" )" ) );
+    }
+
+    @Test
+    public void testGetAnalyticsCompletenessWithoutOrganisationUnits()
+    {
+        assertTrue( completenessStore.getAnalyticsCompleteness( newArrayList( dataSetA ), periodA, newArrayList(), 2 ).isEmpty() );
+        assertTrue( completenessStore.getAnalyticsCompleteness( newArrayList(), periodA, newArrayList( unitA ), 2 ).isEmpty() );
+
+        verifyZeroInteractions( jdbcTemplate );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void assertResult( DataSetCompletenessResult result, OrganisationUnit unit, int sources,
+        int registrations, int registrationsOnTime )
+    {
+        assertEquals( dataSetA.getId(), result.getDataSetId() );
+        assertEquals( unit.getId(), result.getOrganisationUnitId() );
+        assertEquals( sources, result.getSources() );
+        assertEquals( registrations, result.getRegistrations() );
+        assertEquals( registrationsOnTime, result.getRegistrationsOnTime() );
+    }
+}
@@ -0,0 +1,153 @@
+package org.hisp.dhis.datasetreport.jdbc;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.hisp.dhis.common.DimensionalObjectUtils.COMPOSITE_DIM_OBJECT_PLAIN_SEP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsService;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.DataQueryService;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.datasetreport.DataSetReportStore;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class AnalyticsDataSetReportStoreTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DataQueryService dataQueryService;
+
+    @Mock
+    private AnalyticsService analyticsService;
+
+    @InjectMocks
+    private AnalyticsDataSetReportStore dataSetReportStore;
+
+    private CategoryOptionCombo optionComboA;
+
+    private CategoryOptionCombo optionComboB;
+
+    private DataElement dataElementA;
+
+    private Indicator indicatorA;
+
+    private DataSet dataSetA;
+
+    private Period periodA;
+
+    private OrganisationUnit unitA;
+
+    @Before
+    public void setUp()
+    {
+        optionComboA = createCategoryOptionCombo( 'A' );
+        optionComboB = createCategoryOptionCombo( 'B' );
+
+        CategoryCombo categoryComboA = createCategoryCombo( 'A' );
+        categoryComboA.setOptionCombos( newHashSet( optionComboA, optionComboB ) );
+
+        dataElementA = createDataElement( 'A', categoryComboA );
+
+        indicatorA = createIndicator( 'A', createIndicatorType( 'A' ) );
+
+        dataSetA = createDataSet( 'A', new MonthlyPeriodType() );
+        dataSetA.addDataSetElement( dataElementA );
+        dataSetA.addIndicator( indicatorA );
+
+        periodA = createPeriod( "201801" );
+
+        unitA = createOrganisationUnit( 'A' );
+    }
+
+    @Test
+    public void testGetAggregatedReportValues()
+    {
+        String suffix = DataSetReportStore.SEPARATOR + periodA.getIsoDate() + DataSetReportStore.SEPARATOR + unitA.getUid();
+
+        Map<String, Object> values = new HashMap<>();
+        values.put( dataElementA.getUid() + COMPOSITE_DIM_OBJECT_PLAIN_SEP + optionComboA.getUid() + suffix, 3d );
+        values.put( dataElementA.getUid() + COMPOSITE_DIM_OBJECT_PLAIN_SEP + optionComboB.getUid() + suffix, 4d );
+        values.put( dataElementA.getUid() + suffix, 7d );
+        values.put( indicatorA.getUid() + suffix, 1.5d );
+
+        when( analyticsService.getAggregatedDataValueMapping( any( DataQueryParams.class ) ) ).thenReturn( values );
+
+        Map<String, Object> map = dataSetReportStore.getAggregatedReportValues( dataSetA, periodA, unitA, null );
+
+        assertEquals( 4, map.size() );
+        assertEquals( 3d, map.get( dataElementA.getUid() + DataSetReportStore.SEPARATOR + optionComboA.getUid() ) );
+        assertEquals( 4d, map.get( dataElementA.getUid() + DataSetReportStore.SEPARATOR + optionComboB.getUid() ) );
+        assertEquals( 7d, map.get( dataElementA.getUid() ) );
+        assertEquals( 1.5d, map.get( indicatorA.getUid() ) );
+
+        // Totals, values and indicators are fetched with one query
+
+        ArgumentCaptor<DataQueryParams> captor = ArgumentCaptor.forClass( DataQueryParams.class );
+
+        verify( analyticsService ).getAggregatedDataValueMapping( captor.capture() );
+
+        DataQueryParams params = captor.getValue();
+
+        assertEquals( 1, params.getDataElements().size() );
+        assertTrue( params.getDataElements().contains( dataElementA ) );
+        assertEquals( 2, params.getDataElementOperands().size() );
+        assertTrue( params.getDataElementOperands().contains( new DataElementOperand( dataElementA, optionComboA ) ) );
+        assertTrue( params.getDataElementOperands().contains( new DataElementOperand( dataElementA, optionComboB ) ) );
+        assertEquals( 1, params.getIndicators().size() );
+        assertTrue( params.getIndicators().contains( indicatorA ) );
+    }
+}
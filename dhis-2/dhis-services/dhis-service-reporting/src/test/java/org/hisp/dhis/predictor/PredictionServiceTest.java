@@ -72,6 +72,8 @@ import java.util.Set;
 import static com.google.common.collect.Sets.newHashSet;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_DAYS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Lars Helge Overland
@@ -490,6 +492,109 @@ public class PredictionServiceTest
         assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
     }
 
+    @Test
+    public void testPredictTaskWithDependentPredictors()
+    {
+        useDataValue( dataElementB, makeMonth( 2001, 6 ), sourceA, 5 );
+
+        dataValueBatchHandler.flush();
+
+        Expression expressionX = new Expression( "avg(#{" + dataElementX.getUid() + "})", "descriptionX" );
+
+        expressionService.addExpression( expressionX );
+
+        Predictor predictorX = createPredictor( dataElementX, defaultCombo, "DependentX",
+            expressionB, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorY = createPredictor( dataElementY, defaultCombo, "DependentY",
+            expressionX, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorX );
+        predictorService.addPredictor( predictorY );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 9 ),
+            Lists.newArrayList( predictorX.getUid(), predictorY.getUid() ), null, null );
+
+        assertEquals( "Pred 2 Ins 2 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 8 ) ) );
+
+        assertTrue( summary.getSampleCacheBytes() > 0 );
+    }
+
+    @Test
+    public void testPredictTaskSharesSamplesBetweenPredictors()
+    {
+        useDataValue( dataElementB, makeMonth( 2001, 6 ), sourceA, 5 );
+
+        dataValueBatchHandler.flush();
+
+        Expression expressionB2 = new Expression( "avg(#{" + dataElementB.getUid() + "." + defaultCombo.getUid() + "})", "descriptionB2" );
+
+        expressionService.addExpression( expressionB2 );
+
+        // Both predictors read dataElementB. They write the same data element,
+        // so they run one after the other and the second finds the samples
+
+        Predictor predictorDefault = createPredictor( dataElementX, defaultCombo, "SharedDefault",
+            expressionB, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorAlt = createPredictor( dataElementX, altCombo, "SharedAlt",
+            expressionB2, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorDefault );
+        predictorService.addPredictor( predictorAlt );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 8 ),
+            Lists.newArrayList( predictorDefault.getUid(), predictorAlt.getUid() ), null, null );
+
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementX, altCombo, sourceA, makeMonth( 2001, 7 ) ) );
+
+        assertTrue( summary.getSampleCacheHitRatio() > 0 );
+    }
+
+    @Test
+    public void testPredictTaskDoesNotReadStaleSamples()
+    {
+        useDataValue( dataElementB, makeMonth( 2001, 6 ), sourceA, 5 );
+        useDataValue( dataElementX, makeMonth( 2001, 6 ), sourceA, 1 );
+
+        dataValueBatchHandler.flush();
+
+        Expression expressionX1 = new Expression( "avg(#{" + dataElementX.getUid() + "})", "descriptionX1" );
+        Expression expressionX2 = new Expression( "avg(#{" + dataElementX.getUid() + "})", "descriptionX2" );
+
+        expressionService.addExpression( expressionX1 );
+        expressionService.addExpression( expressionX2 );
+
+        // The first predictor caches the samples of dataElementX before the
+        // second writes to it, and the third must read the written values
+
+        Predictor predictorReadBefore = createPredictor( dataElementC, defaultCombo, "ReadBefore",
+            expressionX1, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorWrite = createPredictor( dataElementX, defaultCombo, "Write",
+            expressionB, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorReadAfter = createPredictor( dataElementY, defaultCombo, "ReadAfter",
+            expressionX2, null, periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorReadBefore );
+        predictorService.addPredictor( predictorWrite );
+        predictorService.addPredictor( predictorReadAfter );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 9 ),
+            Lists.newArrayList( predictorReadBefore.getUid(), predictorWrite.getUid(), predictorReadAfter.getUid() ), null, null );
+
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertNull( getDataValue( dataElementC, defaultCombo, sourceA, makeMonth( 2001, 8 ) ) );
+
+        assertEquals( "1.0", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 8 ) ) );
+    }
+
     @Test
     public void testPredictSequential()
     {
@@ -30,11 +30,15 @@ package org.hisp.dhis.validation;
 
 import com.google.common.collect.Lists;
 import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ReportingRateMetric;
 import org.hisp.dhis.dataelement.*;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
@@ -43,10 +47,12 @@ import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DataValueStore;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.mock.MockAnalyticsService;
 import org.hisp.dhis.mock.MockCurrentUserService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.*;
+import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.junit.Test;
@@ -56,6 +62,7 @@ import java.util.*;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
+import static org.hisp.dhis.analytics.DataQueryParams.VALUE_ID;
 import static org.hisp.dhis.expression.Expression.SEPARATOR;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_DAYS;
 import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
@@ -94,6 +101,9 @@ public class ValidationServiceTest
     @Autowired
     private OrganisationUnitService organisationUnitService;
 
+    @Autowired
+    private AnalyticsService analyticsService;
+
     @Autowired
     private PeriodService periodService;
 
@@ -648,6 +658,117 @@ public class ValidationServiceTest
         assertResultsEquals( reference, results );
     }
 
+    @Test
+    public void testValidateChangedSince()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleC ); // Valid
+
+        List<ValidationRule> validationRules = Lists.newArrayList( validationRuleA, validationRuleC );
+        List<Period> periods = Lists.newArrayList( periodA, periodB );
+
+        ValidationAnalysisParams params = validationService.newParamsBuilder( validationRules, sourceA, periods )
+            .withIncludeOrgUnitDescendants( true )
+            .withChangedSince( getDate( 2000, 1, 1 ) ).build();
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( params );
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( new ValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, results );
+
+        params = validationService.newParamsBuilder( validationRules, sourceA, periods )
+            .withIncludeOrgUnitDescendants( true )
+            .withChangedSince( getDate( 2100, 1, 1 ) ).build();
+
+        assertResultsEmpty( validationService.validationAnalysis( params ) );
+    }
+
+    @Test
+    public void testValidateChangedSinceWithLongerPeriodData()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodY, sourceA, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+
+        List<ValidationRule> validationRules = Lists.newArrayList( validationRuleA );
+        List<Period> periods = Lists.newArrayList( periodA, periodY );
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( new ValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        ValidationAnalysisParams params = validationService.newParamsBuilder( validationRules, sourceA, periods )
+            .withIncludeOrgUnitDescendants( true ).build();
+
+        assertResultsEquals( reference, validationService.validationAnalysis( params ) );
+
+        params = validationService.newParamsBuilder( validationRules, sourceA, periods )
+            .withIncludeOrgUnitDescendants( true )
+            .withChangedSince( getDate( 2000, 1, 1 ) ).build();
+
+        assertResultsEquals( reference, validationService.validationAnalysis( params ) );
+    }
+
+    @Test
+    public void testValidateChangedSinceWithReportingRate()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+
+        Expression expressionDataElement = new Expression( "#{" + dataElementA.getUid() + "}", "expressionDataElement" );
+        Expression expressionReportingRate = new Expression( "R{" + dataSetMonthly.getUid() + SEPARATOR
+            + ReportingRateMetric.REPORTING_RATE.name() + "}", "expressionReportingRate" );
+
+        expressionService.addExpression( expressionDataElement );
+        expressionService.addExpression( expressionReportingRate );
+
+        ValidationRule validationRuleW = createValidationRule( "W", compulsory_pair, expressionDataElement,
+            expressionReportingRate, periodTypeMonthly ); // deA [Compulsory pair] reporting rate
+
+        validationRuleService.saveValidationRule( validationRuleA );
+        validationRuleService.saveValidationRule( validationRuleW );
+
+        ListGrid grid = new ListGrid();
+        grid.addHeader( new GridHeader( DimensionalObject.DATA_X_DIM_ID ) );
+        grid.addHeader( new GridHeader( DimensionalObject.ORGUNIT_DIM_ID ) );
+        grid.addHeader( new GridHeader( VALUE_ID ) );
+
+        MockAnalyticsService mockAnalyticsService = new MockAnalyticsService();
+        mockAnalyticsService.setGrid( grid );
+
+        setDependency( validationService, "analyticsService", mockAnalyticsService, AnalyticsService.class );
+
+        try
+        {
+            // Rules on reporting rates are validated although no data values changed
+
+            ValidationAnalysisParams params = validationService.newParamsBuilder( Lists.newArrayList( validationRuleA, validationRuleW ),
+                sourceA, Lists.newArrayList( periodA, periodB ) )
+                .withIncludeOrgUnitDescendants( true )
+                .withChangedSince( getDate( 2100, 1, 1 ) ).build();
+
+            Collection<ValidationResult> results = validationService.validationAnalysis( params );
+            Collection<ValidationResult> reference = new HashSet<>();
+
+            reference.add( new ValidationResult( validationRuleW, periodA, sourceA, defaultCombo, 1.0, 0.0, dayInPeriodA ) );
+
+            assertResultsEquals( reference, results );
+        }
+        finally
+        {
+            setDependency( validationService, "analyticsService", analyticsService, AnalyticsService.class );
+        }
+    }
+
     @Test
     public void testValidateDataSetPeriodSource()
     {
@@ -0,0 +1,56 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Utilities for data analysis SQL shared by the outlier analysis and the
+ * generation of min-max values.
+ */
+public class DataAnalysisUtils
+{
+    private DataAnalysisUtils()
+    {
+    }
+
+    /**
+     * Returns the select columns lowbound and highbound with the average of the
+     * given value minus and plus the given number of standard deviations,
+     * rounded. The query must group the values by the dimensions of the bounds.
+     *
+     * @param value        the SQL expression of the numeric value.
+     * @param stdDevFactor the number of standard deviations from the average.
+     * @return the select columns of the bounds, followed by a space.
+     */
+    public static String getStdDevBoundsColumns( String value, double stdDevFactor )
+    {
+        return
+            "round( avg( " + value + " ) - stddev_pop( " + value + " ) * " + stdDevFactor + " ) as lowbound, " +
+            "round( avg( " + value + " ) + stddev_pop( " + value + " ) * " + stdDevFactor + " ) as highbound ";
+    }
+}
@@ -1,168 +1,200 @@
-package org.hisp.dhis.dataanalysis;
-
-/*
- * Copyright (c) 2004-2018, University of Oslo
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * Redistributions of source code must retain the above copyright notice, this
- * list of conditions and the following disclaimer.
- *
- * Redistributions in binary form must reproduce the above copyright notice,
- * this list of conditions and the following disclaimer in the documentation
- * and/or other materials provided with the distribution.
- * Neither the name of the HISP project nor the names of its contributors may
- * be used to endorse or promote products derived from this software without
- * specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
- * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
- * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
- * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-
-import java.util.Collection;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.hisp.dhis.category.CategoryOptionCombo;
-import org.hisp.dhis.common.ValueType;
-import org.hisp.dhis.dataelement.DataElement;
-import org.hisp.dhis.datavalue.DeflatedDataValue;
-import org.hisp.dhis.jdbc.batchhandler.MinMaxDataElementBatchHandler;
-import org.hisp.dhis.minmax.MinMaxDataElement;
-import org.hisp.dhis.minmax.MinMaxDataElementService;
-import org.hisp.dhis.organisationunit.OrganisationUnit;
-import org.hisp.dhis.period.Period;
-import org.hisp.dhis.system.util.MathUtils;
-import org.hisp.quick.BatchHandler;
-import org.hisp.quick.BatchHandlerFactory;
-import org.joda.time.DateTime;
-
-import com.google.common.collect.Lists;
-
-/**
- * @author Lars Helge Overland
- */
-public class MinMaxOutlierAnalysisService
-    implements MinMaxDataAnalysisService
-{
-    private static final Log log = LogFactory.getLog( MinMaxOutlierAnalysisService.class );
-
-    // -------------------------------------------------------------------------
-    // Dependencies
-    // -------------------------------------------------------------------------
-
-    private DataAnalysisStore dataAnalysisStore;
-
-    public void setDataAnalysisStore( DataAnalysisStore dataAnalysisStore )
-    {
-        this.dataAnalysisStore = dataAnalysisStore;
-    }
-
-    private MinMaxDataElementService minMaxDataElementService;
-
-    public void setMinMaxDataElementService( MinMaxDataElementService minMaxDataElementService )
-    {
-        this.minMaxDataElementService = minMaxDataElementService;
-    }
-
-    private BatchHandlerFactory batchHandlerFactory;
-
-    public void setBatchHandlerFactory( BatchHandlerFactory batchHandlerFactory )
-    {
-        this.batchHandlerFactory = batchHandlerFactory;
-    }
-
-    // -------------------------------------------------------------------------
-    // DataAnalysisService implementation
-    // -------------------------------------------------------------------------
-
-    @Override
-    public List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
-        Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from )
-    {
-        Set<DataElement> elements = dataElements.stream()
-            .filter( de -> ValueType.NUMERIC_TYPES.contains( de.getValueType() ) )
-            .collect( Collectors.toSet() );
-        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
-
-        for ( DataElement dataElement : elements )
-        {
-            categoryOptionCombos.addAll( dataElement.getCategoryOptionCombos() );
-        }
-
-        log.debug( "Starting min-max analysis, no of data elements: " + elements.size() + ", no of parent org units: " + parents.size() );
-
-        return dataAnalysisStore.getMinMaxViolations( elements, categoryOptionCombos, periods, parents, MAX_OUTLIERS );
-    }
-
-    @Override
-    public void generateMinMaxValues( OrganisationUnit parent, Collection<DataElement> dataElements, Double stdDevFactor )
-    {
-        log.info( "Starting min-max value generation, no of data elements: " + dataElements.size() + ", parent: " + parent.getUid() );
-
-        //Set<Integer> orgUnitIds = new HashSet<>( IdentifiableObjectUtils.getIdentifiers( organisationUnits ) );
-
-        Date from = new DateTime( 1, 1, 1, 1, 1 ).toDate();
-
-        minMaxDataElementService.removeMinMaxDataElements( dataElements, parent );
-
-        log.debug( "Deleted existing min-max values" );
-
-        List<String> parentPaths = Lists.newArrayList( parent.getPath() );
-
-        BatchHandler<MinMaxDataElement> batchHandler = batchHandlerFactory.createBatchHandler( MinMaxDataElementBatchHandler.class ).init();
-
-        for ( DataElement dataElement : dataElements )
-        {
-            if ( dataElement.getValueType().isNumeric() )
-            {
-                Set<CategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
-
-                List<DataAnalysisMeasures> measuresList = dataAnalysisStore.getDataAnalysisMeasures( dataElement, categoryOptionCombos, parentPaths, from );
-
-                for ( DataAnalysisMeasures measures : measuresList )
-                {
-                    int min = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-                    int max = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-
-                    switch ( dataElement.getValueType() )
-                    {
-                        case INTEGER_POSITIVE:
-                        case INTEGER_ZERO_OR_POSITIVE:
-                            min = Math.max( 0, min ); // Cannot be < 0
-                            break;
-                        case INTEGER_NEGATIVE:
-                            max = Math.min( 0, max ); // Cannot be > 0
-                            break;
-                    }
-
-                    OrganisationUnit orgUnit = new OrganisationUnit();
-                    orgUnit.setId( measures.getOrgUnitId() );
-
-                    CategoryOptionCombo categoryOptionCombo = new CategoryOptionCombo();
-                    categoryOptionCombo.setId( measures.getCategoryOptionComboId() );
-
-                    batchHandler.addObject( new MinMaxDataElement( orgUnit, dataElement, categoryOptionCombo, min, max, true ) );
-                }
-            }
-        }
-
-        log.info( "Min-max value generation done" );
-
-        batchHandler.flush();
-    }
-}
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.IdentifiableObjectUtils;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.minmax.MinMaxDataElementService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.ParallelTaskExecutor;
+import org.hisp.dhis.system.notification.NotificationLevel;
+import org.hisp.dhis.system.notification.Notifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * @author Lars Helge Overland
+ */
+public class MinMaxOutlierAnalysisService
+    implements MinMaxDataAnalysisService
+{
+    private static final Log log = LogFactory.getLog( MinMaxOutlierAnalysisService.class );
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    @Autowired
+    private DataAnalysisStore dataAnalysisStore;
+
+    @Autowired
+    private MinMaxDataElementService minMaxDataElementService;
+
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Notifier notifier;
+
+    @Autowired
+    private ParallelTaskExecutor parallelTaskExecutor;
+
+    // -------------------------------------------------------------------------
+    // DataAnalysisService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
+        Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from )
+    {
+        Set<DataElement> elements = dataElements.stream()
+            .filter( de -> ValueType.NUMERIC_TYPES.contains( de.getValueType() ) )
+            .collect( Collectors.toSet() );
+        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
+
+        for ( DataElement dataElement : elements )
+        {
+            categoryOptionCombos.addAll( dataElement.getCategoryOptionCombos() );
+        }
+
+        log.debug( "Starting min-max analysis, no of data elements: " + elements.size() + ", no of parent org units: " + parents.size() );
+
+        return dataAnalysisStore.getMinMaxViolations( elements, categoryOptionCombos, periods, parents, MAX_OUTLIERS );
+    }
+
+    @Override
+    public void generateMinMaxValues( OrganisationUnit parent, Collection<DataElement> dataElements, Double stdDevFactor )
+    {
+        generateMinMaxValues( parent, dataElements, stdDevFactor, null );
+    }
+
+    @Override
+    public void generateMinMaxValues( OrganisationUnit parent, Collection<DataElement> dataElements, Double stdDevFactor,
+        JobConfiguration jobId )
+    {
+        log.info( "Starting min-max value generation, no of data elements: " + dataElements.size() + ", parent: " + parent.getUid() );
+
+        // ---------------------------------------------------------------------
+        // Reload the given objects, which are detached when running as a job
+        // ---------------------------------------------------------------------
+
+        Set<DataElement> elements = new HashSet<>();
+        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
+        List<OrganisationUnit> chunks = new ArrayList<>();
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate( transactionManager );
+        readOnlyTransaction.setReadOnly( true );
+
+        readOnlyTransaction.execute( status -> {
+            idObjectManager.get( DataElement.class, IdentifiableObjectUtils.getUids( dataElements ) ).stream()
+                .filter( de -> de.getValueType().isNumeric() )
+                .forEach( de -> {
+                    elements.add( de );
+                    categoryOptionCombos.addAll( de.getCategoryOptionCombos() );
+                } );
+
+            OrganisationUnit orgUnit = idObjectManager.get( OrganisationUnit.class, parent.getId() );
+
+            chunks.add( orgUnit );
+            chunks.addAll( orgUnit.getChildren() );
+            return null;
+        } );
+
+        // ---------------------------------------------------------------------
+        // Replace the values of the parent itself and of each child subtree,
+        // each in parallel in its own transaction
+        // ---------------------------------------------------------------------
+
+        TransactionTemplate transaction = new TransactionTemplate( transactionManager );
+        AtomicInteger chunksDone = new AtomicInteger();
+        AtomicInteger valuesGenerated = new AtomicInteger();
+
+        List<Runnable> tasks = new ArrayList<>();
+
+        for ( OrganisationUnit orgUnit : chunks )
+        {
+            boolean includeDescendants = orgUnit.getId() != parent.getId();
+
+            tasks.add( () -> {
+                Integer count = transaction.execute( status -> minMaxDataElementService.generateMinMaxDataElements(
+                    elements, categoryOptionCombos, orgUnit, includeDescendants, stdDevFactor ) );
+
+                valuesGenerated.addAndGet( count );
+
+                if ( jobId != null )
+                {
+                    notifier.notify( jobId, "Generated min-max values for " + chunksDone.incrementAndGet() +
+                        " of " + chunks.size() + " organisation unit subtrees" );
+                }
+            } );
+        }
+
+        try
+        {
+            parallelTaskExecutor.runAll( tasks );
+        }
+        catch ( RuntimeException ex )
+        {
+            if ( jobId != null )
+            {
+                notifier.notify( jobId, NotificationLevel.ERROR, "Min-max value generation failed: " + ex.getMessage(), true );
+            }
+
+            throw ex;
+        }
+
+        log.info( "Min-max value generation done, no of values: " + valuesGenerated.get() );
+
+        if ( jobId != null )
+        {
+            notifier.notify( jobId, NotificationLevel.INFO, "Min-max value generation done", true );
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.security.SecurityContextRunnable;
+
+import java.util.Collection;
+
+/**
+ * Generates min-max values as an in-memory job.
+ */
+public class MinMaxValueGenerationTask
+    extends SecurityContextRunnable
+{
+    private final OrganisationUnit parent;
+
+    private final Collection<DataElement> dataElements;
+
+    private final Double stdDevFactor;
+
+    private final MinMaxDataAnalysisService minMaxDataAnalysisService;
+
+    private final JobConfiguration jobId;
+
+    public MinMaxValueGenerationTask( OrganisationUnit parent, Collection<DataElement> dataElements,
+        Double stdDevFactor, MinMaxDataAnalysisService minMaxDataAnalysisService, JobConfiguration jobId )
+    {
+        this.parent = parent;
+        this.dataElements = dataElements;
+        this.stdDevFactor = stdDevFactor;
+        this.minMaxDataAnalysisService = minMaxDataAnalysisService;
+        this.jobId = jobId;
+    }
+
+    @Override
+    public void call()
+    {
+        minMaxDataAnalysisService.generateMinMaxValues( parent, dataElements, stdDevFactor, jobId );
+    }
+}
@@ -138,6 +138,13 @@ public class DefaultMinMaxDataElementService
     {
         minMaxDataElementStore.delete( dataElements, parent );
     }
+
+    @Override
+    public int generateMinMaxDataElements( Collection<DataElement> dataElements, Collection<CategoryOptionCombo> categoryOptionCombos,
+        OrganisationUnit orgUnit, boolean includeDescendants, double stdDevFactor )
+    {
+        return minMaxDataElementStore.generate( dataElements, categoryOptionCombos, orgUnit, includeDescendants, stdDevFactor );
+    }
 }
 
 
@@ -28,11 +28,17 @@ package org.hisp.dhis.minmax.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
+import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
+import static org.hisp.dhis.dataanalysis.DataAnalysisUtils.getStdDevBoundsColumns;
+
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.Pager;
+import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.hibernate.HibernateGenericStore;
 import org.hisp.dhis.hibernate.JpaQueryParameters;
+import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.minmax.MinMaxDataElement;
 import org.hisp.dhis.minmax.MinMaxDataElementQueryParams;
 import org.hisp.dhis.minmax.MinMaxDataElementStore;
@@ -70,6 +76,13 @@ public class HibernateMinMaxDataElementStore
     @Autowired
     private SchemaService schemaService;
 
+    private StatementBuilder statementBuilder;
+
+    public void setStatementBuilder( StatementBuilder statementBuilder )
+    {
+        this.statementBuilder = statementBuilder;
+    }
+
     // -------------------------------------------------------------------------
     // MinMaxDataElementStore Implementation
     // -------------------------------------------------------------------------
@@ -176,6 +189,55 @@ public class HibernateMinMaxDataElementStore
             .executeUpdate();
     }
 
+    @Override
+    public int generate( Collection<DataElement> dataElements, Collection<CategoryOptionCombo> categoryOptionCombos,
+        OrganisationUnit orgUnit, boolean includeDescendants, double stdDevFactor )
+    {
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() )
+        {
+            return 0;
+        }
+
+        String dataElementIds = getCommaDelimitedString( getIdentifiers( dataElements ) );
+        String catOptionComboIds = getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) );
+        String orgUnitFilter = includeDescendants ?
+            "ou.path like '" + orgUnit.getPath() + "%'" :
+            "ou.organisationunitid = " + orgUnit.getId();
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        String deleteSql =
+            "delete from minmaxdataelement " +
+            "where dataelementid in (" + dataElementIds + ") " +
+            "and sourceid in (select ou.organisationunitid from organisationunit ou where " + orgUnitFilter + ")";
+
+        String insertSql =
+            "insert into minmaxdataelement (minmaxdataelementid, sourceid, dataelementid, categoryoptioncomboid, " +
+                "minimumvalue, maximumvalue, generatedvalue) " +
+            "select " + statementBuilder.getAutoIncrementValue() + ", sourceid, dataelementid, categoryoptioncomboid, " +
+                "case when valuetype in ('" + ValueType.INTEGER_POSITIVE + "', '" + ValueType.INTEGER_ZERO_OR_POSITIVE + "') " +
+                    "then greatest( lowbound, 0 ) else lowbound end, " +
+                "case when valuetype = '" + ValueType.INTEGER_NEGATIVE + "' " +
+                    "then least( highbound, 0 ) else highbound end, " +
+                "true " +
+            "from (" +
+                "select dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid, de.valuetype, " +
+                getStdDevBoundsColumns( value, stdDevFactor ) +
+                "from datavalue dv " +
+                "join dataelement de on dv.dataelementid = de.dataelementid " +
+                "join organisationunit ou on dv.sourceid = ou.organisationunitid " +
+                "where dv.dataelementid in (" + dataElementIds + ") " +
+                "and dv.categoryoptioncomboid in (" + catOptionComboIds + ") " +
+                "and " + orgUnitFilter + " " +
+                "and dv.deleted is false " +
+                "group by dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid, de.valuetype " +
+                "having stddev_pop( " + value + " ) <> 0" +
+            ") as measures";
+
+        jdbcTemplate.update( deleteSql );
+
+        return jdbcTemplate.update( insertSql );
+    }
+
     private Predicate parseFilter( CriteriaBuilder builder, Root root, List<String> filters )
     {
         Predicate conjunction = builder.conjunction();
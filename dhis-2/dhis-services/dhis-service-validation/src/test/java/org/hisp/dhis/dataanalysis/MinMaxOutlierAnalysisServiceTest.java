@@ -54,6 +54,7 @@ import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author eirikmi
@@ -199,4 +200,37 @@ public class MinMaxOutlierAnalysisServiceTest
 
         assertEquals( 2, result.size() );
     }
+
+    @Test
+    public void testGenerateMinMaxValues()
+    {
+        OrganisationUnit organisationUnitB = createOrganisationUnit( 'B', organisationUnitA );
+        organisationUnitService.addOrganisationUnit( organisationUnitB );
+        organisationUnitA.getChildren().add( organisationUnitB );
+        organisationUnitService.updateOrganisationUnit( organisationUnitA );
+
+        String[] values = { "5", "-5", "5", "-5", "10", "-10", "13", "-13", "41", "-41" };
+        Period[] periods = { periodA, periodB, periodC, periodD, periodE, periodF, periodG, periodH, periodI, periodJ };
+
+        for ( int i = 0; i < values.length; i++ )
+        {
+            dataValueService.addDataValue( createDataValue( dataElementA, periods[i], organisationUnitA, values[i], categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElementA, periods[i], organisationUnitB, values[i], categoryOptionCombo ) );
+        }
+
+        minMaxDataElementService.addMinMaxDataElement( new MinMaxDataElement( organisationUnitA, dataElementA, categoryOptionCombo, -1, 1, false ) );
+
+        minMaxOutlierAnalysisService.generateMinMaxValues( organisationUnitA, dataElementsA, 2.0 );
+
+        for ( OrganisationUnit orgUnit : Lists.newArrayList( organisationUnitA, organisationUnitB ) )
+        {
+            MinMaxDataElement minMax = minMaxDataElementService.getMinMaxDataElement( orgUnit, dataElementA, categoryOptionCombo );
+
+            assertEquals( -40, minMax.getMin() );
+            assertEquals( 40, minMax.getMax() );
+            assertTrue( minMax.isGenerated() );
+        }
+
+        assertTrue( minMaxDataElementService.getMinMaxDataElements( organisationUnitA, dataElementB ).isEmpty() );
+    }
 }
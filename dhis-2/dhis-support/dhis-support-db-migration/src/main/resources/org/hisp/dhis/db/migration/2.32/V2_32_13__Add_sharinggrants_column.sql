@@ -0,0 +1,85 @@
+-- Adds a denormalized "sharinggrants" jsonb array to every shareable table. Each element is a string
+-- on the form "<uid>:<permission>" where uid refers to a user group or user and permission is one of
+-- "r" (metadata read), "w" (metadata write), "dr" (data read) and "dw" (data write). The array is
+-- indexed with a GIN index so that sharing filters can be evaluated with containment lookups instead
+-- of correlated subqueries over the user group access and user access join tables.
+
+create or replace function populate_sharinggrants(tbl text, idcol text, ugatbl text, ugacol text, uatbl text, uacol text) returns void as
+$$
+begin
+  if to_regclass(tbl) is null then
+    return;
+  end if;
+
+  execute format('alter table %I add column if not exists sharinggrants jsonb', tbl);
+
+  execute format(
+    'update %1$I t set sharinggrants = coalesce((select jsonb_agg(distinct g.grantee) from (
+       select ug.uid || '':'' || p.code as grantee
+       from %3$I x
+       join usergroupaccess a on a.usergroupaccessid = x.usergroupaccessid
+       join usergroup ug on ug.usergroupid = a.usergroupid
+       cross join (values (''r'', 1, ''r''), (''w'', 2, ''w''), (''dr'', 3, ''r''), (''dw'', 4, ''w'')) as p(code, pos, flag)
+       where x.%4$I = t.%2$I and substr(a.access, p.pos, 1) = p.flag
+       union all
+       select u.uid || '':'' || p.code as grantee
+       from %5$I x
+       join useraccess a on a.useraccessid = x.useraccessid
+       join userinfo u on u.userinfoid = a.userid
+       cross join (values (''r'', 1, ''r''), (''w'', 2, ''w''), (''dr'', 3, ''r''), (''dw'', 4, ''w'')) as p(code, pos, flag)
+       where x.%6$I = t.%2$I and substr(a.access, p.pos, 1) = p.flag) as g), ''[]''::jsonb)',
+    tbl, idcol, ugatbl, ugacol, uatbl, uacol);
+
+  execute format('create index if not exists %I on %I using gin (sharinggrants jsonb_path_ops)', 'in_' || tbl || '_sharinggrants', tbl);
+end;
+$$
+language plpgsql;
+
+select populate_sharinggrants('attribute', 'attributeid', 'attributeusergroupaccesses', 'attributeid', 'attributeuseraccesses', 'attributeid');
+select populate_sharinggrants('categorycombo', 'categorycomboid', 'categorycombousergroupaccesses', 'categorycomboid', 'categorycombouseraccesses', 'categorycomboid');
+select populate_sharinggrants('categoryoptiongroup', 'categoryoptiongroupid', 'categoryoptiongroupusergroupaccesses', 'categoryoptiongroupid', 'categoryoptiongroupuseraccesses', 'categoryoptiongroupid');
+select populate_sharinggrants('categoryoptiongroupset', 'categoryoptiongroupsetid', 'categoryoptiongroupsetusergroupaccesses', 'categoryoptiongroupsetid', 'categoryoptiongroupsetuseraccesses', 'categoryoptiongroupsetid');
+select populate_sharinggrants('chart', 'chartid', 'chartusergroupaccesses', 'chartid', 'chartuseraccesses', 'chartid');
+select populate_sharinggrants('constant', 'constantid', 'constantusergroupaccesses', 'constantid', 'constantuseraccesses', 'constantid');
+select populate_sharinggrants('dashboard', 'dashboardid', 'dashboardusergroupaccesses', 'dashboardid', 'dashboarduseraccesses', 'dashboardid');
+select populate_sharinggrants('dataapprovallevel', 'dataapprovallevelid', 'dataapprovallevelusergroupaccesses', 'dataapprovallevelid', 'dataapprovalleveluseraccesses', 'dataapprovallevelid');
+select populate_sharinggrants('dataapprovalworkflow', 'workflowid', 'dataapprovalworkflowusergroupaccesses', 'workflowid', 'dataapprovalworkflowuseraccesses', 'workflowid');
+select populate_sharinggrants('dataelement', 'dataelementid', 'dataelementusergroupaccesses', 'dataelementid', 'dataelementuseraccesses', 'dataelementid');
+select populate_sharinggrants('dataelementcategory', 'categoryid', 'dataelementcategoryusergroupaccesses', 'categoryid', 'dataelementcategoryuseraccesses', 'categoryid');
+select populate_sharinggrants('dataelementcategoryoption', 'categoryoptionid', 'dataelementcategoryoptionusergroupaccesses', 'categoryoptionid', 'dataelementcategoryoptionuseraccesses', 'categoryoptionid');
+select populate_sharinggrants('dataelementgroup', 'dataelementgroupid', 'dataelementgroupusergroupaccesses', 'dataelementgroupid', 'dataelementgroupuseraccesses', 'dataelementgroupid');
+select populate_sharinggrants('dataelementgroupset', 'dataelementgroupsetid', 'dataelementgroupsetusergroupaccesses', 'dataelementgroupsetid', 'dataelementgroupsetuseraccesses', 'dataelementgroupsetid');
+select populate_sharinggrants('dataset', 'datasetid', 'datasetusergroupaccesses', 'datasetid', 'datasetuseraccesses', 'datasetid');
+select populate_sharinggrants('document', 'documentid', 'documentusergroupaccesses', 'documentid', 'documentuseraccesses', 'documentid');
+select populate_sharinggrants('eventchart', 'eventchartid', 'eventchartusergroupaccesses', 'eventchartid', 'eventchartuseraccesses', 'eventchartid');
+select populate_sharinggrants('eventreport', 'eventreportid', 'eventreportusergroupaccesses', 'eventreportid', 'eventreportuseraccesses', 'eventreportid');
+select populate_sharinggrants('externalmaplayer', 'externalmaplayerid', 'externalmaplayerusergroupaccesses', 'externalmaplayerid', 'externalmaplayeruseraccesses', 'externalmaplayerid');
+select populate_sharinggrants('indicator', 'indicatorid', 'indicatorusergroupaccesses', 'indicatorid', 'indicatoruseraccesses', 'indicatorid');
+select populate_sharinggrants('indicatorgroup', 'indicatorgroupid', 'indicatorgroupusergroupaccesses', 'indicatorgroupid', 'indicatorgroupuseraccesses', 'indicatorgroupid');
+select populate_sharinggrants('indicatorgroupset', 'indicatorgroupsetid', 'indicatorgroupsetusergroupaccesses', 'indicatorgroupsetid', 'indicatorgroupsetuseraccesses', 'indicatorgroupsetid');
+select populate_sharinggrants('interpretation', 'interpretationid', 'interpretationusergroupaccesses', 'interpretationid', 'interpretationuseraccesses', 'interpretationid');
+select populate_sharinggrants('keyjsonvalue', 'keyjsonvalueid', 'keyjsonvalueusergroupaccesses', 'keyjsonvalueid', 'keyjsonvalueuseraccesses', 'keyjsonvalueid');
+select populate_sharinggrants('map', 'mapid', 'mapusergroupaccesses', 'mapid', 'mapuseraccesses', 'mapid');
+select populate_sharinggrants('maplegendset', 'maplegendsetid', 'legendsetusergroupaccesses', 'maplegendsetid', 'legendsetuseraccesses', 'maplegendsetid');
+select populate_sharinggrants('optiongroup', 'optiongroupid', 'optiongroupusergroupaccesses', 'optiongroupid', 'optiongroupuseraccesses', 'optiongroupid');
+select populate_sharinggrants('optiongroupset', 'optiongroupsetid', 'optiongroupsetusergroupaccesses', 'optiongroupsetid', 'optiongroupsetuseraccesses', 'optiongroupsetid');
+select populate_sharinggrants('optionset', 'optionsetid', 'optionsetusergroupaccesses', 'optionsetid', 'optionsetuseraccesses', 'optionsetid');
+select populate_sharinggrants('orgunitgroup', 'orgunitgroupid', 'orgunitgroupusergroupaccesses', 'orgunitgroupid', 'orgunitgroupuseraccesses', 'orgunitgroupid');
+select populate_sharinggrants('orgunitgroupset', 'orgunitgroupsetid', 'orgunitgroupsetusergroupaccesses', 'orgunitgroupsetid', 'orgunitgroupsetuseraccesses', 'orgunitgroupsetid');
+select populate_sharinggrants('predictorgroup', 'predictorgroupid', 'predictorgroupusergroupaccesses', 'predictorgroupid', 'predictorgroupuseraccesses', 'predictorgroupid');
+select populate_sharinggrants('program', 'programid', 'programusergroupaccesses', 'programid', 'programuseraccesses', 'programid');
+select populate_sharinggrants('programindicator', 'programindicatorid', 'programindicatorusergroupaccesses', 'programindicatorid', 'programindicatoruseraccesses', 'programindicatorid');
+select populate_sharinggrants('programindicatorgroup', 'programindicatorgroupid', 'programindicatorgroupusergroupaccesses', 'programindicatorgroupid', 'programindicatorgroupuseraccesses', 'programindicatorgroupid');
+select populate_sharinggrants('programstage', 'programstageid', 'programstageusergroupaccesses', 'programid', 'programstageuseraccesses', 'programstageid');
+select populate_sharinggrants('relationshiptype', 'relationshiptypeid', 'relationshiptypeusergroupaccesses', 'relationshiptypeid', 'relationshiptypeuseraccesses', 'relationshiptypeid');
+select populate_sharinggrants('report', 'reportid', 'reportusergroupaccesses', 'reportid', 'reportuseraccesses', 'reportid');
+select populate_sharinggrants('reporttable', 'reporttableid', 'reporttableusergroupaccesses', 'reporttableid', 'reporttableuseraccesses', 'reporttableid');
+select populate_sharinggrants('sqlview', 'sqlviewid', 'sqlviewusergroupaccesses', 'sqlviewid', 'sqlviewuseraccesses', 'sqlviewid');
+select populate_sharinggrants('trackedentityattribute', 'trackedentityattributeid', 'trackedentityattributeusergroupaccesses', 'trackedentityattributeid', 'trackedentityattributeuseraccesses', 'trackedentityattributeid');
+select populate_sharinggrants('trackedentitytype', 'trackedentitytypeid', 'trackedentitytypeusergroupaccesses', 'trackedentitytypeid', 'trackedentitytypeuseraccesses', 'trackedentitytypeid');
+select populate_sharinggrants('usergroup', 'usergroupid', 'usergroupusergroupaccesses', 'usergroupid', 'usergroupuseraccesses', 'usergroupid');
+select populate_sharinggrants('userrole', 'userroleid', 'userroleusergroupaccesses', 'userroleid', 'userroleuseraccesses', 'userroleid');
+select populate_sharinggrants('validationrule', 'validationruleid', 'validationruleusergroupaccesses', 'validationruleid', 'validationruleuseraccesses', 'validationruleid');
+select populate_sharinggrants('validationrulegroup', 'validationrulegroupid', 'validationrulegroupusergroupaccesses', 'validationrulegroupid', 'validationrulegroupuseraccesses', 'validationrulegroupid');
+
+drop function if exists populate_sharinggrants(text, text, text, text, text, text);
@@ -0,0 +1,7 @@
+
+alter table programindicator
+add column if not exists materialize boolean;
+
+update programindicator set materialize = false where materialize is null;
+
+alter table programindicator alter column materialize set not null;
@@ -0,0 +1,13 @@
+
+-- Extension for the trigram index on lower case attribute values, which
+-- is created concurrently at startup as it cannot be created within the
+-- migration transaction. The extension requires privileges which the
+-- database user might not have, in which case the index is skipped and
+-- searches fall back to scans.
+
+do $$
+begin
+  create extension if not exists pg_trgm;
+exception when others then
+  raise notice 'Extension pg_trgm could not be created, skipping attribute value trigram index';
+end $$;
@@ -0,0 +1,22 @@
+
+-- Projection of tracked entity instance enrollments serving tracked entity
+-- instance queries for a program. Holds one row per tracked entity instance
+-- and program with the enrollment status rank and the values of the program
+-- attributes keyed on attribute identifier. The table is maintained by the
+-- application when tracker.search.projection is enabled and populated through
+-- the search projection maintenance task.
+
+create table if not exists trackedentityinstancesearch (
+  trackedentityinstanceid bigint not null,
+  programid bigint not null,
+  status integer not null,
+  attributevalues jsonb not null default '{}'::jsonb,
+  lastupdated timestamp not null,
+  constraint trackedentityinstancesearch_pkey primary key (trackedentityinstanceid, programid),
+  constraint fk_trackedentityinstancesearch_trackedentityinstanceid foreign key (trackedentityinstanceid)
+    references trackedentityinstance (trackedentityinstanceid) on delete cascade,
+  constraint fk_trackedentityinstancesearch_programid foreign key (programid)
+    references program (programid) on delete cascade
+);
+
+create index if not exists in_trackedentityinstancesearch_programid on trackedentityinstancesearch (programid, status);
@@ -0,0 +1,26 @@
+
+-- Outbox of program rule effects such as send and schedule message actions.
+-- Rows are written in the transaction which triggered the rule evaluation and
+-- removed by the rule effect outbox workers once the effect is implemented.
+-- Rows which exhausted their attempts are kept with the last error.
+
+create table if not exists programruleeffectoutbox (
+  programruleeffectoutboxid bigint not null,
+  programinstanceid bigint,
+  programstageinstanceid bigint,
+  actiontype character varying(255) not null,
+  notification character varying(11),
+  actiondata text,
+  effectdata text,
+  created timestamp not null,
+  nextattempt timestamp not null,
+  attempts integer not null,
+  lasterror text,
+  constraint programruleeffectoutbox_pkey primary key (programruleeffectoutboxid),
+  constraint fk_programruleeffectoutbox_programinstanceid foreign key (programinstanceid)
+    references programinstance (programinstanceid) on delete cascade,
+  constraint fk_programruleeffectoutbox_programstageinstanceid foreign key (programstageinstanceid)
+    references programstageinstance (programstageinstanceid) on delete cascade
+);
+
+create index if not exists in_programruleeffectoutbox_nextattempt on programruleeffectoutbox (nextattempt, attempts);
@@ -0,0 +1,13 @@
+
+-- Signature of the program attributes which the tracked entity instance
+-- search projection of a program was built with. Queries only use the
+-- projection of a program when the signature matches the current program
+-- attributes, as values of attributes added later are not projected.
+
+create table if not exists trackedentityinstancesearchprogram (
+  programid bigint not null,
+  attributesignature character varying(32) not null,
+  constraint trackedentityinstancesearchprogram_pkey primary key (programid),
+  constraint fk_trackedentityinstancesearchprogram_programid foreign key (programid)
+    references program (programid) on delete cascade
+);
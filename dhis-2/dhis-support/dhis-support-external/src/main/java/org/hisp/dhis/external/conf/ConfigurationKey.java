@@ -75,8 +75,15 @@ public enum ConfigurationKey
     REDIS_USE_SSL( "redis.use.ssl", "false", false ),
     FLYWAY_OUT_OF_ORDER_MIGRATION( "flyway.migrate_out_of_order", "false", false ),
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
+    TRACKER_SEARCH_MIN_CHARACTERS( "tracker.search.min_characters", "0", false ),
+    TRACKER_SEARCH_RANKING( "tracker.search.ranking", "off", false ),
+    TRACKER_SEARCH_PROJECTION( "tracker.search.projection", "off", false ),
+    TRACKER_RULE_EFFECT_OUTBOX( "tracker.rule.effect.outbox", "off", false ),
+    TRACKER_RULE_EFFECT_OUTBOX_THREADS( "tracker.rule.effect.outbox.threads", "2", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_EVENT_QUERY_PARALLELISM( "analytics.event.query.parallelism", "4" ),
+    APPROVAL_STATUS_CACHE( "approval.status.cache", "on", false ),
     AMQP_MODE( "amqp.mode", "EMBEDDED" ),
     AMQP_HOST( "amqp.host", "127.0.0.1" ),
     AMQP_PORT( "amqp.port", "15672" ),
@@ -0,0 +1,266 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Initializes an association of many persistent objects with a few batched
+ * queries instead of one lazy load per object. Collections are initialized
+ * with fetch joins restricted by the identifiers of the owning objects, and
+ * uninitialized proxies of many-to-one associations are loaded with multi-id
+ * lookups. Objects which are not managed by the current session are ignored.
+ */
+public class AssociationPrefetcher
+{
+    private static final Log log = LogFactory.getLog( AssociationPrefetcher.class );
+
+    private static final int BATCH_SIZE = 500;
+
+    private final SessionFactory sessionFactory;
+
+    public AssociationPrefetcher( SessionFactory sessionFactory )
+    {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Initializes the given association of the given objects and returns the
+     * associated objects, i.e. the collection elements or the referenced
+     * objects, which can be used to prefetch associations further down the
+     * object graph. Query failures are propagated, as a failed statement
+     * leaves the transaction unusable on most databases.
+     *
+     * @param objects the objects owning the association.
+     * @param association the Hibernate property name of the association.
+     * @return the associated objects, never null.
+     */
+    public List<Object> prefetch( Collection<?> objects, String association )
+    {
+        List<Object> associated = new ArrayList<>();
+
+        if ( objects == null || objects.isEmpty() || association == null )
+        {
+            return associated;
+        }
+
+        Session session = getCurrentSession();
+
+        if ( session == null )
+        {
+            log.debug( "No current session, not prefetching association: " + association );
+            return associated;
+        }
+
+        for ( Map.Entry<Class<?>, List<Object>> entry : groupByEntityClass( session, objects ).entrySet() )
+        {
+            EntityPersister persister = getPersister( entry.getKey() );
+
+            if ( persister == null || !hasProperty( persister, association ) )
+            {
+                continue;
+            }
+
+            Type type = persister.getPropertyType( association );
+
+            if ( type.isCollectionType() )
+            {
+                associated.addAll( prefetchCollections( session, persister, entry.getValue(), association ) );
+            }
+            else if ( type.isEntityType() )
+            {
+                associated.addAll( prefetchReferences( session, persister, entry.getValue(), association ) );
+            }
+        }
+
+        return associated;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<Object> prefetchCollections( Session session, EntityPersister persister, List<Object> owners, String association )
+    {
+        List<Serializable> ids = new ArrayList<>();
+
+        for ( Object owner : owners )
+        {
+            Object value = persister.getPropertyValue( owner, association );
+
+            if ( value instanceof PersistentCollection && !((PersistentCollection) value).wasInitialized() )
+            {
+                ids.add( session.getIdentifier( owner ) );
+            }
+        }
+
+        String hql = "select distinct o from " + persister.getEntityName() + " o left join fetch o." + association +
+            " where o." + persister.getIdentifierPropertyName() + " in (:ids)";
+
+        for ( List<Serializable> partition : Lists.partition( ids, BATCH_SIZE ) )
+        {
+            session.createQuery( hql )
+                .setParameterList( "ids", partition )
+                .setHint( QueryHints.HINT_PASS_DISTINCT_THROUGH, false )
+                .list();
+        }
+
+        List<Object> elements = new ArrayList<>();
+
+        for ( Object owner : owners )
+        {
+            Object value = persister.getPropertyValue( owner, association );
+
+            if ( value instanceof Collection )
+            {
+                elements.addAll( (Collection<?>) value );
+            }
+        }
+
+        return elements;
+    }
+
+    private List<Object> prefetchReferences( Session session, EntityPersister persister, List<Object> owners, String association )
+    {
+        Map<Class<?>, Set<Serializable>> uninitialized = new HashMap<>();
+        List<Object> references = new ArrayList<>();
+
+        for ( Object owner : owners )
+        {
+            Object value = persister.getPropertyValue( owner, association );
+
+            if ( value == null )
+            {
+                continue;
+            }
+
+            references.add( value );
+
+            if ( value instanceof HibernateProxy )
+            {
+                LazyInitializer initializer = ((HibernateProxy) value).getHibernateLazyInitializer();
+
+                if ( initializer.isUninitialized() )
+                {
+                    uninitialized.computeIfAbsent( initializer.getPersistentClass(), k -> new LinkedHashSet<>() )
+                        .add( initializer.getIdentifier() );
+                }
+            }
+        }
+
+        for ( Map.Entry<Class<?>, Set<Serializable>> entry : uninitialized.entrySet() )
+        {
+            session.byMultipleIds( entry.getKey() )
+                .withBatchSize( BATCH_SIZE )
+                .multiLoad( new ArrayList<>( entry.getValue() ) );
+        }
+
+        return references;
+    }
+
+    private Session getCurrentSession()
+    {
+        try
+        {
+            return sessionFactory.getCurrentSession();
+        }
+        catch ( HibernateException ex )
+        {
+            return null;
+        }
+    }
+
+    private Map<Class<?>, List<Object>> groupByEntityClass( Session session, Collection<?> objects )
+    {
+        Map<Class<?>, List<Object>> grouped = new HashMap<>();
+
+        for ( Object object : objects )
+        {
+            if ( object == null || !session.contains( object ) )
+            {
+                continue;
+            }
+
+            Object entity = object instanceof HibernateProxy ?
+                ((HibernateProxy) object).getHibernateLazyInitializer().getImplementation() : object;
+
+            grouped.computeIfAbsent( Hibernate.getClass( entity ), k -> new ArrayList<>() ).add( entity );
+        }
+
+        return grouped;
+    }
+
+    private EntityPersister getPersister( Class<?> klass )
+    {
+        try
+        {
+            return ((SessionFactoryImplementor) sessionFactory).getMetamodel().entityPersister( klass );
+        }
+        catch ( MappingException ex )
+        {
+            return null;
+        }
+    }
+
+    private boolean hasProperty( EntityPersister persister, String property )
+    {
+        for ( String name : persister.getPropertyNames() )
+        {
+            if ( name.equals( property ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
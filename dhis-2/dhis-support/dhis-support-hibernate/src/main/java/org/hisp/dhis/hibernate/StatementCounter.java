@@ -0,0 +1,92 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements prepared by Hibernate on the current thread. Counting
+ * is off by default and is enabled per thread with {@link #start()}, typically
+ * for the duration of a request, in order to detect N+1 query patterns.
+ * Registered through the {@code hibernate.session_factory.statement_inspector}
+ * property.
+ */
+public class StatementCounter
+    implements StatementInspector
+{
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect( String sql )
+    {
+        int[] count = COUNT.get();
+
+        if ( count != null )
+        {
+            count[0]++;
+        }
+
+        return sql;
+    }
+
+    /**
+     * Starts counting statements on the current thread.
+     */
+    public static void start()
+    {
+        COUNT.set( new int[1] );
+    }
+
+    /**
+     * Stops counting statements on the current thread.
+     */
+    public static void stop()
+    {
+        COUNT.remove();
+    }
+
+    /**
+     * Indicates whether statements are counted on the current thread.
+     */
+    public static boolean isActive()
+    {
+        return COUNT.get() != null;
+    }
+
+    /**
+     * Returns the number of statements counted on the current thread since
+     * counting was started, or 0 if counting is not active.
+     */
+    public static int getCount()
+    {
+        int[] count = COUNT.get();
+
+        return count != null ? count[0] : 0;
+    }
+}
@@ -28,7 +28,9 @@ package org.hisp.dhis.hibernate.dialect;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.dialect.function.SQLFunctionTemplate;
 import org.hibernate.spatial.dialect.postgis.PostgisPG95Dialect;
+import org.hibernate.type.StandardBasicTypes;
 
 import java.sql.Types;
 
@@ -43,5 +45,6 @@ public class DhisPostgresDialect
     {
         registerColumnType( Types.JAVA_OBJECT, "jsonb" );
         registerHibernateType( Types.OTHER, "pg-uuid" );
+        registerFunction( "jsonb_contains_any", new SQLFunctionTemplate( StandardBasicTypes.BOOLEAN, "(?1 @> any(cast(?2 as jsonb[])))" ) );
     }
 }
\ No newline at end of file
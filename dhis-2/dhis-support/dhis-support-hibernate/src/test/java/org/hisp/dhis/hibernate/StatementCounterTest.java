@@ -0,0 +1,79 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StatementCounterTest
+{
+    private final StatementCounter counter = new StatementCounter();
+
+    @After
+    public void tearDown()
+    {
+        StatementCounter.stop();
+    }
+
+    @Test
+    public void testCountWhenStarted()
+    {
+        StatementCounter.start();
+
+        assertTrue( StatementCounter.isActive() );
+        assertEquals( "select 1", counter.inspect( "select 1" ) );
+        counter.inspect( "select 2" );
+
+        assertEquals( 2, StatementCounter.getCount() );
+    }
+
+    @Test
+    public void testNoCountWhenNotStarted()
+    {
+        counter.inspect( "select 1" );
+
+        assertFalse( StatementCounter.isActive() );
+        assertEquals( 0, StatementCounter.getCount() );
+    }
+
+    @Test
+    public void testStop()
+    {
+        StatementCounter.start();
+        counter.inspect( "select 1" );
+        StatementCounter.stop();
+
+        assertFalse( StatementCounter.isActive() );
+        assertEquals( 0, StatementCounter.getCount() );
+    }
+}
@@ -64,6 +64,8 @@ public class CacheBuilder<V>
     
     private boolean expiryEnabled;
 
+    private boolean forceInMemory;
+
     public CacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider )
     {
         this.configurationProvider = configurationProvider;
@@ -75,6 +77,7 @@ public class CacheBuilder<V>
         this.expiryInSeconds = 0;
         this.defaultValue = null;
         this.expiryEnabled = false;
+        this.forceInMemory = false;
     }
 
     /**
@@ -168,14 +171,27 @@ public class CacheBuilder<V>
         return this;
     }
 
+    /**
+     * Configure the cache instance to always be a local in-memory cache, even
+     * when Redis is enabled. Use this for values which are not serializable or
+     * which are only meaningful within this instance.
+     * 
+     * @return The builder instance.
+     */
+    public CacheBuilder<V> forceInMemory()
+    {
+        this.forceInMemory = true;
+        return this;
+    }
+
     /**
      * Creates and returns a cacheInstance based on the system configuration and
      * the cache builder parameters. If {@code maximumSize} is 0 then a
      * NoOpCache instance will be returned which does not cache anything. This
      * can be used during system testings where cache has to be disabled. If
      * {@code maximumSize} is greater than 0 than based on {@code redis.enabled}
-     * property in dhis.conf, either Redis backed implementation
-     * {@link RedisCache} will be returned or a Local Caffeine backed cache
+     * property in dhis.conf and {@code forceInMemory}, either Redis backed
+     * implementation {@link RedisCache} will be returned or a Local Caffeine backed cache
      * implementation {@link LocalCache} will be returned. For Local cache,
      * every instance created using this method will be logically separate and
      * will not share any state. However, when using Redis Cache, every instance
@@ -192,7 +208,7 @@ public class CacheBuilder<V>
             log.info( String.format( "NoOp Cache instance created for region:'%s'", region ) );
             return new NoOpCache<V>( this );
         }
-        else if ( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
+        else if ( !forceInMemory && configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
         {
             log.info( String.format( "Redis Cache instance created for region:'%s'", region ) );
             return new RedisCache<V>( this );
@@ -229,6 +245,11 @@ public class CacheBuilder<V>
         return expiryInSeconds;
     }
 
+    public boolean isForceInMemory()
+    {
+        return forceInMemory;
+    }
+
     public V getDefaultValue()
     {
         return defaultValue;
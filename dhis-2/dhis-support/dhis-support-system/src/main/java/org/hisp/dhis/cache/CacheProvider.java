@@ -27,6 +27,8 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+
 /**
  * Provides cache builder to build instances.
  * 
@@ -44,4 +46,19 @@ public interface CacheProvider
      *         {@link CacheBuilder}
      */
     public <V> CacheBuilder<V> newCacheBuilder( Class<V> valueType );
+
+    /**
+     * Registers the given {@link SingleFlight} so that its counts are
+     * available for monitoring.
+     *
+     * @param singleFlight the single flight.
+     */
+    void registerSingleFlight( SingleFlight<?> singleFlight );
+
+    /**
+     * Returns the registered single flights.
+     *
+     * @return a list of {@link SingleFlight}.
+     */
+    List<SingleFlight<?>> getSingleFlights();
 }
\ No newline at end of file
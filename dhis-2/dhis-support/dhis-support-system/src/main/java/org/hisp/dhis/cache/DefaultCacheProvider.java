@@ -27,6 +27,10 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -43,6 +47,8 @@ public class DefaultCacheProvider implements CacheProvider
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private final List<SingleFlight<?>> singleFlights = new CopyOnWriteArrayList<>();
+
     /**
      * Creates a new {@link CacheBuilder} that can be used to build a cache that
      * stores the valueType specified.
@@ -57,6 +63,18 @@ public class DefaultCacheProvider implements CacheProvider
         return new CacheBuilder<V>( redisTemplate, configurationProvider );
     }
 
+    @Override
+    public void registerSingleFlight( SingleFlight<?> singleFlight )
+    {
+        singleFlights.add( singleFlight );
+    }
+
+    @Override
+    public List<SingleFlight<?>> getSingleFlights()
+    {
+        return new ArrayList<>( singleFlights );
+    }
+
     @Autowired
     public void setConfigurationProvider( DhisConfigurationProvider configurationProvider )
     {
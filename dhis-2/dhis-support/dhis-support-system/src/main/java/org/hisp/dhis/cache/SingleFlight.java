@@ -0,0 +1,193 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * De-duplicates concurrent computations of the same key. The first caller for
+ * a key performs the computation while callers arriving with the same key
+ * before it completes wait for and share its result, or its exception. Nothing
+ * is retained once the computation has completed, so this is complementary to
+ * a {@link Cache}, which only helps once a result has been stored.
+ * <p>
+ * Counts of executed and coalesced calls are kept for monitoring, and are
+ * exposed for single flights registered with the {@link CacheProvider}.
+ *
+ * @param <V> the type of the computed value.
+ */
+public class SingleFlight<V>
+{
+    private static final Log log = LogFactory.getLog( SingleFlight.class );
+
+    private final String name;
+
+    private final ConcurrentMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * @param name the name of this single flight, used for logging.
+     */
+    public SingleFlight( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the value for the given key, computed by the given supplier
+     * unless a computation for the same key is already in progress, in which
+     * case the result of that computation is awaited and returned.
+     *
+     * @param key the key.
+     * @param supplier the supplier of the value.
+     * @return the value.
+     */
+    public V execute( String key, Supplier<V> supplier )
+    {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent( key, future );
+
+        if ( existing != null )
+        {
+            long coalesced = coalescedCount.incrementAndGet();
+
+            log.debug( String.format( "Coalesced %s request with key: %s, total coalesced: %d", name, key, coalesced ) );
+
+            return await( existing );
+        }
+
+        executedCount.incrementAndGet();
+
+        try
+        {
+            V value = supplier.get();
+            future.complete( value );
+            return value;
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            future.completeExceptionally( ex );
+            throw ex;
+        }
+        finally
+        {
+            inFlight.remove( key, future );
+        }
+    }
+
+    /**
+     * Returns the name of this single flight.
+     */
+    @JsonProperty
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the number of computations which have been executed.
+     */
+    @JsonProperty
+    public long getExecutedCount()
+    {
+        return executedCount.get();
+    }
+
+    /**
+     * Returns the number of calls which shared the result of a computation
+     * already in progress instead of executing their own.
+     */
+    @JsonProperty
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of computations currently in progress.
+     */
+    @JsonProperty
+    public int getInFlightCount()
+    {
+        return inFlight.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "[%s, executed: %d, coalesced: %d, in flight: %d]",
+            name, getExecutedCount(), getCoalescedCount(), getInFlightCount() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private V await( CompletableFuture<V> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for " + name + " computation", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            Throwable cause = ex.getCause();
+
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException( cause );
+        }
+    }
+}
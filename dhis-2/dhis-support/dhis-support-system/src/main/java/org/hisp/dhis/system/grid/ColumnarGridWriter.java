@@ -0,0 +1,219 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.system.util.JacksonUtils;
+import org.hisp.dhis.system.util.MathUtils;
+
+/**
+ * Writes a {@link Grid} as a self-describing, columnar binary stream. The
+ * layout follows the Arrow IPC streaming model of a schema message followed
+ * by record batches and an end-of-stream marker, without requiring an Arrow
+ * runtime:
+ *
+ * <pre>
+ * stream  := MAGIC schema batch* EOS
+ * schema  := int32 length, UTF-8 JSON (title, width, height, headers, metaData)
+ * batch   := int32 rowCount (&gt; 0), column{width}
+ * column  := validity bitmap (ceil(rowCount / 8) bytes, LSB first), values
+ * values  := float64{rowCount} for numeric columns,
+ *            (int32 length, UTF-8 bytes) for each valid row of other columns
+ * EOS     := int32 0
+ * </pre>
+ *
+ * All integers and floats are big-endian. Rows are encoded one batch at a
+ * time and flushed to the underlying stream, so the encoded output is never
+ * held in memory in full.
+ */
+public class ColumnarGridWriter
+{
+    public static final byte[] MAGIC = "DHIS2COL".getBytes( StandardCharsets.US_ASCII );
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int batchSize;
+
+    public ColumnarGridWriter()
+    {
+        this( DEFAULT_BATCH_SIZE );
+    }
+
+    public ColumnarGridWriter( int batchSize )
+    {
+        this.batchSize = Math.max( 1, batchSize );
+    }
+
+    /**
+     * Writes the given grid to the given output stream. The output stream is
+     * flushed but not closed.
+     *
+     * @param grid the grid.
+     * @param out the output stream.
+     */
+    public void write( Grid grid, OutputStream out )
+        throws IOException
+    {
+        DataOutputStream dos = new DataOutputStream( new BufferedOutputStream( out, BUFFER_SIZE ) );
+
+        List<GridHeader> headers = grid.getHeaders();
+        List<List<Object>> rows = grid.getRows();
+
+        boolean[] numeric = new boolean[headers.size()];
+
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            numeric[i] = headers.get( i ).isNumeric();
+        }
+
+        dos.write( MAGIC );
+        writeSchema( grid, dos );
+
+        for ( int start = 0; start < rows.size(); start += batchSize )
+        {
+            List<List<Object>> batch = rows.subList( start, Math.min( start + batchSize, rows.size() ) );
+
+            writeBatch( batch, numeric, dos );
+
+            dos.flush();
+        }
+
+        dos.writeInt( 0 );
+        dos.flush();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void writeSchema( Grid grid, DataOutputStream dos )
+        throws IOException
+    {
+        List<Map<String, Object>> headers = new ArrayList<>();
+
+        for ( GridHeader header : grid.getHeaders() )
+        {
+            Map<String, Object> map = new HashMap<>();
+            map.put( "name", header.getName() );
+            map.put( "column", header.getColumn() );
+            map.put( "valueType", header.getValueType() );
+            map.put( "type", header.getType() );
+            map.put( "hidden", header.isHidden() );
+            map.put( "meta", header.isMeta() );
+            map.put( "numeric", header.isNumeric() );
+            headers.add( map );
+        }
+
+        Map<String, Object> schema = new HashMap<>();
+        schema.put( "title", grid.getTitle() );
+        schema.put( "width", grid.getWidth() );
+        schema.put( "height", grid.getHeight() );
+        schema.put( "headers", headers );
+        schema.put( "metaData", grid.getMetaData() );
+
+        byte[] json = JacksonUtils.toJson( schema ).getBytes( StandardCharsets.UTF_8 );
+
+        dos.writeInt( json.length );
+        dos.write( json );
+    }
+
+    private void writeBatch( List<List<Object>> batch, boolean[] numeric, DataOutputStream dos )
+        throws IOException
+    {
+        int rowCount = batch.size();
+
+        dos.writeInt( rowCount );
+
+        for ( int col = 0; col < numeric.length; col++ )
+        {
+            byte[] validity = new byte[( rowCount + 7 ) / 8];
+
+            for ( int row = 0; row < rowCount; row++ )
+            {
+                if ( getValue( batch.get( row ), col, numeric[col] ) != null )
+                {
+                    validity[row >> 3] |= 1 << ( row & 7 );
+                }
+            }
+
+            dos.write( validity );
+
+            for ( int row = 0; row < rowCount; row++ )
+            {
+                Object value = getValue( batch.get( row ), col, numeric[col] );
+
+                if ( numeric[col] )
+                {
+                    dos.writeDouble( value != null ? (Double) value : 0d );
+                }
+                else if ( value != null )
+                {
+                    byte[] bytes = ( (String) value ).getBytes( StandardCharsets.UTF_8 );
+
+                    dos.writeInt( bytes.length );
+                    dos.write( bytes );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the given column as a Double for numeric columns
+     * and as a String for other columns, or null if missing.
+     */
+    private Object getValue( List<Object> row, int col, boolean numeric )
+    {
+        Object value = col < row.size() ? row.get( col ) : null;
+
+        if ( value == null )
+        {
+            return null;
+        }
+
+        if ( numeric )
+        {
+            return value instanceof Number ? ( (Number) value ).doubleValue() : MathUtils.parseDouble( String.valueOf( value ) );
+        }
+
+        return String.valueOf( value );
+    }
+}
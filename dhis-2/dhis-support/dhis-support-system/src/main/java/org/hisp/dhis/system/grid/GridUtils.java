@@ -369,6 +369,21 @@ public class GridUtils
         }
     }
 
+    /**
+     * Writes a columnar binary representation of the given Grid to the given
+     * OutputStream. See {@link ColumnarGridWriter} for the stream layout.
+     */
+    public static void toColumnar( Grid grid, OutputStream out )
+        throws IOException
+    {
+        if ( grid == null )
+        {
+            return;
+        }
+
+        new ColumnarGridWriter().write( grid, out );
+    }
+
     /**
      * Writes a Jasper Reports representation of the given Grid to the given OutputStream.
      */
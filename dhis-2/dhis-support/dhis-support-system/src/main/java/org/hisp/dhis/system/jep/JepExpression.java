@@ -0,0 +1,102 @@
+package org.hisp.dhis.system.jep;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.nfunk.jep.JEP;
+import org.nfunk.jep.Variable;
+
+import java.util.List;
+
+/**
+ * A mathematical expression which is parsed once and evaluated repeatedly
+ * with different values for its variables. Uses the same functions as
+ * {@link org.hisp.dhis.system.util.MathUtils#calculateExpression(String)}.
+ * <p>
+ * Instances are not thread-safe, as the underlying parser holds the
+ * variable values.
+ */
+public class JepExpression
+{
+    private final JEP parser;
+
+    private final Variable[] variables;
+
+    /**
+     * Parses the given expression.
+     *
+     * @param expression the expression to parse.
+     * @param variableNames the names of the variables in the expression, in
+     *        the order in which values are given on evaluation.
+     */
+    public JepExpression( String expression, List<String> variableNames )
+    {
+        this.parser = new JEP();
+        this.parser.addStandardFunctions();
+        CustomFunctions.addFunctions( parser );
+
+        for ( String name : variableNames )
+        {
+            parser.addVariable( name, 0d );
+        }
+
+        parser.parseExpression( expression );
+
+        this.variables = new Variable[variableNames.size()];
+
+        for ( int i = 0; i < variables.length; i++ )
+        {
+            variables[i] = parser.getVar( variableNames.get( i ) );
+        }
+    }
+
+    /**
+     * Indicates whether the expression could not be parsed.
+     */
+    public boolean hasError()
+    {
+        return parser.hasError();
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param values the variable values, in the order of the variable names
+     *        given when parsing.
+     * @return the result of the evaluation.
+     */
+    public double getValue( double[] values )
+    {
+        for ( int i = 0; i < variables.length; i++ )
+        {
+            variables[i].setValue( values[i] );
+        }
+
+        return parser.getValue();
+    }
+}
@@ -0,0 +1,150 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest
+{
+    @Test
+    public void testCoalesceConcurrentCalls()
+        throws Exception
+    {
+        SingleFlight<String> singleFlight = new SingleFlight<>( "test" );
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        try
+        {
+            Future<String> first = executor.submit( () -> singleFlight.execute( "keyA", () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await( release );
+                return "valueA";
+            } ) );
+
+            started.await( 5, TimeUnit.SECONDS );
+
+            Future<String> second = executor.submit( () -> singleFlight.execute( "keyA", () -> {
+                computations.incrementAndGet();
+                return "other";
+            } ) );
+
+            while ( singleFlight.getCoalescedCount() < 1 )
+            {
+                Thread.sleep( 5 );
+            }
+
+            release.countDown();
+
+            assertEquals( "valueA", first.get( 5, TimeUnit.SECONDS ) );
+            assertEquals( "valueA", second.get( 5, TimeUnit.SECONDS ) );
+            assertEquals( 1, computations.get() );
+            assertEquals( 1, singleFlight.getExecutedCount() );
+            assertEquals( 1, singleFlight.getCoalescedCount() );
+            assertEquals( 0, singleFlight.getInFlightCount() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCoalesced()
+    {
+        SingleFlight<String> singleFlight = new SingleFlight<>( "test" );
+
+        assertEquals( "a", singleFlight.execute( "key", () -> "a" ) );
+        assertEquals( "b", singleFlight.execute( "key", () -> "b" ) );
+        assertEquals( 2, singleFlight.getExecutedCount() );
+        assertEquals( 0, singleFlight.getCoalescedCount() );
+    }
+
+    @Test
+    public void testRegisterWithCacheProvider()
+    {
+        SingleFlight<String> flight = new SingleFlight<>( "test" );
+        CacheProvider cacheProvider = new DefaultCacheProvider();
+
+        cacheProvider.registerSingleFlight( flight );
+
+        flight.execute( "A", () -> "a" );
+
+        assertEquals( 1, cacheProvider.getSingleFlights().size() );
+        assertEquals( "test", cacheProvider.getSingleFlights().get( 0 ).getName() );
+        assertEquals( 1, cacheProvider.getSingleFlights().get( 0 ).getExecutedCount() );
+    }
+
+    @Test
+    public void testExceptionIsPropagated()
+    {
+        SingleFlight<String> singleFlight = new SingleFlight<>( "test" );
+
+        try
+        {
+            singleFlight.execute( "key", () -> {
+                throw new IllegalArgumentException( "failed" );
+            } );
+
+            fail();
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            assertEquals( "failed", ex.getMessage() );
+        }
+
+        assertEquals( "a", singleFlight.execute( "key", () -> "a" ) );
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ValueType;
+import org.junit.Test;
+
+public class ColumnarGridWriterTest
+{
+    @Test
+    public void testWrite()
+        throws Exception
+    {
+        Grid grid = new ListGrid();
+        grid.addHeader( new GridHeader( "Name", "name", ValueType.TEXT, String.class.getName(), false, true ) );
+        grid.addHeader( new GridHeader( "Value", "value", ValueType.NUMBER, Double.class.getName(), false, false ) );
+
+        grid.addRow().addValue( "A" ).addValue( 1.5 );
+        grid.addRow().addValue( "B" ).addValue( null );
+        grid.addRow().addValue( null ).addValue( 3 );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new ColumnarGridWriter( 2 ).write( grid, out );
+
+        DataInputStream in = new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+
+        byte[] magic = new byte[ColumnarGridWriter.MAGIC.length];
+        in.readFully( magic );
+        assertArrayEquals( ColumnarGridWriter.MAGIC, magic );
+
+        byte[] schema = new byte[in.readInt()];
+        in.readFully( schema );
+        assertEquals( true, new String( schema, StandardCharsets.UTF_8 ).contains( "\"column\":\"value\"" ) );
+
+        // First batch, two rows
+
+        assertEquals( 2, in.readInt() );
+        assertEquals( 0b11, in.readByte() );
+        assertEquals( "A", readString( in ) );
+        assertEquals( "B", readString( in ) );
+        assertEquals( 0b01, in.readByte() );
+        assertEquals( 1.5, in.readDouble(), 0.0 );
+        assertEquals( 0.0, in.readDouble(), 0.0 );
+
+        // Second batch, one row
+
+        assertEquals( 1, in.readInt() );
+        assertEquals( 0b00, in.readByte() );
+        assertEquals( 0b01, in.readByte() );
+        assertEquals( 3.0, in.readDouble(), 0.0 );
+
+        // End of stream
+
+        assertEquals( 0, in.readInt() );
+        assertEquals( -1, in.read() );
+    }
+
+    private String readString( DataInputStream in )
+        throws Exception
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
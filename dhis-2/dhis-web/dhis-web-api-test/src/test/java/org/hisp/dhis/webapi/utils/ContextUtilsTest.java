@@ -37,13 +37,19 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
 import java.util.Calendar;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Stian Sandvold
@@ -142,6 +148,69 @@ public class ContextUtilsTest
         assertEquals( "max-age=3600, public", response.getHeader( "Cache-Control" ) );
     }
 
+    @Test
+    public void testIsAcceptGzip()
+    {
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( null ) ) );
+        assertTrue( ContextUtils.isAcceptGzip( getRequest( "gzip" ) ) );
+        assertTrue( ContextUtils.isAcceptGzip( getRequest( "deflate, GZIP;q=0.5" ) ) );
+        assertTrue( ContextUtils.isAcceptGzip( getRequest( "*" ) ) );
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( "gzip;q=0" ) ) );
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( "gzip; q=0.0, deflate" ) ) );
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( "*, gzip;q=0" ) ) );
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( "*;q=0" ) ) );
+        assertFalse( ContextUtils.isAcceptGzip( getRequest( "deflate, br" ) ) );
+    }
+
+    @Test
+    public void testGetCompressedOutputStream()
+        throws Exception
+    {
+        MockHttpServletResponse gzipResponse = new MockHttpServletResponse();
+
+        OutputStream out = ContextUtils.getCompressedOutputStream( getRequest( "gzip" ), gzipResponse );
+
+        assertTrue( out instanceof GZIPOutputStream );
+        assertEquals( "gzip", gzipResponse.getHeader( "Content-Encoding" ) );
+        assertEquals( "Accept-Encoding", gzipResponse.getHeader( "Vary" ) );
+
+        MockHttpServletResponse plainResponse = new MockHttpServletResponse();
+
+        out = ContextUtils.getCompressedOutputStream( getRequest( "gzip;q=0" ), plainResponse );
+
+        assertFalse( out instanceof GZIPOutputStream );
+        assertNull( plainResponse.getHeader( "Content-Encoding" ) );
+        assertEquals( "Accept-Encoding", plainResponse.getHeader( "Vary" ) );
+    }
+
+    @Test
+    public void testGetCompressedOutputStreamGzipFile()
+        throws Exception
+    {
+        MockHttpServletRequest request = getRequest( null );
+        request.setPathInfo( "/events/export.json.gz" );
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        OutputStream out = ContextUtils.getCompressedOutputStream( request, response );
+
+        assertTrue( out instanceof GZIPOutputStream );
+        assertEquals( ContextUtils.CONTENT_TYPE_GZIP, response.getContentType() );
+        assertNull( response.getHeader( "Content-Encoding" ) );
+    }
+
+    private MockHttpServletRequest getRequest( String acceptEncoding )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        if ( acceptEncoding != null )
+        {
+            request.addHeader( "Accept-Encoding", acceptEncoding );
+        }
+
+        return request;
+    }
+
     @Test
     public void testGetAttachmentFileNameNull()
     {
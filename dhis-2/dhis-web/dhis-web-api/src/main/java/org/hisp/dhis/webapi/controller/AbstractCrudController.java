@@ -242,6 +242,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             new FieldFilterParams( entities, fields, Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) ) ) );
 
         response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
+        ContextUtils.setStatementCount( response );
 
         return rootNode;
     }
@@ -269,7 +270,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
         response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
 
-        return getObjectInternal( pvUid, rpParameters, filters, fields, user );
+        return getObjectInternal( pvUid, rpParameters, filters, fields, user, response );
     }
 
     @RequestMapping( value = "/{uid}/{property}", method = RequestMethod.GET )
@@ -306,7 +307,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
         response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
 
-        return getObjectInternal( pvUid, rpParameters, Lists.newArrayList(), Lists.newArrayList( pvProperty + fieldFilter ), user );
+        return getObjectInternal( pvUid, rpParameters, Lists.newArrayList(), Lists.newArrayList( pvProperty + fieldFilter ), user, response );
     }
 
     @RequestMapping( value = "/{uid}/translations", method = RequestMethod.PUT )
@@ -472,7 +473,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
     @SuppressWarnings( "unchecked" )
     private RootNode getObjectInternal( String uid, Map<String, String> parameters,
-        List<String> filters, List<String> fields, User user ) throws Exception
+        List<String> filters, List<String> fields, User user, HttpServletResponse response ) throws Exception
     {
         WebOptions options = new WebOptions( parameters );
         List<T> entities = getEntity( uid, options );
@@ -501,6 +502,8 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             new FieldFilterParams( entities, fields, Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) )
                 .setUser( user ) );
 
+        ContextUtils.setStatementCount( response );
+
         if ( options.isTrue( "useWrapper" ) || entities.size() > 1 )
         {
             RootNode rootNode = NodeUtils.createMetadata( collectionNode );
@@ -889,7 +892,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             throw new ReadAccessDeniedException( "You don't have the proper permissions to read objects of this type." );
         }
 
-        RootNode rootNode = getObjectInternal( pvUid, parameters, Lists.newArrayList(), Lists.newArrayList( pvProperty + "[:all]" ), user );
+        RootNode rootNode = getObjectInternal( pvUid, parameters, Lists.newArrayList(), Lists.newArrayList( pvProperty + "[:all]" ), user, response );
 
         // TODO optimize this using field filter (collection filtering)
         if ( !rootNode.getChildren().isEmpty() && rootNode.getChildren().get( 0 ).isCollection() )
@@ -38,6 +38,7 @@ import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
@@ -49,7 +50,12 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Set;
 
@@ -75,12 +81,15 @@ public class AnalyticsController
     @Autowired
     private ContextUtils contextUtils;
 
+    @Autowired
+    private RenderService renderService;
+
     // -------------------------------------------------------------------------
     // Resources
     // -------------------------------------------------------------------------
 
     @RequestMapping( value = RESOURCE_PATH, method = RequestMethod.GET, produces = { "application/json", "application/javascript" } )
-    public @ResponseBody Grid getJson( // JSON, JSONP
+    public void getJson( // JSON, JSONP
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Set<String> filter,
         @RequestParam( required = false ) AggregationType aggregationType,
@@ -112,6 +121,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -129,7 +139,12 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
+        Grid grid = analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            renderService.toJson( out, grid );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".xml", method = RequestMethod.GET )
@@ -165,6 +180,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -183,7 +199,11 @@ public class AnalyticsController
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_XML, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
         Grid grid = analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
-        GridUtils.toXml( grid, response.getOutputStream() );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            GridUtils.toXml( grid, out );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".html", method = RequestMethod.GET )
@@ -327,6 +347,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -345,7 +366,70 @@ public class AnalyticsController
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_CSV, CacheStrategy.RESPECT_SYSTEM_SETTING, "data.csv", true, params.getLatestEndDate() );
         Grid grid = analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
-        GridUtils.toCsv( grid, response.getWriter() );
+
+        try ( Writer writer = new OutputStreamWriter( ContextUtils.getCompressedOutputStream( servletRequest, response ), StandardCharsets.UTF_8 ) )
+        {
+            GridUtils.toCsv( grid, writer );
+        }
+    }
+
+    @RequestMapping( value = RESOURCE_PATH + ".columnar", method = RequestMethod.GET )
+    public void getColumnar(
+        @RequestParam Set<String> dimension,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) AggregationType aggregationType,
+        @RequestParam( required = false ) String measureCriteria,
+        @RequestParam( required = false ) String preAggregationMeasureCriteria,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) SortOrder order,
+        @RequestParam( required = false ) String timeField,
+        @RequestParam( required = false ) String orgUnitField,
+        @RequestParam( required = false ) boolean skipMeta,
+        @RequestParam( required = false ) boolean skipData,
+        @RequestParam( required = false ) boolean skipRounding,
+        @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean hierarchyMeta,
+        @RequestParam( required = false ) boolean ignoreLimit,
+        @RequestParam( required = false ) boolean hideEmptyRows,
+        @RequestParam( required = false ) boolean hideEmptyColumns,
+        @RequestParam( required = false ) boolean showHierarchy,
+        @RequestParam( required = false ) boolean includeNumDen,
+        @RequestParam( required = false ) boolean includeMetadataDetails,
+        @RequestParam( required = false ) DisplayProperty displayProperty,
+        @RequestParam( required = false ) IdScheme outputIdScheme,
+        @RequestParam( required = false ) IdScheme inputIdScheme,
+        @RequestParam( required = false ) String approvalLevel,
+        @RequestParam( required = false ) Date relativePeriodDate,
+        @RequestParam( required = false ) String userOrgUnit,
+        @RequestParam( required = false ) String columns,
+        @RequestParam( required = false ) String rows,
+        DhisApiVersion apiVersion,
+        Model model,
+        HttpServletRequest servletRequest,
+        HttpServletResponse response ) throws Exception
+    {
+        DataQueryRequest request = DataQueryRequest.newBuilder()
+            .dimension( dimension ).filter( filter ).aggregationType( aggregationType )
+            .measureCriteria( measureCriteria ).preAggregationMeasureCriteria( preAggregationMeasureCriteria )
+            .startDate( startDate ).endDate( endDate ).skipMeta( skipMeta ).skipData( skipData )
+            .skipRounding( skipRounding ).completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta )
+            .ignoreLimit( ignoreLimit ).hideEmptyRows( hideEmptyRows ).hideEmptyColumns( hideEmptyColumns )
+            .showHierarchy( showHierarchy ).includeNumDen( includeNumDen )
+            .includeMetadataDetails( includeMetadataDetails ).displayProperty( displayProperty )
+            .outputIdScheme( outputIdScheme ).inputIdScheme( inputIdScheme ).approvalLevel( approvalLevel )
+            .relativePeriodDate( relativePeriodDate ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion )
+            .order( order ).timeField( timeField ).orgUnitField( orgUnitField ).build();
+
+        DataQueryParams params = dataQueryService.getFromRequest( request );
+
+        contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_COLUMNAR, CacheStrategy.RESPECT_SYSTEM_SETTING, "data.columnar", true, params.getLatestEndDate() );
+        Grid grid = analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            GridUtils.toColumnar( grid, out );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".xls", method = RequestMethod.GET )
@@ -505,7 +589,7 @@ public class AnalyticsController
     // -------------------------------------------------------------------------
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".json", method = RequestMethod.GET )
-    public @ResponseBody Grid getRawDataJson(
+    public void getRawDataJson(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Date startDate,
         @RequestParam( required = false ) Date endDate,
@@ -520,6 +604,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String userOrgUnit,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -532,7 +617,12 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getRawDataValues( params );
+        Grid grid = analyticsService.getRawDataValues( params );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            renderService.toJson( out, grid );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".csv", method = RequestMethod.GET )
@@ -551,6 +641,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String userOrgUnit,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -565,7 +656,11 @@ public class AnalyticsController
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_CSV,
             CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
         Grid grid = analyticsService.getRawDataValues( params );
-        GridUtils.toCsv( grid, response.getWriter() );
+
+        try ( Writer writer = new OutputStreamWriter( ContextUtils.getCompressedOutputStream( servletRequest, response ), StandardCharsets.UTF_8 ) )
+        {
+            GridUtils.toCsv( grid, writer );
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -573,7 +668,7 @@ public class AnalyticsController
     // -------------------------------------------------------------------------
 
     @RequestMapping( value = RESOURCE_PATH + DATA_VALUE_SET_PATH + ".xml", method = RequestMethod.GET )
-    public @ResponseBody DataValueSet getDataValueSetXml(
+    public void getDataValueSetXml(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Set<String> filter,
         @RequestParam( required = false ) AggregationType aggregationType,
@@ -603,6 +698,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -619,11 +715,16 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_XML, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getAggregatedDataValueSet( params );
+        DataValueSet dataValueSet = analyticsService.getAggregatedDataValueSet( params );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            renderService.toXml( out, dataValueSet );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + DATA_VALUE_SET_PATH + ".json", method = RequestMethod.GET )
-    public @ResponseBody DataValueSet getDataValueSetJson(
+    public void getDataValueSetJson(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Set<String> filter,
         @RequestParam( required = false ) AggregationType aggregationType,
@@ -653,6 +754,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest servletRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -669,7 +771,12 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getAggregatedDataValueSet( params );
+        DataValueSet dataValueSet = analyticsService.getAggregatedDataValueSet( params );
+
+        try ( OutputStream out = ContextUtils.getCompressedOutputStream( servletRequest, response ) )
+        {
+            renderService.toJson( out, dataValueSet );
+        }
     }
 
     @RequestMapping( value = RESOURCE_PATH + "/tableTypes", method = RequestMethod.GET, produces = { "application/json", "application/javascript" } )
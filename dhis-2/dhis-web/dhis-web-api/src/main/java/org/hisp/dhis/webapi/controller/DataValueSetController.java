@@ -63,6 +63,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Set;
 
@@ -126,7 +130,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
-        IdSchemes idSchemes, HttpServletResponse response ) throws IOException
+        IdSchemes idSchemes, HttpServletRequest request, HttpServletResponse response ) throws IOException
     {
         response.setContentType( CONTENT_TYPE_XML );
         setNoStore( response );
@@ -135,7 +139,10 @@ public class DataValueSetController
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo, 
             includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
 
-        dataValueSetService.writeDataValueSetXml( params, response.getOutputStream() );
+        try ( OutputStream outputStream = ContextUtils.getCompressedOutputStream( request, response ) )
+        {
+            dataValueSetService.writeDataValueSetXml( params, outputStream );
+        }
     }
 
     @RequestMapping( method = RequestMethod.GET, produces = CONTENT_TYPE_XML_ADX )
@@ -149,7 +156,7 @@ public class DataValueSetController
         @RequestParam( required = false ) boolean includeDeleted,
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) Integer limit,
-        IdSchemes idSchemes, HttpServletResponse response ) throws IOException, AdxException
+        IdSchemes idSchemes, HttpServletRequest request, HttpServletResponse response ) throws IOException, AdxException
     {
         response.setContentType( CONTENT_TYPE_XML_ADX );
         setNoStore( response );
@@ -157,7 +164,10 @@ public class DataValueSetController
         DataExportParams params = adxDataService.getFromUrl( dataSet, period,
             startDate, endDate, orgUnit, children, includeDeleted, lastUpdated, limit, idSchemes );
 
-        adxDataService.writeDataValueSet( params, response.getOutputStream() );
+        try ( OutputStream outputStream = ContextUtils.getCompressedOutputStream( request, response ) )
+        {
+            adxDataService.writeDataValueSet( params, outputStream );
+        }
     }
 
     @RequestMapping( method = RequestMethod.GET, produces = CONTENT_TYPE_JSON )
@@ -175,7 +185,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
-        IdSchemes idSchemes, HttpServletResponse response ) throws IOException
+        IdSchemes idSchemes, HttpServletRequest request, HttpServletResponse response ) throws IOException
     {
         response.setContentType( CONTENT_TYPE_JSON );
         setNoStore( response );
@@ -184,7 +194,10 @@ public class DataValueSetController
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo,
             includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
 
-        dataValueSetService.writeDataValueSetJson( params, response.getOutputStream() );
+        try ( OutputStream outputStream = ContextUtils.getCompressedOutputStream( request, response ) )
+        {
+            dataValueSetService.writeDataValueSetJson( params, outputStream );
+        }
     }
 
     @RequestMapping( method = RequestMethod.GET, produces = CONTENT_TYPE_CSV )
@@ -202,7 +215,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
-        IdSchemes idSchemes,
+        IdSchemes idSchemes, HttpServletRequest request,
         HttpServletResponse response ) throws IOException
     {
         response.setContentType( CONTENT_TYPE_CSV );
@@ -212,7 +225,10 @@ public class DataValueSetController
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo,
             includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
 
-        dataValueSetService.writeDataValueSetCsv( params, response.getWriter() );
+        try ( Writer writer = new OutputStreamWriter( ContextUtils.getCompressedOutputStream( request, response ), StandardCharsets.UTF_8 ) )
+        {
+            dataValueSetService.writeDataValueSetCsv( params, writer );
+        }
     }
 
     // -------------------------------------------------------------------------
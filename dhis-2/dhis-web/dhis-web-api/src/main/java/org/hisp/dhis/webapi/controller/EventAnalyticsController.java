@@ -91,6 +91,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -116,7 +117,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).includeMetadataDetails( includeMetadataDetails )
@@ -143,6 +144,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -166,7 +168,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -193,6 +195,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -216,7 +219,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -243,6 +246,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -266,7 +270,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -293,6 +297,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -316,7 +321,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -343,6 +348,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean skipRounding,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean showHierarchy,
         @RequestParam( required = false ) SortOrder sortOrder,
@@ -366,7 +372,7 @@ public class EventAnalyticsController
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).value( value )
             .aggregationType( aggregationType ).skipMeta( skipMeta ).skipData( skipData ).skipRounding( skipRounding )
-            .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
+            .completedOnly( completedOnly ).approximate( approximate ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
             .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -499,6 +505,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) boolean includeMetadataDetails,
@@ -517,7 +524,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).includeMetadataDetails( includeMetadataDetails )
             .dataIdScheme( dataIdScheme ).eventStatus( eventStatus ).programStatus( programStatus )
             .displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate ).userOrgUnit( userOrgUnit )
@@ -543,6 +550,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) boolean includeMetadataDetails,
@@ -561,7 +569,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).includeMetadataDetails( includeMetadataDetails )
             .dataIdScheme( dataIdScheme ).eventStatus( eventStatus )
             .programStatus( programStatus ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
@@ -589,6 +597,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) IdScheme dataIdScheme,
@@ -606,7 +615,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).dataIdScheme( dataIdScheme ).eventStatus( eventStatus )
             .programStatus( programStatus ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .userOrgUnit( userOrgUnit ).coordinateField( coordinateField ).page( page ).pageSize( pageSize )
@@ -633,6 +642,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) IdScheme dataIdScheme,
@@ -650,7 +660,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).dataIdScheme( dataIdScheme ).eventStatus( eventStatus )
             .programStatus( programStatus ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .userOrgUnit( userOrgUnit ).coordinateField( coordinateField ).page( page ).pageSize( pageSize )
@@ -677,6 +687,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) IdScheme dataIdScheme,
@@ -694,7 +705,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).dataIdScheme( dataIdScheme ).eventStatus( eventStatus )
             .programStatus( programStatus ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .userOrgUnit( userOrgUnit ).coordinateField( coordinateField ).page( page ).pageSize( pageSize )
@@ -721,6 +732,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) boolean skipMeta,
         @RequestParam( required = false ) boolean skipData,
         @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean approximate,
         @RequestParam( required = false ) boolean hierarchyMeta,
         @RequestParam( required = false ) boolean coordinatesOnly,
         @RequestParam( required = false ) IdScheme dataIdScheme,
@@ -738,7 +750,7 @@ public class EventAnalyticsController
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
             .startDate( startDate ).endDate( endDate ).dimension( dimension ).filter( filter ).ouMode( ouMode )
-            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly )
+            .asc( asc ).desc( desc ).skipMeta( skipMeta ).skipData( skipData ).completedOnly( completedOnly ).approximate( approximate )
             .hierarchyMeta( hierarchyMeta ).coordinatesOnly( coordinatesOnly ).dataIdScheme( dataIdScheme ).eventStatus( eventStatus )
             .programStatus( programStatus ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .userOrgUnit( userOrgUnit ).coordinateField( coordinateField ).page( page ).pageSize( pageSize )
@@ -198,6 +198,14 @@ public class MaintenanceController
         maintenanceService.deleteSoftDeletedTrackedEntityInstances();
     }
 
+    @RequestMapping( value = "/trackedEntityInstanceSearchProjectionRebuild", method = { RequestMethod.PUT, RequestMethod.POST } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    @ResponseStatus( HttpStatus.NO_CONTENT )
+    public void rebuildTrackedEntityInstanceSearchProjection()
+    {
+        maintenanceService.rebuildTrackedEntityInstanceSearchProjection();
+    }
+
     @RequestMapping( value = "/sqlViewsCreate", method = { RequestMethod.PUT, RequestMethod.POST } )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
     @ResponseStatus( HttpStatus.NO_CONTENT )
@@ -319,6 +327,7 @@ public class MaintenanceController
         @RequestParam( required = false ) boolean softDeletedEventRemoval,
         @RequestParam( required = false ) boolean softDeletedEnrollmentRemoval,
         @RequestParam( required = false ) boolean softDeletedTrackedEntityInstanceRemoval,
+        @RequestParam( required = false ) boolean trackedEntityInstanceSearchProjectionRebuild,
         @RequestParam( required = false ) boolean sqlViewsDrop,
         @RequestParam( required = false ) boolean sqlViewsCreate,
         @RequestParam( required = false ) boolean categoryOptionComboUpdate,
@@ -376,6 +385,11 @@ public class MaintenanceController
             deleteSoftDeletedTrackedEntityInstances();
         }
 
+        if ( trackedEntityInstanceSearchProjectionRebuild )
+        {
+            rebuildTrackedEntityInstanceSearchProjection();
+        }
+
         if ( sqlViewsDrop )
         {
             dropSqlViews();
@@ -30,6 +30,7 @@ package org.hisp.dhis.webapi.controller;
 
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.dataanalysis.MinMaxDataAnalysisService;
+import org.hisp.dhis.dataanalysis.MinMaxValueGenerationTask;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
@@ -39,9 +40,14 @@ import org.hisp.dhis.minmax.MinMaxDataElementService;
 import org.hisp.dhis.minmax.MinMaxValueParams;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.SchedulingManager;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.hisp.dhis.webapi.service.WebMessageService;
+import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -54,10 +60,15 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 
+import static org.hisp.dhis.dxf2.webmessage.WebMessageUtils.jobConfigurationReport;
+import static org.hisp.dhis.scheduling.JobType.MIN_MAX_VALUE_GENERATION;
+
 /**
  * min max value endpoint to to generate and remove min max values
  *
@@ -85,11 +96,21 @@ public class MinMaxValueController
     @Autowired
     private SystemSettingManager systemSettingManager;
 
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    @Autowired
+    private SchedulingManager schedulingManager;
+
+    @Autowired
+    private WebMessageService webMessageService;
+
     @RequestMapping( method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
-    @ResponseStatus( HttpStatus.NO_CONTENT )
-    public void generateMinMaxValue( @RequestBody MinMaxValueParams minMaxValueParams )
-        throws WebMessageException
+    public void generateMinMaxValue( @RequestBody MinMaxValueParams minMaxValueParams,
+        @RequestParam( defaultValue = "false", required = false ) boolean async,
+        HttpServletRequest request, HttpServletResponse response )
+        throws Exception
     {
         List<String> dataSets = minMaxValueParams.getDataSets();
         String organisationUnitId = minMaxValueParams.getOrganisationUnit();
@@ -116,8 +137,24 @@ public class MinMaxValueController
         Double factor = (Double) this.systemSettingManager.
             getSystemSetting( SettingKey.FACTOR_OF_DEVIATION );
 
-        this.minMaxDataAnalysisService.generateMinMaxValues( organisationUnit, dataElements, factor );
+        if ( async )
+        {
+            JobConfiguration jobId = new JobConfiguration( "inMemoryMinMaxValueGeneration", MIN_MAX_VALUE_GENERATION,
+                currentUserService.getCurrentUser().getUid(), true );
+
+            schedulingManager.executeJob( new MinMaxValueGenerationTask( organisationUnit, dataElements, factor,
+                minMaxDataAnalysisService, jobId ) );
+
+            response.setHeader( "Location", ContextUtils.getRootPath( request ) + "/system/tasks/" + MIN_MAX_VALUE_GENERATION );
 
+            webMessageService.send( jobConfigurationReport( jobId ), response, request );
+        }
+        else
+        {
+            this.minMaxDataAnalysisService.generateMinMaxValues( organisationUnit, dataElements, factor );
+
+            response.setStatus( HttpStatus.NO_CONTENT.value() );
+        }
     }
 
     @RequestMapping( value = "/{ou}", method = RequestMethod.DELETE )
@@ -43,6 +43,8 @@ import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SingleFlight;
 import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.common.Objects;
@@ -70,6 +72,7 @@ import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -118,6 +121,9 @@ public class SystemController
     @Autowired
     private StatisticsProvider statisticsProvider;
 
+    @Autowired
+    private CacheProvider cacheProvider;
+
     private static final CsvFactory CSV_FACTORY = new CsvMapper().getFactory();
 
     // -------------------------------------------------------------------------
@@ -359,6 +365,15 @@ public class SystemController
         return rootNode;
     }
 
+    @RequestMapping( value = "/singleFlights", method = RequestMethod.GET, produces = { "application/json" } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody List<SingleFlight<?>> getSingleFlights( HttpServletResponse response )
+    {
+        setNoStore( response );
+
+        return cacheProvider.getSingleFlights();
+    }
+
     @RequestMapping( value = "/ping", method = RequestMethod.GET )
     @ResponseStatus( HttpStatus.OK )
     public @ResponseBody String ping( HttpServletResponse response )
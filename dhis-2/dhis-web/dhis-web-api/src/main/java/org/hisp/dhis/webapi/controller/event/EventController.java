@@ -50,8 +50,11 @@ import org.hisp.dhis.dxf2.events.event.DataValue;
 import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.EventSearchParams;
 import org.hisp.dhis.dxf2.events.event.EventService;
+import org.hisp.dhis.dxf2.events.event.EventWriter;
 import org.hisp.dhis.dxf2.events.event.Events;
 import org.hisp.dhis.dxf2.events.event.ImportEventsTask;
+import org.hisp.dhis.dxf2.events.event.StreamingJsonEventWriter;
+import org.hisp.dhis.dxf2.events.event.StreamingXmlEventWriter;
 import org.hisp.dhis.dxf2.events.event.csv.CsvEventService;
 import org.hisp.dhis.dxf2.events.report.EventRowService;
 import org.hisp.dhis.dxf2.events.report.EventRows;
@@ -604,8 +607,6 @@ public class EventController
             idSchemes, page, pageSize, totalPages, skipPaging, schemaOrders, getGridOrderParams( order, dataElementOrders ), false, eventIds, filter, dataElementOrders.keySet(), false,
             includeDeleted );
 
-        Events events = eventService.getEvents( params );
-
         OutputStream outputStream = response.getOutputStream();
         response.setContentType( "application/csv" );
 
@@ -621,7 +622,77 @@ public class EventController
             response.addHeader( "Content-Disposition", "attachment; filename=" + attachment );
         }
 
-        csvEventService.writeEvents( outputStream, events, !skipHeader );
+        writeEvents( params, csvEventService.getEventWriter( outputStream, !skipHeader ), response );
+    }
+
+    @RequestMapping( value = "/export", method = RequestMethod.GET, produces = { ContextUtils.CONTENT_TYPE_JSON, "application/json+gzip" } )
+    public void exportJsonEvents(
+        @RequestParam( required = false ) String program,
+        @RequestParam( required = false ) String programStage,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) Boolean followUp,
+        @RequestParam( required = false ) String trackedEntityInstance,
+        @RequestParam( required = false ) String orgUnit,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) Date dueDateStart,
+        @RequestParam( required = false ) Date dueDateEnd,
+        @RequestParam( required = false ) Date lastUpdatedStartDate,
+        @RequestParam( required = false ) Date lastUpdatedEndDate,
+        @RequestParam( required = false ) EventStatus status,
+        @RequestParam( required = false ) String attributeCc,
+        @RequestParam( required = false ) String attributeCos,
+        @RequestParam( required = false ) String order,
+        @RequestParam( required = false ) String event,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) String attachment,
+        @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
+        IdSchemes idSchemes, HttpServletResponse response, HttpServletRequest request ) throws IOException, WebMessageException
+    {
+        EventSearchParams params = getExportParams( program, programStage, programStatus, followUp, trackedEntityInstance,
+            orgUnit, ouMode, startDate, endDate, dueDateStart, dueDateEnd, lastUpdatedStartDate, lastUpdatedEndDate, status,
+            attributeCc, attributeCos, order, event, filter, includeDeleted, idSchemes );
+
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+        setExportHeaders( response, attachment );
+
+        writeEvents( params, new StreamingJsonEventWriter( ContextUtils.getCompressedOutputStream( request, response ) ), response );
+    }
+
+    @RequestMapping( value = "/export", method = RequestMethod.GET, produces = { ContextUtils.CONTENT_TYPE_XML, "application/xml+gzip" } )
+    public void exportXmlEvents(
+        @RequestParam( required = false ) String program,
+        @RequestParam( required = false ) String programStage,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) Boolean followUp,
+        @RequestParam( required = false ) String trackedEntityInstance,
+        @RequestParam( required = false ) String orgUnit,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) Date dueDateStart,
+        @RequestParam( required = false ) Date dueDateEnd,
+        @RequestParam( required = false ) Date lastUpdatedStartDate,
+        @RequestParam( required = false ) Date lastUpdatedEndDate,
+        @RequestParam( required = false ) EventStatus status,
+        @RequestParam( required = false ) String attributeCc,
+        @RequestParam( required = false ) String attributeCos,
+        @RequestParam( required = false ) String order,
+        @RequestParam( required = false ) String event,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) String attachment,
+        @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
+        IdSchemes idSchemes, HttpServletResponse response, HttpServletRequest request ) throws IOException, WebMessageException
+    {
+        EventSearchParams params = getExportParams( program, programStage, programStatus, followUp, trackedEntityInstance,
+            orgUnit, ouMode, startDate, endDate, dueDateStart, dueDateEnd, lastUpdatedStartDate, lastUpdatedEndDate, status,
+            attributeCc, attributeCos, order, event, filter, includeDeleted, idSchemes );
+
+        response.setContentType( ContextUtils.CONTENT_TYPE_XML );
+        setExportHeaders( response, attachment );
+
+        writeEvents( params, new StreamingXmlEventWriter( ContextUtils.getCompressedOutputStream( request, response ) ), response );
     }
 
     @RequestMapping( value = "/eventRows", method = RequestMethod.GET )
@@ -999,6 +1070,62 @@ public class EventController
     // Helpers
     // -------------------------------------------------------------------------
 
+    /**
+     * Streams the events matching the given parameters to the given writer and
+     * completes the written document. On failure the document is left
+     * incomplete and the exception is propagated, so that a partially sent
+     * response is aborted instead of ending as a truncated but well-formed
+     * export. A response which is not yet committed is reset so that the
+     * error is rendered in its place.
+     */
+    private void writeEvents( EventSearchParams params, EventWriter writer, HttpServletResponse response )
+    {
+        try
+        {
+            eventService.getEvents( params, writer::writeEvent );
+        }
+        catch ( RuntimeException ex )
+        {
+            if ( !response.isCommitted() )
+            {
+                response.reset();
+            }
+
+            throw ex;
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Returns the search parameters for an event export, which is never paged.
+     */
+    private EventSearchParams getExportParams( String program, String programStage, ProgramStatus programStatus,
+        Boolean followUp, String trackedEntityInstance, String orgUnit, OrganisationUnitSelectionMode ouMode, Date startDate,
+        Date endDate, Date dueDateStart, Date dueDateEnd, Date lastUpdatedStartDate, Date lastUpdatedEndDate,
+        EventStatus status, String attributeCc, String attributeCos, String order, String event, Set<String> filter,
+        boolean includeDeleted, IdSchemes idSchemes )
+    {
+        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( attributeCc, attributeCos, true );
+
+        Map<String, String> dataElementOrders = getDataElementsFromOrder( order );
+
+        return eventService.getFromUrl( program, programStage, programStatus, followUp,
+            orgUnit, ouMode, trackedEntityInstance, startDate, endDate, dueDateStart, dueDateEnd, lastUpdatedStartDate, lastUpdatedEndDate, status, attributeOptionCombo,
+            idSchemes, null, null, false, true, getOrderParams( order ), getGridOrderParams( order, dataElementOrders ), false,
+            TextUtils.splitToArray( event, TextUtils.SEMICOLON ), filter, dataElementOrders.keySet(), false, includeDeleted );
+    }
+
+    private void setExportHeaders( HttpServletResponse response, String attachment )
+    {
+        ContextUtils.setNoStore( response );
+
+        if ( !StringUtils.isEmpty( attachment ) )
+        {
+            response.addHeader( ContextUtils.HEADER_CONTENT_DISPOSITION, "attachment; filename=" + attachment );
+        }
+    }
+
     private Map<String, String> getDataElementsFromOrder( String allOrders )
     {
         Map<String, String> dataElements = new HashMap<>();
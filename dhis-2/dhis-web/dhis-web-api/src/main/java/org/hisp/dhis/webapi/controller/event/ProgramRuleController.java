@@ -29,10 +29,18 @@ package org.hisp.dhis.webapi.controller.event;
  */
 
 import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.engine.RuleEffectOutboxService;
 import org.hisp.dhis.schema.descriptors.ProgramRuleSchemaDescriptor;
 import org.hisp.dhis.webapi.controller.AbstractCrudController;
+import org.hisp.dhis.webapi.utils.ContextUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
 
 /**
  *
@@ -43,4 +51,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 public class ProgramRuleController
     extends AbstractCrudController<ProgramRule>
 {
+    @Autowired
+    private RuleEffectOutboxService ruleEffectOutboxService;
+
+    @PreAuthorize( "hasRole('ALL')" )
+    @GetMapping( value = "/effectOutbox", produces = ContextUtils.CONTENT_TYPE_JSON )
+    public @ResponseBody Map<String, Object> getEffectOutboxMetrics()
+    {
+        return ruleEffectOutboxService.getMetrics();
+    }
 }
@@ -33,6 +33,7 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.common.cache.Cacheability;
+import org.hisp.dhis.hibernate.StatementCounter;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.CodecUtils;
@@ -48,6 +49,7 @@ import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.Calendar;
 import java.util.Collection;
@@ -58,6 +60,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 import static org.hisp.dhis.api.util.DateUtils.getSecondsUntilTomorrow;
@@ -82,6 +85,7 @@ public class ContextUtils
     public static final String CONTENT_TYPE_EXCEL = "application/vnd.ms-excel";
     public static final String CONTENT_TYPE_JAVASCRIPT = "application/javascript; charset=UTF-8";
     public static final String CONTENT_TYPE_FORM_ENCODED = "application/x-www-form-urlencoded";
+    public static final String CONTENT_TYPE_COLUMNAR = "application/vnd.dhis2.columnar";
 
     public static final String HEADER_USER_AGENT = "User-Agent";
     public static final String HEADER_CACHE_CONTROL = "Cache-Control";
@@ -89,6 +93,11 @@ public class ContextUtils
     public static final String HEADER_EXPIRES = "Expires";
     public static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
     public static final String HEADER_CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String HEADER_VARY = "Vary";
+    public static final String HEADER_VALUE_GZIP = "gzip";
+    public static final String HEADER_STATEMENT_COUNT = "X-Statement-Count";
     public static final String HEADER_VALUE_NO_STORE = "no-cache, no-store, max-age=0, must-revalidate";
 
     public static final String QUERY_PARAM_SEP = ";";
@@ -203,6 +212,21 @@ public class ContextUtils
         return response;
     }
 
+    /**
+     * Sets the number of SQL statements executed so far for the current request
+     * as a response header, if statement counting was requested.
+     *
+     * @param response the HTTP response.
+     * @see org.hisp.dhis.webapi.mvc.interceptor.StatementCountInterceptor
+     */
+    public static void setStatementCount( HttpServletResponse response )
+    {
+        if ( StatementCounter.isActive() )
+        {
+            response.setHeader( HEADER_STATEMENT_COUNT, String.valueOf( StatementCounter.getCount() ) );
+        }
+    }
+
     public static void okResponse( HttpServletResponse response, String message ) //TODO remove message
     {
         setResponse( response, HttpServletResponse.SC_OK, message );
@@ -438,6 +462,108 @@ public class ContextUtils
             || (request.getHeader( "Accept" ) != null && request.getHeader( "Accept" ).contains( "application/csv+gzip" )));
     }
 
+    /**
+     * Indicates whether the given request accepts a gzip content encoding
+     * through the Accept-Encoding header. The encoding is accepted when listed
+     * explicitly, or through the * wildcard, with a quality value above zero.
+     *
+     * @param request the HttpServletRequest.
+     * @return whether the given request accepts a gzip content encoding.
+     */
+    public static boolean isAcceptGzip( HttpServletRequest request )
+    {
+        String acceptEncoding = request != null ? request.getHeader( HEADER_ACCEPT_ENCODING ) : null;
+
+        if ( acceptEncoding == null )
+        {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+
+        for ( String encoding : acceptEncoding.split( "," ) )
+        {
+            String[] parts = encoding.split( ";" );
+            String coding = parts[0].trim().toLowerCase();
+
+            if ( HEADER_VALUE_GZIP.equals( coding ) )
+            {
+                gzipQuality = getQuality( parts );
+            }
+            else if ( "*".equals( coding ) )
+            {
+                wildcardQuality = getQuality( parts );
+            }
+        }
+
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+
+        return quality != null && quality > 0d;
+    }
+
+    /**
+     * Returns the quality value of the given Accept-Encoding element parts,
+     * which is 1 if not specified and 0 if not a valid number.
+     */
+    private static double getQuality( String[] parts )
+    {
+        for ( int i = 1; i < parts.length; i++ )
+        {
+            String param = parts[i].trim().toLowerCase();
+
+            if ( param.startsWith( "q=" ) )
+            {
+                try
+                {
+                    return Double.parseDouble( param.substring( 2 ).trim() );
+                }
+                catch ( NumberFormatException ex )
+                {
+                    return 0d;
+                }
+            }
+        }
+
+        return 1d;
+    }
+
+    /**
+     * Returns the output stream of the given response. If the request path
+     * ends with .gz, the content is written as a gzip file with the gzip
+     * content type. Otherwise, if the request accepts a gzip content encoding,
+     * the Content-Encoding header is set and the output stream is wrapped in a
+     * streaming gzip compressor. The caller must close the returned stream to
+     * finish the compressed content. The Vary header is set for all outcomes so
+     * that shared caches keep the encoded and plain representations apart.
+     *
+     * @param request the HttpServletRequest.
+     * @param response the HttpServletResponse.
+     * @return the output stream to write the response content to.
+     */
+    public static OutputStream getCompressedOutputStream( HttpServletRequest request, HttpServletResponse response )
+        throws IOException
+    {
+        response.addHeader( HEADER_VARY, HEADER_ACCEPT_ENCODING );
+
+        if ( request.getPathInfo() != null && request.getPathInfo().endsWith( ".gz" ) )
+        {
+            response.addHeader( HEADER_CONTENT_TRANSFER_ENCODING, "binary" );
+            response.setContentType( CONTENT_TYPE_GZIP );
+
+            return new GZIPOutputStream( response.getOutputStream() );
+        }
+
+        if ( isAcceptGzip( request ) )
+        {
+            response.setHeader( HEADER_CONTENT_ENCODING, HEADER_VALUE_GZIP );
+
+            return new GZIPOutputStream( response.getOutputStream() );
+        }
+
+        return response.getOutputStream();
+    }
+
     /**
      * Extracts and returns the file name from a content disposition header value.
      *